@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+
+import java.io.IOException;
+
+/**
+ * The response of one document of a multi vectorize request, either its row or the reason it failed.
+ */
+public class MultiVectorizeItemResponse implements Streamable {
+
+    private VectorizeResponse response;
+    private MultiVectorizeResponse.Failure failure;
+
+    MultiVectorizeItemResponse() {
+    }
+
+    public MultiVectorizeItemResponse(VectorizeResponse response, MultiVectorizeResponse.Failure failure) {
+        assert (((response == null) && (failure != null)) || ((response != null) && (failure == null)));
+        this.response = response;
+        this.failure = failure;
+    }
+
+    public String getIndex() {
+        return failure != null ? failure.getIndex() : response.getIndex();
+    }
+
+    public String getType() {
+        return failure != null ? failure.getType() : response.getType();
+    }
+
+    public String getId() {
+        return failure != null ? failure.getId() : response.getId();
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    public VectorizeResponse getResponse() {
+        return response;
+    }
+
+    public MultiVectorizeResponse.Failure getFailure() {
+        return failure;
+    }
+
+    public static MultiVectorizeItemResponse readItemResponse(StreamInput in) throws IOException {
+        MultiVectorizeItemResponse response = new MultiVectorizeItemResponse();
+        response.readFrom(in);
+        return response;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        if (in.readBoolean()) {
+            failure = MultiVectorizeResponse.Failure.readFailure(in);
+        } else {
+            response = new VectorizeResponse();
+            response.readFrom(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        if (failure != null) {
+            out.writeBoolean(true);
+            failure.writeTo(out);
+        } else {
+            out.writeBoolean(false);
+            response.writeTo(out);
+        }
+    }
+}
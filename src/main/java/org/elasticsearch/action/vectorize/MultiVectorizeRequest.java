@@ -0,0 +1,186 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.CompositeIndicesRequest;
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * Vectorizes a batch of documents, indexed or artificial, in one call.
+ */
+public class MultiVectorizeRequest extends ActionRequest<MultiVectorizeRequest> implements Iterable<VectorizeRequest>, CompositeIndicesRequest {
+
+    private final List<VectorizeRequest> requests = new ArrayList<>();
+
+    public MultiVectorizeRequest add(VectorizeRequest vectorizeRequest) {
+        requests.add(vectorizeRequest);
+        return this;
+    }
+
+    public List<VectorizeRequest> getRequests() {
+        return requests;
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    @Override
+    public Iterator<VectorizeRequest> iterator() {
+        return requests.iterator();
+    }
+
+    @Override
+    public List<? extends IndicesRequest> subRequests() {
+        return requests;
+    }
+
+    /**
+     * Parses a body of the form <tt>{"vectorizer": [...], "docs": [{"doc": {...}}, {"_id": "1"}, ...]}</tt>. Each
+     * document gets its own copy of the vectorizer, unless it has one of its own, and without any vectorizer the one
+     * registered in the <tt>_vector</tt> mapping of the type is used.
+     */
+    public void add(@Nullable String defaultIndex, @Nullable String defaultType, XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        Vectorizer vectorizer = null;
+        List<VectorizeRequest> withoutVectorizer = new ArrayList<>();
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (currentFieldName != null) {
+                if (currentFieldName.equals("vectorizer")) {
+                    vectorizer = Vectorizer.parse(parser);
+                } else if (currentFieldName.equals("docs") && token == XContentParser.Token.START_ARRAY) {
+                    while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                        VectorizeRequest vectorizeRequest = parseDocument(defaultIndex, defaultType, parser);
+                        if (vectorizeRequest.vectorizer() == null) {
+                            withoutVectorizer.add(vectorizeRequest);
+                        }
+                        add(vectorizeRequest);
+                    }
+                } else {
+                    throw new ElasticsearchParseException("The parameter [" + currentFieldName + "] is not a valid " +
+                            "parameter of a multi vectorize request!");
+                }
+            }
+        }
+        if (vectorizer != null) {
+            // documents are vectorized concurrently, so they cannot share the accumulator of the vectorizer
+            for (VectorizeRequest vectorizeRequest : withoutVectorizer) {
+                vectorizeRequest.vectorizer(vectorizer.copy());
+            }
+        }
+    }
+
+    private static VectorizeRequest parseDocument(String index, String type, XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        String id = null;
+        String routing = null;
+        Vectorizer vectorizer = null;
+        XContentBuilder documentBuilder = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (currentFieldName != null) {
+                if (currentFieldName.equals("_index")) {
+                    index = parser.text();
+                } else if (currentFieldName.equals("_type")) {
+                    type = parser.text();
+                } else if (currentFieldName.equals("_id")) {
+                    id = parser.text();
+                } else if (currentFieldName.equals("_routing") || currentFieldName.equals("routing")) {
+                    routing = parser.text();
+                } else if (currentFieldName.equals("vectorizer")) {
+                    vectorizer = Vectorizer.parse(parser);
+                } else if (currentFieldName.equals("doc")) {
+                    documentBuilder = XContentFactory.contentBuilder(parser.contentType());
+                    documentBuilder.copyCurrentStructure(parser);
+                } else {
+                    throw new ElasticsearchParseException("The parameter [" + currentFieldName + "] is not a valid " +
+                            "parameter of a document to vectorize!");
+                }
+            }
+        }
+        VectorizeRequest vectorizeRequest = new VectorizeRequest(index, type, id);
+        if (vectorizer != null) {
+            vectorizeRequest.vectorizer(vectorizer);
+        }
+        if (documentBuilder != null) {
+            vectorizeRequest.doc(documentBuilder);
+        }
+        vectorizeRequest.routing(routing);
+        return vectorizeRequest;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (requests.isEmpty()) {
+            validationException = addValidationError("multi vectorize: no documents specified", validationException);
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            ActionRequestValidationException validationExceptionForDoc = requests.get(i).validate();
+            if (validationExceptionForDoc != null) {
+                validationException = addValidationError("at multi vectorize index [" + i + "]: " +
+                        validationExceptionForDoc.getMessage(), validationException);
+            }
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            VectorizeRequest vectorizeRequest = new VectorizeRequest();
+            vectorizeRequest.readFrom(in);
+            requests.add(vectorizeRequest);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(requests.size());
+        for (VectorizeRequest vectorizeRequest : requests) {
+            vectorizeRequest.writeTo(out);
+        }
+    }
+}
@@ -8,11 +8,11 @@ import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.vectorize.VectorizeTargets;
 import org.elasticsearch.vectorize.Vectorizer.FieldStrings;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,10 +26,15 @@ public class SearchVectorizeResponse extends ActionResponse implements ToXConten
         static final XContentBuilderString TOOK = new XContentBuilderString("took");
         static final XContentBuilderString TIMED_OUT = new XContentBuilderString("timed_out");
         static final XContentBuilderString TERMINATED_EARLY = new XContentBuilderString("terminated_early");
+        static final XContentBuilderString PROFILE = new XContentBuilderString("profile");
+        static final XContentBuilderString SHARDS = new XContentBuilderString("shards");
+        static final XContentBuilderString BUILD_IN_NANOS = new XContentBuilderString("build_in_nanos");
+        static final XContentBuilderString TARGET = new XContentBuilderString("target");
     }
 
     private SearchResponse searchResponse;
     private VectorizeRequest.Format format;
+    private long nonZeros = 0;
 
     public SearchVectorizeResponse(SearchResponse searchResponse) {
         this.searchResponse = searchResponse;
@@ -47,6 +52,32 @@ public class SearchVectorizeResponse extends ActionResponse implements ToXConten
         this.format = VectorizeRequest.Format.valueOf(format.toUpperCase());
     }
 
+    public long getRows() {
+        return searchResponse.getHits().getHits().length;
+    }
+
+    /**
+     * Counts the non zero cells of the matrix before it is rendered, so that it can be accounted for.
+     */
+    public long countNonZeros() {
+        long count = 0;
+        for (SearchHit hit : searchResponse.getHits()) {
+            SearchHitField hitField = hit.field("matrix");
+            if (hitField != null) {
+                Map<?, ?> value = hitField.getValue();
+                count += value.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The number of non zero cells of the matrix as last rendered, which leaves out the rows of LibSVM without a label.
+     */
+    public long getNonZeros() {
+        return nonZeros;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject();
@@ -58,18 +89,52 @@ public class SearchVectorizeResponse extends ActionResponse implements ToXConten
         if (searchResponse.isTerminatedEarly() != null) {
             builder.field(Fields.TERMINATED_EARLY, searchResponse.isTerminatedEarly());
         }
+        // counted again on each render, rather than added to, so that rendering twice does not count the cells twice
+        nonZeros = 0;
         if (hasHits()) {
-            buildShape(searchResponse.getHits(), builder);
-            if (format == VectorizeRequest.Format.COO) {
-                buildCOOMatrix(searchResponse.getHits(), builder);
+            long startTime = System.nanoTime();
+            if (format == VectorizeRequest.Format.LIBSVM) {
+                nonZeros = buildLibSvmMatrix(searchResponse.getHits(), builder);
             } else {
-                buildDictMatrix(searchResponse.getHits(), builder);
+                buildShape(searchResponse.getHits(), builder);
+                if (format == VectorizeRequest.Format.COO) {
+                    nonZeros = buildCOOMatrix(searchResponse.getHits(), builder);
+                } else {
+                    nonZeros = buildDictMatrix(searchResponse.getHits(), builder);
+                }
+                buildTargets(searchResponse.getHits(), builder);
             }
+            buildProfile(searchResponse.getHits(), System.nanoTime() - startTime, builder);
         }
         return builder.endObject();
     }
 
-    private void buildDictMatrix(SearchHits hits, XContentBuilder builder) throws IOException {
+    // shard profiles are only present if the search asked for them with the profile header
+    private void buildProfile(SearchHits hits, long buildTimeInNanos, XContentBuilder builder) throws IOException {
+        boolean started = false;
+        for (SearchHit hit : hits) {
+            SearchHitField hitField = hit.field("vectorize_profile");
+            if (hitField == null) {
+                continue;
+            }
+            if (!started) {
+                builder.startObject(Fields.PROFILE);
+                builder.startArray(Fields.SHARDS);
+                started = true;
+            }
+            Map<String, Object> profile = hitField.getValue();
+            builder.map(profile);
+        }
+        if (started) {
+            builder.endArray();
+            builder.field(Fields.BUILD_IN_NANOS, buildTimeInNanos);
+            builder.endObject();
+        }
+    }
+
+    private long buildDictMatrix(SearchHits hits, XContentBuilder builder) throws IOException {
+        long cells = 0;
+        ColumnNames columnNames = new ColumnNames();
         builder.startArray(FieldStrings.MATRIX);
         for (SearchHit searchHitFields : hits) {
             SearchHitField hitField = searchHitFields.field("matrix");
@@ -77,49 +142,158 @@ public class SearchVectorizeResponse extends ActionResponse implements ToXConten
                 continue;
             } else {
                 builder.startObject();
-                Map<Integer, Integer> value = hitField.getValue();
-                for (Map.Entry<Integer, Integer> entry : value.entrySet()) {
-                    builder.field(entry.getKey().toString(), entry.getValue());
+                Map<Object, Object> value = hitField.getValue();
+                cells += value.size();
+                for (Map.Entry<Object, Object> entry : value.entrySet()) {
+                    builder.field(columnNames.name(entry.getKey()), ((Number) entry.getValue()).intValue());
                 }
                 builder.endObject();
             }
         }
         builder.endArray();
+        return cells;
     }
 
-    private void buildCOOMatrix(SearchHits hits, XContentBuilder builder) throws IOException {
-        // NOTE: it would be easier if the sub-matrices could come up already in coo
-        List<Integer> row = new ArrayList<>();
-        List<Object> col = new ArrayList<>();
-        List<Object> data = new ArrayList<>();
+    // one line per row, labelled with the target fields of the vectorizer, columns are already in ascending order and
+    // are one based, rows missing a target are left out of the matrix and of its shape
+    private long buildLibSvmMatrix(SearchHits hits, XContentBuilder builder) throws IOException {
+        // every hit of the page carries its targets if the vectorizer has any
+        if (hits.getAt(0).field("target") == null) {
+            throw new IllegalArgumentException("the libsvm format needs a vectorizer with a target field to label the rows");
+        }
+        StringBuilder lines = new StringBuilder();
+        int rows = 0;
+        long cells = 0;
+        for (SearchHit searchHitFields : hits) {
+            SearchHitField hitField = searchHitFields.field("matrix");
+            if (hitField == null) {
+                continue;
+            }
+            SearchHitField targets = searchHitFields.field("target");
+            String label = VectorizeTargets.libSvmLabel(targets != null ? targets.values() : null);
+            if (label == null) {
+                continue;
+            }
+            lines.append(label);
+            Map<Object, Object> value = hitField.getValue();
+            cells += value.size();
+            for (Map.Entry<Object, Object> entry : value.entrySet()) {
+                lines.append(' ').append(column(entry.getKey()) + 1).append(':').append(((Number) entry.getValue()).intValue());
+            }
+            lines.append('\n');
+            rows++;
+        }
+        builder.field("shape", new int[]{rows, numCols(hits)});
+        builder.field(FieldStrings.MATRIX, lines.toString());
+        return cells;
+    }
+
+    // a dense array parallel to the rows of the matrix, with one value per row if there is a single target field
+    private void buildTargets(SearchHits hits, XContentBuilder builder) throws IOException {
+        // every hit of the page carries its targets if the vectorizer has any
+        if (hits.getAt(0).field("target") == null) {
+            return;
+        }
+        builder.startArray(Fields.TARGET);
+        for (SearchHit searchHitFields : hits) {
+            if (searchHitFields.field("matrix") == null) {
+                continue;
+            }
+            SearchHitField targets = searchHitFields.field("target");
+            List<Object> values = targets != null ? targets.values() : null;
+            if (values == null || values.isEmpty()) {
+                builder.nullValue();
+            } else if (values.size() == 1) {
+                builder.value(values.get(0));
+            } else {
+                builder.value(values);
+            }
+        }
+        builder.endArray();
+    }
+
+    private long buildCOOMatrix(SearchHits hits, XContentBuilder builder) throws IOException {
+        // first count the non zeros so that the coordinates are laid out in exactly sized primitive arrays
+        int size = (int) countNonZeros();
+        int[] row = new int[size];
+        int[] col = new int[size];
+        int[] data = new int[size];
 
         int i = 0;
+        int k = 0;
         for (SearchHit searchHitFields : hits) {
             SearchHitField hitField = searchHitFields.field("matrix");
             if (hitField == null) {
                 continue;
             } else {
-                Map<Integer, Integer> value = hitField.getValue();
-                col.addAll(value.keySet());
-                data.addAll(value.values());
-
-                Integer[] currentRow = new Integer[value.size()];
-                Arrays.fill(currentRow, i);
-                row.addAll(Arrays.asList(currentRow));
+                Map<Object, Object> value = hitField.getValue();
+                for (Map.Entry<Object, Object> entry : value.entrySet()) {
+                    row[k] = i;
+                    col[k] = column(entry.getKey());
+                    data[k] = ((Number) entry.getValue()).intValue();
+                    k++;
+                }
             }
             i++;
         }
 
         builder.startObject(FieldStrings.MATRIX);
-        builder.field(FieldStrings.ROW, row);
-        builder.field(FieldStrings.COL, col);
-        builder.field(FieldStrings.DATA, data);
+        writeArray(builder, FieldStrings.ROW, row, k);
+        writeArray(builder, FieldStrings.COL, col, k);
+        writeArray(builder, FieldStrings.DATA, data, k);
         builder.endObject();
+        return k;
+    }
+
+    private static void writeArray(XContentBuilder builder, XContentBuilderString name, int[] values, int length) throws IOException {
+        builder.startArray(name);
+        for (int i = 0; i < length; i++) {
+            builder.value(values[i]);
+        }
+        builder.endArray();
+    }
+
+    // column keys are integers if the hit was fetched locally, or strings once the hit has been serialized
+    private static int column(Object key) {
+        if (key instanceof Number) {
+            return ((Number) key).intValue();
+        }
+        return Integer.parseInt(key.toString());
+    }
+
+    /**
+     * Interns the names of the columns, since the same columns come up in many rows of a page. Only the columns seen
+     * on the page are named, at most one per non zero, as most columns of a large vocabulary never show up on a page.
+     */
+    static class ColumnNames {
+        private Map<Object, String> names;
+
+        String name(Object key) {
+            if (key instanceof String) {
+                return (String) key;
+            }
+            if (names == null) {
+                names = new HashMap<>();
+            }
+            String name = names.get(key);
+            if (name == null) {
+                name = Integer.toString(((Number) key).intValue());
+                names.put(key, name);
+            }
+            return name;
+        }
+
+        int size() {
+            return names == null ? 0 : names.size();
+        }
     }
 
     private void buildShape(SearchHits hits, XContentBuilder builder) throws IOException {
-        int numCols = (int) hits.getAt(0).field("shape").values().get(0);
-        builder.field("shape", new int[]{hits.getHits().length, numCols});
+        builder.field("shape", new int[]{hits.getHits().length, numCols(hits)});
+    }
+
+    private static int numCols(SearchHits hits) {
+        return ((Number) hits.getAt(0).field("shape").values().get(0)).intValue();
     }
 
     private boolean hasHits() {
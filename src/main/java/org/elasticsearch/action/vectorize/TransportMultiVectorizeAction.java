@@ -0,0 +1,136 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends each document of the batch to its own shard operation, so that they are vectorized concurrently on the
+ * vectorize thread pools of the nodes holding the shards. Artificial documents go to a local shard when there is one.
+ * At most <tt>vectorize.mvectorize.max_concurrent_items</tt> documents of a batch are in flight at once, the next one
+ * being sent as soon as one completes, so that a large batch does not fill the queues of the vectorize pools.
+ */
+public class TransportMultiVectorizeAction extends HandledTransportAction<MultiVectorizeRequest, MultiVectorizeResponse> {
+
+    public static final String MAX_CONCURRENT_ITEMS = "vectorize.mvectorize.max_concurrent_items";
+
+    private final TransportVectorizeAction vectorizeAction;
+    private final int maxConcurrentItems;
+
+    @Inject
+    public TransportMultiVectorizeAction(Settings settings, ThreadPool threadPool, TransportService transportService,
+                                         ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                                         TransportVectorizeAction vectorizeAction) {
+        super(settings, MultiVectorizeAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver,
+                MultiVectorizeRequest.class);
+        this.vectorizeAction = vectorizeAction;
+        this.maxConcurrentItems = settings.getAsInt(MAX_CONCURRENT_ITEMS, EsExecutors.boundedNumberOfProcessors(settings));
+        if (maxConcurrentItems < 1) {
+            throw new IllegalArgumentException("[" + MAX_CONCURRENT_ITEMS + "] must be positive, got [" + maxConcurrentItems + "]");
+        }
+    }
+
+    @Override
+    protected void doExecute(final MultiVectorizeRequest request, final ActionListener<MultiVectorizeResponse> listener) {
+        new AsyncMultiVectorize(request, listener).start();
+    }
+
+    private class AsyncMultiVectorize {
+
+        private final MultiVectorizeRequest request;
+        private final ActionListener<MultiVectorizeResponse> listener;
+        private final int size;
+        private final AtomicArray<MultiVectorizeItemResponse> responses;
+        private final AtomicInteger counter;
+        private final AtomicInteger nextSlot = new AtomicInteger();
+        // the number of items to send, only the thread which takes it from 0 sends them, so that items failing right
+        // away do not send the next ones recursively
+        private final AtomicInteger toSend = new AtomicInteger();
+
+        AsyncMultiVectorize(MultiVectorizeRequest request, ActionListener<MultiVectorizeResponse> listener) {
+            this.request = request;
+            this.listener = listener;
+            this.size = request.size();
+            this.responses = new AtomicArray<>(size);
+            this.counter = new AtomicInteger(size);
+        }
+
+        void start() {
+            if (size == 0) {
+                listener.onResponse(new MultiVectorizeResponse(new MultiVectorizeItemResponse[0]));
+                return;
+            }
+            for (int i = 0; i < Math.min(size, maxConcurrentItems); i++) {
+                sendNext();
+            }
+        }
+
+        private void sendNext() {
+            if (toSend.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                int slot = nextSlot.getAndIncrement();
+                if (slot < size) {
+                    send(slot);
+                }
+            } while (toSend.decrementAndGet() != 0);
+        }
+
+        private void send(final int slot) {
+            final VectorizeRequest vectorizeRequest = request.getRequests().get(slot);
+            vectorizeAction.execute(vectorizeRequest, new ActionListener<VectorizeResponse>() {
+                @Override
+                public void onResponse(VectorizeResponse response) {
+                    responses.set(slot, new MultiVectorizeItemResponse(response, null));
+                    onItemDone();
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    String message = ExceptionsHelper.detailedMessage(e);
+                    responses.set(slot, new MultiVectorizeItemResponse(null, new MultiVectorizeResponse.Failure(
+                            vectorizeRequest.index(), vectorizeRequest.type(), vectorizeRequest.id(), message)));
+                    onItemDone();
+                }
+            });
+        }
+
+        private void onItemDone() {
+            if (counter.decrementAndGet() == 0) {
+                listener.onResponse(new MultiVectorizeResponse(responses.toArray(new MultiVectorizeItemResponse[size])));
+            } else {
+                sendNext();
+            }
+        }
+    }
+}
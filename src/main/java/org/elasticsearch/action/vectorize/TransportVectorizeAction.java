@@ -26,8 +26,12 @@ import org.elasticsearch.action.support.single.shard.TransportSingleShardAction;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexShard;
@@ -35,7 +39,18 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.vectorize.VectorizeBreaker;
+import org.elasticsearch.vectorize.VectorizeProfile;
 import org.elasticsearch.vectorize.VectorizeService;
+import org.elasticsearch.vectorize.VectorizeSlowLog;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+import org.elasticsearch.vectorize.VectorizeTargets;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 
@@ -43,6 +58,10 @@ import org.elasticsearch.vectorize.VectorizeService;
 public class TransportVectorizeAction extends TransportSingleShardAction<VectorizeRequest, VectorizeResponse> {
 
     private final IndicesService indicesService;
+    private final VectorizeStatsService vectorizeStatsService;
+    private final VectorizeBreaker vectorizeBreaker;
+    private final VectorizeSlowLog vectorizeSlowLog;
+    private final AtomicInteger nextArtificialShard = new AtomicInteger();
 
     @Override
     protected void doExecute(VectorizeRequest request, ActionListener<VectorizeResponse> listener) {
@@ -53,18 +72,49 @@ public class TransportVectorizeAction extends TransportSingleShardAction<Vectori
     @Inject
     public TransportVectorizeAction(Settings settings, ClusterService clusterService, TransportService transportService,
                                       IndicesService indicesService, ThreadPool threadPool, ActionFilters actionFilters,
-                                      IndexNameExpressionResolver indexNameExpressionResolver) {
+                                      IndexNameExpressionResolver indexNameExpressionResolver,
+                                      VectorizeStatsService vectorizeStatsService, VectorizeBreaker vectorizeBreaker,
+                                      VectorizeSlowLog vectorizeSlowLog) {
         super(settings, VectorizeAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
-                VectorizeRequest.class, ThreadPool.Names.GET);
+                VectorizeRequest.class, VectorizeService.THREAD_POOL_NAME);
         this.indicesService = indicesService;
+        this.vectorizeStatsService = vectorizeStatsService;
+        this.vectorizeBreaker = vectorizeBreaker;
+        this.vectorizeSlowLog = vectorizeSlowLog;
     }
 
     @Override
     protected ShardIterator shards(ClusterState state, InternalRequest request) {
+        if (request.request().doc() != null && request.request().routing() == null) {
+            return artificialShard(state, request.concreteIndex(), request.request().preference());
+        }
         return clusterService.operationRouting().getShards(state, request.concreteIndex(), request.request().type(), request.request().id(),
                 request.request().routing(), request.request().preference());
     }
 
+    /**
+     * Artificial documents are not routed, so any shard will do: the shards with a copy on this node are taken in turn,
+     * or all the shards if there is none, and the local copy is tried first unless another preference is given.
+     */
+    private ShardIterator artificialShard(ClusterState state, String index, @Nullable String preference) {
+        GroupShardsIterator groupShardsIter = clusterService.operationRouting().searchShards(state, new String[]{index}, null,
+                preference != null ? preference : "_local");
+        String localNodeId = state.nodes().localNodeId();
+        List<ShardIterator> all = new ArrayList<>(groupShardsIter.size());
+        List<ShardIterator> local = new ArrayList<>();
+        for (ShardIterator shardIt : groupShardsIter) {
+            all.add(shardIt);
+            for (ShardRouting shard : shardIt.asUnordered()) {
+                if (localNodeId.equals(shard.currentNodeId())) {
+                    local.add(shardIt);
+                    break;
+                }
+            }
+        }
+        List<ShardIterator> candidates = local.isEmpty() ? all : local;
+        return candidates.get((nextArtificialShard.getAndIncrement() & Integer.MAX_VALUE) % candidates.size());
+    }
+
     @Override
     protected boolean resolveIndex(VectorizeRequest request) {
         return true;
@@ -75,7 +125,7 @@ public class TransportVectorizeAction extends TransportSingleShardAction<Vectori
         // update the routing (request#index here is possibly an alias)
         request.request().routing(state.metaData().resolveIndexRouting(request.request().routing(), request.request().index()));
         // Fail fast on the node that received the request.
-        if (request.request().routing() == null && state.getMetaData().routingRequired(request.concreteIndex(), request.request().type())) {
+        if (request.request().doc() == null && request.request().routing() == null && state.getMetaData().routingRequired(request.concreteIndex(), request.request().type())) {
             throw new RoutingMissingException(request.concreteIndex(), request.request().type(), request.request().id());
         }
     }
@@ -84,11 +134,40 @@ public class TransportVectorizeAction extends TransportSingleShardAction<Vectori
     protected VectorizeResponse shardOperation(VectorizeRequest request, ShardId shardId) {
         IndexService indexService = indicesService.indexServiceSafe(shardId.getIndex());
         IndexShard indexShard = indexService.shardSafe(shardId.id());
-        VectorizeResponse response = new VectorizeService(indexShard).getVector(request);
+        if (request.vectorizer() == null) {
+            request.vectorizer(VectorizeService.registeredVectorizer(indexShard.mapperService(), request.type()));
+        }
+        if (request.format() == VectorizeRequest.Format.LIBSVM) {
+            VectorizeTargets.checkLibSvm(request.vectorizer());
+        }
+        long startTime = System.nanoTime();
+        VectorizeProfile profile = new VectorizeProfile();
+        VectorizeResponse response;
+        try (Releasable ignored = vectorizeBreaker.addVectorizer(request.vectorizer(), "<vectorize>")) {
+            response = new VectorizeService(indexShard, vectorizeStatsService).getVector(request, profile);
+        }
+        long tookInNanos = System.nanoTime() - startTime;
+        vectorizeStatsService.onShardOperation(tookInNanos);
+        vectorizeSlowLog.onShardOperation(indexShard, request.type(), request.id(), request.vectorizer(), profile, tookInNanos);
+        vectorizeStatsService.onResponse(request.format(), response.isExists() ? 1 : 0, nonZeros(response));
+        if (request.profile()) {
+            response.setProfile(profile);
+        }
         response.updateTookInMillis(request.startTime());
         return response;
     }
 
+    private static int nonZeros(VectorizeResponse response) {
+        if (response.getVectorAsBytes() == null) {
+            return 0;
+        }
+        try {
+            return Vectorizer.nonZeros(response.getVectorAsBytes());
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     @Override
     protected VectorizeResponse newResponse() {
         return new VectorizeResponse();
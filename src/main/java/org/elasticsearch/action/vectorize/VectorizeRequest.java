@@ -24,8 +24,11 @@ import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.DocumentRequest;
 import org.elasticsearch.action.support.single.shard.SingleShardRequest;
 import org.elasticsearch.action.termvectors.TermVectorsRequest;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.vectorize.Vectorizer;
@@ -45,10 +48,12 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
 
     private Format format = Format.DICT;
 
+    private boolean profile = false;
+
     long startTime;
 
     public enum Format {
-        DICT, COO
+        DICT, COO, LIBSVM
     }
     
     VectorizeRequest() {
@@ -79,6 +84,27 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
         return this;
     }
 
+    /**
+     * Returns the artificial document to vectorize, or <tt>null</tt> if an indexed document is vectorized.
+     */
+    public BytesReference doc() {
+        return this.termVectorsRequest.doc();
+    }
+
+    /**
+     * Vectorizes an artificial document, analyzed with the mapping of the type but never indexed. A random id is
+     * then used to identify the document.
+     */
+    public VectorizeRequest doc(XContentBuilder documentBuilder) {
+        this.termVectorsRequest.doc(documentBuilder);
+        return this;
+    }
+
+    public VectorizeRequest doc(BytesReference doc, boolean generateRandomId) {
+        this.termVectorsRequest.doc(doc, generateRandomId);
+        return this;
+    }
+
     public TermVectorsRequest getTermVectorsRequest() {
         return this.termVectorsRequest;
     }
@@ -94,7 +120,7 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
 //                .realtime(false)
                 .fieldStatistics(vectorizer.needsTermStatistics())
                 .offsets(false)
-                .positions(false)
+                .positions(vectorizer.hasNGrams())
                 .termStatistics(vectorizer.needsTermStatistics())
                 .payloads(false)
                 .dfs(false)
@@ -116,6 +142,18 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
         return this;
     }
 
+    public boolean profile() {
+        return this.profile;
+    }
+
+    /**
+     * Whether to return the time spent in each phase of vectorizing the document.
+     */
+    public VectorizeRequest profile(boolean profile) {
+        this.profile = profile;
+        return this;
+    }
+
     @Override
     public String routing() {
         return this.termVectorsRequest.routing();
@@ -194,6 +232,10 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
             } else if (currentFieldName != null) {
                 if (currentFieldName.equals("vectorizer")) {
                     vectorizeRequest.vectorizer(Vectorizer.parse(parser));
+                } else if (currentFieldName.equals("doc")) {
+                    XContentBuilder documentBuilder = XContentFactory.contentBuilder(parser.contentType());
+                    documentBuilder.copyCurrentStructure(parser);
+                    vectorizeRequest.doc(documentBuilder);
                 } else {
                     throw new ElasticsearchParseException("The parameter ["+currentFieldName+"] is not a valid " +
                             "parameter of a vectorize request!");
@@ -206,11 +248,12 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
         return this.startTime;
     }
 
+    // without a vectorizer, the one registered in the _vector mapping of the type is used on the shard
     @Override
     public ActionRequestValidationException validate() {
         ActionRequestValidationException validationException = termVectorsRequest.validate();
-        if (vectorizer == null) {
-            validationException = addValidationError("no vectorizer has been specified", validationException);
+        if (vectorizer != null && vectorizer.hasHitColumns()) {
+            validationException = addValidationError("hit columns are only known during a search", validationException);
         }
         return validationException;
     }
@@ -218,16 +261,25 @@ public class VectorizeRequest extends SingleShardRequest<VectorizeRequest> imple
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
+        this.termVectorsRequest = new TermVectorsRequest();
         this.termVectorsRequest.readFrom(in);
-        this.vectorizer.readFrom(in);
+        if (in.readBoolean()) {
+            this.vectorizer = new Vectorizer();
+            this.vectorizer.readFrom(in);
+        }
         this.format(in.readString());
+        this.profile = in.readBoolean();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         this.termVectorsRequest.writeTo(out);
-        this.vectorizer.writeTo(out);
+        out.writeBoolean(vectorizer != null);
+        if (vectorizer != null) {
+            this.vectorizer.writeTo(out);
+        }
         out.writeString(format.name());
+        out.writeBoolean(profile);
     }
 }
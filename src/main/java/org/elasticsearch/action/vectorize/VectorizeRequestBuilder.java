@@ -102,4 +102,9 @@ public class VectorizeRequestBuilder extends ActionRequestBuilder<VectorizeReque
         return this;
     }
 
+    public VectorizeRequestBuilder setProfile(boolean profile) {
+        request.profile(profile);
+        return this;
+    }
+
 }
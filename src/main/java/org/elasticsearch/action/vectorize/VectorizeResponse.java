@@ -27,9 +27,12 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.vectorize.VectorizeProfile;
+import org.elasticsearch.vectorize.VectorizeTargets;
 import org.elasticsearch.vectorize.Vectorizer;
 
 import java.io.IOException;
+import java.util.List;
 
 public class VectorizeResponse extends ActionResponse implements ToXContent {
 
@@ -40,6 +43,8 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
         public static final XContentBuilderString _VERSION = new XContentBuilderString("_version");
         public static final XContentBuilderString FOUND = new XContentBuilderString("found");
         public static final XContentBuilderString TOOK = new XContentBuilderString("took");
+        public static final XContentBuilderString PROFILE = new XContentBuilderString("profile");
+        public static final XContentBuilderString TARGET = new XContentBuilderString("target");
     }
 
     private String index;
@@ -50,6 +55,8 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
     private long tookInMillis;
     private BytesReference vector;
     private VectorizeRequest.Format format;
+    private VectorizeProfile profile;
+    private List<Object> targets;
 
     public VectorizeResponse() {
     }
@@ -109,10 +116,36 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
         return Vectorizer.readVector(vector);
     }
 
+    public BytesReference getVectorAsBytes() {
+        return vector;
+    }
+
     public void setVector(BytesReference output) {
         vector = output;
     }
 
+    /**
+     * Returns the values of the target fields of the vectorizer, or <tt>null</tt> if it has none.
+     */
+    public List<Object> getTargets() {
+        return targets;
+    }
+
+    public void setTargets(List<Object> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * Returns the time spent in each phase of vectorizing the document, or <tt>null</tt> if it was not requested.
+     */
+    public VectorizeProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(VectorizeProfile profile) {
+        this.profile = profile;
+    }
+
     public TimeValue getTook() {
         return new TimeValue(tookInMillis);
     }
@@ -134,6 +167,14 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
         builder.field(FieldStrings.TOOK, tookInMillis);
         if (isExists()) {
             buildVector(builder, params);
+            if (targets != null && format != VectorizeRequest.Format.LIBSVM) {
+                builder.field(FieldStrings.TARGET, targets);
+            }
+        }
+        if (profile != null) {
+            builder.startObject(FieldStrings.PROFILE);
+            profile.toXContent(builder, params);
+            builder.endObject();
         }
         return builder;
     }
@@ -141,12 +182,15 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
     public void buildVector(XContentBuilder builder, Params params) throws IOException {
         if (format == VectorizeRequest.Format.COO) {
             getVector().toXContentCOO(builder);
+        } else if (format == VectorizeRequest.Format.LIBSVM) {
+            getVector().toXContentLibSvm(builder, VectorizeTargets.libSvmLabel(targets));
         } else {
             getVector().toXContent(builder, params);
         }
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void readFrom(StreamInput in) throws IOException {
         index = in.readString();
         type = in.readString();
@@ -156,6 +200,12 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
         tookInMillis = in.readVLong();
         vector = in.readBytesReference();
         this.setFormat(in.readString());
+        if (in.readBoolean()) {
+            profile = VectorizeProfile.readProfile(in);
+        }
+        if (in.readBoolean()) {
+            targets = (List<Object>) in.readGenericValue();
+        }
     }
 
     @Override
@@ -168,5 +218,15 @@ public class VectorizeResponse extends ActionResponse implements ToXContent {
         out.writeVLong(tookInMillis);
         out.writeBytesReference(vector);
         out.writeString(format.name());
+        if (profile == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            profile.writeTo(out);
+        }
+        out.writeBoolean(targets != null);
+        if (targets != null) {
+            out.writeGenericValue(targets);
+        }
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.action.support.broadcast.BroadcastShardRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+
+/**
+ * Starts the export of a single shard.
+ */
+class ShardVectorizeExportRequest extends BroadcastShardRequest {
+
+    private String exportId;
+    private String[] types;
+    private Vectorizer vectorizer;
+    private VectorizeExportRequest.Format format;
+    private String since;
+
+    ShardVectorizeExportRequest() {
+    }
+
+    ShardVectorizeExportRequest(ShardId shardId, VectorizeExportRequest request) {
+        super(shardId, request);
+        this.exportId = request.exportId();
+        this.types = request.types();
+        this.vectorizer = request.vectorizer();
+        this.format = request.format();
+        this.since = request.since();
+    }
+
+    public String exportId() {
+        return exportId;
+    }
+
+    public String[] types() {
+        return types;
+    }
+
+    public Vectorizer vectorizer() {
+        return vectorizer;
+    }
+
+    public VectorizeExportRequest.Format format() {
+        return format;
+    }
+
+    public String since() {
+        return since;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        exportId = in.readString();
+        types = in.readStringArray();
+        vectorizer = new Vectorizer();
+        vectorizer.readFrom(in);
+        format = VectorizeExportRequest.Format.values()[in.readByte()];
+        since = in.readOptionalString();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(exportId);
+        out.writeStringArray(types);
+        vectorizer.writeTo(out);
+        out.writeByte((byte) format.ordinal());
+        out.writeOptionalString(since);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.DefaultShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.BroadcastShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.TransportBroadcastAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.vectorize.export.ShardExportStatus;
+import org.elasticsearch.vectorize.export.VectorizeExportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Starts the export on one copy of each shard, and returns as soon as all shards have started.
+ */
+public class TransportVectorizeExportAction extends TransportBroadcastAction<VectorizeExportRequest, VectorizeExportResponse,
+        ShardVectorizeExportRequest, ShardVectorizeExportResponse> {
+
+    private final IndicesService indicesService;
+    private final VectorizeExportService vectorizeExportService;
+
+    @Inject
+    public TransportVectorizeExportAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                          TransportService transportService, IndicesService indicesService,
+                                          VectorizeExportService vectorizeExportService, ActionFilters actionFilters,
+                                          IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, VectorizeExportAction.NAME, threadPool, clusterService, transportService, actionFilters,
+                indexNameExpressionResolver, VectorizeExportRequest.class, ShardVectorizeExportRequest.class,
+                ThreadPool.Names.MANAGEMENT);
+        this.indicesService = indicesService;
+        this.vectorizeExportService = vectorizeExportService;
+    }
+
+    @Override
+    protected void doExecute(VectorizeExportRequest request, ActionListener<VectorizeExportResponse> listener) {
+        if (request.exportId() == null) {
+            request.exportId(Strings.randomBase64UUID());
+        }
+        super.doExecute(request, listener);
+    }
+
+    @Override
+    protected VectorizeExportResponse newResponse(VectorizeExportRequest request, AtomicReferenceArray shardsResponses,
+                                                  ClusterState clusterState) {
+        int successfulShards = 0;
+        int failedShards = 0;
+        List<ShardOperationFailedException> shardFailures = null;
+        List<ShardExportStatus> shards = new ArrayList<>();
+        for (int i = 0; i < shardsResponses.length(); i++) {
+            Object shardResponse = shardsResponses.get(i);
+            if (shardResponse == null) {
+                // simply ignore non active shards
+            } else if (shardResponse instanceof BroadcastShardOperationFailedException) {
+                failedShards++;
+                if (shardFailures == null) {
+                    shardFailures = new ArrayList<>();
+                }
+                shardFailures.add(new DefaultShardOperationFailedException((BroadcastShardOperationFailedException) shardResponse));
+            } else {
+                successfulShards++;
+                shards.add(((ShardVectorizeExportResponse) shardResponse).getStatus());
+            }
+        }
+        return new VectorizeExportResponse(request.exportId(), shards, shardsResponses.length(), successfulShards, failedShards,
+                shardFailures);
+    }
+
+    @Override
+    protected ShardVectorizeExportRequest newShardRequest(int numShards, ShardRouting shard, VectorizeExportRequest request) {
+        return new ShardVectorizeExportRequest(shard.shardId(), request);
+    }
+
+    @Override
+    protected ShardVectorizeExportResponse newShardResponse() {
+        return new ShardVectorizeExportResponse();
+    }
+
+    @Override
+    protected ShardVectorizeExportResponse shardOperation(ShardVectorizeExportRequest request) {
+        IndexShard indexShard = indicesService.indexServiceSafe(request.shardId().getIndex()).shardSafe(request.shardId().id());
+        try {
+            ShardExportStatus status = vectorizeExportService.start(request.exportId(), indexShard, request.vectorizer(),
+                    request.format(), request.types(), request.since());
+            return new ShardVectorizeExportResponse(request.shardId(), status);
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to start export [" + request.exportId() + "]", e);
+        }
+    }
+
+    @Override
+    protected GroupShardsIterator shards(ClusterState clusterState, VectorizeExportRequest request, String[] concreteIndices) {
+        // export a single copy of each shard, the same one from one export to the next as long as possible, since
+        // replicas do not share their segments with the primary
+        return clusterService.operationRouting().searchShards(clusterState, concreteIndices, null, "_primary_first");
+    }
+
+    @Override
+    protected ClusterBlockException checkGlobalBlock(ClusterState state, VectorizeExportRequest request) {
+        return state.blocks().globalBlockedException(ClusterBlockLevel.READ);
+    }
+
+    @Override
+    protected ClusterBlockException checkRequestBlock(ClusterState state, VectorizeExportRequest request, String[] concreteIndices) {
+        return state.blocks().indicesBlockedException(ClusterBlockLevel.READ, concreteIndices);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.vectorize.export.ShardExportStatus;
+import org.elasticsearch.vectorize.export.VectorizeExportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ */
+public class TransportVectorizeExportStatusAction extends TransportNodesAction<VectorizeExportStatusRequest, VectorizeExportStatusResponse,
+        TransportVectorizeExportStatusAction.NodeVectorizeExportStatusRequest, NodeVectorizeExportStatus> {
+
+    private final VectorizeExportService vectorizeExportService;
+
+    @Inject
+    public TransportVectorizeExportStatusAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                                ClusterService clusterService, TransportService transportService,
+                                                VectorizeExportService vectorizeExportService, ActionFilters actionFilters,
+                                                IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, VectorizeExportStatusAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+                indexNameExpressionResolver, VectorizeExportStatusRequest.class, NodeVectorizeExportStatusRequest.class,
+                ThreadPool.Names.MANAGEMENT);
+        this.vectorizeExportService = vectorizeExportService;
+    }
+
+    @Override
+    protected VectorizeExportStatusResponse newResponse(VectorizeExportStatusRequest request, AtomicReferenceArray responses) {
+        final List<NodeVectorizeExportStatus> nodeStatuses = new ArrayList<>();
+        for (int i = 0; i < responses.length(); i++) {
+            Object resp = responses.get(i);
+            if (resp instanceof NodeVectorizeExportStatus) {
+                nodeStatuses.add((NodeVectorizeExportStatus) resp);
+            }
+        }
+        return new VectorizeExportStatusResponse(clusterName,
+                nodeStatuses.toArray(new NodeVectorizeExportStatus[nodeStatuses.size()]));
+    }
+
+    @Override
+    protected NodeVectorizeExportStatusRequest newNodeRequest(String nodeId, VectorizeExportStatusRequest request) {
+        return new NodeVectorizeExportStatusRequest(nodeId, request);
+    }
+
+    @Override
+    protected NodeVectorizeExportStatus newNodeResponse() {
+        return new NodeVectorizeExportStatus();
+    }
+
+    @Override
+    protected NodeVectorizeExportStatus nodeOperation(NodeVectorizeExportStatusRequest request) {
+        List<ShardExportStatus> shards;
+        if (request.delete) {
+            shards = vectorizeExportService.delete(request.exportId);
+        } else {
+            shards = vectorizeExportService.status(request.exportId);
+        }
+        return new NodeVectorizeExportStatus(clusterService.localNode(), shards);
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    static class NodeVectorizeExportStatusRequest extends BaseNodeRequest {
+
+        String exportId;
+        boolean delete;
+
+        NodeVectorizeExportStatusRequest() {
+        }
+
+        NodeVectorizeExportStatusRequest(String nodeId, VectorizeExportStatusRequest request) {
+            super(request, nodeId);
+            this.exportId = request.exportId();
+            this.delete = request.delete();
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            exportId = in.readOptionalString();
+            delete = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeOptionalString(exportId);
+            out.writeBoolean(delete);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.client.ElasticsearchClient;
+
+/**
+ */
+public class VectorizeExportAction extends Action<VectorizeExportRequest, VectorizeExportResponse, VectorizeExportRequestBuilder> {
+
+    public static final VectorizeExportAction INSTANCE = new VectorizeExportAction();
+    public static final String NAME = "indices:data/read/vectorize/export";
+
+    private VectorizeExportAction() {
+        super(NAME);
+    }
+
+    @Override
+    public VectorizeExportResponse newResponse() {
+        return new VectorizeExportResponse();
+    }
+
+    @Override
+    public VectorizeExportRequestBuilder newRequestBuilder(ElasticsearchClient client) {
+        return new VectorizeExportRequestBuilder(client, this);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.broadcast.BroadcastRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.vectorize.Vectorizer;
+import org.elasticsearch.vectorize.export.VectorizeExportService;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * Export all the documents of one or more indices, on the data nodes, to local files.
+ */
+public class VectorizeExportRequest extends BroadcastRequest<VectorizeExportRequest> {
+
+    public enum Format {
+        CSR, LIBSVM
+    }
+
+    private String exportId;
+
+    private String[] types = Strings.EMPTY_ARRAY;
+
+    private Vectorizer vectorizer;
+
+    private Format format = Format.CSR;
+
+    private String since;
+
+    public VectorizeExportRequest() {
+    }
+
+    public VectorizeExportRequest(String... indices) {
+        super(indices);
+    }
+
+    public String exportId() {
+        return exportId;
+    }
+
+    /**
+     * The id of the export, which names the directory the shards are written to. A random id is used if not set.
+     */
+    public VectorizeExportRequest exportId(String exportId) {
+        this.exportId = exportId;
+        return this;
+    }
+
+    public String[] types() {
+        return types;
+    }
+
+    public VectorizeExportRequest types(String... types) {
+        this.types = types;
+        return this;
+    }
+
+    public Vectorizer vectorizer() {
+        return vectorizer;
+    }
+
+    public VectorizeExportRequest vectorizer(Vectorizer vectorizer) {
+        this.vectorizer = vectorizer;
+        return this;
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    public VectorizeExportRequest format(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    public VectorizeExportRequest format(String format) {
+        this.format = Format.valueOf(format.toUpperCase(Locale.ROOT));
+        return this;
+    }
+
+    public String since() {
+        return since;
+    }
+
+    /**
+     * The id of a previous export this one is incremental to, only the segments written since are exported.
+     */
+    public VectorizeExportRequest since(String since) {
+        this.since = since;
+        return this;
+    }
+
+    public static void parseRequest(VectorizeExportRequest exportRequest, XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (currentFieldName != null) {
+                if (currentFieldName.equals("vectorizer")) {
+                    exportRequest.vectorizer(Vectorizer.parse(parser));
+                } else if (currentFieldName.equals("format")) {
+                    exportRequest.format(parser.text());
+                } else if (currentFieldName.equals("since")) {
+                    exportRequest.since(parser.text());
+                } else {
+                    throw new ElasticsearchParseException("The parameter [" + currentFieldName + "] is not a valid " +
+                            "parameter of a vectorize export request!");
+                }
+            }
+        }
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (vectorizer == null) {
+            validationException = addValidationError("no vectorizer has been specified", validationException);
+        } else if (vectorizer.hasHitColumns()) {
+            validationException = addValidationError("hit columns are only known during a search", validationException);
+        } else if (format == Format.LIBSVM && !vectorizer.hasTargets()) {
+            validationException = addValidationError("the libsvm format needs a vectorizer with a target field to label the rows",
+                    validationException);
+        }
+        if (exportId != null && !VectorizeExportService.isValidExportId(exportId)) {
+            validationException = addValidationError("invalid export_id [" + exportId + "]", validationException);
+        }
+        if (since != null && !VectorizeExportService.isValidExportId(since)) {
+            validationException = addValidationError("invalid since [" + since + "]", validationException);
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        exportId = in.readOptionalString();
+        types = in.readStringArray();
+        vectorizer = new Vectorizer();
+        vectorizer.readFrom(in);
+        format = Format.values()[in.readByte()];
+        since = in.readOptionalString();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeOptionalString(exportId);
+        out.writeStringArray(types);
+        vectorizer.writeTo(out);
+        out.writeByte((byte) format.ordinal());
+        out.writeOptionalString(since);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.BroadcastResponse;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.vectorize.export.ShardExportStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The id of an export, and the shards it has been started on. The export then goes on in the background.
+ */
+public class VectorizeExportResponse extends BroadcastResponse implements ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString EXPORT_ID = new XContentBuilderString("export_id");
+        static final XContentBuilderString SHARDS = new XContentBuilderString("shards");
+    }
+
+    private String exportId;
+    private List<ShardExportStatus> shards;
+
+    VectorizeExportResponse() {
+    }
+
+    VectorizeExportResponse(String exportId, List<ShardExportStatus> shards, int totalShards, int successfulShards,
+                            int failedShards, List<ShardOperationFailedException> shardFailures) {
+        super(totalShards, successfulShards, failedShards, shardFailures);
+        this.exportId = exportId;
+        this.shards = shards;
+    }
+
+    public String getExportId() {
+        return exportId;
+    }
+
+    public List<ShardExportStatus> getShards() {
+        return shards;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        exportId = in.readString();
+        int size = in.readVInt();
+        shards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            shards.add(ShardExportStatus.readShardExportStatus(in));
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(exportId);
+        out.writeVInt(shards.size());
+        for (ShardExportStatus shard : shards) {
+            shard.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.EXPORT_ID, exportId);
+        builder.startArray(Fields.SHARDS);
+        for (ShardExportStatus shard : shards) {
+            builder.startObject();
+            shard.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+}
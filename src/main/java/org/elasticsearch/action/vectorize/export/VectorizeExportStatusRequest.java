@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Get the progress of an export on all nodes, or of all exports if no id is given. If <tt>delete</tt> is set, the
+ * shards of the export which are still running are cancelled and the export is forgotten.
+ */
+public class VectorizeExportStatusRequest extends BaseNodesRequest<VectorizeExportStatusRequest> {
+
+    private String exportId;
+    private boolean delete = false;
+
+    public VectorizeExportStatusRequest() {
+    }
+
+    public VectorizeExportStatusRequest(@Nullable String exportId) {
+        this.exportId = exportId;
+    }
+
+    @Nullable
+    public String exportId() {
+        return exportId;
+    }
+
+    public VectorizeExportStatusRequest exportId(String exportId) {
+        this.exportId = exportId;
+        return this;
+    }
+
+    public boolean delete() {
+        return delete;
+    }
+
+    public VectorizeExportStatusRequest delete(boolean delete) {
+        this.delete = delete;
+        return this;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        exportId = in.readOptionalString();
+        delete = in.readBoolean();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeOptionalString(exportId);
+        out.writeBoolean(delete);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.export;
+
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.vectorize.export.ShardExportStatus;
+
+import java.io.IOException;
+
+/**
+ */
+public class VectorizeExportStatusResponse extends BaseNodesResponse<NodeVectorizeExportStatus> implements ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString CLUSTER_NAME = new XContentBuilderString("cluster_name");
+        static final XContentBuilderString DOCS = new XContentBuilderString("docs");
+        static final XContentBuilderString TOTAL_DOCS = new XContentBuilderString("total_docs");
+        static final XContentBuilderString SHARDS = new XContentBuilderString("shards");
+        static final XContentBuilderString NODE = new XContentBuilderString("node");
+    }
+
+    VectorizeExportStatusResponse() {
+    }
+
+    public VectorizeExportStatusResponse(ClusterName clusterName, NodeVectorizeExportStatus[] nodes) {
+        super(clusterName, nodes);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        nodes = new NodeVectorizeExportStatus[in.readVInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = NodeVectorizeExportStatus.readNodeVectorizeExportStatus(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(nodes.length);
+        for (NodeVectorizeExportStatus node : nodes) {
+            node.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        long docs = 0;
+        long totalDocs = 0;
+        for (NodeVectorizeExportStatus node : nodes) {
+            for (ShardExportStatus shard : node.getShards()) {
+                docs += shard.getDocs();
+                totalDocs += shard.getTotalDocs();
+            }
+        }
+        builder.field(Fields.CLUSTER_NAME, getClusterName().value());
+        builder.field(Fields.DOCS, docs);
+        builder.field(Fields.TOTAL_DOCS, totalDocs);
+        builder.startArray(Fields.SHARDS);
+        for (NodeVectorizeExportStatus node : nodes) {
+            for (ShardExportStatus shard : node.getShards()) {
+                builder.startObject();
+                builder.field(Fields.NODE, node.getNode().id());
+                shard.toXContent(builder, params);
+                builder.endObject();
+            }
+        }
+        builder.endArray();
+        return builder;
+    }
+}
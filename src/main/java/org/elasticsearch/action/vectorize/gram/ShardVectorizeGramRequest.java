@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.gram;
+
+import org.elasticsearch.action.support.broadcast.BroadcastShardRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+
+/**
+ * Computes the Gram matrix of a single shard.
+ */
+class ShardVectorizeGramRequest extends BroadcastShardRequest {
+
+    private String[] types;
+    private Vectorizer vectorizer;
+    private boolean binary;
+    private TimeValue timeout;
+
+    ShardVectorizeGramRequest() {
+    }
+
+    ShardVectorizeGramRequest(ShardId shardId, VectorizeGramRequest request) {
+        super(shardId, request);
+        this.types = request.types();
+        this.vectorizer = request.vectorizer();
+        this.binary = request.binary();
+        this.timeout = request.timeout();
+    }
+
+    public String[] types() {
+        return types;
+    }
+
+    public Vectorizer vectorizer() {
+        return vectorizer;
+    }
+
+    public boolean binary() {
+        return binary;
+    }
+
+    public TimeValue timeout() {
+        return timeout;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        types = in.readStringArray();
+        vectorizer = new Vectorizer();
+        vectorizer.readFrom(in);
+        binary = in.readBoolean();
+        if (in.readBoolean()) {
+            timeout = TimeValue.readTimeValue(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeStringArray(types);
+        vectorizer.writeTo(out);
+        out.writeBoolean(binary);
+        out.writeBoolean(timeout != null);
+        if (timeout != null) {
+            timeout.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.gram;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.DefaultShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.BroadcastShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.TransportBroadcastAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fieldvisitor.JustUidFieldsVisitor;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardClosedException;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.vectorize.GramAccumulator;
+import org.elasticsearch.vectorize.GramMatrix;
+import org.elasticsearch.vectorize.VectorizeBreaker;
+import org.elasticsearch.vectorize.VectorizeProfile;
+import org.elasticsearch.vectorize.VectorizeQueries;
+import org.elasticsearch.vectorize.VectorizeService;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Vectorizes all the documents of one copy of each shard, and sums the products of their columns there, so only a
+ * matrix of the size of the vocabulary is sent back and summed up.
+ *
+ * Shards are scanned on a pool of their own, <tt>vectorize_gram</tt>, so that they do not hold the threads of the
+ * short <tt>_vectorize</tt> requests, and a shard gives up once the timeout of the request is over, by default
+ * <tt>vectorize.gram.timeout</tt>, or once the shard is closed.
+ */
+public class TransportVectorizeGramAction extends TransportBroadcastAction<VectorizeGramRequest, VectorizeGramResponse,
+        ShardVectorizeGramRequest, ShardVectorizeGramResponse> {
+
+    public static final String THREAD_POOL_NAME = "vectorize_gram";
+    public static final String TIMEOUT = "vectorize.gram.timeout";
+
+    private final IndicesService indicesService;
+    private final VectorizeStatsService vectorizeStatsService;
+    private final VectorizeBreaker vectorizeBreaker;
+    private final BigArrays bigArrays;
+    private final TimeValue defaultTimeout;
+
+    @Inject
+    public TransportVectorizeGramAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                        TransportService transportService, IndicesService indicesService,
+                                        VectorizeStatsService vectorizeStatsService, VectorizeBreaker vectorizeBreaker,
+                                        BigArrays bigArrays, ActionFilters actionFilters,
+                                        IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, VectorizeGramAction.NAME, threadPool, clusterService, transportService, actionFilters,
+                indexNameExpressionResolver, VectorizeGramRequest.class, ShardVectorizeGramRequest.class,
+                THREAD_POOL_NAME);
+        this.indicesService = indicesService;
+        this.vectorizeStatsService = vectorizeStatsService;
+        this.vectorizeBreaker = vectorizeBreaker;
+        this.bigArrays = bigArrays.withCircuitBreaking();
+        this.defaultTimeout = settings.getAsTime(TIMEOUT, TimeValue.timeValueMinutes(30));
+    }
+
+    @Override
+    protected VectorizeGramResponse newResponse(VectorizeGramRequest request, AtomicReferenceArray shardsResponses,
+                                                ClusterState clusterState) {
+        int successfulShards = 0;
+        int failedShards = 0;
+        List<ShardOperationFailedException> shardFailures = null;
+        List<GramMatrix> matrices = new ArrayList<>();
+        for (int i = 0; i < shardsResponses.length(); i++) {
+            Object shardResponse = shardsResponses.get(i);
+            if (shardResponse == null) {
+                // simply ignore non active shards
+            } else if (shardResponse instanceof BroadcastShardOperationFailedException) {
+                failedShards++;
+                if (shardFailures == null) {
+                    shardFailures = new ArrayList<>();
+                }
+                shardFailures.add(new DefaultShardOperationFailedException((BroadcastShardOperationFailedException) shardResponse));
+            } else {
+                successfulShards++;
+                matrices.add(((ShardVectorizeGramResponse) shardResponse).getMatrix());
+            }
+        }
+        // the shard matrices are sorted, so the sum is counted first, then checked and charged before it is laid out
+        long nonZeros = GramMatrix.mergedNonZeros(matrices);
+        GramMatrix matrix;
+        try (Releasable ignored = vectorizeBreaker.addGramMatrix(nonZeros, "<vectorize_gram>")) {
+            matrix = GramMatrix.merge(request.vectorizer().size(), matrices, (int) nonZeros);
+        }
+        return new VectorizeGramResponse(matrix, shardsResponses.length(), successfulShards, failedShards, shardFailures);
+    }
+
+    @Override
+    protected ShardVectorizeGramRequest newShardRequest(int numShards, ShardRouting shard, VectorizeGramRequest request) {
+        return new ShardVectorizeGramRequest(shard.shardId(), request);
+    }
+
+    @Override
+    protected ShardVectorizeGramResponse newShardResponse() {
+        return new ShardVectorizeGramResponse();
+    }
+
+    @Override
+    protected ShardVectorizeGramResponse shardOperation(ShardVectorizeGramRequest request) {
+        IndexShard indexShard = indicesService.indexServiceSafe(request.shardId().getIndex()).shardSafe(request.shardId().id());
+        Set<String> types = new HashSet<>(Arrays.asList(request.types()));
+        Vectorizer vectorizer = request.vectorizer().copy();
+        TimeValue timeout = request.timeout() != null ? request.timeout() : defaultTimeout;
+        long startTime = System.nanoTime();
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("vectorize_gram");
+             GramAccumulator accumulator = new GramAccumulator(vectorizer.size(), request.binary(), vectorizeBreaker, bigArrays)) {
+            VectorizeService vectorizeService = new VectorizeService(indexShard, vectorizeStatsService);
+            VectorizeQueries.Weights queryWeights = vectorizeService.queryWeights(vectorizer, searcher);
+            VectorizeProfile profile = new VectorizeProfile();
+            for (LeafReaderContext context : searcher.reader().leaves()) {
+                LeafReader reader = context.reader();
+                Bits liveDocs = reader.getLiveDocs();
+                for (int docId = 0; docId < reader.maxDoc(); docId++) {
+                    if (liveDocs != null && !liveDocs.get(docId)) {
+                        continue;
+                    }
+                    checkCancelled(indexShard, startTime, timeout);
+                    JustUidFieldsVisitor visitor = new JustUidFieldsVisitor();
+                    reader.document(docId, visitor);
+                    Uid uid = visitor.uid();
+                    if (uid == null || (!types.isEmpty() && !types.contains(uid.type()))) {
+                        continue;  // nested documents, or of a type we do not want
+                    }
+                    // read from the segment at hand, rather than looking the document up again by its id
+                    BytesReference row = vectorizeService.getVector(vectorizer, uid.type(), searcher, context, docId,
+                            queryWeights, profile);
+                    accumulator.addRow(Vectorizer.readVector(row));
+                }
+            }
+            return new ShardVectorizeGramResponse(request.shardId(), accumulator.toMatrix());
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to compute the gram matrix of " + request.shardId(), e);
+        }
+    }
+
+    // checked before each document, as a shard scan may take long
+    private static void checkCancelled(IndexShard indexShard, long startTime, TimeValue timeout) {
+        if (timeout.nanos() >= 0 && System.nanoTime() - startTime > timeout.nanos()) {
+            throw new ElasticsearchTimeoutException("gram matrix of " + indexShard.shardId() + " timed out after [" + timeout + "]");
+        }
+        if (indexShard.state() == IndexShardState.CLOSED) {
+            throw new IndexShardClosedException(indexShard.shardId());
+        }
+    }
+
+    @Override
+    protected GroupShardsIterator shards(ClusterState clusterState, VectorizeGramRequest request, String[] concreteIndices) {
+        // a single copy of each shard, preferably the local one
+        return clusterService.operationRouting().searchShards(clusterState, concreteIndices, null, "_local");
+    }
+
+    @Override
+    protected ClusterBlockException checkGlobalBlock(ClusterState state, VectorizeGramRequest request) {
+        return state.blocks().globalBlockedException(ClusterBlockLevel.READ);
+    }
+
+    @Override
+    protected ClusterBlockException checkRequestBlock(ClusterState state, VectorizeGramRequest request, String[] concreteIndices) {
+        return state.blocks().indicesBlockedException(ClusterBlockLevel.READ, concreteIndices);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.gram;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.broadcast.BroadcastRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * Computes the Gram matrix, <tt>X^T X</tt>, of the matrix of all the documents of one or more indices, or their
+ * co-occurrence matrix if the rows are taken as binary.
+ */
+public class VectorizeGramRequest extends BroadcastRequest<VectorizeGramRequest> {
+
+    private String[] types = Strings.EMPTY_ARRAY;
+
+    private Vectorizer vectorizer;
+
+    private boolean binary = false;
+
+    private TimeValue timeout;
+
+    public VectorizeGramRequest() {
+    }
+
+    public VectorizeGramRequest(String... indices) {
+        super(indices);
+    }
+
+    public String[] types() {
+        return types;
+    }
+
+    public VectorizeGramRequest types(String... types) {
+        this.types = types;
+        return this;
+    }
+
+    public Vectorizer vectorizer() {
+        return vectorizer;
+    }
+
+    public VectorizeGramRequest vectorizer(Vectorizer vectorizer) {
+        this.vectorizer = vectorizer;
+        return this;
+    }
+
+    public boolean binary() {
+        return binary;
+    }
+
+    /**
+     * Whether every non zero of a row counts as 1, in which case each cell is the number of documents in which both
+     * columns occur.
+     */
+    public VectorizeGramRequest binary(boolean binary) {
+        this.binary = binary;
+        return this;
+    }
+
+    public TimeValue timeout() {
+        return timeout;
+    }
+
+    /**
+     * How long each shard may take, after which it gives up. Defaults to <tt>vectorize.gram.timeout</tt> of the node
+     * of the shard.
+     */
+    public VectorizeGramRequest timeout(TimeValue timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public VectorizeGramRequest timeout(String timeout) {
+        return timeout(TimeValue.parseTimeValue(timeout, null, "timeout"));
+    }
+
+    public static void parseRequest(VectorizeGramRequest gramRequest, XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (currentFieldName != null) {
+                if (currentFieldName.equals("vectorizer")) {
+                    gramRequest.vectorizer(Vectorizer.parse(parser));
+                } else if (currentFieldName.equals("binary")) {
+                    gramRequest.binary(parser.booleanValue());
+                } else {
+                    throw new ElasticsearchParseException("The parameter [" + currentFieldName + "] is not a valid " +
+                            "parameter of a vectorize gram request!");
+                }
+            }
+        }
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (vectorizer == null) {
+            validationException = addValidationError("no vectorizer has been specified", validationException);
+        } else if (vectorizer.hasHitColumns()) {
+            validationException = addValidationError("hit columns are only known during a search", validationException);
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        types = in.readStringArray();
+        vectorizer = new Vectorizer();
+        vectorizer.readFrom(in);
+        binary = in.readBoolean();
+        if (in.readBoolean()) {
+            timeout = TimeValue.readTimeValue(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeStringArray(types);
+        vectorizer.writeTo(out);
+        out.writeBoolean(binary);
+        out.writeBoolean(timeout != null);
+        if (timeout != null) {
+            timeout.writeTo(out);
+        }
+    }
+}
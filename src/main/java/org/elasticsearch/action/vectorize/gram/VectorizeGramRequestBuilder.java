@@ -0,0 +1,54 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.gram;
+
+import org.elasticsearch.action.support.broadcast.BroadcastOperationRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.vectorize.Vectorizer;
+
+/**
+ */
+public class VectorizeGramRequestBuilder extends BroadcastOperationRequestBuilder<VectorizeGramRequest, VectorizeGramResponse, VectorizeGramRequestBuilder> {
+
+    public VectorizeGramRequestBuilder(ElasticsearchClient client, VectorizeGramAction action) {
+        super(client, action, new VectorizeGramRequest());
+    }
+
+    public VectorizeGramRequestBuilder setTypes(String... types) {
+        request.types(types);
+        return this;
+    }
+
+    public VectorizeGramRequestBuilder setVectorizer(Vectorizer vectorizer) {
+        request.vectorizer(vectorizer);
+        return this;
+    }
+
+    public VectorizeGramRequestBuilder setBinary(boolean binary) {
+        request.binary(binary);
+        return this;
+    }
+
+    public VectorizeGramRequestBuilder setTimeout(TimeValue timeout) {
+        request.timeout(timeout);
+        return this;
+    }
+}
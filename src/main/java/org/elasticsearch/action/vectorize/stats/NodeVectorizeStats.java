@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.stats;
+
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.vectorize.VectorizeStats;
+
+import java.io.IOException;
+
+/**
+ * The vectorize stats of a single node.
+ */
+public class NodeVectorizeStats extends BaseNodeResponse implements ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString NAME = new XContentBuilderString("name");
+        static final XContentBuilderString HOST = new XContentBuilderString("host");
+        static final XContentBuilderString VECTORIZE = new XContentBuilderString("vectorize");
+    }
+
+    private VectorizeStats stats;
+
+    NodeVectorizeStats() {
+    }
+
+    public NodeVectorizeStats(DiscoveryNode node, VectorizeStats stats) {
+        super(node);
+        this.stats = stats;
+    }
+
+    public VectorizeStats getStats() {
+        return stats;
+    }
+
+    public static NodeVectorizeStats readNodeVectorizeStats(StreamInput in) throws IOException {
+        NodeVectorizeStats nodeStats = new NodeVectorizeStats();
+        nodeStats.readFrom(in);
+        return nodeStats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        stats = VectorizeStats.readVectorizeStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        stats.writeTo(out);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(getNode().id());
+        builder.field(Fields.NAME, getNode().name());
+        builder.field(Fields.HOST, getNode().getHostName());
+        builder.startObject(Fields.VECTORIZE);
+        stats.toXContent(builder, params);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize.stats;
+
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ */
+public class TransportVectorizeStatsAction extends TransportNodesAction<VectorizeStatsRequest, VectorizeStatsResponse,
+        TransportVectorizeStatsAction.NodeVectorizeStatsRequest, NodeVectorizeStats> {
+
+    private final VectorizeStatsService vectorizeStatsService;
+
+    @Inject
+    public TransportVectorizeStatsAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                         ClusterService clusterService, TransportService transportService,
+                                         VectorizeStatsService vectorizeStatsService, ActionFilters actionFilters,
+                                         IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, VectorizeStatsAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+                indexNameExpressionResolver, VectorizeStatsRequest.class, NodeVectorizeStatsRequest.class, ThreadPool.Names.MANAGEMENT);
+        this.vectorizeStatsService = vectorizeStatsService;
+    }
+
+    @Override
+    protected VectorizeStatsResponse newResponse(VectorizeStatsRequest request, AtomicReferenceArray responses) {
+        final List<NodeVectorizeStats> nodeStats = new ArrayList<>();
+        for (int i = 0; i < responses.length(); i++) {
+            Object resp = responses.get(i);
+            if (resp instanceof NodeVectorizeStats) {
+                nodeStats.add((NodeVectorizeStats) resp);
+            }
+        }
+        return new VectorizeStatsResponse(clusterName, nodeStats.toArray(new NodeVectorizeStats[nodeStats.size()]));
+    }
+
+    @Override
+    protected NodeVectorizeStatsRequest newNodeRequest(String nodeId, VectorizeStatsRequest request) {
+        return new NodeVectorizeStatsRequest(nodeId, request);
+    }
+
+    @Override
+    protected NodeVectorizeStats newNodeResponse() {
+        return new NodeVectorizeStats();
+    }
+
+    @Override
+    protected NodeVectorizeStats nodeOperation(NodeVectorizeStatsRequest request) {
+        return new NodeVectorizeStats(clusterService.localNode(), vectorizeStatsService.stats());
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    static class NodeVectorizeStatsRequest extends BaseNodeRequest {
+
+        NodeVectorizeStatsRequest() {
+        }
+
+        NodeVectorizeStatsRequest(String nodeId, VectorizeStatsRequest request) {
+            super(request, nodeId);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper.vectorize;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.Mapper;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.mapper.MergeResult;
+import org.elasticsearch.index.mapper.MetadataFieldMapper;
+import org.elasticsearch.index.mapper.ParseContext;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Computes the row of each document at index time with the vectorizer given in the mapping, and stores it as a
+ * binary doc value using the same encoding as {@link Vectorizer#writeVector()}.
+ *
+ * <pre>
+ * "_vector": {
+ *   "vectorizer": [ ... ]
+ * }
+ * </pre>
+ */
+public class VectorFieldMapper extends MetadataFieldMapper {
+
+    public static final String NAME = "_vector";
+    public static final String CONTENT_TYPE = "_vector";
+
+    public static class Defaults {
+        public static final MappedFieldType FIELD_TYPE = new VectorFieldType();
+
+        static {
+            FIELD_TYPE.setIndexOptions(IndexOptions.NONE);
+            FIELD_TYPE.setStored(false);
+            FIELD_TYPE.setTokenized(false);
+            FIELD_TYPE.setHasDocValues(true);
+            FIELD_TYPE.setDocValuesType(DocValuesType.BINARY);
+            FIELD_TYPE.setNames(new MappedFieldType.Names(NAME));
+            FIELD_TYPE.freeze();
+        }
+    }
+
+    public static class Builder extends MetadataFieldMapper.Builder<Builder, VectorFieldMapper> {
+
+        private List<Object> vectorizerSource = null;
+
+        public Builder() {
+            super(NAME, Defaults.FIELD_TYPE);
+            builder = this;
+        }
+
+        public Builder vectorizer(List<Object> vectorizerSource) {
+            this.vectorizerSource = vectorizerSource;
+            return builder;
+        }
+
+        @Override
+        public VectorFieldMapper build(BuilderContext context) {
+            setupFieldType(context);
+            return new VectorFieldMapper(vectorizerSource, fieldType, context.indexSettings());
+        }
+    }
+
+    public static class TypeParser implements MetadataFieldMapper.TypeParser {
+        @Override
+        public MetadataFieldMapper.Builder<?, ?> parse(String name, Map<String, Object> node, ParserContext parserContext) throws MapperParsingException {
+            Builder builder = new Builder();
+            for (Iterator<Map.Entry<String, Object>> iterator = node.entrySet().iterator(); iterator.hasNext();) {
+                Map.Entry<String, Object> entry = iterator.next();
+                String fieldName = entry.getKey();
+                Object fieldNode = entry.getValue();
+                if (fieldName.equals("vectorizer")) {
+                    if (!(fieldNode instanceof List)) {
+                        throw new MapperParsingException("[" + NAME + "] vectorizer must be given as an array");
+                    }
+                    builder.vectorizer((List<Object>) fieldNode);
+                    iterator.remove();
+                }
+            }
+            return builder;
+        }
+    }
+
+    static final class VectorFieldType extends MappedFieldType {
+
+        public VectorFieldType() {
+        }
+
+        protected VectorFieldType(VectorFieldType ref) {
+            super(ref);
+        }
+
+        @Override
+        public MappedFieldType clone() {
+            return new VectorFieldType(this);
+        }
+
+        @Override
+        public String typeName() {
+            return CONTENT_TYPE;
+        }
+    }
+
+    private final List<Object> vectorizerSource;
+    private final Vectorizer vectorizer;
+
+    public VectorFieldMapper(Settings indexSettings) {
+        this(null, Defaults.FIELD_TYPE.clone(), indexSettings);
+    }
+
+    protected VectorFieldMapper(List<Object> vectorizerSource, MappedFieldType fieldType, Settings indexSettings) {
+        super(NAME, fieldType, Defaults.FIELD_TYPE, indexSettings);
+        this.vectorizerSource = vectorizerSource;
+        this.vectorizer = vectorizerSource != null ? parseVectorizer(vectorizerSource) : null;
+    }
+
+    private static Vectorizer parseVectorizer(List<Object> vectorizerSource) {
+        Vectorizer vectorizer;
+        try {
+            XContentBuilder builder = XContentFactory.jsonBuilder().value(vectorizerSource);
+            try (XContentParser parser = XContentHelper.createParser(builder.bytes())) {
+                parser.nextToken();  // start of the array
+                vectorizer = Vectorizer.parse(parser);
+            }
+        } catch (IOException e) {
+            throw new MapperParsingException("failed to parse [" + NAME + "] vectorizer", e);
+        }
+        if (vectorizer.needsTermStatistics()) {
+            throw new MapperParsingException("[" + NAME + "] does not support doc_freq or ttf, term statistics are not known at index time");
+        }
+        if (vectorizer.hasQueryColumns()) {
+            throw new MapperParsingException("[" + NAME + "] does not support query columns, they are evaluated against the index");
+        }
+        if (vectorizer.hasHitColumns()) {
+            throw new MapperParsingException("[" + NAME + "] does not support hit columns, they are only known during a search");
+        }
+        return vectorizer;
+    }
+
+    public boolean enabled() {
+        return vectorizer != null;
+    }
+
+    /**
+     * The vectorizer registered for this type, or <tt>null</tt> if none.
+     */
+    public Vectorizer vectorizer() {
+        return vectorizer;
+    }
+
+    @Override
+    public void preParse(ParseContext context) throws IOException {
+    }
+
+    @Override
+    public void postParse(ParseContext context) throws IOException {
+        // all the other fields of the document have been parsed by now
+        super.parse(context);
+    }
+
+    @Override
+    public Mapper parse(ParseContext context) throws IOException {
+        // nothing to do here, we call the parent in postParse
+        return null;
+    }
+
+    @Override
+    protected void parseCreateField(ParseContext context, List<Field> fields) throws IOException {
+        if (!enabled()) {
+            return;
+        }
+        Vectorizer docVectorizer = vectorizer.copy();
+        String[] termFields = docVectorizer.getFields();
+        Set<String> termFieldSet = termFields != null ? new HashSet<>(Arrays.asList(termFields)) : Collections.<String>emptySet();
+
+        Map<Term, Integer> termFreqs = new HashMap<>();
+        Map<String, List<String>> wordsByPosition = new HashMap<>();
+        for (IndexableField field : context.doc().getFields()) {
+            if (field.fieldType().indexOptions() == IndexOptions.NONE) {
+                continue;  // doc values and stored only fields
+            }
+            if (termFieldSet.contains(field.name())) {
+                analyze(context, field, termFreqs, docVectorizer.hasNGrams(field.name()) ? words(wordsByPosition, field.name()) : null);
+            }
+        }
+        for (Map.Entry<Term, Integer> entry : termFreqs.entrySet()) {
+            docVectorizer.add(entry.getKey(), null, entry.getValue());
+        }
+        // numerical values are taken from the source, as they are when a document is vectorized at query time, rather
+        // than from the indexed fields, which leave out booleans and fields which are not indexed, and turn dates to longs
+        String[] numericalFields = docVectorizer.getNumericalFields();
+        if (numericalFields != null && context.source() != null) {
+            Map<String, Object> sourceAsMap = XContentHelper.convertToMap(context.source(), false).v2();
+            for (String field : numericalFields) {
+                docVectorizer.add(field, XContentMapValues.extractRawValues(field, sourceAsMap));
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : wordsByPosition.entrySet()) {
+            docVectorizer.addNGrams(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+        }
+        fields.add(new BinaryDocValuesField(fieldType().names().indexName(), docVectorizer.writeVector().toBytesRef()));
+    }
+
+    // the words of all the values of a field, separated by a gap so that n-grams do not span over two values
+    private static List<String> words(Map<String, List<String>> wordsByPosition, String fieldName) {
+        List<String> words = wordsByPosition.get(fieldName);
+        if (words == null) {
+            words = new ArrayList<>();
+            wordsByPosition.put(fieldName, words);
+        } else {
+            words.add(null);
+        }
+        return words;
+    }
+
+    private void analyze(ParseContext context, IndexableField field, Map<Term, Integer> termFreqs, @Nullable List<String> words) throws IOException {
+        int offset = words != null ? words.size() : 0;
+        try (TokenStream tokenStream = field.tokenStream(context.docMapper().mappers().indexAnalyzer(), null)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute positionAttribute = tokenStream.addAttribute(PositionIncrementAttribute.class);
+            tokenStream.reset();
+            int position = offset - 1;
+            while (tokenStream.incrementToken()) {
+                Term term = new Term(field.name(), termAttribute.toString());
+                Integer freq = termFreqs.get(term);
+                termFreqs.put(term, freq == null ? 1 : freq + 1);
+                if (words != null) {
+                    position += positionAttribute.getPositionIncrement();
+                    while (words.size() <= position) {
+                        words.add(null);
+                    }
+                    words.set(position, term.text());
+                }
+            }
+            tokenStream.end();
+        }
+    }
+
+    @Override
+    protected String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (!enabled()) {
+            return builder;
+        }
+        builder.startObject(contentType());
+        builder.field("vectorizer", vectorizerSource);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public void merge(Mapper mergeWith, MergeResult mergeResult) {
+        VectorFieldMapper other = (VectorFieldMapper) mergeWith;
+        if (other.enabled() && (!enabled() || !vectorizer.fingerprint().equals(other.vectorizer.fingerprint()))) {
+            mergeResult.addConflict("Cannot update the vectorizer of [" + NAME + "], existing rows would be inconsistent");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.plugin.vectorize;
+
+import org.elasticsearch.common.inject.AbstractModule;
+import org.elasticsearch.vectorize.VectorizeBreaker;
+import org.elasticsearch.vectorize.VectorizeCache;
+import org.elasticsearch.vectorize.VectorizeFetchLimiter;
+import org.elasticsearch.vectorize.VectorizeOrdinals;
+import org.elasticsearch.vectorize.VectorizeSlowLog;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+import org.elasticsearch.vectorize.VectorizeWarmer;
+import org.elasticsearch.vectorize.VocabularyCache;
+import org.elasticsearch.vectorize.export.VectorizeExportService;
+
+/**
+ * Binds the node level services of the vectorize plugin.
+ */
+public class VectorizeModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        bind(VectorizeCache.class).asEagerSingleton();
+        bind(VocabularyCache.class).asEagerSingleton();
+        bind(VectorizeBreaker.class).asEagerSingleton();
+        bind(VectorizeFetchLimiter.class).asEagerSingleton();
+        bind(VectorizeStatsService.class).asEagerSingleton();
+        bind(VectorizeExportService.class).asEagerSingleton();
+        bind(VectorizeOrdinals.class).asEagerSingleton();
+        bind(VectorizeWarmer.class).asEagerSingleton();
+        bind(VectorizeSlowLog.class).asEagerSingleton();
+    }
+}
@@ -20,18 +20,50 @@
 package org.elasticsearch.plugin.vectorize;
 
 import org.elasticsearch.action.ActionModule;
+import org.elasticsearch.action.vectorize.MultiVectorizeAction;
+import org.elasticsearch.action.vectorize.TransportMultiVectorizeAction;
 import org.elasticsearch.action.vectorize.TransportVectorizeAction;
 import org.elasticsearch.action.vectorize.VectorizeAction;
+import org.elasticsearch.action.vectorize.export.TransportVectorizeExportAction;
+import org.elasticsearch.action.vectorize.export.TransportVectorizeExportStatusAction;
+import org.elasticsearch.action.vectorize.export.VectorizeExportAction;
+import org.elasticsearch.action.vectorize.export.VectorizeExportStatusAction;
+import org.elasticsearch.action.vectorize.gram.TransportVectorizeGramAction;
+import org.elasticsearch.action.vectorize.gram.VectorizeGramAction;
+import org.elasticsearch.action.vectorize.stats.TransportVectorizeStatsAction;
+import org.elasticsearch.action.vectorize.stats.VectorizeStatsAction;
+import org.elasticsearch.cluster.ClusterModule;
+import org.elasticsearch.cluster.settings.Validator;
+import org.elasticsearch.common.inject.Module;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.rest.RestModule;
+import org.elasticsearch.rest.action.vectorize.RestMultiVectorizeAction;
 import org.elasticsearch.rest.action.vectorize.RestSearchVectorizeAction;
 import org.elasticsearch.rest.action.vectorize.RestSearchVectorizeScrollAction;
 import org.elasticsearch.rest.action.vectorize.RestVectorizeAction;
+import org.elasticsearch.rest.action.vectorize.RestVectorizeExportAction;
+import org.elasticsearch.rest.action.vectorize.RestVectorizeExportStatusAction;
+import org.elasticsearch.rest.action.vectorize.RestVectorizeGramAction;
+import org.elasticsearch.rest.action.vectorize.RestVectorizeStatsAction;
+import org.elasticsearch.vectorize.VectorizeService;
+import org.elasticsearch.vectorize.VectorizeSlowLog;
+import org.elasticsearch.vectorize.export.VectorizeExportService;
+
+import java.util.Collection;
+import java.util.Collections;
 
 public class VectorizePlugin extends Plugin {
 
     public static final String NAME = "vectorize";
 
+    private final Settings settings;
+
+    public VectorizePlugin(Settings settings) {
+        this.settings = settings;
+    }
+
     @Override
     public String name() {
         return NAME;
@@ -42,13 +74,61 @@ public class VectorizePlugin extends Plugin {
         return "Elasticsearch Vectorize Plugin";
     }
 
+    /**
+     * A bounded pool of its own, so that heavy vectorize requests are rejected instead of starving document gets.
+     * It can be resized with the usual <tt>threadpool.vectorize.*</tt> settings. Exports, which scan whole shards,
+     * get a smaller pool apart, <tt>threadpool.vectorize_export.*</tt>, and so do the shard scans of Gram matrices,
+     * <tt>threadpool.vectorize_gram.*</tt>.
+     */
+    @Override
+    public Settings additionalSettings() {
+        int availableProcessors = EsExecutors.boundedNumberOfProcessors(settings);
+        return Settings.builder()
+                .put("threadpool." + VectorizeService.THREAD_POOL_NAME + ".type", "fixed")
+                .put("threadpool." + VectorizeService.THREAD_POOL_NAME + ".size", Math.max(1, availableProcessors / 2))
+                .put("threadpool." + VectorizeService.THREAD_POOL_NAME + ".queue_size", 100)
+                .put("threadpool." + VectorizeExportService.THREAD_POOL_NAME + ".type", "fixed")
+                .put("threadpool." + VectorizeExportService.THREAD_POOL_NAME + ".size", Math.max(1, availableProcessors / 4))
+                .put("threadpool." + VectorizeExportService.THREAD_POOL_NAME + ".queue_size", 1000)
+                .put("threadpool." + TransportVectorizeGramAction.THREAD_POOL_NAME + ".type", "fixed")
+                .put("threadpool." + TransportVectorizeGramAction.THREAD_POOL_NAME + ".size", Math.max(1, availableProcessors / 4))
+                .put("threadpool." + TransportVectorizeGramAction.THREAD_POOL_NAME + ".queue_size", 100)
+                .build();
+    }
+
+    @Override
+    public Collection<Module> nodeModules() {
+        return Collections.<Module>singletonList(new VectorizeModule());
+    }
+
+    @Override
+    public Collection<Module> indexModules(Settings indexSettings) {
+        return Collections.<Module>singletonList(new VectorizeIndexModule());
+    }
+
     public void onModule(ActionModule actionModule) {
         actionModule.registerAction(VectorizeAction.INSTANCE, TransportVectorizeAction.class);
+        actionModule.registerAction(MultiVectorizeAction.INSTANCE, TransportMultiVectorizeAction.class);
+        actionModule.registerAction(VectorizeStatsAction.INSTANCE, TransportVectorizeStatsAction.class);
+        actionModule.registerAction(VectorizeExportAction.INSTANCE, TransportVectorizeExportAction.class);
+        actionModule.registerAction(VectorizeExportStatusAction.INSTANCE, TransportVectorizeExportStatusAction.class);
+        actionModule.registerAction(VectorizeGramAction.INSTANCE, TransportVectorizeGramAction.class);
+    }
+
+    public void onModule(ClusterModule clusterModule) {
+        for (String setting : VectorizeSlowLog.THRESHOLD_SETTINGS) {
+            clusterModule.registerIndexDynamicSetting(setting, Validator.TIME);
+        }
     }
 
     public void onModule(RestModule restModule) {
         restModule.addRestAction(RestVectorizeAction.class);
+        restModule.addRestAction(RestMultiVectorizeAction.class);
         restModule.addRestAction(RestSearchVectorizeAction.class);
         restModule.addRestAction(RestSearchVectorizeScrollAction.class);
+        restModule.addRestAction(RestVectorizeStatsAction.class);
+        restModule.addRestAction(RestVectorizeExportAction.class);
+        restModule.addRestAction(RestVectorizeExportStatusAction.class);
+        restModule.addRestAction(RestVectorizeGramAction.class);
     }
 }
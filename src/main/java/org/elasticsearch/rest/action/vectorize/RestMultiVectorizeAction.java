@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.vectorize;
+
+import org.elasticsearch.action.vectorize.MultiVectorizeRequest;
+import org.elasticsearch.action.vectorize.MultiVectorizeResponse;
+import org.elasticsearch.action.vectorize.VectorizeRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.support.RestActions;
+import org.elasticsearch.rest.action.support.RestToXContentListener;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.vectorize.MultiVectorizeAction.INSTANCE;
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+/**
+ *
+ */
+public class RestMultiVectorizeAction extends BaseRestHandler {
+
+    @Inject
+    public RestMultiVectorizeAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(GET, "/_mvectorize", this);
+        controller.registerHandler(POST, "/_mvectorize", this);
+        controller.registerHandler(GET, "/{index}/_mvectorize", this);
+        controller.registerHandler(POST, "/{index}/_mvectorize", this);
+        controller.registerHandler(GET, "/{index}/{type}/_mvectorize", this);
+        controller.registerHandler(POST, "/{index}/{type}/_mvectorize", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) throws IOException {
+        MultiVectorizeRequest multiVectorizeRequest = new MultiVectorizeRequest();
+        if (RestActions.hasBodyContent(request)) {
+            try (XContentParser parser = XContentFactory.xContent(RestActions.guessBodyContentType(request)).createParser(RestActions.getRestContent(request))){
+                multiVectorizeRequest.add(request.param("index"), request.param("type"), parser);
+            }
+        }
+        for (VectorizeRequest vectorizeRequest : multiVectorizeRequest) {
+            RestVectorizeAction.readURIParameters(vectorizeRequest, request);
+        }
+
+        client.execute(INSTANCE, multiVectorizeRequest, new RestToXContentListener<MultiVectorizeResponse>(channel));
+    }
+}
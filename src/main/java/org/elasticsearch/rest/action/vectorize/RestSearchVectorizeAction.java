@@ -24,12 +24,16 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.vectorize.SearchVectorizeResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.rest.*;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.rest.action.support.RestBuilderListener;
+import org.elasticsearch.search.fetch.vectorize.VectorizeFetchSubPhase;
+import org.elasticsearch.vectorize.VectorizeBreaker;
+import org.elasticsearch.vectorize.VectorizeStatsService;
 
 import java.io.IOException;
 
@@ -42,9 +46,15 @@ import static org.elasticsearch.rest.RestStatus.OK;
  */
 public class RestSearchVectorizeAction extends BaseRestHandler {
 
+    private final VectorizeStatsService vectorizeStatsService;
+    private final VectorizeBreaker vectorizeBreaker;
+
     @Inject
-    public RestSearchVectorizeAction(Settings settings, RestController controller, Client client) {
+    public RestSearchVectorizeAction(Settings settings, RestController controller, Client client, VectorizeStatsService vectorizeStatsService,
+                                    VectorizeBreaker vectorizeBreaker) {
         super(settings, controller, client);
+        this.vectorizeStatsService = vectorizeStatsService;
+        this.vectorizeBreaker = vectorizeBreaker;
         controller.registerHandler(GET, "/{index}/{type}/_search_vectorize", this);
         controller.registerHandler(POST, "/{index}/{type}/_search_vectorize", this);
     }
@@ -55,6 +65,9 @@ public class RestSearchVectorizeAction extends BaseRestHandler {
         SearchRequest searchRequest;
         searchRequest = RestSearchAction.parseSearchRequest(request, parseFieldMatcher);
         searchRequest.extraSource("{\"_source\": false}");
+        if (request.paramAsBoolean("profile", false)) {
+            searchRequest.putHeader(VectorizeFetchSubPhase.PROFILE_HEADER, true);
+        }
 
         final String sparseFormat = request.param("sparse_format", "dict");
         client.search(searchRequest, new RestBuilderListener<SearchResponse>(channel) {
@@ -62,7 +75,11 @@ public class RestSearchVectorizeAction extends BaseRestHandler {
             public RestResponse buildResponse(SearchResponse resp, XContentBuilder builder) throws Exception {
                 SearchVectorizeResponse searchVectorizeResponse = new SearchVectorizeResponse(resp);
                 searchVectorizeResponse.setFormat(sparseFormat);
-                searchVectorizeResponse.toXContent(builder, ToXContent.EMPTY_PARAMS);
+                try (Releasable ignored = vectorizeBreaker.addMatrix(searchVectorizeResponse.countNonZeros(), "<search_vectorize>")) {
+                    searchVectorizeResponse.toXContent(builder, ToXContent.EMPTY_PARAMS);
+                }
+                vectorizeStatsService.onResponse(searchVectorizeResponse.getFormat(), searchVectorizeResponse.getRows(),
+                        searchVectorizeResponse.getNonZeros());
                 return new BytesRestResponse(OK, builder);
             }
         });
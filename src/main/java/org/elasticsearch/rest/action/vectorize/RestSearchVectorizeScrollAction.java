@@ -24,6 +24,7 @@ import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.vectorize.SearchVectorizeResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -33,6 +34,8 @@ import org.elasticsearch.rest.*;
 import org.elasticsearch.rest.action.search.RestSearchScrollAction;
 import org.elasticsearch.rest.action.support.RestActions;
 import org.elasticsearch.rest.action.support.RestBuilderListener;
+import org.elasticsearch.vectorize.VectorizeBreaker;
+import org.elasticsearch.vectorize.VectorizeStatsService;
 import org.elasticsearch.search.Scroll;
 
 import static org.elasticsearch.common.unit.TimeValue.parseTimeValue;
@@ -45,9 +48,15 @@ import static org.elasticsearch.rest.RestStatus.OK;
  */
 public class RestSearchVectorizeScrollAction extends BaseRestHandler {
 
+    private final VectorizeStatsService vectorizeStatsService;
+    private final VectorizeBreaker vectorizeBreaker;
+
     @Inject
-    public RestSearchVectorizeScrollAction(Settings settings, RestController controller, Client client) {
+    public RestSearchVectorizeScrollAction(Settings settings, RestController controller, Client client, VectorizeStatsService vectorizeStatsService,
+                                          VectorizeBreaker vectorizeBreaker) {
         super(settings, controller, client);
+        this.vectorizeStatsService = vectorizeStatsService;
+        this.vectorizeBreaker = vectorizeBreaker;
 
         controller.registerHandler(GET, "/_search_vectorize/scroll", this);
         controller.registerHandler(POST, "/_search_vectorize/scroll", this);
@@ -84,7 +93,11 @@ public class RestSearchVectorizeScrollAction extends BaseRestHandler {
             public RestResponse buildResponse(SearchResponse resp, XContentBuilder builder) throws Exception {
                 SearchVectorizeResponse searchVectorizeResponse = new SearchVectorizeResponse(resp);
                 searchVectorizeResponse.setFormat(sparseFormat);
-                searchVectorizeResponse.toXContent(builder, ToXContent.EMPTY_PARAMS);
+                try (Releasable ignored = vectorizeBreaker.addMatrix(searchVectorizeResponse.countNonZeros(), "<search_vectorize>")) {
+                    searchVectorizeResponse.toXContent(builder, ToXContent.EMPTY_PARAMS);
+                }
+                vectorizeStatsService.onResponse(searchVectorizeResponse.getFormat(), searchVectorizeResponse.getRows(),
+                        searchVectorizeResponse.getNonZeros());
                 return new BytesRestResponse(OK, builder);
             }
         });
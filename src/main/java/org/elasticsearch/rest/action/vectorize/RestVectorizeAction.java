@@ -74,5 +74,6 @@ public class RestVectorizeAction extends BaseRestHandler {
         vectorizeRequest.preference(request.param("preference"));
         vectorizeRequest.dfs(request.paramAsBoolean("dfs", vectorizeRequest.dfs()));
         vectorizeRequest.format(request.param("sparse_format", vectorizeRequest.format().name()));
+        vectorizeRequest.profile(request.paramAsBoolean("profile", vectorizeRequest.profile()));
     }
 }
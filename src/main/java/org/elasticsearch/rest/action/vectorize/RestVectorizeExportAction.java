@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.vectorize;
+
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.action.vectorize.export.VectorizeExportAction;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.action.vectorize.export.VectorizeExportResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.rest.action.support.RestActions;
+import org.elasticsearch.rest.action.support.RestBuilderListener;
+
+import java.io.IOException;
+
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+import static org.elasticsearch.rest.RestStatus.OK;
+
+/**
+ *
+ */
+public class RestVectorizeExportAction extends BaseRestHandler {
+
+    @Inject
+    public RestVectorizeExportAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(POST, "/{index}/_vectorize_export", this);
+        controller.registerHandler(POST, "/{index}/{type}/_vectorize_export", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) throws IOException {
+        VectorizeExportRequest exportRequest = new VectorizeExportRequest(Strings.splitStringByCommaToArray(request.param("index")));
+        exportRequest.types(Strings.splitStringByCommaToArray(request.param("type")));
+        exportRequest.indicesOptions(IndicesOptions.fromRequest(request, exportRequest.indicesOptions()));
+        if (RestActions.hasBodyContent(request)) {
+            try (XContentParser parser = XContentFactory.xContent(RestActions.guessBodyContentType(request)).createParser(RestActions.getRestContent(request))){
+                VectorizeExportRequest.parseRequest(exportRequest, parser);
+            }
+        }
+        exportRequest.exportId(request.param("export_id", exportRequest.exportId()));
+        exportRequest.format(request.param("format", exportRequest.format().name()));
+        exportRequest.since(request.param("since", exportRequest.since()));
+
+        client.execute(VectorizeExportAction.INSTANCE, exportRequest, new RestBuilderListener<VectorizeExportResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(VectorizeExportResponse response, XContentBuilder builder) throws Exception {
+                builder.startObject();
+                RestActions.buildBroadcastShardsHeader(builder, request, response);
+                response.toXContent(builder, request);
+                builder.endObject();
+                return new BytesRestResponse(OK, builder);
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.vectorize;
+
+import org.elasticsearch.action.vectorize.export.VectorizeExportStatusAction;
+import org.elasticsearch.action.vectorize.export.VectorizeExportStatusRequest;
+import org.elasticsearch.action.vectorize.export.VectorizeExportStatusResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.rest.action.support.RestBuilderListener;
+
+import static org.elasticsearch.rest.RestRequest.Method.DELETE;
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestStatus.OK;
+
+/**
+ *
+ */
+public class RestVectorizeExportStatusAction extends BaseRestHandler {
+
+    @Inject
+    public RestVectorizeExportStatusAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(GET, "/_vectorize_export", this);
+        controller.registerHandler(GET, "/_vectorize_export/{export_id}", this);
+        controller.registerHandler(DELETE, "/_vectorize_export/{export_id}", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        VectorizeExportStatusRequest statusRequest = new VectorizeExportStatusRequest(request.param("export_id"));
+        statusRequest.delete(request.method() == DELETE);
+        statusRequest.timeout(request.param("timeout"));
+        client.execute(VectorizeExportStatusAction.INSTANCE, statusRequest, new RestBuilderListener<VectorizeExportStatusResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(VectorizeExportStatusResponse response, XContentBuilder builder) throws Exception {
+                builder.startObject();
+                response.toXContent(builder, request);
+                builder.endObject();
+                return new BytesRestResponse(OK, builder);
+            }
+        });
+    }
+}
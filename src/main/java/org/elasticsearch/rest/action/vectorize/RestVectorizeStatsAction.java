@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.vectorize;
+
+import org.elasticsearch.action.vectorize.stats.VectorizeStatsAction;
+import org.elasticsearch.action.vectorize.stats.VectorizeStatsRequest;
+import org.elasticsearch.action.vectorize.stats.VectorizeStatsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.rest.action.support.RestBuilderListener;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestStatus.OK;
+
+/**
+ *
+ */
+public class RestVectorizeStatsAction extends BaseRestHandler {
+
+    @Inject
+    public RestVectorizeStatsAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(GET, "/_nodes/stats/vectorize", this);
+        controller.registerHandler(GET, "/_nodes/{nodeId}/stats/vectorize", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        String[] nodesIds = Strings.splitStringByCommaToArray(request.param("nodeId"));
+        VectorizeStatsRequest statsRequest = new VectorizeStatsRequest(nodesIds);
+        statsRequest.timeout(request.param("timeout"));
+        client.execute(VectorizeStatsAction.INSTANCE, statsRequest, new RestBuilderListener<VectorizeStatsResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(VectorizeStatsResponse response, XContentBuilder builder) throws Exception {
+                builder.startObject();
+                response.toXContent(builder, request);
+                builder.endObject();
+                return new BytesRestResponse(OK, builder);
+            }
+        });
+    }
+}
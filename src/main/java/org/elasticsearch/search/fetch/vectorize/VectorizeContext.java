@@ -1,12 +1,20 @@
 package org.elasticsearch.search.fetch.vectorize;
 
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.search.fetch.FetchSubPhaseContext;
+import org.elasticsearch.vectorize.VectorizeProfile;
 import org.elasticsearch.vectorize.Vectorizer;
 
-public class VectorizeContext extends FetchSubPhaseContext {
+public class VectorizeContext extends FetchSubPhaseContext implements Releasable {
 
     private Vectorizer vectorizer = null;
 
+    private VectorizeProfile shardProfile = new VectorizeProfile();
+
+    private long tookInNanos = 0;
+
+    private Releasable fetchPermit = null;
+
     public VectorizeContext() {
     }
 
@@ -17,4 +25,49 @@ public class VectorizeContext extends FetchSubPhaseContext {
     public Vectorizer getVectorizer() {
         return this.vectorizer;
     }
+
+    /**
+     * The profile of the hits fetched so far on this shard.
+     */
+    public VectorizeProfile getShardProfile() {
+        return this.shardProfile;
+    }
+
+    public void addTookInNanos(long nanos) {
+        this.tookInNanos += nanos;
+    }
+
+    /**
+     * The time spent in the fetch sub-phase for the hits fetched so far on this shard.
+     */
+    public long getTookInNanos() {
+        return this.tookInNanos;
+    }
+
+    /**
+     * Starts a new profile, so that each scroll page is profiled on its own.
+     */
+    public void resetShardProfile() {
+        this.shardProfile = new VectorizeProfile();
+        this.tookInNanos = 0;
+    }
+
+    public boolean hasFetchPermit() {
+        return this.fetchPermit != null;
+    }
+
+    public void setFetchPermit(Releasable fetchPermit) {
+        this.fetchPermit = fetchPermit;
+    }
+
+    /**
+     * Gives back the fetch permit, if any, once the fetch phase of the shard is over.
+     */
+    @Override
+    public void close() {
+        if (fetchPermit != null) {
+            fetchPermit.close();
+            fetchPermit = null;
+        }
+    }
 }
@@ -4,13 +4,22 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.fetch.FetchSubPhaseParseElement;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.vectorize.VectorizeBreaker;
 import org.elasticsearch.vectorize.Vectorizer;
 
 public class VectorizeFetchParseElement extends FetchSubPhaseParseElement<VectorizeContext> {
 
+    private final VectorizeBreaker vectorizeBreaker;
+
+    public VectorizeFetchParseElement(VectorizeBreaker vectorizeBreaker) {
+        this.vectorizeBreaker = vectorizeBreaker;
+    }
+
     @Override
     protected void innerParse(XContentParser parser, VectorizeContext vectorizeContext, SearchContext searchContext) throws Exception {
         Vectorizer vectorizer = Vectorizer.parse(parser);
+        // the vectorizer is kept for as long as the search context, across scroll pages
+        searchContext.addReleasable(vectorizeBreaker.addVectorizer(vectorizer, "<vectorize_fetch>"), SearchContext.Lifetime.CONTEXT);
         vectorizeContext.setVectorizer(vectorizer);
     }
 
@@ -1,30 +1,56 @@
 package org.elasticsearch.search.fetch.vectorize;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
-import org.elasticsearch.action.vectorize.VectorizeRequest;
-import org.elasticsearch.action.vectorize.VectorizeResponse;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.fetch.FetchPhaseExecutionException;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.internal.InternalSearchHit;
 import org.elasticsearch.search.internal.InternalSearchHitField;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.vectorize.VectorizeBreaker;
+import org.elasticsearch.vectorize.VectorizeCache;
+import org.elasticsearch.vectorize.VectorizeFetchLimiter;
+import org.elasticsearch.vectorize.VectorizeOrdinals;
+import org.elasticsearch.vectorize.VectorizeProfile;
+import org.elasticsearch.vectorize.VectorizeQueries;
 import org.elasticsearch.vectorize.VectorizeService;
+import org.elasticsearch.vectorize.VectorizeSlowLog;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+import org.elasticsearch.vectorize.VectorizeTargets;
+import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.vectorize.Vectorizer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class VectorizeFetchSubPhase implements FetchSubPhase {
 
     public static final String NAME = "vectorize-fetch";
+
+    /**
+     * The header with which the search vectorize endpoint asks for the profile of each shard, so that it is never
+     * attached to the hits of a plain search.
+     */
+    public static final String PROFILE_HEADER = "vectorize_profile";
     
     public static final ContextFactory<VectorizeContext> CONTEXT_FACTORY = new ContextFactory<VectorizeContext>() {
 
@@ -39,21 +65,131 @@ public class VectorizeFetchSubPhase implements FetchSubPhase {
         }
     };
 
-    public VectorizeFetchSubPhase() {
+    private final VectorizeCache vectorizeCache;
+    private final VectorizeStatsService vectorizeStatsService;
+    private final VectorizeFetchLimiter fetchLimiter;
+    private final VectorizeBreaker vectorizeBreaker;
+    private final VectorizeOrdinals vectorizeOrdinals;
+    private final VectorizeSlowLog vectorizeSlowLog;
+
+    @Inject
+    public VectorizeFetchSubPhase(VectorizeCache vectorizeCache, VectorizeStatsService vectorizeStatsService,
+                                  VectorizeFetchLimiter fetchLimiter, VectorizeBreaker vectorizeBreaker,
+                                  VectorizeOrdinals vectorizeOrdinals, VectorizeSlowLog vectorizeSlowLog) {
+        this.vectorizeCache = vectorizeCache;
+        this.vectorizeStatsService = vectorizeStatsService;
+        this.fetchLimiter = fetchLimiter;
+        this.vectorizeBreaker = vectorizeBreaker;
+        this.vectorizeOrdinals = vectorizeOrdinals;
+        this.vectorizeSlowLog = vectorizeSlowLog;
     }
 
     @Override
     public Map<String, ? extends SearchParseElement> parseElements() {
-        return ImmutableMap.of("vectorizer", new VectorizeFetchParseElement());
+        return ImmutableMap.of("vectorizer", new VectorizeFetchParseElement(vectorizeBreaker));
     }
 
     @Override
     public boolean hitsExecutionNeeded(SearchContext context) {
-        return false;
+        VectorizeContext vectorizeContext = context.getFetchSubPhaseContext(CONTEXT_FACTORY);
+        if (!vectorizeContext.hitExecutionNeeded()) {
+            return false;
+        }
+        Vectorizer vectorizer = vectorizeContext.getVectorizer();
+        return vectorizer.hasQueryColumns() || vectorizer.hasHitColumns() || profileRequested(context) ||
+                vectorizeSlowLog.fetchEnabled(context.indexShard());
     }
 
     @Override
     public void hitsExecute(SearchContext context, InternalSearchHit[] hits) {
+        VectorizeContext vectorizeContext = context.getFetchSubPhaseContext(CONTEXT_FACTORY);
+        if (vectorizeContext.getVectorizer().hasQueryColumns() && hits.length > 0) {
+            long startTime = System.nanoTime();
+            addQueryColumns(context, vectorizeContext.getVectorizer(), hits);
+            vectorizeContext.getShardProfile().addTime(VectorizeProfile.Phase.QUERY, startTime);
+            vectorizeContext.addTookInNanos(System.nanoTime() - startTime);
+        }
+        if (vectorizeContext.getVectorizer().hasHitColumns() && hits.length > 0) {
+            addHitColumns(context, vectorizeContext.getVectorizer(), hits);
+        }
+        vectorizeSlowLog.onFetch(context.indexShard(), hits.length, vectorizeContext.getVectorizer(),
+                vectorizeContext.getShardProfile(), vectorizeContext.getTookInNanos());
+        // the shard profile is attached to the first hit, and picked up again when the matrix is rendered
+        if (hits.length > 0 && profileRequested(context)) {
+            Map<String, Object> profile = new LinkedHashMap<>();
+            profile.put("index", context.shardTarget().index());
+            profile.put("shard", context.shardTarget().shardId());
+            profile.put("node", context.shardTarget().nodeId());
+            profile.putAll(vectorizeContext.getShardProfile().asMap());
+            List<Object> values = new ArrayList<>(1);
+            values.add(profile);
+            hits[0].fields().put("vectorize_profile", new InternalSearchHitField("vectorize_profile", values));
+        }
+        vectorizeContext.resetShardProfile();
+    }
+
+    // the request the search context was created from carries the headers of the search request
+    private static boolean profileRequested(SearchContext context) {
+        ShardSearchRequest request = context.request();
+        return request instanceof TransportRequest && Boolean.TRUE.equals(((TransportRequest) request).getHeader(PROFILE_HEADER));
+    }
+
+    // query columns come after the columns of the terms, so they are appended to rows already in ascending order
+    private void addQueryColumns(SearchContext context, Vectorizer vectorizer, InternalSearchHit[] hits) {
+        final InternalSearchHit[] sorted = hits.clone();
+        Arrays.sort(sorted, new Comparator<InternalSearchHit>() {
+            @Override
+            public int compare(InternalSearchHit a, InternalSearchHit b) {
+                return Integer.compare(a.docId(), b.docId());
+            }
+        });
+        int[] docIds = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            docIds[i] = sorted[i].docId();
+        }
+        try {
+            VectorizeQueries.evaluate(vectorizer, context.queryParserService(), context.searcher(), docIds, new VectorizeQueries.Collector() {
+                @Override
+                public void collect(int index, int column, int value) {
+                    if (value == 0) {
+                        return;
+                    }
+                    SearchHitField matrix = sorted[index].field("matrix");
+                    Map<Integer, Integer> row = matrix.getValue();
+                    row.put(column, value);
+                }
+            });
+        } catch (IOException e) {
+            throw new FetchPhaseExecutionException(context, "Failed to evaluate the query columns of the vectorizer", e);
+        }
+    }
+
+    // the score and sort values of the hits are only known from the top docs of the query phase on the shard, as the
+    // hits themselves only get them once merged on the coordinating node. Hit columns come after the query columns
+    // whatever the order they are given in, so they are appended last to rows already in ascending order
+    private void addHitColumns(SearchContext context, Vectorizer vectorizer, InternalSearchHit[] hits) {
+        Map<Integer, ScoreDoc> scoreDocs = new HashMap<>();
+        TopDocs topDocs = context.queryResult().topDocs();
+        if (topDocs != null) {
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                scoreDocs.put(scoreDoc.doc, scoreDoc);
+            }
+        }
+        List<Vectorizer.HitColumn> hitColumns = vectorizer.getHitColumns();
+        for (InternalSearchHit hit : hits) {
+            ScoreDoc scoreDoc = scoreDocs.get(hit.docId());
+            if (scoreDoc == null) {
+                continue;
+            }
+            Object[] sortValues = scoreDoc instanceof FieldDoc ? ((FieldDoc) scoreDoc).fields : null;
+            Map<Integer, Integer> row = hit.field("matrix").getValue();
+            for (int i = 0; i < hitColumns.size(); i++) {
+                int value = hitColumns.get(i).value(scoreDoc.score, sortValues);
+                if (value != 0) {
+                    row.put(vectorizer.getHitColumn(i), value);
+                }
+            }
+        }
     }
 
     @Override
@@ -63,7 +199,10 @@ public class VectorizeFetchSubPhase implements FetchSubPhase {
 
     @Override
     public void hitExecute(SearchContext context, HitContext hitContext) {
-        Vectorizer vectorizer = context.getFetchSubPhaseContext(CONTEXT_FACTORY).getVectorizer();
+        long startTime = System.nanoTime();
+        VectorizeContext vectorizeContext = context.getFetchSubPhaseContext(CONTEXT_FACTORY);
+        Vectorizer vectorizer = vectorizeContext.getVectorizer();
+        VectorizeProfile profile = vectorizeContext.getShardProfile();
 
         if (hitContext.hit().fieldsOrNull() == null) {
             hitContext.hit().fields(new HashMap<String, SearchHitField>());
@@ -77,43 +216,135 @@ public class VectorizeFetchSubPhase implements FetchSubPhase {
             hitContext.hit().fields().put("shape", shape);
         }
 
-        String index = context.indexShard().indexService().index().getName();
-        String type = hitContext.hit().type();
-        String id = hitContext.hit().id();
+        long phaseStartTime = System.nanoTime();
+        BytesReference row = vectorizeCache.get(vectorizer, hitContext.reader(), hitContext.docId());
+        profile.addTime(VectorizeProfile.Phase.CACHE, phaseStartTime);
+        if (row != null) {
+            vectorizeStatsService.onRow(VectorizeStatsService.Path.CACHE, row);
+            profile.addRow(row);
+        } else {
+            if (vectorizeContext.hasFetchPermit() == false) {
+                // one permit for the whole fetch of this shard, given back once the fetch phase is over
+                vectorizeContext.setFetchPermit(fetchLimiter.acquire());
+                context.addReleasable(vectorizeContext, SearchContext.Lifetime.PHASE);
+            }
+            row = vectorize(context, hitContext, vectorizer, profile);
+            if (row != null) {
+                vectorizeCache.put(vectorizer, hitContext.reader(), hitContext.docId(), row);
+            }
+        }
 
-        Map<Integer, Integer> out = new HashMap<>();
+        // rows are encoded by ascending column, which a linked map keeps once serialized
+        Map<Integer, Integer> out = new LinkedHashMap<>();
+        if (row != null) {
+            try {
+                Vectorizer.SparseVector vector = Vectorizer.readVector(row);
+                while (vector.hasNext()) {
+                    Vectorizer.Coord coord = vector.next();
+                    out.put(coord.x, coord.y);
+                }
+            } catch (IOException e) {
+                throw new FetchPhaseExecutionException(context, "Failed to read the vector of doc [" + hitContext.hit().id() + "]", e);
+            }
+        }
+        shape.values().add(vectorizer.size());
+        matrix.values().add(out);
+        if (vectorizer.hasTargets()) {
+            List<Object> targets = VectorizeTargets.read(vectorizer, context.mapperService(), context.fieldData(),
+                    hitContext.readerContext(), hitContext.docId());
+            hitContext.hit().fields().put("target", new InternalSearchHitField("target", targets));
+        }
+        long tookInNanos = System.nanoTime() - startTime;
+        vectorizeStatsService.onFetch(tookInNanos);
+        vectorizeContext.addTookInNanos(tookInNanos);
+    }
+
+    private BytesReference vectorize(SearchContext context, HitContext hitContext, Vectorizer vectorizer, VectorizeProfile profile) {
+        // rows precomputed at index time are just one doc value read away
+        if (VectorizeService.storedVectorMapper(context.mapperService(), hitContext.hit().type(), vectorizer) != null) {
+            long startTime = System.nanoTime();
+            try {
+                BytesReference row = VectorizeService.readStoredVector(hitContext.reader(), hitContext.docId());
+                if (row != null) {
+                    vectorizeStatsService.onRow(VectorizeStatsService.Path.STORED, row);
+                    profile.addRow(row);
+                    return row;
+                }
+            } catch (IOException e) {
+                throw new FetchPhaseExecutionException(context, "Failed to read the stored vector of doc [" + hitContext.hit().id() + "]", e);
+            } finally {
+                profile.addTime(VectorizeProfile.Phase.STORED, startTime);
+            }
+        }
         // if they are all boolean use field data fields instead
         if (vectorizer.allValueOptionsBoolean()) {
-            List<String> fields = Lists.newArrayList(vectorizer.getFields());
-            fields.addAll(Lists.newArrayList(vectorizer.getNumericalFields()));
+            List<String> fields = new ArrayList<>();
+            if (vectorizer.getFields() != null) {
+                fields.addAll(Arrays.asList(vectorizer.getFields()));
+            }
+            if (vectorizer.getNumericalFields() != null) {
+                fields.addAll(Arrays.asList(vectorizer.getNumericalFields()));
+            }
             for (String field : fields) {
                 MappedFieldType fieldType = context.mapperService().smartNameFieldType(field);
                 if (fieldType != null) {
+                    long startTime = System.nanoTime();
                     AtomicFieldData data = context.fieldData().getForField(fieldType).load(hitContext.readerContext());
+                    if (data instanceof AtomicOrdinalsFieldData && vectorizer.getValueOptions().containsKey(field)) {
+                        // the terms of the segment are resolved to columns once, then each hit is a few ordinals
+                        RandomAccessOrds ords = ((AtomicOrdinalsFieldData) data).getOrdinalsValues();
+                        VectorizeOrdinals.Columns columns = vectorizeOrdinals.columns(context.shardTarget().index(), vectorizer, field,
+                                hitContext.reader(), ords);
+                        ords.setDocument(hitContext.docId());
+                        profile.addTime(VectorizeProfile.Phase.FIELD_DATA, startTime);
+                        startTime = System.nanoTime();
+                        int matched = 0;
+                        boolean hashed = vectorizer.hashesField(field);
+                        for (int i = 0; i < ords.cardinality(); i++) {
+                            long ord = ords.ordAt(i);
+                            if (hashed) {
+                                vectorizer.hashTerm(field, ords.lookupOrd(ord));
+                            }
+                            int column = columns.column(ord);
+                            if (column != -1) {
+                                vectorizer.addTerm(column, 1);
+                                matched++;
+                            }
+                        }
+                        profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+                        profile.addTerms(ords.cardinality(), matched);
+                        continue;
+                    }
                     ScriptDocValues values = data.getScriptValues();
                     values.setNextDocId(hitContext.docId());
-                    vectorizer.add(field, values);
+                    profile.addTime(VectorizeProfile.Phase.FIELD_DATA, startTime);
+                    startTime = System.nanoTime();
+                    int matched = vectorizer.add(field, values);
+                    profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+                    profile.addTerms(values.getValues().size(), matched);
                 }
             }
-            Vectorizer.Coord coord;
-            while ((coord = vectorizer.popCoord()) != null) {
-                out.put(coord.x, coord.y);
+            long startTime = System.nanoTime();
+            try {
+                BytesReference row = vectorizer.writeVector();
+                vectorizeStatsService.onRow(VectorizeStatsService.Path.DOC_VALUES, row);
+                profile.addRow(row);
+                return row;
+            } catch (IOException e) {
+                throw new FetchPhaseExecutionException(context, "Failed to vectorize doc [" + hitContext.hit().id() + "]", e);
+            } finally {
+                profile.addTime(VectorizeProfile.Phase.ENCODE, startTime);
             }
         } else {  // otherwise use term vectors
-            VectorizeResponse response = new VectorizeService(context.indexShard()).getVector(
-                    new VectorizeRequest(index, type, id).vectorizer(vectorizer)
-            );
+            // read from the segment the hit was found in, rather than looking it up again by its id, so that the row
+            // is that of the matched document, which is also the one it is cached for
+            Engine.Searcher searcher = new Engine.Searcher("vectorize", context.searcher());
             try {
-                Vectorizer.SparseVector vector = response.getVector();
-                while (vector.hasNext()) {
-                    Vectorizer.Coord coord = vector.next();
-                    out.put(coord.x, coord.y);
-                }
+                return new VectorizeService(context.indexShard(), vectorizeStatsService).getVector(vectorizer,
+                        hitContext.hit().type(), searcher, hitContext.readerContext(), hitContext.docId(), null, profile);
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new FetchPhaseExecutionException(context, "Failed to vectorize doc [" + hitContext.hit().id() + "]", e);
             }
         }
-        shape.values().add(vectorizer.size());
-        matrix.values().add(out);
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.LongHash;
+
+import java.io.IOException;
+
+/**
+ * Sums the products of the values of each pair of columns of the rows it is given, that is the upper triangle of
+ * <tt>X^T X</tt>, along with the sum of each column. Cells are kept in a hash keyed by their row and column packed
+ * in a long, on big arrays, so their memory is charged to the request circuit breaker, and their number is capped.
+ * The sorted copy of the cells made by {@link #toMatrix()} is on the heap, and is charged to the breaker apart until
+ * the accumulator is closed.
+ */
+public class GramAccumulator implements Releasable {
+
+    private final int size;
+    private final boolean binary;
+    private final VectorizeBreaker vectorizeBreaker;
+    private final long maxCells;
+    private final BigArrays bigArrays;
+
+    private final LongHash cells;
+    private LongArray values;
+    private final LongArray sums;
+    private long rows = 0;
+    private Releasable matrix;
+
+    public GramAccumulator(int size, boolean binary, VectorizeBreaker vectorizeBreaker, BigArrays bigArrays) {
+        this.size = size;
+        this.binary = binary;
+        this.vectorizeBreaker = vectorizeBreaker;
+        this.maxCells = vectorizeBreaker.maxGramCells();
+        this.bigArrays = bigArrays;
+        boolean success = false;
+        LongHash cells = null;
+        LongArray values = null;
+        LongArray sums = null;
+        try {
+            cells = new LongHash(1, bigArrays);
+            values = bigArrays.newLongArray(1, true);
+            sums = bigArrays.newLongArray(size, true);
+            success = true;
+        } finally {
+            if (!success) {
+                Releasables.close(cells, values, sums);
+            }
+        }
+        this.cells = cells;
+        this.values = values;
+        this.sums = sums;
+    }
+
+    /**
+     * Adds an encoded row, whose columns are in ascending order.
+     */
+    public void addRow(Vectorizer.SparseVector vector) throws IOException {
+        Tuple<int[], double[]> indicesAndValues = vector.getIndicesAndValues();
+        int[] columns = indicesAndValues.v1();
+        double[] data = indicesAndValues.v2();
+        for (int a = 0; a < columns.length; a++) {
+            long valueA = binary ? 1 : (long) data[a];
+            sums.increment(columns[a], valueA);
+            for (int b = a; b < columns.length; b++) {
+                long valueB = binary ? 1 : (long) data[b];
+                add(columns[a], columns[b], valueA * valueB);
+            }
+        }
+        rows++;
+    }
+
+    private void add(int row, int col, long value) {
+        long id = cells.add(((long) row << 32) | col);
+        if (id < 0) {
+            id = -1 - id;
+        } else {
+            if (cells.size() > maxCells) {
+                throw new IllegalArgumentException("gram matrix of more than [" + maxCells + "] non zeros, set by ["
+                        + VectorizeBreaker.MAX_GRAM_CELLS + "], try a smaller vocabulary or top_k");
+            }
+            values = bigArrays.grow(values, id + 1);
+        }
+        values.increment(id, value);
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the cells accumulated so far, sorted by row then column.
+     */
+    public GramMatrix toMatrix() {
+        int numCells = (int) cells.size();
+        Releasables.close(matrix);
+        matrix = vectorizeBreaker.addGramMatrix(numCells, "<vectorize_gram>");
+        final long[] keys = new long[numCells];
+        final long[] data = new long[numCells];
+        for (int id = 0; id < numCells; id++) {
+            keys[id] = cells.get(id);
+            data[id] = values.get(id);
+        }
+        sort(keys, data, numCells);
+        long[] columnSums = new long[size];
+        for (int i = 0; i < size; i++) {
+            columnSums[i] = sums.get(i);
+        }
+        return new GramMatrix(size, rows, columnSums, keys, data);
+    }
+
+    static void sort(final long[] keys, final long[] data, int length) {
+        new InPlaceMergeSorter() {
+            @Override
+            protected int compare(int i, int j) {
+                return Long.compare(keys[i], keys[j]);
+            }
+
+            @Override
+            protected void swap(int i, int j) {
+                long key = keys[i];
+                keys[i] = keys[j];
+                keys[j] = key;
+                long value = data[i];
+                data[i] = data[j];
+                data[j] = value;
+            }
+        }.sort(0, length);
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(cells, values, sums, matrix);
+    }
+}
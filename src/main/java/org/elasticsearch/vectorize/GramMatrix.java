@@ -0,0 +1,235 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The upper triangle of a Gram matrix, <tt>X^T X</tt>, as sparse cells sorted by row then column, along with the
+ * number of rows of <tt>X</tt> and the sum of each of its columns, which is all it takes to center it.
+ */
+public class GramMatrix implements Streamable, ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString SHAPE = new XContentBuilderString("shape");
+        static final XContentBuilderString ROWS = new XContentBuilderString("rows");
+        static final XContentBuilderString SUMS = new XContentBuilderString("sums");
+        static final XContentBuilderString SYMMETRIC = new XContentBuilderString("symmetric");
+    }
+
+    private int size;
+    private long rows;
+    private long[] sums;
+    // the row and column of each cell packed in a long
+    private long[] keys;
+    private long[] values;
+
+    GramMatrix() {
+    }
+
+    public GramMatrix(int size, long rows, long[] sums, long[] keys, long[] values) {
+        this.size = size;
+        this.rows = rows;
+        this.sums = sums;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * The number of non zeros of the sum of the given matrices, so that it can be checked and charged to the breaker
+     * before the sum is laid out.
+     */
+    public static long mergedNonZeros(List<GramMatrix> matrices) {
+        return mergeCells(matrices, null, null);
+    }
+
+    /**
+     * Sums the given matrices, which must be of the same size, into a matrix of the given number of non zeros, as
+     * returned by {@link #mergedNonZeros(List)}.
+     */
+    public static GramMatrix merge(int size, List<GramMatrix> matrices, int nonZeros) {
+        long rows = 0;
+        long[] sums = new long[size];
+        for (GramMatrix matrix : matrices) {
+            rows += matrix.rows;
+            for (int i = 0; i < size; i++) {
+                sums[i] += matrix.sums[i];
+            }
+        }
+        long[] keys = new long[nonZeros];
+        long[] values = new long[nonZeros];
+        mergeCells(matrices, keys, values);
+        return new GramMatrix(size, rows, sums, keys, values);
+    }
+
+    // the cells of each matrix are sorted, so they are merged in a single pass over all of them, the same cell found on
+    // many shards being summed, returns the number of cells of the sum, which are only written out if arrays are given
+    private static long mergeCells(List<GramMatrix> matrices, @Nullable long[] keys, @Nullable long[] values) {
+        CellQueue queue = new CellQueue(matrices.size());
+        for (GramMatrix matrix : matrices) {
+            if (matrix.keys.length > 0) {
+                queue.add(new Cursor(matrix));
+            }
+        }
+        long nonZeros = 0;
+        long previous = 0;
+        while (queue.size() > 0) {
+            Cursor top = queue.top();
+            long key = top.matrix.keys[top.index];
+            long value = top.matrix.values[top.index];
+            if (nonZeros == 0 || key != previous) {
+                if (keys != null) {
+                    keys[(int) nonZeros] = key;
+                    values[(int) nonZeros] = value;
+                }
+                nonZeros++;
+                previous = key;
+            } else if (values != null) {
+                values[(int) nonZeros - 1] += value;
+            }
+            if (++top.index < top.matrix.keys.length) {
+                queue.updateTop();
+            } else {
+                queue.pop();
+            }
+        }
+        return nonZeros;
+    }
+
+    private static class Cursor {
+        final GramMatrix matrix;
+        int index = 0;
+
+        Cursor(GramMatrix matrix) {
+            this.matrix = matrix;
+        }
+    }
+
+    private static class CellQueue extends PriorityQueue<Cursor> {
+        CellQueue(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected boolean lessThan(Cursor a, Cursor b) {
+            return a.matrix.keys[a.index] < b.matrix.keys[b.index];
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long[] getSums() {
+        return sums;
+    }
+
+    public int getNonZeros() {
+        return keys.length;
+    }
+
+    public int getRow(int i) {
+        return (int) (keys[i] >>> 32);
+    }
+
+    public int getCol(int i) {
+        return (int) keys[i];
+    }
+
+    public long getValue(int i) {
+        return values[i];
+    }
+
+    public static GramMatrix readGramMatrix(StreamInput in) throws IOException {
+        GramMatrix matrix = new GramMatrix();
+        matrix.readFrom(in);
+        return matrix;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        size = in.readVInt();
+        rows = in.readVLong();
+        sums = new long[size];
+        for (int i = 0; i < size; i++) {
+            sums[i] = in.readLong();
+        }
+        int numCells = in.readVInt();
+        keys = new long[numCells];
+        values = new long[numCells];
+        long key = 0;
+        for (int i = 0; i < numCells; i++) {
+            key += in.readVLong();
+            keys[i] = key;
+            values[i] = in.readLong();
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(size);
+        out.writeVLong(rows);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(sums[i]);
+        }
+        // keys are sorted, so only their deltas are written
+        out.writeVInt(keys.length);
+        long previous = 0;
+        for (int i = 0; i < keys.length; i++) {
+            out.writeVLong(keys[i] - previous);
+            previous = keys[i];
+            out.writeLong(values[i]);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.SHAPE, new Integer[]{size, size});
+        builder.field(Fields.ROWS, rows);
+        builder.field(Fields.SUMS, sums);
+        builder.field(Fields.SYMMETRIC, true);
+        int[] row = new int[keys.length];
+        int[] col = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            row[i] = getRow(i);
+            col[i] = getCol(i);
+        }
+        builder.startObject(Vectorizer.FieldStrings.MATRIX);
+        builder.field(Vectorizer.FieldStrings.ROW, row);
+        builder.field(Vectorizer.FieldStrings.COL, col);
+        builder.field(Vectorizer.FieldStrings.DATA, values);
+        builder.endObject();
+        return builder;
+    }
+}
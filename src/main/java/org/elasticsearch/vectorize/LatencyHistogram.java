@@ -0,0 +1,169 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A latency histogram with power of two buckets in microseconds. Bucket <tt>i</tt> counts the latencies in
+ * <tt>[2^(i-1), 2^i)</tt> microseconds, and bucket 0 those below one microsecond. Recording only increments striped
+ * counters so it can be called from the hot path.
+ */
+public class LatencyHistogram {
+
+    static final int NUM_BUCKETS = 32;
+
+    private final MeanMetric total = new MeanMetric();
+    private final CounterMetric[] buckets = new CounterMetric[NUM_BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets[i] = new CounterMetric();
+        }
+    }
+
+    public void record(long nanos) {
+        total.inc(nanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = micros <= 0 ? 0 : Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].inc();
+    }
+
+    public Stats stats() {
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets[i].count();
+        }
+        return new Stats(total.count(), total.sum(), counts);
+    }
+
+    public static class Stats implements Streamable, ToXContent {
+
+        static final class Fields {
+            static final XContentBuilderString COUNT = new XContentBuilderString("count");
+            static final XContentBuilderString TIME = new XContentBuilderString("time");
+            static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+            static final XContentBuilderString PERCENTILES_IN_MICROS = new XContentBuilderString("percentiles_in_micros");
+            static final XContentBuilderString BUCKETS = new XContentBuilderString("buckets");
+            static final XContentBuilderString LT_MICROS = new XContentBuilderString("lt_micros");
+        }
+
+        private static final double[] PERCENTILES = new double[]{50, 90, 99, 99.9};
+
+        private long count;
+        private long sumInNanos;
+        private long[] buckets;
+
+        Stats() {
+        }
+
+        Stats(long count, long sumInNanos, long[] buckets) {
+            this.count = count;
+            this.sumInNanos = sumInNanos;
+            this.buckets = buckets;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public TimeValue getTime() {
+            return new TimeValue(sumInNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns an upper bound of the given percentile, in microseconds.
+         */
+        public long percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100 * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        private static long upperBound(int bucket) {
+            return 1L << bucket;
+        }
+
+        public static Stats readStats(StreamInput in) throws IOException {
+            Stats stats = new Stats();
+            stats.readFrom(in);
+            return stats;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            count = in.readVLong();
+            sumInNanos = in.readVLong();
+            buckets = new long[in.readVInt()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = in.readVLong();
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(count);
+            out.writeVLong(sumInNanos);
+            out.writeVInt(buckets.length);
+            for (long bucket : buckets) {
+                out.writeVLong(bucket);
+            }
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.COUNT, count);
+            builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, getTime());
+            builder.startObject(Fields.PERCENTILES_IN_MICROS);
+            for (double percentile : PERCENTILES) {
+                builder.field(String.valueOf(percentile), percentile(percentile));
+            }
+            builder.endObject();
+            builder.startArray(Fields.BUCKETS);
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] > 0) {
+                    builder.startObject();
+                    builder.field(Fields.LT_MICROS, upperBound(i));
+                    builder.field(Fields.COUNT, buckets[i]);
+                    builder.endObject();
+                }
+            }
+            builder.endArray();
+            return builder;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The MinHash signature of the set of terms of a row, either over the terms of the vocabulary found in the document,
+ * or over all the terms of a field. With k permutations, each of the <tt>num_hashes</tt> values is the minimum of its
+ * own hash function over the terms, while with one permutation the terms are hashed once and spread over
+ * <tt>num_hashes</tt> bins, empty bins taking the value of the next non empty one, as of Shrivastava and Li.
+ *
+ * Values are folded to 30 bits, and are never 0, so that a signature is always <tt>num_hashes</tt> cells wide. It can
+ * be followed by the keys of <tt>bands</tt> LSH bands, each a hash of <tt>num_hashes / bands</tt> consecutive values,
+ * so that two rows sharing a band key are a candidate pair.
+ */
+public class MinHash {
+
+    public static final int DEFAULT_NUM_HASHES = 128;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int numHashes;
+    private final long seed;
+    private final boolean onePermutation;
+    private final String field;
+    private final int bands;
+
+    public MinHash(int numHashes, long seed, boolean onePermutation, @Nullable String field, int bands) {
+        this.numHashes = numHashes;
+        this.seed = seed;
+        this.onePermutation = onePermutation;
+        this.field = field;
+        this.bands = bands;
+    }
+
+    public int numHashes() {
+        return numHashes;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public boolean onePermutation() {
+        return onePermutation;
+    }
+
+    /**
+     * The field whose terms are all hashed, or <tt>null</tt> to hash the terms of the vocabulary.
+     */
+    @Nullable
+    public String field() {
+        return field;
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    /**
+     * The number of cells of a signature, along with its band keys.
+     */
+    public int width() {
+        return numHashes + bands;
+    }
+
+    public Signature newSignature() {
+        return new Signature();
+    }
+
+    // the finalizer of splitmix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int fold(long hash) {
+        return (int) (mix(hash) >>> 34) + 1;
+    }
+
+    /**
+     * The signature of a row, which is emptied once it is read.
+     */
+    public class Signature {
+        private final long[] mins = new long[numHashes];
+        private final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        private boolean empty = true;
+
+        public void add(String fieldName, BytesRef bytes) {
+            MurmurHash3.hash128(bytes.bytes, bytes.offset, bytes.length, seed, hash);
+            long base = mix(hash.h1 ^ (fieldName.hashCode() * GOLDEN_GAMMA));
+            if (empty) {
+                Arrays.fill(mins, Long.MAX_VALUE);
+                empty = false;
+            }
+            if (onePermutation) {
+                int bin = (int) (((base >>> 32) * numHashes) >>> 32);
+                long value = base & 0xFFFFFFFFL;
+                if (value < mins[bin]) {
+                    mins[bin] = value;
+                }
+                return;
+            }
+            long state = base;
+            for (int i = 0; i < numHashes; i++) {
+                state += GOLDEN_GAMMA;
+                long value = mix(state) >>> 1;
+                if (value < mins[i]) {
+                    mins[i] = value;
+                }
+            }
+        }
+
+        /**
+         * Returns the values of the signature followed by its band keys, or <tt>null</tt> if no term was added.
+         */
+        @Nullable
+        public int[] finish() {
+            if (empty) {
+                return null;
+            }
+            empty = true;
+            int[] values = new int[width()];
+            for (int i = 0; i < numHashes; i++) {
+                if (mins[i] != Long.MAX_VALUE) {
+                    values[i] = fold(mins[i]);
+                    continue;
+                }
+                // an empty bin of one permutation takes the next non empty bin, rotated by the distance to it
+                for (int distance = 1; distance < numHashes; distance++) {
+                    long min = mins[(i + distance) % numHashes];
+                    if (min != Long.MAX_VALUE) {
+                        values[i] = fold(min + distance * GOLDEN_GAMMA);
+                        break;
+                    }
+                }
+            }
+            int rows = bands > 0 ? numHashes / bands : 0;
+            for (int band = 0; band < bands; band++) {
+                long key = mix(seed + (band + 1) * GOLDEN_GAMMA);
+                for (int i = band * rows; i < (band + 1) * rows; i++) {
+                    key = mix(key ^ values[i]);
+                }
+                values[numHashes + band] = fold(key);
+            }
+            return values;
+        }
+    }
+
+    public static MinHash parse(XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        int numHashes = DEFAULT_NUM_HASHES;
+        long seed = 0;
+        boolean onePermutation = false;
+        String field = null;
+        int bands = 0;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (currentFieldName != null) {
+                if (currentFieldName.equals("num_hashes")) {
+                    numHashes = parser.intValue();
+                } else if (currentFieldName.equals("seed")) {
+                    seed = parser.longValue();
+                } else if (currentFieldName.equals("one_permutation")) {
+                    onePermutation = parser.booleanValue();
+                } else if (currentFieldName.equals("field")) {
+                    field = parser.text();
+                } else if (currentFieldName.equals("bands")) {
+                    bands = parser.intValue();
+                } else {
+                    throw new ElasticsearchParseException("The parameter " + currentFieldName + " is not valid for a minhash!");
+                }
+            }
+        }
+        if (numHashes <= 0) {
+            throw new ElasticsearchParseException("The parameter num_hashes of a minhash must be positive!");
+        }
+        if (bands < 0 || (bands > 0 && numHashes % bands != 0)) {
+            throw new ElasticsearchParseException("The parameter bands of a minhash must divide num_hashes!");
+        }
+        Vectorizer.checkNumColumns("minhash", (long) numHashes + bands);
+        return new MinHash(numHashes, seed, onePermutation, field, bands);
+    }
+
+    public static MinHash readFrom(StreamInput in) throws IOException {
+        int numHashes = in.readVInt();
+        long seed = in.readLong();
+        boolean onePermutation = in.readBoolean();
+        String field = in.readOptionalString();
+        int bands = in.readVInt();
+        Vectorizer.checkNumColumns("minhash", (long) numHashes + bands);
+        return new MinHash(numHashes, seed, onePermutation, field, bands);
+    }
+
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(numHashes);
+        out.writeLong(seed);
+        out.writeBoolean(onePermutation);
+        out.writeOptionalString(field);
+        out.writeVInt(bands);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+
+/**
+ * A sparse random projection of the rows to a few dense dimensions, as of Achlioptas and of Li, Hastie and Church
+ * for very sparse projections. Each entry of the projection matrix is <tt>+sqrt(1 / density)</tt> or
+ * <tt>-sqrt(1 / density)</tt> with probability <tt>density / 2</tt> each, and 0 otherwise, scaled by
+ * <tt>1 / sqrt(dims)</tt>. The density defaults to <tt>1 / sqrt(columns)</tt>.
+ *
+ * The matrix is never stored: the non zeros of the row of each column are drawn from a generator seeded with the
+ * seed and the column, skipping over the zeros, so the same seed always gives the same projection on every shard.
+ * Rows only hold integers, so projected values are multiplied by the scale, rounded and clamped to an integer. Every
+ * row is <tt>dims</tt> columns wide, so <tt>dims</tt> is bounded by the largest vocabulary of a vectorizer.
+ */
+public class RandomProjection {
+
+    public static final int DEFAULT_SCALE = 1000;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int dims;
+    private final long seed;
+    private final double density;
+    private final int scale;
+
+    public RandomProjection(int dims, long seed, double density, int scale) {
+        this.dims = dims;
+        this.seed = seed;
+        this.density = density;
+        this.scale = scale;
+    }
+
+    public int dims() {
+        return dims;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public double density() {
+        return density;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * Returns this projection with its density set for the given number of columns, if it was not given.
+     */
+    RandomProjection resolve(int columns) {
+        if (density > 0) {
+            return this;
+        }
+        return new RandomProjection(dims, seed, 1.0 / Math.sqrt(Math.max(1, columns)), scale);
+    }
+
+    /**
+     * Projects the given cells, returns the value of each dimension.
+     */
+    public int[] project(int[] columns, int[] values, int length) {
+        double[] projected = new double[dims];
+        double weight = Math.sqrt(1.0 / density) / Math.sqrt(dims);
+        double logZero = Math.log1p(-density);
+        for (int i = 0; i < length; i++) {
+            double value = values[i] * weight;
+            long state = mix(seed ^ (columns[i] * GOLDEN_GAMMA));
+            // the gap to the next non zero of the row is geometric
+            int dim = -1;
+            while (true) {
+                state += GOLDEN_GAMMA;
+                long random = mix(state);
+                double uniform = ((random >>> 11) + 1) * 0x1.0p-53;
+                double gap = Math.floor(Math.log(uniform) / logZero);
+                if (gap >= dims - dim - 1) {
+                    break;
+                }
+                dim += 1 + (int) gap;
+                state += GOLDEN_GAMMA;
+                projected[dim] += (mix(state) & 1) == 0 ? value : -value;
+            }
+        }
+        int[] result = new int[dims];
+        for (int dim = 0; dim < dims; dim++) {
+            result[dim] = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(projected[dim] * scale)));
+        }
+        return result;
+    }
+
+    // the finalizer of splitmix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static RandomProjection parse(XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        int dims = 0;
+        long seed = 0;
+        double density = 0;
+        int scale = DEFAULT_SCALE;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (currentFieldName != null) {
+                if (currentFieldName.equals("dims")) {
+                    dims = parser.intValue();
+                } else if (currentFieldName.equals("seed")) {
+                    seed = parser.longValue();
+                } else if (currentFieldName.equals("density")) {
+                    density = parser.doubleValue();
+                } else if (currentFieldName.equals("scale")) {
+                    scale = parser.intValue();
+                } else {
+                    throw new ElasticsearchParseException("The parameter " + currentFieldName + " is not valid for a projection!");
+                }
+            }
+        }
+        if (dims <= 0) {
+            throw new ElasticsearchParseException("The parameter dims of a projection must be positive!");
+        }
+        Vectorizer.checkNumColumns("projection", dims);
+        if (density < 0 || density > 1) {
+            throw new ElasticsearchParseException("The parameter density of a projection must be between 0 and 1!");
+        }
+        if (scale <= 0) {
+            throw new ElasticsearchParseException("The parameter scale of a projection must be positive!");
+        }
+        return new RandomProjection(dims, seed, density, scale);
+    }
+
+    public static RandomProjection readFrom(StreamInput in) throws IOException {
+        int dims = in.readVInt();
+        Vectorizer.checkNumColumns("projection", dims);
+        long seed = in.readLong();
+        double density = in.readDouble();
+        int scale = in.readVInt();
+        if (scale <= 0) {
+            throw new IllegalArgumentException("scale of a projection must be positive, got [" + scale + "]");
+        }
+        return new RandomProjection(dims, seed, density, scale);
+    }
+
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(dims);
+        out.writeLong(seed);
+        out.writeDouble(density);
+        out.writeVInt(scale);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+
+/**
+ * Charges the heap used by vectorize requests to the <tt>request</tt> circuit breaker, and enforces hard caps on the
+ * size of a vocabulary, <tt>vectorize.max_vocabulary_size</tt>, on the number of non zeros of a page of the
+ * matrix built on the coordinating node, <tt>vectorize.max_page_non_zeros</tt>, and on the number of non zeros of
+ * a Gram matrix accumulated on a shard, <tt>vectorize.gram.max_cells</tt>.
+ */
+public class VectorizeBreaker extends AbstractComponent {
+
+    public static final String MAX_VOCABULARY_SIZE = "vectorize.max_vocabulary_size";
+    public static final String MAX_PAGE_NON_ZEROS = "vectorize.max_page_non_zeros";
+    public static final String MAX_GRAM_CELLS = "vectorize.gram.max_cells";
+
+    // the rows of the hits are held on the coordinating node as linked maps, so each non zero takes an entry, with a
+    // slot of the table and a boxed column and value, besides the row, column and value laid out by the matrix builder
+    static final long BYTES_PER_MAP_ENTRY = RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+            + RamUsageEstimator.NUM_BYTES_INT + 5 * RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+    static final long BYTES_PER_BOXED_INT = RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+            + RamUsageEstimator.NUM_BYTES_INT);
+    static final long BYTES_PER_NON_ZERO = BYTES_PER_MAP_ENTRY + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+            + 2 * BYTES_PER_BOXED_INT + 3 * RamUsageEstimator.NUM_BYTES_INT;
+    // the key and the value of a cell of a Gram matrix, laid out in two arrays
+    static final long BYTES_PER_GRAM_CELL = 2 * RamUsageEstimator.NUM_BYTES_LONG;
+
+    private final CircuitBreakerService circuitBreakerService;
+    private final int maxVocabularySize;
+    private final long maxPageNonZeros;
+    private final long maxGramCells;
+
+    @Inject
+    public VectorizeBreaker(Settings settings, CircuitBreakerService circuitBreakerService) {
+        super(settings);
+        this.circuitBreakerService = circuitBreakerService;
+        this.maxVocabularySize = settings.getAsInt(MAX_VOCABULARY_SIZE, 1000000);
+        this.maxPageNonZeros = settings.getAsLong(MAX_PAGE_NON_ZEROS, 50000000L);
+        this.maxGramCells = settings.getAsLong(MAX_GRAM_CELLS, 20000000L);
+        if (maxGramCells > ArrayUtil.MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("[" + MAX_GRAM_CELLS + "] cannot be more than [" + ArrayUtil.MAX_ARRAY_LENGTH
+                    + "], got [" + maxGramCells + "]");
+        }
+        // vocabularies are then rejected while they are parsed or read, before they are built
+        Vectorizer.setMaxVocabularySize(maxVocabularySize);
+    }
+
+    /**
+     * The maximum number of non zeros of a Gram matrix, whose memory is otherwise charged to the breaker as it grows.
+     */
+    public long maxGramCells() {
+        return maxGramCells;
+    }
+
+    /**
+     * Rejects the vectorizer if its vocabulary is too large, otherwise charges it to the breaker. Vectorizers parsed or
+     * read on this node are already rejected on the way if their vocabulary is too large, this also covers those
+     * built otherwise. The returned releasable must be closed once the vectorizer is not used anymore.
+     */
+    public Releasable addVectorizer(Vectorizer vectorizer, String label) {
+        if (vectorizer.numColumns() > maxVocabularySize) {
+            throw new IllegalArgumentException("vocabulary of size [" + vectorizer.numColumns() + "] is larger than ["
+                    + MAX_VOCABULARY_SIZE + "] of [" + maxVocabularySize + "]");
+        }
+        return add(vectorizer.ramBytesUsed(), label);
+    }
+
+    /**
+     * Rejects the page if it has too many non zeros, otherwise charges the matrix to the breaker. The returned
+     * releasable must be closed once the matrix has been written out.
+     */
+    public Releasable addMatrix(long nonZeros, String label) {
+        if (nonZeros > maxPageNonZeros) {
+            throw new IllegalArgumentException("page of [" + nonZeros + "] non zeros is larger than [" + MAX_PAGE_NON_ZEROS
+                    + "] of [" + maxPageNonZeros + "], try a smaller page size");
+        }
+        return add(nonZeros * BYTES_PER_NON_ZERO, label);
+    }
+
+    /**
+     * Rejects a Gram matrix of too many non zeros, otherwise charges its cells, laid out in arrays on the heap, to the
+     * breaker. The returned releasable must be closed once the matrix is not held anymore.
+     */
+    public Releasable addGramMatrix(long nonZeros, String label) {
+        if (nonZeros > maxGramCells) {
+            throw new IllegalArgumentException("gram matrix of [" + nonZeros + "] non zeros is larger than [" + MAX_GRAM_CELLS
+                    + "] of [" + maxGramCells + "], try a smaller vocabulary or top_k");
+        }
+        return add(nonZeros * BYTES_PER_GRAM_CELL, label);
+    }
+
+    private Releasable add(final long bytes, String label) {
+        final CircuitBreaker breaker = circuitBreakerService.getBreaker(CircuitBreaker.REQUEST);
+        breaker.addEstimateBytesAndMaybeBreak(bytes, label);
+        return new Releasable() {
+            private boolean closed = false;
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    breaker.addWithoutBreaking(-bytes);
+                }
+            }
+        };
+    }
+}
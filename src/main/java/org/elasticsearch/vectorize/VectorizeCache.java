@@ -0,0 +1,209 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.lucene.index.LeafReader;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of encoded rows, keyed by vectorizer fingerprint, segment and doc id. Rows of a segment are
+ * dropped as soon as the segment core is closed, typically after it has been merged away.
+ *
+ * The cache is disabled unless <tt>vectorize.cache.size</tt> is set.
+ */
+public class VectorizeCache extends AbstractComponent implements RemovalListener<VectorizeCache.Key, BytesReference>, LeafReader.CoreClosedListener {
+
+    public static final String CACHE_SIZE = "vectorize.cache.size";
+    public static final String CACHE_EXPIRE = "vectorize.cache.expire";
+    public static final String CACHE_CONCURRENCY_LEVEL = "vectorize.cache.concurrency_level";
+
+    // rough per entry overhead of the key and the cache itself
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final Cache<Key, BytesReference> cache;
+    // the keys of each segment core, so that closing a segment does not go through the whole cache
+    private final ConcurrentMap<Object, Set<Key>> keysByCore = ConcurrentCollections.newConcurrentMap();
+
+    private final CounterMetric memorySize = new CounterMetric();
+    private final CounterMetric hitCount = new CounterMetric();
+    private final CounterMetric missCount = new CounterMetric();
+    private final CounterMetric evictions = new CounterMetric();
+
+    @Inject
+    public VectorizeCache(Settings settings) {
+        super(settings);
+        ByteSizeValue size = settings.getAsBytesSize(CACHE_SIZE, new ByteSizeValue(0));
+        TimeValue expire = settings.getAsTime(CACHE_EXPIRE, null);
+        int concurrencyLevel = settings.getAsInt(CACHE_CONCURRENCY_LEVEL, 16);
+        if (size.bytes() <= 0) {
+            this.cache = null;
+            return;
+        }
+        logger.debug("using vectorize cache with size [{}], expire [{}]", size, expire);
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .maximumWeight(size.bytes())
+                .weigher(new RowWeigher())
+                .removalListener(this)
+                .concurrencyLevel(concurrencyLevel);
+        if (expire != null && expire.millis() > 0) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+        this.cache = cacheBuilder.build();
+    }
+
+    public boolean enabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached row of the given segment document, or <tt>null</tt> if it is not cached.
+     */
+    public BytesReference get(Vectorizer vectorizer, LeafReader reader, int docId) {
+        if (!cacheable(vectorizer)) {
+            return null;
+        }
+        BytesReference row = cache.getIfPresent(new Key(vectorizer.fingerprint(), reader.getCoreCacheKey(), docId));
+        if (row == null) {
+            missCount.inc();
+        } else {
+            hitCount.inc();
+        }
+        return row;
+    }
+
+    public void put(Vectorizer vectorizer, LeafReader reader, int docId, BytesReference row) {
+        if (!cacheable(vectorizer)) {
+            return;
+        }
+        Object coreKey = reader.getCoreCacheKey();
+        Set<Key> keys = keysByCore.get(coreKey);
+        if (keys == null) {
+            Set<Key> newKeys = ConcurrentCollections.newConcurrentSet();
+            keys = keysByCore.putIfAbsent(coreKey, newKeys);
+            if (keys == null) {
+                keys = newKeys;
+                reader.addCoreClosedListener(this);
+            }
+        }
+        // the row may be backed by a much larger page, only keep what we need
+        BytesReference compacted = row.copyBytesArray();
+        memorySize.inc(weight(compacted));
+        Key key = new Key(vectorizer.fingerprint(), coreKey, docId);
+        keys.add(key);
+        cache.put(key, compacted);
+    }
+
+    // term statistics depend on the whole index, so these rows change even if their segment does not
+    private boolean cacheable(Vectorizer vectorizer) {
+        return cache != null && !vectorizer.needsTermStatistics();
+    }
+
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+        Set<Key> keys = keysByCore.remove(ownerCoreCacheKey);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        if (notification.getValue() != null) {
+            memorySize.dec(weight(notification.getValue()));
+        }
+        if (notification.wasEvicted()) {
+            evictions.inc();
+        }
+        if (notification.getCause() != RemovalCause.REPLACED) {
+            Key key = notification.getKey();
+            Set<Key> keys = keysByCore.get(key.coreKey);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public VectorizeCacheStats stats() {
+        long entries = cache != null ? cache.size() : 0;
+        return new VectorizeCacheStats(memorySize.count(), entries, hitCount.count(), missCount.count(), evictions.count());
+    }
+
+    private static int weight(BytesReference row) {
+        return row.length() + ENTRY_OVERHEAD;
+    }
+
+    private static class RowWeigher implements Weigher<Key, BytesReference> {
+        @Override
+        public int weigh(Key key, BytesReference row) {
+            return weight(row);
+        }
+    }
+
+    static class Key {
+        final String fingerprint;
+        final Object coreKey;
+        final int docId;
+
+        Key(String fingerprint, Object coreKey, int docId) {
+            this.fingerprint = fingerprint;
+            this.coreKey = coreKey;
+            this.docId = docId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return docId == key.docId && coreKey == key.coreKey && fingerprint.equals(key.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fingerprint.hashCode();
+            result = 31 * result + System.identityHashCode(coreKey);
+            result = 31 * result + docId;
+            return result;
+        }
+    }
+}
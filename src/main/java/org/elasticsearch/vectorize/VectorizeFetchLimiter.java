@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the number of shard fetches of a node which vectorize hits at the same time, so that a heavy export
+ * cannot take over the whole search thread pool. A fetch takes a single permit for all its hits, and is rejected
+ * right away if none is left, so that search threads never wait on each other.
+ *
+ * The limiter is disabled unless <tt>vectorize.fetch.max_concurrent</tt> is set.
+ */
+public class VectorizeFetchLimiter extends AbstractComponent {
+
+    public static final String MAX_CONCURRENT = "vectorize.fetch.max_concurrent";
+
+    private final int maxConcurrent;
+    private final Semaphore permits;
+
+    private final CounterMetric rejected = new CounterMetric();
+
+    @Inject
+    public VectorizeFetchLimiter(Settings settings) {
+        super(settings);
+        this.maxConcurrent = settings.getAsInt(MAX_CONCURRENT, 0);
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        if (permits != null) {
+            logger.debug("limiting concurrent vectorize fetches to [{}]", maxConcurrent);
+        }
+    }
+
+    public boolean enabled() {
+        return permits != null;
+    }
+
+    /**
+     * Takes a permit without waiting, which is given back once the returned releasable is closed.
+     *
+     * @throws EsRejectedExecutionException if all the permits are taken
+     */
+    public Releasable acquire() {
+        if (permits == null) {
+            return NO_PERMIT;
+        }
+        if (permits.tryAcquire() == false) {
+            rejected.inc();
+            throw new EsRejectedExecutionException("rejected vectorize fetch, [" + maxConcurrent + "] already in progress");
+        }
+        return new Releasable() {
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            @Override
+            public void close() {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        };
+    }
+
+    private static final Releasable NO_PERMIT = new Releasable() {
+        @Override
+        public void close() {
+        }
+    };
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getActive() {
+        return permits != null ? maxConcurrent - permits.availablePermits() : 0;
+    }
+
+    public long getRejected() {
+        return rejected.count();
+    }
+}
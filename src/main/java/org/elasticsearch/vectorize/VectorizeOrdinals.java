@@ -0,0 +1,284 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of the columns of the ordinals of a segment field, so that the vocabulary is resolved against
+ * the terms of a segment once, rather than each term of each hit being looked up in the vocabulary. Tables are
+ * dropped as soon as the segment core is closed.
+ *
+ * The vectorizers used lately are also kept along with the index they were used on, up to
+ * <tt>vectorize.warmer.recent</tt>, so that their tables can be built ahead of time for the new segments of that
+ * index by the {@link VectorizeWarmer}.
+ */
+public class VectorizeOrdinals extends AbstractComponent implements RemovalListener<VectorizeOrdinals.Key, VectorizeOrdinals.Columns>,
+        LeafReader.CoreClosedListener {
+
+    public static final String CACHE_SIZE = "vectorize.ordinals.cache.size";
+    public static final String RECENT_SIZE = "vectorize.warmer.recent";
+    public static final String RECENT_EXPIRE = "vectorize.warmer.recent_expire";
+
+    private final Cache<Key, Columns> tables;
+    private final Cache<RecentKey, Vectorizer> recent;
+    // the keys of each segment core, so that closing a segment does not go through the whole cache
+    private final ConcurrentMap<Object, Set<Key>> keysByCore = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public VectorizeOrdinals(Settings settings) {
+        super(settings);
+        ByteSizeValue size = settings.getAsBytesSize(CACHE_SIZE, new ByteSizeValue(16, ByteSizeUnit.MB));
+        int recentSize = settings.getAsInt(RECENT_SIZE, 16);
+        TimeValue recentExpire = settings.getAsTime(RECENT_EXPIRE, TimeValue.timeValueMinutes(30));
+        this.tables = CacheBuilder.newBuilder()
+                .maximumWeight(size.bytes())
+                .weigher(new ColumnsWeigher())
+                .removalListener(this)
+                .build();
+        this.recent = CacheBuilder.newBuilder()
+                .maximumSize(recentSize)
+                .expireAfterAccess(recentExpire.millis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the columns of the ordinals of the given field of a segment of the given index, building them if needed.
+     */
+    public Columns columns(String index, Vectorizer vectorizer, String fieldName, LeafReader reader, RandomAccessOrds ordinals) {
+        String fingerprint = vectorizer.fingerprint();
+        RecentKey recentKey = new RecentKey(index, fingerprint);
+        if (recent.getIfPresent(recentKey) == null) {
+            recent.put(recentKey, vectorizer.copy());
+        }
+        Object coreKey = reader.getCoreCacheKey();
+        Key key = new Key(fingerprint, coreKey, fieldName);
+        Columns columns = tables.getIfPresent(key);
+        if (columns == null) {
+            columns = Columns.build(vectorizer, fieldName, ordinals);
+            Set<Key> keys = keysByCore.get(coreKey);
+            if (keys == null) {
+                Set<Key> newKeys = ConcurrentCollections.newConcurrentSet();
+                keys = keysByCore.putIfAbsent(coreKey, newKeys);
+                if (keys == null) {
+                    keys = newKeys;
+                    reader.addCoreClosedListener(this);
+                }
+            }
+            keys.add(key);
+            tables.put(key, columns);
+        }
+        return columns;
+    }
+
+    /**
+     * The vectorizers used lately on the given index on this node.
+     */
+    public List<Vectorizer> recentVectorizers(String index) {
+        List<Vectorizer> vectorizers = new ArrayList<>();
+        for (Map.Entry<RecentKey, Vectorizer> entry : recent.asMap().entrySet()) {
+            if (entry.getKey().index.equals(index)) {
+                vectorizers.add(entry.getValue());
+            }
+        }
+        return vectorizers;
+    }
+
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+        Set<Key> keys = keysByCore.remove(ownerCoreCacheKey);
+        if (keys != null) {
+            tables.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, Columns> notification) {
+        if (notification.getCause() != RemovalCause.REPLACED) {
+            Key key = notification.getKey();
+            Set<Key> keys = keysByCore.get(key.coreKey);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The number of tables cached.
+     */
+    long size() {
+        return tables.size();
+    }
+
+    public void clear() {
+        tables.invalidateAll();
+    }
+
+    /**
+     * The columns of the ordinals of a segment field which are part of the vocabulary, as two parallel arrays sorted
+     * by ordinal, as the ordinals of a document are.
+     */
+    public static class Columns {
+        private final long[] ords;
+        private final int[] columns;
+
+        Columns(long[] ords, int[] columns) {
+            this.ords = ords;
+            this.columns = columns;
+        }
+
+        static Columns build(Vectorizer vectorizer, String fieldName, RandomAccessOrds ordinals) {
+            List<Term> terms = vectorizer.getTerms();
+            long[] ords = new long[terms.size()];
+            int[] columns = new int[terms.size()];
+            int size = 0;
+            for (Term term : terms) {
+                if (!term.field().equals(fieldName)) {
+                    continue;
+                }
+                long ord = ordinals.lookupTerm(term.bytes());
+                if (ord >= 0) {
+                    ords[size] = ord;
+                    columns[size] = vectorizer.getColumn(term);
+                    size++;
+                }
+            }
+            final long[] sortedOrds = Arrays.copyOf(ords, size);
+            final int[] sortedColumns = Arrays.copyOf(columns, size);
+            new InPlaceMergeSorter() {
+                @Override
+                protected int compare(int i, int j) {
+                    return Long.compare(sortedOrds[i], sortedOrds[j]);
+                }
+
+                @Override
+                protected void swap(int i, int j) {
+                    long ord = sortedOrds[i];
+                    sortedOrds[i] = sortedOrds[j];
+                    sortedOrds[j] = ord;
+                    int column = sortedColumns[i];
+                    sortedColumns[i] = sortedColumns[j];
+                    sortedColumns[j] = column;
+                }
+            }.sort(0, size);
+            return new Columns(sortedOrds, sortedColumns);
+        }
+
+        /**
+         * Returns the column of the given ordinal, or -1 if its term is not part of the vocabulary.
+         */
+        public int column(long ord) {
+            int i = Arrays.binarySearch(ords, ord);
+            return i >= 0 ? columns[i] : -1;
+        }
+
+        public int size() {
+            return ords.length;
+        }
+
+        long ramBytesUsed() {
+            return 2 * RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+                    + ords.length * (RamUsageEstimator.NUM_BYTES_LONG + RamUsageEstimator.NUM_BYTES_INT);
+        }
+    }
+
+    private static class ColumnsWeigher implements Weigher<Key, Columns> {
+        @Override
+        public int weigh(Key key, Columns columns) {
+            return (int) Math.min(Integer.MAX_VALUE, columns.ramBytesUsed());
+        }
+    }
+
+    static class RecentKey {
+        final String index;
+        final String fingerprint;
+
+        RecentKey(String index, String fingerprint) {
+            this.index = index;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RecentKey key = (RecentKey) o;
+            return index.equals(key.index) && fingerprint.equals(key.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * index.hashCode() + fingerprint.hashCode();
+        }
+    }
+
+    static class Key {
+        final String fingerprint;
+        final Object coreKey;
+        final String fieldName;
+
+        Key(String fingerprint, Object coreKey, String fieldName) {
+            this.fingerprint = fingerprint;
+            this.coreKey = coreKey;
+            this.fieldName = fieldName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return coreKey == key.coreKey && fingerprint.equals(key.fingerprint) && fieldName.equals(key.fieldName);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fingerprint.hashCode();
+            result = 31 * result + System.identityHashCode(coreKey);
+            result = 31 * result + fieldName.hashCode();
+            return result;
+        }
+    }
+}
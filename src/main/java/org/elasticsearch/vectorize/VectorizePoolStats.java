@@ -0,0 +1,160 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * The stats of the <tt>vectorize</tt> thread pool and of the fetch limiter.
+ */
+public class VectorizePoolStats implements Streamable, ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString THREAD_POOL = new XContentBuilderString("thread_pool");
+        static final XContentBuilderString THREADS = new XContentBuilderString("threads");
+        static final XContentBuilderString QUEUE = new XContentBuilderString("queue");
+        static final XContentBuilderString ACTIVE = new XContentBuilderString("active");
+        static final XContentBuilderString REJECTED = new XContentBuilderString("rejected");
+        static final XContentBuilderString LARGEST = new XContentBuilderString("largest");
+        static final XContentBuilderString COMPLETED = new XContentBuilderString("completed");
+        static final XContentBuilderString FETCH_LIMITER = new XContentBuilderString("fetch_limiter");
+        static final XContentBuilderString MAX_CONCURRENT = new XContentBuilderString("max_concurrent");
+    }
+
+    private int threads;
+    private int queue;
+    private int active;
+    private long rejected;
+    private int largest;
+    private long completed;
+
+    private int fetchMaxConcurrent;
+    private int fetchActive;
+    private long fetchRejected;
+
+    VectorizePoolStats() {
+    }
+
+    public VectorizePoolStats(int threads, int queue, int active, long rejected, int largest, long completed,
+                              int fetchMaxConcurrent, int fetchActive, long fetchRejected) {
+        this.threads = threads;
+        this.queue = queue;
+        this.active = active;
+        this.rejected = rejected;
+        this.largest = largest;
+        this.completed = completed;
+        this.fetchMaxConcurrent = fetchMaxConcurrent;
+        this.fetchActive = fetchActive;
+        this.fetchRejected = fetchRejected;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueue() {
+        return queue;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public int getLargest() {
+        return largest;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public int getFetchMaxConcurrent() {
+        return fetchMaxConcurrent;
+    }
+
+    public int getFetchActive() {
+        return fetchActive;
+    }
+
+    public long getFetchRejected() {
+        return fetchRejected;
+    }
+
+    public static VectorizePoolStats readPoolStats(StreamInput in) throws IOException {
+        VectorizePoolStats stats = new VectorizePoolStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        threads = in.readVInt();
+        queue = in.readVInt();
+        active = in.readVInt();
+        rejected = in.readVLong();
+        largest = in.readVInt();
+        completed = in.readVLong();
+        fetchMaxConcurrent = in.readVInt();
+        fetchActive = in.readVInt();
+        fetchRejected = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(threads);
+        out.writeVInt(queue);
+        out.writeVInt(active);
+        out.writeVLong(rejected);
+        out.writeVInt(largest);
+        out.writeVLong(completed);
+        out.writeVInt(fetchMaxConcurrent);
+        out.writeVInt(fetchActive);
+        out.writeVLong(fetchRejected);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.THREAD_POOL);
+        builder.field(Fields.THREADS, threads);
+        builder.field(Fields.QUEUE, queue);
+        builder.field(Fields.ACTIVE, active);
+        builder.field(Fields.REJECTED, rejected);
+        builder.field(Fields.LARGEST, largest);
+        builder.field(Fields.COMPLETED, completed);
+        builder.endObject();
+        builder.startObject(Fields.FETCH_LIMITER);
+        builder.field(Fields.MAX_CONCURRENT, fetchMaxConcurrent);
+        builder.field(Fields.ACTIVE, fetchActive);
+        builder.field(Fields.REJECTED, fetchRejected);
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The time spent in each phase of vectorizing rows on a shard, along with some counts. Phases are timed with
+ * {@link System#nanoTime()} around each step, not around each term, so profiling is cheap enough to always be on.
+ */
+public class VectorizeProfile implements Streamable, ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString TERM_VECTORS_IN_NANOS = new XContentBuilderString("term_vectors_in_nanos");
+        static final XContentBuilderString GET_IN_NANOS = new XContentBuilderString("get_in_nanos");
+        static final XContentBuilderString STORED_IN_NANOS = new XContentBuilderString("stored_in_nanos");
+        static final XContentBuilderString CACHE_IN_NANOS = new XContentBuilderString("cache_in_nanos");
+        static final XContentBuilderString FIELD_DATA_IN_NANOS = new XContentBuilderString("field_data_in_nanos");
+        static final XContentBuilderString VECTORIZE_IN_NANOS = new XContentBuilderString("vectorize_in_nanos");
+        static final XContentBuilderString QUERY_IN_NANOS = new XContentBuilderString("query_in_nanos");
+        static final XContentBuilderString ENCODE_IN_NANOS = new XContentBuilderString("encode_in_nanos");
+        static final XContentBuilderString ROWS = new XContentBuilderString("rows");
+        static final XContentBuilderString TERMS_SCANNED = new XContentBuilderString("terms_scanned");
+        static final XContentBuilderString TERMS_MATCHED = new XContentBuilderString("terms_matched");
+        static final XContentBuilderString NON_ZEROS = new XContentBuilderString("non_zeros");
+    }
+
+    public enum Phase {
+        TERM_VECTORS, GET, STORED, CACHE, FIELD_DATA, VECTORIZE, ENCODE, QUERY
+    }
+
+    private long[] nanos = new long[Phase.values().length];
+    private long rows;
+    private long termsScanned;
+    private long termsMatched;
+    private long nonZeros;
+
+    public VectorizeProfile() {
+    }
+
+    public void addTime(Phase phase, long startTime) {
+        nanos[phase.ordinal()] += System.nanoTime() - startTime;
+    }
+
+    public void addRow(int nonZeros) {
+        this.rows++;
+        this.nonZeros += nonZeros;
+    }
+
+    /**
+     * Counts an encoded row, along with its non zero entries.
+     */
+    public void addRow(BytesReference row) {
+        try {
+            addRow(Vectorizer.nonZeros(row));
+        } catch (IOException e) {
+            addRow(0);
+        }
+    }
+
+    public void addTerms(long scanned, long matched) {
+        this.termsScanned += scanned;
+        this.termsMatched += matched;
+    }
+
+    public void add(VectorizeProfile other) {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] += other.nanos[i];
+        }
+        rows += other.rows;
+        termsScanned += other.termsScanned;
+        termsMatched += other.termsMatched;
+        nonZeros += other.nonZeros;
+    }
+
+    public long getTimeInNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getTotalTimeInNanos() {
+        long total = 0;
+        for (long phaseNanos : nanos) {
+            total += phaseNanos;
+        }
+        return total;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTermsScanned() {
+        return termsScanned;
+    }
+
+    public long getTermsMatched() {
+        return termsMatched;
+    }
+
+    public long getNonZeros() {
+        return nonZeros;
+    }
+
+    /**
+     * Returns the profile as a map, so that it can be attached to a search hit.
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        put(map, Fields.TERM_VECTORS_IN_NANOS, getTimeInNanos(Phase.TERM_VECTORS));
+        put(map, Fields.GET_IN_NANOS, getTimeInNanos(Phase.GET));
+        put(map, Fields.STORED_IN_NANOS, getTimeInNanos(Phase.STORED));
+        put(map, Fields.CACHE_IN_NANOS, getTimeInNanos(Phase.CACHE));
+        put(map, Fields.FIELD_DATA_IN_NANOS, getTimeInNanos(Phase.FIELD_DATA));
+        put(map, Fields.VECTORIZE_IN_NANOS, getTimeInNanos(Phase.VECTORIZE));
+        put(map, Fields.ENCODE_IN_NANOS, getTimeInNanos(Phase.ENCODE));
+        put(map, Fields.QUERY_IN_NANOS, getTimeInNanos(Phase.QUERY));
+        put(map, Fields.ROWS, rows);
+        put(map, Fields.TERMS_SCANNED, termsScanned);
+        put(map, Fields.TERMS_MATCHED, termsMatched);
+        put(map, Fields.NON_ZEROS, nonZeros);
+        return map;
+    }
+
+    private static void put(Map<String, Object> map, XContentBuilderString name, long value) {
+        map.put(name.underscore().getValue(), value);
+    }
+
+    @Override
+    public String toString() {
+        return "term_vectors[" + getTimeInNanos(Phase.TERM_VECTORS) + "nanos], get[" + getTimeInNanos(Phase.GET) +
+                "nanos], stored[" + getTimeInNanos(Phase.STORED) + "nanos], cache[" + getTimeInNanos(Phase.CACHE) + "nanos], field_data[" + getTimeInNanos(Phase.FIELD_DATA) +
+                "nanos], vectorize[" + getTimeInNanos(Phase.VECTORIZE) + "nanos], encode[" + getTimeInNanos(Phase.ENCODE) +
+                "nanos], query[" + getTimeInNanos(Phase.QUERY) + "nanos], rows[" + rows + "], terms_scanned[" + termsScanned + "], terms_matched[" + termsMatched +
+                "], non_zeros[" + nonZeros + "]";
+    }
+
+    public static VectorizeProfile readProfile(StreamInput in) throws IOException {
+        VectorizeProfile profile = new VectorizeProfile();
+        profile.readFrom(in);
+        return profile;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        nanos = new long[in.readVInt()];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = in.readVLong();
+        }
+        rows = in.readVLong();
+        termsScanned = in.readVLong();
+        termsMatched = in.readVLong();
+        nonZeros = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(nanos.length);
+        for (long phaseNanos : nanos) {
+            out.writeVLong(phaseNanos);
+        }
+        out.writeVLong(rows);
+        out.writeVLong(termsScanned);
+        out.writeVLong(termsMatched);
+        out.writeVLong(nonZeros);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.TERM_VECTORS_IN_NANOS, getTimeInNanos(Phase.TERM_VECTORS));
+        builder.field(Fields.GET_IN_NANOS, getTimeInNanos(Phase.GET));
+        builder.field(Fields.STORED_IN_NANOS, getTimeInNanos(Phase.STORED));
+        builder.field(Fields.CACHE_IN_NANOS, getTimeInNanos(Phase.CACHE));
+        builder.field(Fields.FIELD_DATA_IN_NANOS, getTimeInNanos(Phase.FIELD_DATA));
+        builder.field(Fields.VECTORIZE_IN_NANOS, getTimeInNanos(Phase.VECTORIZE));
+        builder.field(Fields.ENCODE_IN_NANOS, getTimeInNanos(Phase.ENCODE));
+        builder.field(Fields.QUERY_IN_NANOS, getTimeInNanos(Phase.QUERY));
+        builder.field(Fields.ROWS, rows);
+        builder.field(Fields.TERMS_SCANNED, termsScanned);
+        builder.field(Fields.TERMS_MATCHED, termsMatched);
+        builder.field(Fields.NON_ZEROS, nonZeros);
+        return builder;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.index.query.IndexQueryParserService;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Evaluates the query columns of a vectorizer. The weight of each query is built once, and its scorer is advanced
+ * over the documents of each segment in doc id order.
+ */
+public final class VectorizeQueries {
+
+    /**
+     * Receives the value of a query column for a document.
+     */
+    public interface Collector {
+        void collect(int index, int column, int value);
+    }
+
+    private VectorizeQueries() {
+    }
+
+    /**
+     * Evaluates the query columns for the given top level doc ids, which must be sorted. The collector is called with
+     * the index of the doc in the array, for the documents which match.
+     */
+    public static void evaluate(Vectorizer vectorizer, IndexQueryParserService queryParserService, IndexSearcher searcher,
+                                int[] docIds, Collector collector) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        List<Vectorizer.QueryColumn> queryColumns = vectorizer.getQueryColumns();
+        for (int i = 0; i < queryColumns.size(); i++) {
+            Vectorizer.QueryColumn queryColumn = queryColumns.get(i);
+            int column = vectorizer.getQueryColumn(i);
+            Query query = queryParserService.parse(queryColumn.source()).query();
+            Weight weight = searcher.createNormalizedWeight(query, queryColumn.score());
+
+            LeafReaderContext leaf = null;
+            Scorer scorer = null;
+            for (int j = 0; j < docIds.length; j++) {
+                if (leaf == null || docIds[j] >= leaf.docBase + leaf.reader().maxDoc()) {
+                    leaf = leaves.get(ReaderUtil.subIndex(docIds[j], leaves));
+                    scorer = weight.scorer(leaf, leaf.reader().getLiveDocs());
+                }
+                if (scorer == null) {
+                    continue;  // nothing matches in this segment
+                }
+                int target = docIds[j] - leaf.docBase;
+                int doc = scorer.docID();
+                if (doc < target) {
+                    doc = scorer.advance(target);
+                }
+                if (doc == target) {
+                    collector.collect(j, column, queryColumn.value(queryColumn.score() ? scorer.score() : 1f));
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the weights of the query columns of the vectorizer once, to evaluate them for many documents of the
+     * same searcher, such as all the documents of a shard operation.
+     */
+    public static Weights weights(Vectorizer vectorizer, IndexQueryParserService queryParserService, IndexSearcher searcher)
+            throws IOException {
+        List<Vectorizer.QueryColumn> queryColumns = vectorizer.getQueryColumns();
+        Weight[] weights = new Weight[queryColumns.size()];
+        int[] columns = new int[queryColumns.size()];
+        for (int i = 0; i < queryColumns.size(); i++) {
+            Vectorizer.QueryColumn queryColumn = queryColumns.get(i);
+            Query query = queryParserService.parse(queryColumn.source()).query();
+            weights[i] = searcher.createNormalizedWeight(query, queryColumn.score());
+            columns[i] = vectorizer.getQueryColumn(i);
+        }
+        return new Weights(queryColumns, columns, weights);
+    }
+
+    /**
+     * The weights of the query columns of a vectorizer over a searcher. The scorers of a segment are reused as long
+     * as its documents come in doc id order, as they do in a scan, and are pulled again otherwise.
+     */
+    public static final class Weights {
+        private final List<Vectorizer.QueryColumn> queryColumns;
+        private final int[] columns;
+        private final Weight[] weights;
+        private final Scorer[] scorers;
+        private LeafReaderContext leaf;
+        private int lastDocId = -1;
+
+        private Weights(List<Vectorizer.QueryColumn> queryColumns, int[] columns, Weight[] weights) {
+            this.queryColumns = queryColumns;
+            this.columns = columns;
+            this.weights = weights;
+            this.scorers = new Scorer[weights.length];
+        }
+
+        /**
+         * Evaluates the query columns for a segment document, and adds them to the vectorizer.
+         */
+        public void evaluate(Vectorizer vectorizer, LeafReaderContext leaf, int docId) throws IOException {
+            if (leaf != this.leaf || docId <= lastDocId) {
+                for (int i = 0; i < weights.length; i++) {
+                    scorers[i] = weights[i].scorer(leaf, leaf.reader().getLiveDocs());
+                }
+                this.leaf = leaf;
+            }
+            lastDocId = docId;
+            for (int i = 0; i < weights.length; i++) {
+                Scorer scorer = scorers[i];
+                if (scorer == null) {
+                    continue;  // nothing matches in this segment
+                }
+                int doc = scorer.docID();
+                if (doc < docId) {
+                    doc = scorer.advance(docId);
+                }
+                if (doc == docId) {
+                    Vectorizer.QueryColumn queryColumn = queryColumns.get(i);
+                    vectorizer.addColumn(columns[i], queryColumn.value(queryColumn.score() ? scorer.score() : 1f));
+                }
+            }
+        }
+    }
+}
@@ -19,76 +19,492 @@
 
 package org.elasticsearch.vectorize;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.memory.MemoryIndex;
 import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.action.termvectors.TermVectorsResponse;
 import org.elasticsearch.action.vectorize.VectorizeRequest;
 import org.elasticsearch.action.vectorize.VectorizeResponse;
-import org.elasticsearch.index.get.GetField;
-import org.elasticsearch.index.get.GetResult;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.mapper.vectorize.VectorFieldMapper;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.IndexShard;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  */
 public class VectorizeService extends AbstractIndexShardComponent {
 
+    /**
+     * The thread pool on which <tt>_vectorize</tt> shard operations run, apart from ordinary document gets.
+     */
+    public static final String THREAD_POOL_NAME = "vectorize";
+
     private IndexShard indexShard;
+    private VectorizeStatsService vectorizeStatsService;
 
     // Unfortunately it does not seem possible to bind shard services in a plugin
-    public VectorizeService(IndexShard indexShard) {
+    public VectorizeService(IndexShard indexShard, VectorizeStatsService vectorizeStatsService) {
         super(indexShard.shardId(), indexShard.indexSettings());
         this.indexShard = indexShard;
+        this.vectorizeStatsService = vectorizeStatsService;
     }
 
     public VectorizeResponse getVector(VectorizeRequest request) {
+        return getVector(request, new VectorizeProfile());
+    }
+
+    /**
+     * Vectorizes the requested document, and records the time spent in each phase in the given profile.
+     */
+    public VectorizeResponse getVector(VectorizeRequest request, VectorizeProfile profile) {
+        return getVector(request, profile, true);
+    }
+
+    /**
+     * Vectorizes the requested document, possibly leaving out the query columns, which the fetch sub-phase evaluates
+     * for all the hits at once.
+     */
+    public VectorizeResponse getVector(VectorizeRequest request, VectorizeProfile profile, boolean queryColumns) {
         final VectorizeResponse response = new VectorizeResponse(request.index(), request.type(), request.id());
+        if (request.doc() != null) {
+            return getArtificialVector(request, response, profile);
+        }
+
+        // look the document up once, and read everything from the searcher it was found in
+        long startTime = System.nanoTime();
+        Term uid = new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(request.type(), request.id()));
+        Engine.GetResult get = indexShard.get(new Engine.Get(request.realtime(), uid)
+                .version(request.version()).versionType(request.versionType()));
+        profile.addTime(VectorizeProfile.Phase.GET, startTime);
+        try {
+            if (!get.exists()) {
+                response.setFormat(request.format());
+                return response;
+            }
+            response.setDocVersion(get.version());
+            if (get.docIdAndVersion() != null) {
+                return getVector(request, get.searcher(), get.docIdAndVersion(), response, profile, queryColumns);
+            }
+            // the document has not been refreshed yet, so it is read from the source held by the translog
+            return getTranslogVector(request, get.source().source, response, profile);
+        } finally {
+            get.release();
+        }
+    }
+
+    private VectorizeResponse getVector(VectorizeRequest request, Engine.Searcher searcher, Versions.DocIdAndVersion docIdAndVersion,
+                                        VectorizeResponse response, VectorizeProfile profile, boolean queryColumns) {
         final Vectorizer vectorizer = request.vectorizer();
+        response.setExists(true);
+        response.setFormat(request.format());
+        response.setTargets(readTargets(vectorizer, docIdAndVersion));
+        try {
+            VectorizeQueries.Weights queryWeights = null;
+            if (queryColumns && vectorizer.hasQueryColumns()) {
+                long startTime = System.nanoTime();
+                try {
+                    queryWeights = queryWeights(vectorizer, searcher);
+                } finally {
+                    profile.addTime(VectorizeProfile.Phase.QUERY, startTime);
+                }
+            }
+            response.setVector(vectorize(vectorizer, request.type(), searcher, docIdAndVersion.context, docIdAndVersion.docId, profile,
+                    queryWeights));
+        } catch (IOException e) {
+            response.setExists(false);  // we failed return an empty response for now
+        }
+        return response;
+    }
 
-        // first fetch the term vectors
-        TermVectorsResponse termVectorsResponse = null;
-        if (request.fields() != null) {
-            termVectorsResponse = getTermVectors(request);
+    /**
+     * Builds the weights of the query columns of the vectorizer over the given searcher, once for all the documents
+     * of a shard operation, or returns <tt>null</tt> if the vectorizer has none.
+     */
+    @Nullable
+    public VectorizeQueries.Weights queryWeights(Vectorizer vectorizer, Engine.Searcher searcher) throws IOException {
+        if (!vectorizer.hasQueryColumns()) {
+            return null;
         }
-        if (termVectorsResponse != null && termVectorsResponse.isExists()) {
+        return VectorizeQueries.weights(vectorizer, indexShard.indexService().queryParserService(), searcher.searcher());
+    }
+
+    /**
+     * Vectorizes a document of the given searcher, as found by a scan of its segments, without looking it up again by
+     * its id. Term vectors which are not stored with the document are generated from its source, so a document
+     * without a source only gets its numerical and query columns. The query columns are evaluated with the given
+     * weights, built over the same searcher.
+     */
+    public BytesReference getVector(Vectorizer vectorizer, String type, Engine.Searcher searcher, LeafReaderContext context,
+                                    int docId, @Nullable VectorizeQueries.Weights queryWeights, VectorizeProfile profile)
+            throws IOException {
+        return vectorize(vectorizer, type, searcher, context, docId, profile, queryWeights);
+    }
+
+    private BytesReference vectorize(Vectorizer vectorizer, String type, Engine.Searcher searcher, LeafReaderContext context,
+                                     int docId, VectorizeProfile profile, @Nullable VectorizeQueries.Weights queryWeights)
+            throws IOException {
+        final LeafReader reader = context.reader();
+
+        // rows precomputed at index time with the same vectorizer can be returned as is
+        if (storedVectorMapper(indexShard.mapperService(), type, vectorizer) != null) {
+            long startTime = System.nanoTime();
             try {
-                processTermVectorsFields(vectorizer, termVectorsResponse.getFields());
+                BytesReference storedVector = readStoredVector(reader, docId);
+                if (storedVector != null) {
+                    vectorizeStatsService.onRow(VectorizeStatsService.Path.STORED, storedVector);
+                    profile.addRow(storedVector);
+                    return storedVector;
+                }
             } catch (IOException e) {
-                return response;  // we failed return an empty response for now
+                // vectorize the document the usual way
+            } finally {
+                profile.addTime(VectorizeProfile.Phase.STORED, startTime);
             }
         }
 
-        // now take care of the numerical fields
-        GetResult getResult = null;
-        if (request.numericalFields() != null) {
-            getResult = getGetResult(request);
+        // query columns need the document to be refreshed, they are left out of rows read from the translog
+        if (queryWeights != null) {
+            long startTime = System.nanoTime();
+            try {
+                queryWeights.evaluate(vectorizer, context, docId);
+            } finally {
+                profile.addTime(VectorizeProfile.Phase.QUERY, startTime);
+            }
+        }
+
+        // the stored fields and source of the document are read once, for the term vectors and the numerical fields
+        String[] fields = vectorizer.getFields();
+        String[] numericalFields = vectorizer.getNumericalFields();
+        boolean storedTermVectors = fields != null && hasStoredTermVectors(vectorizer, fields);
+        FieldsVisitor visitor = null;
+        Map<String, Object> sourceAsMap = null;
+        if ((fields != null && !storedTermVectors) || numericalFields != null) {
+            long startTime = System.nanoTime();
+            visitor = fieldsVisitor(numericalFields);
+            reader.document(docId, visitor);
+            if (visitor.source() != null) {
+                sourceAsMap = XContentHelper.convertToMap(visitor.source(), false).v2();
+            }
+            profile.addTime(VectorizeProfile.Phase.GET, startTime);
+        }
+
+        // term vectors stored with the document are read from the same segment, otherwise they are generated from its source
+        if (fields != null) {
+            long startTime = System.nanoTime();
+            Fields termVectorsFields;
+            if (storedTermVectors) {
+                termVectorsFields = reader.getTermVectors(docId);
+            } else {
+                termVectorsFields = sourceAsMap != null ? generateTermVectors(sourceAsMap, fields) : null;
+            }
+            profile.addTime(VectorizeProfile.Phase.TERM_VECTORS, startTime);
+            if (termVectorsFields != null) {
+                startTime = System.nanoTime();
+                processTermVectorsFields(vectorizer, termVectorsFields, searcher.reader(), profile);
+                profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+            }
+        }
+
+        // numerical fields are read as a get of these fields would, as is a document of the translog
+        if (numericalFields != null) {
+            long startTime = System.nanoTime();
+            for (String field : numericalFields) {
+                List<Object> values = numericalValues(field, visitor, sourceAsMap);
+                int matched = vectorizer.add(field, values);
+                profile.addTerms(values.size(), matched);
+            }
+            profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+        }
+
+        long startTime = System.nanoTime();
+        BytesReference row;
+        try {
+            row = vectorizer.writeVector();
+        } finally {
+            profile.addTime(VectorizeProfile.Phase.ENCODE, startTime);
         }
-        if (getResult != null && getResult.isExists()) {
-            processGetResult(vectorizer, getResult.getFields());
+        vectorizeStatsService.onRow(fields != null ? VectorizeStatsService.Path.TERM_VECTORS : VectorizeStatsService.Path.GET, row);
+        profile.addRow(row);
+        return row;
+    }
+
+    /**
+     * Vectorizes a document which has not been refreshed yet from the source held by the translog, analyzed with the
+     * mapping of the index, with numerical and target fields read from the source too. Query columns need the document
+     * to be searchable, so they are left out.
+     */
+    private VectorizeResponse getTranslogVector(VectorizeRequest request, BytesReference source, VectorizeResponse response,
+                                                VectorizeProfile profile) {
+        final Vectorizer vectorizer = request.vectorizer();
+        response.setExists(true);
+        response.setFormat(request.format());
+        Map<String, Object> sourceAsMap = XContentHelper.convertToMap(source, false).v2();
+        response.setTargets(VectorizeTargets.read(vectorizer, sourceAsMap));
+
+        String[] fields = vectorizer.getFields();
+        try {
+            if (fields != null) {
+                long startTime = System.nanoTime();
+                Fields termVectorsFields = generateTermVectors(sourceAsMap, fields);
+                profile.addTime(VectorizeProfile.Phase.TERM_VECTORS, startTime);
+                if (termVectorsFields != null) {
+                    // the statistics of the terms are those of the last refresh
+                    Engine.Searcher searcher = vectorizer.needsTermStatistics() ? indexShard.acquireSearcher("vectorize") : null;
+                    startTime = System.nanoTime();
+                    try {
+                        processTermVectorsFields(vectorizer, termVectorsFields, searcher != null ? searcher.reader() : null, profile);
+                    } finally {
+                        profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+                        if (searcher != null) {
+                            searcher.close();
+                        }
+                    }
+                }
+            }
+            String[] numericalFields = vectorizer.getNumericalFields();
+            if (numericalFields != null) {
+                long startTime = System.nanoTime();
+                for (String field : numericalFields) {
+                    List<Object> values = XContentMapValues.extractRawValues(field, sourceAsMap);
+                    int matched = vectorizer.add(field, values);
+                    profile.addTerms(values.size(), matched);
+                }
+                profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+            }
+        } catch (IOException e) {
+            response.setExists(false);  // we failed return an empty response for now
+            return response;
         }
 
-        // now write the obtained vector
+        long startTime = System.nanoTime();
         try {
             response.setVector(vectorizer.writeVector());
         } catch (IOException e) {
+            response.setExists(false);
             return response;
+        } finally {
+            profile.addTime(VectorizeProfile.Phase.ENCODE, startTime);
         }
+        vectorizeStatsService.onRow(fields != null ? VectorizeStatsService.Path.TERM_VECTORS : VectorizeStatsService.Path.GET,
+                response.getVectorAsBytes());
+        profile.addRow(response.getVectorAsBytes());
+        return response;
+    }
 
-        // finally return the response and set the format
-        response.setExists(exists(termVectorsResponse, getResult));
+    /**
+     * Analyzes the given fields of the source of a document with the mapping of the index, much like the term vectors
+     * service does for artificial documents, but without looking the document up again.
+     */
+    private Fields generateTermVectors(Map<String, Object> source, String[] fields) throws IOException {
+        MemoryIndex index = new MemoryIndex();
+        Analyzer analyzer = indexShard.mapperService().indexAnalyzer();
+        boolean empty = true;
+        for (String field : fields) {
+            MappedFieldType fieldType = indexShard.mapperService().smartNameFieldType(field);
+            if (fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+                continue;
+            }
+            for (Object value : XContentMapValues.extractRawValues(field, source)) {
+                index.addField(fieldType.names().indexName(), value.toString(), analyzer);
+                empty = false;
+            }
+        }
+        if (empty) {
+            return null;
+        }
+        return MultiFields.getFields(index.createSearcher().getIndexReader());
+    }
+
+    /**
+     * A visitor of the source of a document, and of those of the given numerical fields which are stored.
+     */
+    private FieldsVisitor fieldsVisitor(@Nullable String[] numericalFields) {
+        if (numericalFields == null) {
+            return new FieldsVisitor(true);
+        }
+        Set<String> storedFields = new HashSet<>();
+        for (String field : numericalFields) {
+            MappedFieldType fieldType = indexShard.mapperService().smartNameFieldType(field);
+            if (fieldType != null && fieldType.stored()) {
+                storedFields.add(fieldType.names().indexName());
+            }
+        }
+        return storedFields.isEmpty() ? new FieldsVisitor(true) : new CustomFieldsVisitor(storedFields, true);
+    }
+
+    /**
+     * The values of a numerical field, from its stored values if it is stored, from the source otherwise, in the
+     * order they were given in and with the same types, rather than sorted and de-duplicated as doc values are.
+     */
+    private List<Object> numericalValues(String field, FieldsVisitor visitor, @Nullable Map<String, Object> sourceAsMap) {
+        MappedFieldType fieldType = indexShard.mapperService().smartNameFieldType(field);
+        if (fieldType != null && fieldType.stored() && visitor.fields() != null) {
+            List<Object> storedValues = visitor.fields().get(fieldType.names().indexName());
+            if (storedValues != null) {
+                List<Object> values = new ArrayList<>(storedValues.size());
+                for (Object value : storedValues) {
+                    values.add(fieldType.valueForSearch(value));
+                }
+                return values;
+            }
+        }
+        if (sourceAsMap == null) {
+            return Collections.emptyList();
+        }
+        return XContentMapValues.extractRawValues(field, sourceAsMap);
+    }
+
+    // otherwise term vectors would have to be generated from the source, with positions if there are n-grams
+    private boolean hasStoredTermVectors(Vectorizer vectorizer, String[] fields) {
+        for (String field : fields) {
+            MappedFieldType fieldType = indexShard.mapperService().smartNameFieldType(field);
+            if (fieldType == null) {
+                continue;
+            }
+            if (!fieldType.storeTermVectors() || (vectorizer.hasNGrams(field) && !fieldType.storeTermVectorPositions())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vectorizes an artificial document. Its text fields are analyzed by the term vectors service with the mapping of
+     * the type, and its numerical and target fields are read from the document itself, without touching the index.
+     */
+    private VectorizeResponse getArtificialVector(VectorizeRequest request, VectorizeResponse response, VectorizeProfile profile) {
+        final Vectorizer vectorizer = request.vectorizer();
+        if (request.fields() != null) {
+            long startTime = System.nanoTime();
+            TermVectorsResponse termVectorsResponse = getTermVectors(request);
+            profile.addTime(VectorizeProfile.Phase.TERM_VECTORS, startTime);
+            if (termVectorsResponse.isExists()) {
+                startTime = System.nanoTime();
+                try {
+                    processTermVectorsFields(vectorizer, termVectorsResponse.getFields(), null, profile);
+                } catch (IOException e) {
+                    return response;  // we failed return an empty response for now
+                } finally {
+                    profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+                }
+            }
+        }
+        if (request.numericalFields() != null || vectorizer.hasTargets()) {
+            long startTime = System.nanoTime();
+            Map<String, Object> source = XContentHelper.convertToMap(request.doc(), false).v2();
+            if (request.numericalFields() != null) {
+                for (String field : request.numericalFields()) {
+                    List<Object> values = XContentMapValues.extractRawValues(field, source);
+                    int matched = vectorizer.add(field, values);
+                    profile.addTerms(values.size(), matched);
+                }
+            }
+            response.setTargets(VectorizeTargets.read(vectorizer, source));
+            profile.addTime(VectorizeProfile.Phase.VECTORIZE, startTime);
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            response.setVector(vectorizer.writeVector());
+        } catch (IOException e) {
+            return response;
+        } finally {
+            profile.addTime(VectorizeProfile.Phase.ENCODE, startTime);
+        }
+        vectorizeStatsService.onRow(VectorizeStatsService.Path.TERM_VECTORS, response.getVectorAsBytes());
+        profile.addRow(response.getVectorAsBytes());
+        response.setExists(true);
         response.setFormat(request.format());
         return response;
     }
 
-    private boolean exists(TermVectorsResponse termVectorsResponse, GetResult getResult) {
-        return ((termVectorsResponse != null && termVectorsResponse.isExists()) ||
-                (getResult != null && getResult.isExists()));
+    // targets are read through doc values, so they are only found once the document is refreshed
+    private List<Object> readTargets(Vectorizer vectorizer, Versions.DocIdAndVersion docIdAndVersion) {
+        if (!vectorizer.hasTargets()) {
+            return null;
+        }
+        return VectorizeTargets.read(vectorizer, indexShard.mapperService(), indexShard.indexService().fieldData(),
+                docIdAndVersion.context, docIdAndVersion.docId);
+    }
+
+    /**
+     * Returns the <tt>_vector</tt> mapper of the given type if it stores rows computed with the given vectorizer.
+     */
+    public static VectorFieldMapper storedVectorMapper(MapperService mapperService, String type, Vectorizer vectorizer) {
+        DocumentMapper docMapper = mapperService.documentMapper(type);
+        if (docMapper == null) {
+            return null;
+        }
+        VectorFieldMapper vectorFieldMapper = docMapper.metadataMapper(VectorFieldMapper.class);
+        if (vectorFieldMapper == null || !vectorFieldMapper.enabled() ||
+                !vectorFieldMapper.vectorizer().fingerprint().equals(vectorizer.fingerprint())) {
+            return null;
+        }
+        return vectorFieldMapper;
+    }
+
+    /**
+     * Returns a copy of the vectorizer registered in the <tt>_vector</tt> mapping of the given type.
+     */
+    public static Vectorizer registeredVectorizer(MapperService mapperService, String type) {
+        DocumentMapper docMapper = mapperService.documentMapper(type);
+        VectorFieldMapper vectorFieldMapper = docMapper != null ? docMapper.metadataMapper(VectorFieldMapper.class) : null;
+        if (vectorFieldMapper == null || !vectorFieldMapper.enabled()) {
+            throw new IllegalArgumentException("no vectorizer has been specified, and type [" + type + "] has no vectorizer in its "
+                    + VectorFieldMapper.NAME + " mapping");
+        }
+        return vectorFieldMapper.vectorizer().copy();
+    }
+
+    /**
+     * Reads the row stored at index time for the given segment document, or <tt>null</tt> if there is none.
+     */
+    public static BytesReference readStoredVector(LeafReader reader, int docId) throws IOException {
+        BinaryDocValues values = reader.getBinaryDocValues(VectorFieldMapper.NAME);
+        if (values == null) {
+            return null;
+        }
+        BytesRef row = values.get(docId);
+        if (row.length == 0) {
+            return null;
+        }
+        return new BytesArray(BytesRef.deepCopyOf(row));
     }
 
     private TermVectorsResponse getTermVectors(VectorizeRequest request) {
@@ -96,26 +512,57 @@ public class VectorizeService extends AbstractIndexShardComponent {
         return indexShard.termVectorsService().getTermVectors(request.getTermVectorsRequest(), indexShard.shardId().getIndex());
     }
 
-    private GetResult getGetResult(VectorizeRequest request) {
-        return indexShard.getService().get(request.type(), request.id(), request.numericalFields(), request.realtime(),
-                request.version(), request.versionType(), null, true);
-    }
-
-    private void processTermVectorsFields(Vectorizer vectorizer, Fields termVectorsFields) throws IOException {
+    /**
+     * Adds the terms of the given term vectors to the vectorizer. Term vectors read straight from a segment do not carry
+     * term statistics, these are then taken from the given reader.
+     */
+    private void processTermVectorsFields(Vectorizer vectorizer, Fields termVectorsFields, @Nullable IndexReader statisticsReader,
+                                          VectorizeProfile profile) throws IOException {
+        boolean needsTermStatistics = vectorizer.needsTermStatistics();
+        long scanned = 0;
+        long matched = 0;
+        PostingsEnum postings = null;
         for (String fieldName : termVectorsFields) {
-            TermsEnum termsEnum = termVectorsFields.terms(fieldName).iterator();
+            Terms terms = termVectorsFields.terms(fieldName);
+            if (terms == null) {
+                continue;
+            }
+            // n-grams are put back together from the positions of their words
+            boolean nGrams = vectorizer.hasNGrams(fieldName) && terms.hasPositions();
+            String[] wordsByPosition = nGrams ? new String[16] : null;
+            TermsEnum termsEnum = terms.iterator();
             while (termsEnum.next() != null) {
                 Term term = new Term(fieldName, termsEnum.term());
-                TermStatistics termStatistics = new TermStatistics(termsEnum.term(), termsEnum.docFreq(), termsEnum.totalTermFreq());
-                int freq = termsEnum.postings(null, null, PostingsEnum.ALL).freq();
-                vectorizer.add(term, termStatistics, freq);
+                TermStatistics termStatistics;
+                if (statisticsReader == null) {
+                    termStatistics = new TermStatistics(termsEnum.term(), termsEnum.docFreq(), termsEnum.totalTermFreq());
+                } else if (needsTermStatistics) {
+                    termStatistics = new TermStatistics(termsEnum.term(), statisticsReader.docFreq(term), statisticsReader.totalTermFreq(term));
+                } else {
+                    termStatistics = null;
+                }
+                postings = termsEnum.postings(null, postings, nGrams ? PostingsEnum.POSITIONS : PostingsEnum.FREQS);
+                postings.nextDoc();
+                int freq = postings.freq();
+                scanned++;
+                if (vectorizer.add(term, termStatistics, freq)) {
+                    matched++;
+                }
+                if (nGrams) {
+                    String word = term.text();
+                    for (int i = 0; i < freq; i++) {
+                        int position = postings.nextPosition();
+                        if (position >= wordsByPosition.length) {
+                            wordsByPosition = Arrays.copyOf(wordsByPosition, ArrayUtil.oversize(position + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+                        }
+                        wordsByPosition[position] = word;
+                    }
+                }
+            }
+            if (nGrams) {
+                matched += vectorizer.addNGrams(fieldName, wordsByPosition);
             }
         }
-    }
-
-    private void processGetResult(Vectorizer vectorizer, Map<String, GetField> getResult) {
-        for (GetField getField : getResult.values()) {
-            vectorizer.add(getField.getName(), getField.getValues());
-        }
+        profile.addTerms(scanned, matched);
     }
 }
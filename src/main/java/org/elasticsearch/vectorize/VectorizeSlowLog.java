@@ -0,0 +1,216 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesLifecycle;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A shard level slow log of vectorize work, analogous to the search slow log. There are two logs, one for the
+ * <tt>_vectorize</tt> shard operation and one for the fetch sub-phase, each with its own thresholds:
+ *
+ * <pre>
+ * index.vectorize.slowlog.threshold.shard.warn: 10s
+ * index.vectorize.slowlog.threshold.fetch.info: 5s
+ * </pre>
+ *
+ * Thresholds are index settings which can be updated on a live index, and are disabled by default. They are parsed
+ * once per index, and again whenever the settings of the index are updated.
+ */
+public class VectorizeSlowLog extends AbstractComponent {
+
+    public static final String INDEX_VECTORIZE_SLOWLOG_PREFIX = "index.vectorize.slowlog";
+
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_WARN = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.shard.warn";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_INFO = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.shard.info";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_DEBUG = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.shard.debug";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_TRACE = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.shard.trace";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_WARN = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.fetch.warn";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_INFO = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.fetch.info";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_DEBUG = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.fetch.debug";
+    public static final String INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_TRACE = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold.fetch.trace";
+
+    public static final String[] THRESHOLD_SETTINGS = new String[] {
+            INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_WARN, INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_INFO,
+            INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_DEBUG, INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_TRACE,
+            INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_WARN, INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_INFO,
+            INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_DEBUG, INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_TRACE
+    };
+
+    private final ConcurrentMap<String, Thresholds> thresholds = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public VectorizeSlowLog(Settings settings, IndicesLifecycle indicesLifecycle) {
+        super(settings);
+        indicesLifecycle.addListener(new IndicesLifecycle.Listener() {
+            @Override
+            public void afterIndexCreated(IndexService indexService) {
+                final String index = indexService.index().getName();
+                IndexSettingsService settingsService = indexService.settingsService();
+                thresholds.put(index, new Thresholds(settingsService.getSettings()));
+                settingsService.addListener(new IndexSettingsService.Listener() {
+                    @Override
+                    public void onRefreshSettings(Settings settings) {
+                        // only while the index is open, so that a late update does not bring back a closed index
+                        thresholds.replace(index, new Thresholds(settings));
+                    }
+                });
+            }
+
+            @Override
+            public void afterIndexClosed(Index index, @IndexSettings Settings indexSettings) {
+                thresholds.remove(index.getName());
+            }
+        });
+    }
+
+    /**
+     * Logs a <tt>_vectorize</tt> shard operation of the given document if it took longer than a threshold.
+     */
+    public void onShardOperation(IndexShard indexShard, String type, String id, Vectorizer vectorizer,
+                                 VectorizeProfile profile, long tookInNanos) {
+        Thresholds indexThresholds = thresholds.get(indexShard.shardId().getIndex());
+        if (indexThresholds != null && tookInNanos > indexThresholds.shardMin) {
+            log(indexShard, "shard", indexThresholds.shard, vectorizer, profile, tookInNanos, "type[" + type + "], id[" + id + "]");
+        }
+    }
+
+    /**
+     * Logs the fetch sub-phase of a page of hits if it took longer than a threshold.
+     */
+    public void onFetch(IndexShard indexShard, int hits, Vectorizer vectorizer, VectorizeProfile profile, long tookInNanos) {
+        Thresholds indexThresholds = thresholds.get(indexShard.shardId().getIndex());
+        if (indexThresholds != null && tookInNanos > indexThresholds.fetchMin) {
+            log(indexShard, "fetch", indexThresholds.fetch, vectorizer, profile, tookInNanos, "hits[" + hits + "]");
+        }
+    }
+
+    /**
+     * Whether the fetch sub-phase of the given shard could be slow logged at all.
+     */
+    public boolean fetchEnabled(IndexShard indexShard) {
+        Thresholds indexThresholds = thresholds.get(indexShard.shardId().getIndex());
+        return indexThresholds != null && indexThresholds.fetchMin != Long.MAX_VALUE;
+    }
+
+    // the thresholds of an open index, for tests
+    Thresholds thresholds(String index) {
+        return thresholds.get(index);
+    }
+
+    private static void log(IndexShard indexShard, String name, long[] levels, Vectorizer vectorizer, VectorizeProfile profile,
+                            long tookInNanos, String source) {
+        if (exceeds(levels[0], tookInNanos)) {
+            logger(indexShard, name).warn("{}", new SlowLogPrinter(vectorizer, profile, tookInNanos, source));
+        } else if (exceeds(levels[1], tookInNanos)) {
+            logger(indexShard, name).info("{}", new SlowLogPrinter(vectorizer, profile, tookInNanos, source));
+        } else if (exceeds(levels[2], tookInNanos)) {
+            logger(indexShard, name).debug("{}", new SlowLogPrinter(vectorizer, profile, tookInNanos, source));
+        } else if (exceeds(levels[3], tookInNanos)) {
+            logger(indexShard, name).trace("{}", new SlowLogPrinter(vectorizer, profile, tookInNanos, source));
+        }
+    }
+
+    private static boolean exceeds(long threshold, long tookInNanos) {
+        return threshold >= 0 && tookInNanos > threshold;
+    }
+
+    private static ESLogger logger(IndexShard indexShard, String name) {
+        return Loggers.getLogger(INDEX_VECTORIZE_SLOWLOG_PREFIX + "." + name, indexShard.indexSettings(), indexShard.shardId());
+    }
+
+    /**
+     * The thresholds of an index in nanoseconds, from warn to trace, -1 when disabled.
+     */
+    static class Thresholds {
+        final long[] shard;
+        final long[] fetch;
+        // the lowest enabled threshold of each log, so that most operations are not looked at any further
+        final long shardMin;
+        final long fetchMin;
+
+        Thresholds(Settings settings) {
+            this.shard = levels(settings, "shard");
+            this.fetch = levels(settings, "fetch");
+            this.shardMin = min(shard);
+            this.fetchMin = min(fetch);
+        }
+
+        private static long[] levels(Settings settings, String name) {
+            String prefix = INDEX_VECTORIZE_SLOWLOG_PREFIX + ".threshold." + name;
+            return new long[] {
+                    settings.getAsTime(prefix + ".warn", TimeValue.timeValueNanos(-1)).nanos(),
+                    settings.getAsTime(prefix + ".info", TimeValue.timeValueNanos(-1)).nanos(),
+                    settings.getAsTime(prefix + ".debug", TimeValue.timeValueNanos(-1)).nanos(),
+                    settings.getAsTime(prefix + ".trace", TimeValue.timeValueNanos(-1)).nanos()
+            };
+        }
+
+        private static long min(long[] levels) {
+            long min = Long.MAX_VALUE;
+            for (long level : levels) {
+                if (level >= 0) {
+                    min = Math.min(min, level);
+                }
+            }
+            return min;
+        }
+    }
+
+    private static class SlowLogPrinter {
+        private final Vectorizer vectorizer;
+        private final VectorizeProfile profile;
+        private final long tookInNanos;
+        private final String source;
+
+        SlowLogPrinter(Vectorizer vectorizer, VectorizeProfile profile, long tookInNanos, String source) {
+            this.vectorizer = vectorizer;
+            this.profile = profile;
+            this.tookInNanos = tookInNanos;
+            this.source = source;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("took[").append(TimeValue.timeValueNanos(tookInNanos)).append("], ");
+            sb.append("took_millis[").append(TimeUnit.NANOSECONDS.toMillis(tookInNanos)).append("], ");
+            sb.append(source).append(", ");
+            sb.append("vocabulary_size[").append(vectorizer.numColumns()).append("], ");
+            sb.append("value_options[").append(vectorizer.getValueOptions()).append("], ");
+            sb.append("profile[").append(profile).append("]");
+            return sb.toString();
+        }
+    }
+}
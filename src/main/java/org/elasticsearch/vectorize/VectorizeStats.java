@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.action.vectorize.VectorizeRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.elasticsearch.vectorize.VectorizeStatsService.*;
+
+/**
+ * A point in time copy of the counters of {@link VectorizeStatsService}.
+ */
+public class VectorizeStats implements Streamable, ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString PATHS = new XContentBuilderString("paths");
+        static final XContentBuilderString FORMATS = new XContentBuilderString("formats");
+        static final XContentBuilderString REQUESTS = new XContentBuilderString("requests");
+        static final XContentBuilderString ROWS = new XContentBuilderString("rows");
+        static final XContentBuilderString NON_ZEROS = new XContentBuilderString("non_zeros");
+        static final XContentBuilderString ENCODED = new XContentBuilderString("encoded");
+        static final XContentBuilderString ENCODED_IN_BYTES = new XContentBuilderString("encoded_in_bytes");
+        static final XContentBuilderString SHARD_OPERATION = new XContentBuilderString("shard_operation");
+        static final XContentBuilderString FETCH = new XContentBuilderString("fetch");
+    }
+
+    private long[][] paths;
+    private long[][] formats;
+    private LatencyHistogram.Stats shardOperation;
+    private LatencyHistogram.Stats fetch;
+    private VectorizeCacheStats cacheStats;
+    private VectorizePoolStats poolStats;
+
+    VectorizeStats() {
+    }
+
+    VectorizeStats(long[][] paths, long[][] formats, LatencyHistogram.Stats shardOperation, LatencyHistogram.Stats fetch,
+                   VectorizeCacheStats cacheStats, VectorizePoolStats poolStats) {
+        this.paths = paths;
+        this.formats = formats;
+        this.shardOperation = shardOperation;
+        this.fetch = fetch;
+        this.cacheStats = cacheStats;
+        this.poolStats = poolStats;
+    }
+
+    public long getRows(Path path) {
+        return paths[path.ordinal()][ROWS];
+    }
+
+    public long getNonZeros(Path path) {
+        return paths[path.ordinal()][NON_ZEROS];
+    }
+
+    public ByteSizeValue getEncoded(Path path) {
+        return new ByteSizeValue(paths[path.ordinal()][BYTES]);
+    }
+
+    public long getRequests(VectorizeRequest.Format format) {
+        return formats[format.ordinal()][REQUESTS];
+    }
+
+    public long getRows(VectorizeRequest.Format format) {
+        return formats[format.ordinal()][ROWS];
+    }
+
+    public long getNonZeros(VectorizeRequest.Format format) {
+        return formats[format.ordinal()][NON_ZEROS];
+    }
+
+    public LatencyHistogram.Stats getShardOperation() {
+        return shardOperation;
+    }
+
+    public LatencyHistogram.Stats getFetch() {
+        return fetch;
+    }
+
+    public VectorizeCacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    public VectorizePoolStats getPoolStats() {
+        return poolStats;
+    }
+
+    public static VectorizeStats readVectorizeStats(StreamInput in) throws IOException {
+        VectorizeStats stats = new VectorizeStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        paths = readCounts(in);
+        formats = readCounts(in);
+        shardOperation = LatencyHistogram.Stats.readStats(in);
+        fetch = LatencyHistogram.Stats.readStats(in);
+        cacheStats = VectorizeCacheStats.readCacheStats(in);
+        poolStats = VectorizePoolStats.readPoolStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        writeCounts(out, paths);
+        writeCounts(out, formats);
+        shardOperation.writeTo(out);
+        fetch.writeTo(out);
+        cacheStats.writeTo(out);
+        poolStats.writeTo(out);
+    }
+
+    private static long[][] readCounts(StreamInput in) throws IOException {
+        long[][] counts = new long[in.readVInt()][];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new long[in.readVInt()];
+            for (int j = 0; j < counts[i].length; j++) {
+                counts[i][j] = in.readVLong();
+            }
+        }
+        return counts;
+    }
+
+    private static void writeCounts(StreamOutput out, long[][] counts) throws IOException {
+        out.writeVInt(counts.length);
+        for (long[] count : counts) {
+            out.writeVInt(count.length);
+            for (long value : count) {
+                out.writeVLong(value);
+            }
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.PATHS);
+        for (Path path : Path.values()) {
+            builder.startObject(path.name().toLowerCase(Locale.ROOT));
+            builder.field(Fields.ROWS, getRows(path));
+            builder.field(Fields.NON_ZEROS, getNonZeros(path));
+            builder.byteSizeField(Fields.ENCODED_IN_BYTES, Fields.ENCODED, paths[path.ordinal()][BYTES]);
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.startObject(Fields.FORMATS);
+        for (VectorizeRequest.Format format : VectorizeRequest.Format.values()) {
+            builder.startObject(format.name().toLowerCase(Locale.ROOT));
+            builder.field(Fields.REQUESTS, getRequests(format));
+            builder.field(Fields.ROWS, getRows(format));
+            builder.field(Fields.NON_ZEROS, getNonZeros(format));
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.startObject(Fields.SHARD_OPERATION);
+        shardOperation.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject(Fields.FETCH);
+        fetch.toXContent(builder, params);
+        builder.endObject();
+        cacheStats.toXContent(builder, params);
+        poolStats.toXContent(builder, params);
+        return builder;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.action.vectorize.VectorizeRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolStats;
+
+import java.io.IOException;
+
+/**
+ * Node level counters of the vectorize work, broken down by the path a row was obtained from and by output format.
+ * All counters are striped so that recording does not serialize the hot path. The latency histograms are not broken
+ * down by path, there is one for the shard operation and one for the hits of the fetch sub-phase.
+ */
+public class VectorizeStatsService extends AbstractComponent {
+
+    /**
+     * Where the row of a document was obtained from.
+     */
+    public enum Path {
+        TERM_VECTORS, GET, DOC_VALUES, STORED, CACHE
+    }
+
+    private final VectorizeCache vectorizeCache;
+    private final VectorizeFetchLimiter fetchLimiter;
+    private final ThreadPool threadPool;
+
+    private final CounterMetric[][] pathMetrics = new CounterMetric[Path.values().length][];
+    private final CounterMetric[][] formatMetrics = new CounterMetric[VectorizeRequest.Format.values().length][];
+
+    private final LatencyHistogram shardOperation = new LatencyHistogram();
+    private final LatencyHistogram fetch = new LatencyHistogram();
+
+    // indices of the counters, paths count encoded bytes and formats count requests
+    static final int ROWS = 0;
+    static final int NON_ZEROS = 1;
+    static final int BYTES = 2;
+    static final int REQUESTS = 3;
+    private static final int NUM_COUNTERS = 4;
+
+    @Inject
+    public VectorizeStatsService(Settings settings, VectorizeCache vectorizeCache, VectorizeFetchLimiter fetchLimiter,
+                                 ThreadPool threadPool) {
+        super(settings);
+        this.vectorizeCache = vectorizeCache;
+        this.fetchLimiter = fetchLimiter;
+        this.threadPool = threadPool;
+        for (int i = 0; i < pathMetrics.length; i++) {
+            pathMetrics[i] = newCounters();
+        }
+        for (int i = 0; i < formatMetrics.length; i++) {
+            formatMetrics[i] = newCounters();
+        }
+    }
+
+    /**
+     * Records an encoded row obtained from the given path.
+     */
+    public void onRow(Path path, BytesReference row) {
+        CounterMetric[] metrics = pathMetrics[path.ordinal()];
+        metrics[ROWS].inc();
+        if (row != null) {
+            metrics[NON_ZEROS].inc(nonZeros(row));
+            metrics[BYTES].inc(row.length());
+        }
+    }
+
+    /**
+     * Records a response rendered in the given format.
+     */
+    public void onResponse(VectorizeRequest.Format format, long rows, long nonZeros) {
+        CounterMetric[] metrics = formatMetrics[format.ordinal()];
+        metrics[REQUESTS].inc();
+        metrics[ROWS].inc(rows);
+        metrics[NON_ZEROS].inc(nonZeros);
+    }
+
+    public void onShardOperation(long tookInNanos) {
+        shardOperation.record(tookInNanos);
+    }
+
+    public void onFetch(long tookInNanos) {
+        fetch.record(tookInNanos);
+    }
+
+    public VectorizeStats stats() {
+        long[][] paths = new long[pathMetrics.length][];
+        for (int i = 0; i < pathMetrics.length; i++) {
+            paths[i] = counts(pathMetrics[i]);
+        }
+        long[][] formats = new long[formatMetrics.length][];
+        for (int i = 0; i < formatMetrics.length; i++) {
+            formats[i] = counts(formatMetrics[i]);
+        }
+        return new VectorizeStats(paths, formats, shardOperation.stats(), fetch.stats(), vectorizeCache.stats(), poolStats());
+    }
+
+    private VectorizePoolStats poolStats() {
+        for (ThreadPoolStats.Stats pool : threadPool.stats()) {
+            if (pool.getName().equals(VectorizeService.THREAD_POOL_NAME)) {
+                return new VectorizePoolStats(pool.getThreads(), pool.getQueue(), pool.getActive(), pool.getRejected(),
+                        pool.getLargest(), pool.getCompleted(), fetchLimiter.getMaxConcurrent(), fetchLimiter.getActive(),
+                        fetchLimiter.getRejected());
+            }
+        }
+        return new VectorizePoolStats(0, 0, 0, 0, 0, 0, fetchLimiter.getMaxConcurrent(), fetchLimiter.getActive(),
+                fetchLimiter.getRejected());
+    }
+
+    private static CounterMetric[] newCounters() {
+        CounterMetric[] metrics = new CounterMetric[NUM_COUNTERS];
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new CounterMetric();
+        }
+        return metrics;
+    }
+
+    private static long[] counts(CounterMetric[] metrics) {
+        long[] counts = new long[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+            counts[i] = metrics[i].count();
+        }
+        return counts;
+    }
+
+    private static int nonZeros(BytesReference row) {
+        try {
+            return Vectorizer.nonZeros(row);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the target fields of a vectorizer, the labels of the rows, through doc values.
+ */
+public final class VectorizeTargets {
+
+    private VectorizeTargets() {
+    }
+
+    /**
+     * Returns the first value of each target field of the document, or <tt>null</tt> if it has none.
+     */
+    public static List<Object> read(Vectorizer vectorizer, MapperService mapperService, IndexFieldDataService fieldDataService,
+                                    LeafReaderContext context, int docId) {
+        List<Object> targets = new ArrayList<>(vectorizer.getTargetFields().size());
+        for (String field : vectorizer.getTargetFields()) {
+            Object value = null;
+            MappedFieldType fieldType = mapperService.smartNameFieldType(field);
+            if (fieldType != null) {
+                ScriptDocValues values = fieldDataService.getForField(fieldType).load(context).getScriptValues();
+                values.setNextDocId(docId);
+                if (!values.isEmpty()) {
+                    value = values.get(0);
+                }
+            }
+            targets.add(value);
+        }
+        return targets;
+    }
+
+    /**
+     * Returns the first value of each target field of a document, given its source.
+     */
+    public static List<Object> read(Vectorizer vectorizer, Map<String, Object> source) {
+        if (!vectorizer.hasTargets()) {
+            return null;
+        }
+        List<Object> targets = new ArrayList<>(vectorizer.getTargetFields().size());
+        for (String field : vectorizer.getTargetFields()) {
+            List<Object> values = XContentMapValues.extractRawValues(field, source);
+            targets.add(values.isEmpty() ? null : values.get(0));
+        }
+        return targets;
+    }
+
+    /**
+     * Fails if rows cannot be written as LibSVM lines with the given vectorizer, which needs target fields to label them.
+     */
+    public static void checkLibSvm(Vectorizer vectorizer) {
+        if (!vectorizer.hasTargets()) {
+            throw new IllegalArgumentException("the libsvm format needs a vectorizer with a target field to label the rows");
+        }
+    }
+
+    /**
+     * Formats the targets of a row as a LibSVM label, or returns <tt>null</tt> if the row is missing any of them, in
+     * which case it is left out of the matrix. Several targets are joined by commas, as for multi-label datasets.
+     */
+    @Nullable
+    public static String libSvmLabel(@Nullable List<?> targets) {
+        if (targets == null || targets.isEmpty()) {
+            return null;
+        }
+        StringBuilder label = new StringBuilder();
+        for (Object target : targets) {
+            if (target == null) {
+                return null;
+            }
+            if (label.length() > 0) {
+                label.append(',');
+            }
+            label.append(formatTarget(target));
+        }
+        return label.toString();
+    }
+
+    private static String formatTarget(Object target) {
+        if (target instanceof Double || target instanceof Float) {
+            double value = ((Number) target).doubleValue();
+            if (value == Math.rint(value) && !Double.isInfinite(value)) {
+                return Long.toString((long) value);
+            }
+            return Double.toString(value);
+        }
+        if (target instanceof Boolean) {
+            return ((Boolean) target) ? "1" : "0";
+        }
+        String value = target.toString();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("an empty target cannot be a LibSVM label");
+        }
+        // a label is a single token of the line, and commas already separate the labels of a row
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || c == ',' || c == ':') {
+                throw new IllegalArgumentException("the target [" + value + "] cannot be a LibSVM label, " +
+                        "it contains whitespace, ',' or ':'");
+            }
+        }
+        return value;
+    }
+}
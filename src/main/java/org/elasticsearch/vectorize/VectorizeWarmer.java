@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.vectorize.VectorFieldMapper;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesWarmer;
+import org.elasticsearch.indices.IndicesWarmer.TerminationHandle;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Warms the new segments of a shard, on refresh and when the shard starts, for the vectorizers registered in the
+ * <tt>_vector</tt> mappings of the index and for the ones used lately on this index on this node: the <tt>_vector</tt> doc values,
+ * the field data of the fields the fetch sub-phase reads, and the {@link VectorizeOrdinals} columns of the segment,
+ * so that the first page after a refresh costs as much as the next ones.
+ *
+ * The warmer is enabled unless <tt>vectorize.warmer.enabled</tt> is set to false, and only runs if the index warmer
+ * itself is enabled.
+ */
+public class VectorizeWarmer extends AbstractComponent {
+
+    public static final String ENABLED = "vectorize.warmer.enabled";
+
+    private final VectorizeOrdinals vectorizeOrdinals;
+
+    @Inject
+    public VectorizeWarmer(Settings settings, IndicesWarmer indicesWarmer, VectorizeOrdinals vectorizeOrdinals) {
+        super(settings);
+        this.vectorizeOrdinals = vectorizeOrdinals;
+        if (settings.getAsBoolean(ENABLED, true)) {
+            indicesWarmer.addListener(new VectorizerWarmer());
+        }
+    }
+
+    // the registered vectorizers come first, as they are known to be used on this index, then those used lately on it
+    private List<Vectorizer> vectorizers(IndexShard indexShard) {
+        List<Vectorizer> vectorizers = new ArrayList<>();
+        for (DocumentMapper docMapper : indexShard.mapperService().docMappers(false)) {
+            VectorFieldMapper vectorFieldMapper = docMapper.metadataMapper(VectorFieldMapper.class);
+            if (vectorFieldMapper != null && vectorFieldMapper.enabled()) {
+                vectorizers.add(vectorFieldMapper.vectorizer());
+            }
+        }
+        vectorizers.addAll(vectorizeOrdinals.recentVectorizers(indexShard.shardId().index().name()));
+        return vectorizers;
+    }
+
+    private void warm(IndexShard indexShard, LeafReaderContext context, List<Vectorizer> vectorizers) throws Exception {
+        MapperService mapperService = indexShard.mapperService();
+        IndexFieldDataService fieldData = indexShard.indexService().fieldData();
+        // rows precomputed at index time
+        context.reader().getBinaryDocValues(VectorFieldMapper.NAME);
+        for (Vectorizer vectorizer : vectorizers) {
+            List<String> fields = new ArrayList<>(vectorizer.getTargetFields());
+            if (vectorizer.getNumericalFields() != null) {
+                for (String field : vectorizer.getNumericalFields()) {
+                    fields.add(field);
+                }
+            }
+            // the fetch sub-phase only reads the terms through field data if they are all binary
+            if (vectorizer.allValueOptionsBoolean() && vectorizer.getFields() != null) {
+                for (String field : vectorizer.getFields()) {
+                    fields.add(field);
+                }
+            }
+            for (String field : fields) {
+                MappedFieldType fieldType = mapperService.smartNameFieldType(field);
+                if (fieldType == null) {
+                    continue;
+                }
+                AtomicFieldData data = fieldData.getForField(fieldType).load(context);
+                if (data instanceof AtomicOrdinalsFieldData && vectorizer.getValueOptions().containsKey(field)) {
+                    vectorizeOrdinals.columns(indexShard.shardId().index().name(), vectorizer, field, context.reader(),
+                            ((AtomicOrdinalsFieldData) data).getOrdinalsValues());
+                }
+            }
+        }
+    }
+
+    class VectorizerWarmer extends IndicesWarmer.Listener {
+
+        @Override
+        public TerminationHandle warmNewReaders(final IndexShard indexShard, IndexMetaData indexMetaData,
+                                                IndicesWarmer.WarmerContext context, ThreadPool threadPool) {
+            final List<Vectorizer> vectorizers = vectorizers(indexShard);
+            List<LeafReaderContext> leaves = context.searcher().reader().leaves();
+            if (vectorizers.isEmpty() || leaves.isEmpty()) {
+                return TerminationHandle.NO_WAIT;
+            }
+            final Executor executor = threadPool.executor(executor());
+            final CountDownLatch latch = new CountDownLatch(leaves.size());
+            for (final LeafReaderContext leaf : leaves) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            long start = System.nanoTime();
+                            warm(indexShard, leaf, vectorizers);
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("{} warmed [{}] vectorizers on segment [{}], took [{}]", indexShard.shardId(),
+                                        vectorizers.size(), leaf.ord, TimeValue.timeValueNanos(System.nanoTime() - start));
+                            }
+                        } catch (Throwable t) {
+                            logger.warn("{} failed to warm vectorizers", t, indexShard.shardId());
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+            return new TerminationHandle() {
+                @Override
+                public void awaitTermination() throws InterruptedException {
+                    latch.await();
+                }
+            };
+        }
+
+        @Override
+        public TerminationHandle warmTopReader(IndexShard indexShard, IndexMetaData indexMetaData,
+                                               IndicesWarmer.WarmerContext context, ThreadPool threadPool) {
+            return TerminationHandle.NO_WAIT;
+        }
+    }
+}
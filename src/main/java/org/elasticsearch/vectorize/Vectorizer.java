@@ -20,10 +20,12 @@
 package org.elasticsearch.vectorize;
 
 import com.google.common.collect.Lists;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Nullable;
@@ -35,6 +37,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 
 import java.io.IOException;
@@ -44,6 +47,7 @@ public class Vectorizer {
 
     public static final SparseVector EMPTY_SPARSE_VECTOR = new SparseVector();
     private static final String MAGIC_SEP = "@#@#@";  // used for the hack on numerical fields
+    private static final char GRAM_SEP = '\u0000';  // joins the words of an n-gram given as an array in a span
 
     public static class FieldStrings {
         public static final XContentBuilderString SHAPE = new XContentBuilderString("shape");
@@ -57,13 +61,42 @@ public class Vectorizer {
         BINARY, TERM_FREQ, DOC_FREQ, TTF
     }
 
+    private Vocabulary vocabulary;
     private List<Term> terms;
+    private Map<Term, Integer> columns;
     private int size;
     private Map<String, ValueOption> valueOptions;
     private CoordQ coordQ = null;
 
     private Set<String> numericalFields;
 
+    // fields whose values are returned alongside each row, as the label or target of the row
+    private List<String> targetFields = new ArrayList<>();
+
+    // the largest n-gram of the fields which have n-grams in their span
+    private Map<String, Integer> maxGramSizes;
+
+    // columns given by a query, which come after the columns of the terms
+    private List<QueryColumn> queryColumns = new ArrayList<>();
+
+    // columns filled from the search hit, which come after the query columns
+    private List<HitColumn> hitColumns = new ArrayList<>();
+
+    // the truncation of each row, 0 to keep all the cells
+    private int topK = 0;
+    private int minWeight = Integer.MIN_VALUE;
+    private TopCells topCells = null;
+
+    // the projection of the term columns to a few dense ones, or their minhash signature
+    private RandomProjection projection = null;
+    private MinHash minHash = null;
+    private MinHash.Signature signature = null;
+
+    // the query and hit columns, which are set directly after the term columns, never truncated nor projected
+    private CoordQ directQ = null;
+
+    private String fingerprint = null;
+
     public Vectorizer() {
     }
 
@@ -73,17 +106,89 @@ public class Vectorizer {
 
     public Vectorizer(List<Term> terms, Map<String, ValueOption> valueOptions, Set<String> numericalFields) {
         LinkedHashSet<Term> uniqueTerms = new LinkedHashSet<>(terms); // remove duplicates
-        this.terms = Lists.newArrayList(uniqueTerms);
-        this.size = this.terms.size();
+        setVocabulary(new Vocabulary(Lists.newArrayList(uniqueTerms)));
         this.valueOptions = valueOptions;
         this.numericalFields = numericalFields;
-        this.coordQ = new CoordQ(size);
+    }
+
+    private Vectorizer(Vectorizer other) {
+        this.vocabulary = other.vocabulary;
+        this.terms = other.terms;
+        this.columns = other.columns;
+        this.maxGramSizes = other.maxGramSizes;
+        this.size = other.size;
+        this.valueOptions = other.valueOptions;
+        this.numericalFields = other.numericalFields;
+        this.targetFields = other.targetFields;
+        this.queryColumns = other.queryColumns;
+        this.hitColumns = other.hitColumns;
+        this.topK = other.topK;
+        this.minWeight = other.minWeight;
+        this.topCells = topK > 0 ? new TopCells(topK) : null;
+        this.projection = other.projection;
+        this.minHash = other.minHash;
+        this.fingerprint = other.fingerprint;
+        resize();
+    }
+
+    private void setVocabulary(Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+        this.terms = vocabulary.terms;
+        this.columns = vocabulary.columns;
+        this.maxGramSizes = vocabulary.maxGramSizes;
+        resize();
+    }
+
+    // the accumulator is sized to the columns before the projection, the row to the columns after it
+    private void resize() {
+        int termColumns = terms.size();
+        if (projection != null) {
+            termColumns = projection.dims();
+        } else if (minHash != null) {
+            termColumns = minHash.width();
+        }
+        this.size = termColumns + queryColumns.size() + hitColumns.size();
+        this.coordQ = new CoordQ(numColumns());
+        this.directQ = new CoordQ(queryColumns.size() + hitColumns.size());
+        this.signature = minHash != null ? minHash.newSignature() : null;
+    }
+
+    static int gramSize(String text) {
+        int words = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == GRAM_SEP) {
+                words++;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns a vectorizer sharing the same vocabulary but with its own, empty, accumulator.
+     */
+    public Vectorizer copy() {
+        return new Vectorizer(this);
     }
 
     public int size() {
         return size;
     }
 
+    /**
+     * The number of columns before any projection, that is of the terms of the vocabulary, of the query columns and
+     * of the hit columns.
+     */
+    public int numColumns() {
+        return terms.size() + queryColumns.size() + hitColumns.size();
+    }
+
+    /**
+     * The terms of the vocabulary, by column.
+     */
+    public List<Term> getTerms() {
+        return terms;
+    }
+
     public String[] getFields() {
         return (valueOptions != null && !valueOptions.isEmpty()) ? valueOptions.keySet().toArray(new String[0]) : null;
     }
@@ -92,16 +197,156 @@ public class Vectorizer {
         return (numericalFields != null && !numericalFields.isEmpty()) ? numericalFields.toArray(new String[0]) : null;
     }
 
+    /**
+     * The fields given with <tt>"target": true</tt>, in the order of the vectorizer.
+     */
+    public List<String> getTargetFields() {
+        return targetFields;
+    }
+
+    public boolean hasTargets() {
+        return !targetFields.isEmpty();
+    }
+
+    /**
+     * Whether the span of some field has word n-grams, which are computed from term positions.
+     */
+    public boolean hasNGrams() {
+        return !maxGramSizes.isEmpty();
+    }
+
+    public boolean hasNGrams(String fieldName) {
+        return maxGramSizes.containsKey(fieldName);
+    }
+
+    /**
+     * The columns given with <tt>"query"</tt>, in the order of the vectorizer.
+     */
+    public List<QueryColumn> getQueryColumns() {
+        return queryColumns;
+    }
+
+    public boolean hasQueryColumns() {
+        return !queryColumns.isEmpty();
+    }
+
+    /**
+     * Returns the column of the i-th query column.
+     */
+    public int getQueryColumn(int i) {
+        return size - queryColumns.size() - hitColumns.size() + i;
+    }
+
+    private void setQueryColumns(List<QueryColumn> queryColumns) {
+        this.queryColumns = queryColumns;
+        resize();
+    }
+
+    /**
+     * The columns given with <tt>"hit"</tt>, in the order of the vectorizer.
+     */
+    public List<HitColumn> getHitColumns() {
+        return hitColumns;
+    }
+
+    public boolean hasHitColumns() {
+        return !hitColumns.isEmpty();
+    }
+
+    /**
+     * Returns the column of the i-th hit column.
+     */
+    public int getHitColumn(int i) {
+        return size - hitColumns.size() + i;
+    }
+
+    private void setHitColumns(List<HitColumn> hitColumns) {
+        this.hitColumns = hitColumns;
+        resize();
+    }
+
+    /**
+     * The projection of the term columns, or <tt>null</tt> if rows are not projected.
+     */
+    @Nullable
+    public RandomProjection getProjection() {
+        return projection;
+    }
+
+    private void setProjection(@Nullable RandomProjection projection) {
+        this.projection = projection != null ? projection.resolve(terms.size()) : null;
+        resize();
+    }
+
+    /**
+     * The minhash signature which replaces the term columns, or <tt>null</tt> if rows are not hashed.
+     */
+    @Nullable
+    public MinHash getMinHash() {
+        return minHash;
+    }
+
+    private void setMinHash(@Nullable MinHash minHash) {
+        this.minHash = minHash;
+        resize();
+    }
+
+    /**
+     * Whether all the terms of the given field make the minhash signature, rather than only those of the vocabulary.
+     */
+    public boolean hashesField(String fieldName) {
+        return minHash != null && fieldName.equals(minHash.field());
+    }
+
+    /**
+     * The maximum number of cells kept in each row, the highest weighted ones, or 0 to keep them all.
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Cells weighted below this are dropped.
+     */
+    public int getMinWeight() {
+        return minWeight;
+    }
+
+    private void setTruncation(int topK, int minWeight) {
+        this.topK = topK;
+        this.minWeight = minWeight;
+        this.topCells = topK > 0 ? new TopCells(topK) : null;
+    }
+
+    public Map<String, ValueOption> getValueOptions() {
+        return valueOptions;
+    }
+
+    /**
+     * Sets the value option of a field. The options are shared with the copies of this vectorizer, so they are copied
+     * first, and the fingerprint is computed again.
+     */
     public void setValueOption(String fieldName, ValueOption valueOption) {
-        this.valueOptions.put(fieldName, valueOption);
+        Map<String, ValueOption> valueOptions = new HashMap<>(this.valueOptions);
+        valueOptions.put(fieldName, valueOption);
+        this.valueOptions = valueOptions;
+        this.fingerprint = null;
     }
 
-    public void add(Term term, TermStatistics termStatistics, int freq) {
+    /**
+     * Adds a term of the document, returns whether it was part of the vocabulary.
+     */
+    public boolean add(Term term, TermStatistics termStatistics, int freq) {
+        if (hashesField(term.field())) {
+            signature.add(term.field(), term.bytes());
+        }
         int column = getColumn(term);
         int data = getValue(term.field(), termStatistics, freq);
         if (column != -1 && data != 0) {
-            coordQ.add(new Coord(column, data));
+            addCoord(column, data);
+            return true;
         }
+        return false;
     }
 
     private int getValue(String fieldName, @Nullable TermStatistics termStatistics, int freq) {
@@ -120,23 +365,111 @@ public class Vectorizer {
         }
     }
 
-    // nasty hack to make it work on numerical values
-    public void add(String fieldName, List<Object> values) {
+    /**
+     * Adds the word n-grams of a field of the document, given its words by position, <tt>null</tt> where there is
+     * none. Only words at adjacent positions make an n-gram, so they do not span over removed stop words or over the
+     * values of a multi valued field. Returns the number of n-grams which were part of the vocabulary.
+     */
+    public int addNGrams(String fieldName, String[] wordsByPosition) {
+        Integer maxGramSize = maxGramSizes.get(fieldName);
+        if (maxGramSize == null) {
+            return 0;
+        }
+        // the same n-gram may occur many times, so first count them by column
+        Map<Integer, Integer> freqs = new HashMap<>();
+        StringBuilder gram = new StringBuilder();
+        for (int start = 0; start < wordsByPosition.length; start++) {
+            if (wordsByPosition[start] == null) {
+                continue;
+            }
+            gram.setLength(0);
+            gram.append(wordsByPosition[start]);
+            for (int n = 2; n <= maxGramSize && start + n <= wordsByPosition.length; n++) {
+                String word = wordsByPosition[start + n - 1];
+                if (word == null) {
+                    break;
+                }
+                gram.append(GRAM_SEP).append(word);
+                Integer column = columns.get(new Term(fieldName, gram.toString()));
+                if (column != null) {
+                    Integer freq = freqs.get(column);
+                    freqs.put(column, freq == null ? 1 : freq + 1);
+                }
+            }
+        }
+        int matched = 0;
+        for (Map.Entry<Integer, Integer> entry : freqs.entrySet()) {
+            int data = getValue(fieldName, null, entry.getValue());
+            if (data != 0) {
+                addCoord(entry.getKey(), data);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Sets the value of a column of the row directly, such as the value of a query column. These columns are kept
+     * as they are, only the term columns are truncated to the top k cells or projected.
+     */
+    public void addColumn(int column, int value) {
+        if (value != 0) {
+            directQ.add(new Coord(column, value));
+        }
+    }
+
+    /**
+     * Adds a term of a field whose terms all make the minhash signature, such as a term found through its ordinal.
+     */
+    public void hashTerm(String fieldName, BytesRef bytes) {
+        if (hashesField(fieldName)) {
+            signature.add(fieldName, bytes);
+        }
+    }
+
+    /**
+     * Adds the value of the term of the given column, such as a term found through its ordinal.
+     */
+    public void addTerm(int column, int value) {
+        if (value != 0) {
+            addCoord(column, value);
+        }
+    }
+
+    // term cells below the minimum weight are dropped, and only the k highest ones are kept if top_k is set
+    private void addCoord(int column, int value) {
+        if (value < minWeight) {
+            return;
+        }
+        if (topCells != null) {
+            topCells.add(column, value);
+        } else {
+            coordQ.add(new Coord(column, value));
+        }
+    }
+
+    // nasty hack to make it work on numerical values, returns the number of values added
+    public int add(String fieldName, List<Object> values) {
         int i = 0;
+        int matched = 0;
         for (Object value : values) {
             // if we have a string, try to add with freq 1 and proceed
             if (value instanceof String) {
-                add(new Term(fieldName, ((String) value)), null, 1);
+                if (add(new Term(fieldName, ((String) value)), null, 1)) {
+                    matched++;
+                }
                 continue;
             }
             int data = getValue(value);
             // for field data, not sure the order is the same as the order of the stored value, need to check that!
             int column = getColumn(new Term(fieldName, MAGIC_SEP+i));
             if (column != -1 && data != 0) {
-                coordQ.add(new Coord(column, data));
+                addCoord(column, data);
+                matched++;
             }
             i++;
         }
+        return matched;
     }
 
     // TODO: properly handle different types
@@ -155,7 +488,45 @@ public class Vectorizer {
     }
 
     public int getColumn(Term term) {
-        return terms.indexOf(term);
+        Integer column = columns.get(term);
+        return column != null ? column : -1;
+    }
+
+    /**
+     * A digest of the vocabulary and options of this vectorizer. Two vectorizers with the same fingerprint produce
+     * the same vector for the same document.
+     */
+    public String fingerprint() {
+        if (fingerprint == null) {
+            try {
+                BytesStreamOutput output = new BytesStreamOutput();
+                writeTo(output);
+                BytesRef bytes = output.bytes().toBytesRef();
+                fingerprint = Vocabulary.fingerprint(bytes);
+            } catch (IOException e) {
+                throw new ElasticsearchException("unable to compute the fingerprint of the vectorizer", e);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * A rough estimate of the heap used by the vocabulary and by the accumulator, which is sized to the vocabulary.
+     */
+    public long ramBytesUsed() {
+        long bytes = vocabulary.ramBytesUsed();
+        for (QueryColumn queryColumn : queryColumns) {
+            bytes += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + queryColumn.source.length();
+        }
+        bytes += (long) (numColumns() + 1) * RamUsageEstimator.NUM_BYTES_OBJECT_REF;  // the heap of the queue
+        bytes += 2L * topK * RamUsageEstimator.NUM_BYTES_INT;
+        if (projection != null) {
+            bytes += (long) projection.dims() * (RamUsageEstimator.NUM_BYTES_DOUBLE + RamUsageEstimator.NUM_BYTES_INT);
+        }
+        if (minHash != null) {
+            bytes += (long) minHash.width() * (RamUsageEstimator.NUM_BYTES_LONG + RamUsageEstimator.NUM_BYTES_INT);
+        }
+        return bytes;
     }
 
     public boolean needsTermStatistics() {
@@ -168,6 +539,10 @@ public class Vectorizer {
     }
 
     public boolean allValueOptionsBoolean() {
+        // n-grams need term positions, which field data does not have
+        if (hasNGrams()) {
+            return false;
+        }
         for (ValueOption valueOption : valueOptions.values()) {
             if (valueOption != ValueOption.BINARY) {
                 return false;
@@ -176,23 +551,110 @@ public class Vectorizer {
         return true;
     }
 
+    // a term of at most the largest indexed term, with the vints of its prefix, suffix and column, and its field
+    static final int MAX_ENCODED_TERM_BYTES = IndexWriter.MAX_TERM_LENGTH + 3 * 5 + 256;
+
+    private static volatile int maxVocabularySize = Integer.MAX_VALUE;
+
+    /**
+     * Sets the largest vocabulary of a vectorizer parsed or read on this node, much like the maximum clause count of a
+     * boolean query, so that a larger one is rejected before its terms are even built.
+     */
+    public static void setMaxVocabularySize(int maxVocabularySize) {
+        Vectorizer.maxVocabularySize = maxVocabularySize;
+    }
+
+    static void checkVocabularySize(long size) {
+        if (size > maxVocabularySize) {
+            throw new IllegalArgumentException("vocabulary of size [" + size + "] is larger than ["
+                    + VectorizeBreaker.MAX_VOCABULARY_SIZE + "] of [" + maxVocabularySize + "]");
+        }
+    }
+
+    /**
+     * Checks the length of an encoded vocabulary read from the wire before it is read, against the largest vocabulary
+     * of terms of the largest size, along with their field, prefix, suffix and column.
+     */
+    static void checkVocabularyBytes(long length) {
+        long maxLength = (long) maxVocabularySize * MAX_ENCODED_TERM_BYTES;
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("vocabulary of [" + length + "] bytes is larger than [" + maxLength + "] bytes, the ["
+                    + VectorizeBreaker.MAX_VOCABULARY_SIZE + "] of [" + maxVocabularySize + "] terms of at most ["
+                    + MAX_ENCODED_TERM_BYTES + "] bytes");
+        }
+    }
+
+    /**
+     * Checks the number of dense columns a row option replaces the term columns with, which are allocated for every
+     * row whatever the size of the vocabulary, against the same limit.
+     */
+    static void checkNumColumns(String option, long columns) {
+        if (columns > maxVocabularySize) {
+            throw new IllegalArgumentException(option + " of [" + columns + "] columns is larger than ["
+                    + VectorizeBreaker.MAX_VOCABULARY_SIZE + "] of [" + maxVocabularySize + "]");
+        }
+    }
+
     public static Vectorizer parse(XContentParser parser) throws IOException {
         List<Term> terms = new ArrayList<>();
         Map<String, ValueOption> valueOptions = new HashMap<>();
         Set<String> numericalFields = new HashSet<>();
+        List<String> targetFields = new ArrayList<>();
+        List<QueryColumn> queryColumns = new ArrayList<>();
+        List<HitColumn> hitColumns = new ArrayList<>();
+        Map<String, Object> rowOptions = new HashMap<>();
         while ((parser.nextToken()) != XContentParser.Token.END_ARRAY) {
-            parseTerms(parser, terms, valueOptions, numericalFields);
+            parseTerms(parser, terms, valueOptions, numericalFields, targetFields, queryColumns, hitColumns, rowOptions);
+        }
+        Vectorizer vectorizer = new Vectorizer(terms, valueOptions, numericalFields);
+        vectorizer.targetFields = targetFields;
+        if (!queryColumns.isEmpty()) {
+            vectorizer.setQueryColumns(queryColumns);
+        }
+        if (!hitColumns.isEmpty()) {
+            vectorizer.setHitColumns(hitColumns);
+        }
+        if (!rowOptions.isEmpty()) {
+            Integer topK = (Integer) rowOptions.get("top_k");
+            Integer minWeight = (Integer) rowOptions.get("min_weight");
+            if (topK != null && topK < 0) {
+                throw new ElasticsearchParseException("The parameter top_k must be positive!");
+            }
+            vectorizer.setTruncation(topK != null ? topK : 0, minWeight != null ? minWeight : Integer.MIN_VALUE);
+            RandomProjection projection = (RandomProjection) rowOptions.get("projection");
+            MinHash minHash = (MinHash) rowOptions.get("minhash");
+            if (projection != null && minHash != null) {
+                throw new ElasticsearchParseException("A vectorizer cannot have both a projection and a minhash!");
+            }
+            if (minHash != null && minHash.field() != null && !valueOptions.containsKey(minHash.field())) {
+                throw new ElasticsearchParseException("The minhash field [" + minHash.field() + "] must also be given as a field of the vectorizer!");
+            }
+            if (minHash != null && minHash.field() != null && (topK != null || minWeight != null)) {
+                // all the terms of the field are hashed, not the cells of the row which would be truncated
+                throw new ElasticsearchParseException("The parameters top_k and min_weight cannot be given with a minhash over a field!");
+            }
+            vectorizer.setProjection(projection);
+            vectorizer.setMinHash(minHash);
         }
-        return new Vectorizer(terms, valueOptions, numericalFields);
+        return vectorizer;
     }
 
-    private static void parseTerms(XContentParser parser, List<Term> terms, Map<String, ValueOption> valueOptions, Set<String> numericalFields) throws IOException {
+    private static void parseTerms(XContentParser parser, List<Term> terms, Map<String, ValueOption> valueOptions, Set<String> numericalFields,
+                                   List<String> targetFields, List<QueryColumn> queryColumns, List<HitColumn> hitColumns,
+                                   Map<String, Object> rowOptions) throws IOException {
         XContentParser.Token token;
         String currentFieldName = null;
         String fieldName = null;
+        BytesReference query = null;
+        String hit = null;
+        int sortIndex = 0;
+        String valueText = null;
+        Integer scale = null;
         List<String> words = new ArrayList<>();
         ValueOption valueOption = ValueOption.TERM_FREQ;
         boolean numerical = false;
+        boolean target = false;
+        boolean rowOption = false;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.FIELD_NAME) {
                 currentFieldName = parser.currentName();
@@ -201,12 +663,14 @@ public class Vectorizer {
                     fieldName = parser.text();
                 } else if (currentFieldName.equals("span")) {
                     if (token == XContentParser.Token.START_ARRAY) {
-                        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
-                            words.add(parser.text());
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                            checkVocabularySize(terms.size() + words.size() + 1);
+                            words.add(token == XContentParser.Token.START_ARRAY ? parseNGram(parser) : parseWord(parser));
                         }
                     } else if (token == XContentParser.Token.VALUE_NUMBER) {
                         // nasty hack to make it work on numerical value, this must be improved later on
                         int span = parser.intValue();
+                        checkVocabularySize((long) terms.size() + words.size() + span);
                         for (int i = 0; i < span; i++) {
                             words.add(MAGIC_SEP+i);
                         }
@@ -215,17 +679,78 @@ public class Vectorizer {
                     else {
                         throw new ElasticsearchParseException("The parameter span must be given as an array or as a single integer!");
                     }
+                } else if (currentFieldName.equals("query")) {
+                    query = XContentFactory.jsonBuilder().copyCurrentStructure(parser).bytes();
+                } else if (currentFieldName.equals("hit")) {
+                    hit = parser.text();
+                } else if (currentFieldName.equals("sort_index")) {
+                    sortIndex = parser.intValue();
+                } else if (currentFieldName.equals("scale")) {
+                    scale = parser.intValue();
                 } else if (currentFieldName.equals("value")) {
-                    valueOption = parseValueOption(parser.text());
+                    valueText = parser.text();
+                } else if (currentFieldName.equals("target")) {
+                    target = parser.booleanValue();
+                } else if (currentFieldName.equals("top_k") || currentFieldName.equals("min_weight")) {
+                    // these apply to the whole row, whatever the entry they are given in
+                    rowOptions.put(currentFieldName, parser.intValue());
+                    rowOption = true;
+                } else if (currentFieldName.equals("projection")) {
+                    if (token != XContentParser.Token.START_OBJECT) {
+                        throw new ElasticsearchParseException("The parameter projection must be given as an object!");
+                    }
+                    rowOptions.put(currentFieldName, RandomProjection.parse(parser));
+                    rowOption = true;
+                } else if (currentFieldName.equals("minhash")) {
+                    if (token != XContentParser.Token.START_OBJECT) {
+                        throw new ElasticsearchParseException("The parameter minhash must be given as an object!");
+                    }
+                    rowOptions.put(currentFieldName, MinHash.parse(parser));
+                    rowOption = true;
                 } else {
                     throw new ElasticsearchParseException("The parameter " + currentFieldName + " is not valid for a vectorizer!");
                 }
             }
         }
+        if (query != null) {
+            if (fieldName != null || !words.isEmpty() || target) {
+                throw new ElasticsearchParseException("A query column cannot have a field, a span or be a target!");
+            }
+            queryColumns.add(new QueryColumn(query, parseQueryValue(valueText), scale != null ? scale : QueryColumn.DEFAULT_SCALE));
+            return;
+        }
+        if (hit != null) {
+            if (fieldName != null || !words.isEmpty() || target || valueText != null) {
+                throw new ElasticsearchParseException("A hit column cannot have a field, a span, a value or be a target!");
+            }
+            if (sortIndex < 0) {
+                throw new ElasticsearchParseException("The parameter sort_index must be positive!");
+            }
+            HitColumn.Type type = HitColumn.parseType(hit);
+            int defaultScale = type == HitColumn.Type.SCORE ? QueryColumn.DEFAULT_SCALE : 1;
+            hitColumns.add(new HitColumn(type, sortIndex, scale != null ? scale : defaultScale));
+            return;
+        }
+        if (fieldName == null && words.isEmpty() && rowOption) {
+            return;  // an entry with only row options
+        }
         if (fieldName == null) {
-            throw new ElasticsearchParseException("The parameter " + fieldName + " is required!");
+            throw new ElasticsearchParseException("The parameter field is required!");
+        }
+        if (valueText != null) {
+            valueOption = parseValueOption(valueText);
+        }
+        if (target) {
+            if (!words.isEmpty()) {
+                throw new ElasticsearchParseException("The target field [" + fieldName + "] cannot have a span!");
+            }
+            targetFields.add(fieldName);
+            return;
         }
         for (String word : words) {  //todo: inefficient but parsing may change with field name as key 
+            if (gramSize(word) > 1 && (numerical || valueOption == ValueOption.DOC_FREQ || valueOption == ValueOption.TTF)) {
+                throw new ElasticsearchParseException("The n-gram [" + word.replace(GRAM_SEP, ' ') + "] of field [" + fieldName + "] can only have a binary or term_freq value!");
+            }
             terms.add(new Term(fieldName, word));
         }
         if (!numerical) {
@@ -235,6 +760,35 @@ public class Vectorizer {
         }
     }
 
+    // a word is a single term, even if it has spaces as the terms of a not analyzed field may have
+    private static String parseWord(XContentParser parser) throws IOException {
+        String word = parser.text();
+        if (word.indexOf(GRAM_SEP) >= 0) {
+            throw new ElasticsearchParseException("The word [" + word + "] of a span cannot have a null character!");
+        }
+        return word;
+    }
+
+    // an n-gram is given as the array of its words, which are found at adjacent positions
+    private static String parseNGram(XContentParser parser) throws IOException {
+        StringBuilder gram = new StringBuilder();
+        int size = 0;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token != XContentParser.Token.VALUE_STRING) {
+                throw new ElasticsearchParseException("The n-grams of a span must be given as arrays of words!");
+            }
+            if (size++ > 0) {
+                gram.append(GRAM_SEP);
+            }
+            gram.append(parseWord(parser));
+        }
+        if (size < 2) {
+            throw new ElasticsearchParseException("An n-gram of a span must have at least two words!");
+        }
+        return gram.toString();
+    }
+
     private static ValueOption parseValueOption(String text) {
         try {
             return ValueOption.valueOf(text.toUpperCase(Locale.ROOT));
@@ -243,14 +797,18 @@ public class Vectorizer {
         }
     }
 
-    public void readFrom(StreamInput in) throws IOException {
-        this.size = in.readVInt();
-        this.terms = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            String fieldName = in.readString();
-            BytesRef termBytesRef = in.readBytesRef();
-            terms.add(new Term(fieldName, termBytesRef));
+    private static boolean parseQueryValue(@Nullable String text) {
+        if (text == null || text.equals("binary")) {
+            return false;
+        } else if (text.equals("score")) {
+            return true;
         }
+        throw new ElasticsearchParseException("The value " + text + " of a query column is not valid, expected binary or score!");
+    }
+
+    public void readFrom(StreamInput in) throws IOException {
+        // the vocabulary is not even decoded if this node has received it lately
+        setVocabulary(Vocabulary.readFrom(in));
         int numOptions = in.readVInt();
         this.valueOptions = new HashMap<>(numOptions);
         for (int i = 0; i < numOptions; i++) {
@@ -258,21 +816,32 @@ public class Vectorizer {
             ValueOption valueOption = parseValueOption(in.readString());
             valueOptions.put(fieldName, valueOption);
         }
-        this.coordQ = new CoordQ(size);
 
         int numNumericalFields = in.readVInt();
         this.numericalFields = new HashSet<>(numNumericalFields);
         for (int i = 0; i < numNumericalFields; i++) {
             numericalFields.add(in.readString());
         }
+        this.targetFields = Arrays.asList(in.readStringArray());
+        int numQueryColumns = in.readVInt();
+        List<QueryColumn> queryColumns = new ArrayList<>(numQueryColumns);
+        for (int i = 0; i < numQueryColumns; i++) {
+            queryColumns.add(new QueryColumn(in.readBytesReference(), in.readBoolean(), in.readVInt()));
+        }
+        setQueryColumns(queryColumns);
+        setTruncation(in.readVInt(), in.readInt());
+        int numHitColumns = in.readVInt();
+        List<HitColumn> hitColumns = new ArrayList<>(numHitColumns);
+        for (int i = 0; i < numHitColumns; i++) {
+            hitColumns.add(new HitColumn(HitColumn.Type.values()[in.readByte()], in.readVInt(), in.readVInt()));
+        }
+        setHitColumns(hitColumns);
+        setProjection(in.readBoolean() ? RandomProjection.readFrom(in) : null);
+        setMinHash(in.readBoolean() ? MinHash.readFrom(in) : null);
     }
 
     public void writeTo(StreamOutput out) throws IOException {
-        out.writeVInt(size);
-        for (Term term : terms) {
-            out.writeString(term.field());
-            out.writeBytesRef(term.bytes());
-        }
+        vocabulary.writeTo(out);
         out.writeVInt(valueOptions.size());
         for (String fieldName : valueOptions.keySet()) {
             out.writeString(fieldName);
@@ -283,27 +852,336 @@ public class Vectorizer {
         for (String numericalFieldName : numericalFields) {
             out.writeString(numericalFieldName);
         }
+        out.writeStringArray(targetFields.toArray(new String[targetFields.size()]));
+        out.writeVInt(queryColumns.size());
+        for (QueryColumn queryColumn : queryColumns) {
+            out.writeBytesReference(queryColumn.source);
+            out.writeBoolean(queryColumn.score);
+            out.writeVInt(queryColumn.scale);
+        }
+        out.writeVInt(topK);
+        out.writeInt(minWeight);
+        out.writeVInt(hitColumns.size());
+        for (HitColumn hitColumn : hitColumns) {
+            out.writeByte((byte) hitColumn.type.ordinal());
+            out.writeVInt(hitColumn.sortIndex);
+            out.writeVInt(hitColumn.scale);
+        }
+        out.writeBoolean(projection != null);
+        if (projection != null) {
+            projection.writeTo(out);
+        }
+        out.writeBoolean(minHash != null);
+        if (minHash != null) {
+            minHash.writeTo(out);
+        }
     }
 
     public static SparseVector readVector(BytesReference vector) throws IOException {
         return new SparseVector(vector);
     }
 
+    /**
+     * Returns the number of non zero cells of an encoded row, without decoding it.
+     */
+    public static int nonZeros(BytesReference vector) throws IOException {
+        StreamInput input = StreamInput.wrap(vector);
+        input.readVInt();  // shape
+        return input.readVInt();
+    }
+
     public BytesReference writeVector() throws IOException {
         BytesStreamOutput output = new BytesStreamOutput();
-        Coord coord;
+        if (projection != null) {
+            writeProjection(output);
+            output.close();
+            return output.bytes();
+        }
+        if (minHash != null) {
+            writeSignature(output);
+            output.close();
+            return output.bytes();
+        }
         output.writeVInt(size);
-        output.writeVInt(coordQ.size());
-        while ((coord = popCoord()) != null) {
-            output.writeVInt(coord.x);
-            output.writeVInt(coord.y);
+        if (topCells != null) {
+            topCells.writeTo(output, directQ.size());
+        } else {
+            Coord coord;
+            output.writeVInt(coordQ.size() + directQ.size());
+            while ((coord = coordQ.pop()) != null) {
+                output.writeVInt(coord.x);
+                output.writeVInt(coord.y);
+            }
         }
+        writeDirectColumns(output);
         output.close();
         return output.bytes();
     }
 
-    public Coord popCoord() {
-        return coordQ.pop();
+    private int numCells() {
+        return topCells != null ? topCells.size : coordQ.size();
+    }
+
+    // empties the accumulator, in no particular order
+    private void drainCells(int[] cellColumns, int[] cellValues) {
+        if (topCells != null) {
+            topCells.drainTo(cellColumns, cellValues);
+            return;
+        }
+        for (int i = 0; i < cellColumns.length; i++) {
+            Coord coord = coordQ.pop();
+            cellColumns[i] = coord.x;
+            cellValues[i] = coord.y;
+        }
+    }
+
+    // the cells are truncated before they are projected, and the direct columns are written after the dense ones
+    private void writeProjection(StreamOutput output) throws IOException {
+        int length = numCells();
+        int[] cellColumns = new int[length];
+        int[] cellValues = new int[length];
+        drainCells(cellColumns, cellValues);
+        int[] projected = projection.project(cellColumns, cellValues, length);
+        int nonZeros = 0;
+        for (int value : projected) {
+            if (value != 0) {
+                nonZeros++;
+            }
+        }
+        output.writeVInt(size);
+        output.writeVInt(nonZeros + directQ.size());
+        for (int dim = 0; dim < projected.length; dim++) {
+            if (projected[dim] != 0) {
+                output.writeVInt(dim);
+                output.writeVInt(projected[dim]);
+            }
+        }
+        writeDirectColumns(output);
+    }
+
+    // the terms of the vocabulary are hashed once truncated, the row is left empty if there is none
+    private void writeSignature(StreamOutput output) throws IOException {
+        int length = numCells();
+        int[] cellColumns = new int[length];
+        int[] cellValues = new int[length];
+        drainCells(cellColumns, cellValues);
+        if (minHash.field() == null) {
+            for (int i = 0; i < length; i++) {
+                if (cellColumns[i] < terms.size()) {
+                    Term term = terms.get(cellColumns[i]);
+                    signature.add(term.field(), term.bytes());
+                }
+            }
+        }
+        int[] values = signature.finish();
+        output.writeVInt(size);
+        if (values == null) {
+            output.writeVInt(directQ.size());
+        } else {
+            output.writeVInt(values.length + directQ.size());
+            for (int i = 0; i < values.length; i++) {
+                output.writeVInt(i);
+                output.writeVInt(values[i]);
+            }
+        }
+        writeDirectColumns(output);
+    }
+
+    private void writeDirectColumns(StreamOutput output) throws IOException {
+        Coord coord;
+        while ((coord = directQ.pop()) != null) {
+            output.writeVInt(coord.x);
+            output.writeVInt(coord.y);
+        }
+    }
+
+    /**
+     * A column whose value is whether the document matches a query, or its score. Rows only hold integers, so scores
+     * are multiplied by the scale and rounded.
+     */
+    public static class QueryColumn {
+        public static final int DEFAULT_SCALE = 1000;
+
+        private final BytesReference source;
+        private final boolean score;
+        private final int scale;
+
+        public QueryColumn(BytesReference source, boolean score, int scale) {
+            this.source = source;
+            this.score = score;
+            this.scale = scale;
+        }
+
+        /**
+         * The query, to be parsed on the shard.
+         */
+        public BytesReference source() {
+            return source;
+        }
+
+        public boolean score() {
+            return score;
+        }
+
+        public int scale() {
+            return scale;
+        }
+
+        public int value(float score) {
+            return this.score ? Math.round(score * scale) : 1;
+        }
+    }
+
+    /**
+     * A column filled from the search hit, either its <tt>_score</tt> or one of its sort values. Numbers are
+     * multiplied by the scale, rounded and clamped to an integer, and anything else, such as a string sort value, is
+     * left out of the row.
+     */
+    public static class HitColumn {
+
+        public enum Type {
+            SCORE, SORT
+        }
+
+        private final Type type;
+        private final int sortIndex;
+        private final int scale;
+
+        public HitColumn(Type type, int sortIndex, int scale) {
+            this.type = type;
+            this.sortIndex = sortIndex;
+            this.scale = scale;
+        }
+
+        static Type parseType(String text) {
+            if (text.equals("_score")) {
+                return Type.SCORE;
+            } else if (text.equals("_sort")) {
+                return Type.SORT;
+            }
+            throw new ElasticsearchParseException("The hit column " + text + " is not valid, expected _score or _sort!");
+        }
+
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * The sort clause the value is taken from, for a <tt>_sort</tt> column.
+         */
+        public int sortIndex() {
+            return sortIndex;
+        }
+
+        public int scale() {
+            return scale;
+        }
+
+        /**
+         * Returns the value of the column given the score and sort values of the hit, or 0 if there is none.
+         */
+        public int value(float score, @Nullable Object[] sortValues) {
+            if (type == Type.SCORE) {
+                return Float.isNaN(score) ? 0 : Math.round(score * scale);
+            }
+            if (sortValues == null || sortIndex >= sortValues.length || !(sortValues[sortIndex] instanceof Number)) {
+                return 0;
+            }
+            double value = ((Number) sortValues[sortIndex]).doubleValue() * scale;
+            if (Double.isNaN(value)) {
+                return 0;
+            }
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(value)));
+        }
+    }
+
+    /**
+     * A bounded min heap of the cells with the highest weights, on primitive arrays, which is emptied once the row is
+     * written.
+     */
+    private static class TopCells {
+        private final int[] columns;
+        private final int[] values;
+        private int size = 0;
+
+        TopCells(int k) {
+            columns = new int[k];
+            values = new int[k];
+        }
+
+        void add(int column, int value) {
+            if (size < columns.length) {
+                columns[size] = column;
+                values[size] = value;
+                upHeap(size++);
+            } else if (value > values[0]) {
+                columns[0] = column;
+                values[0] = value;
+                downHeap(0);
+            }
+        }
+
+        private void upHeap(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (values[parent] <= values[i]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void downHeap(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && values[left] < values[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && values[right] < values[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int column = columns[i];
+            int value = values[i];
+            columns[i] = columns[j];
+            values[i] = values[j];
+            columns[j] = column;
+            values[j] = value;
+        }
+
+        // cells are written by ascending column, sorted as packed longs, the count including the direct columns
+        // which follow them
+        void writeTo(StreamOutput output, int numDirect) throws IOException {
+            long[] cells = new long[size];
+            for (int i = 0; i < size; i++) {
+                cells[i] = ((long) columns[i] << 32) | (values[i] & 0xFFFFFFFFL);
+            }
+            Arrays.sort(cells);
+            output.writeVInt(size + numDirect);
+            for (long cell : cells) {
+                output.writeVInt((int) (cell >>> 32));
+                output.writeVInt((int) cell);
+            }
+            size = 0;
+        }
+
+        // hands the cells over in no particular order
+        void drainTo(int[] columns, int[] values) {
+            System.arraycopy(this.columns, 0, columns, 0, size);
+            System.arraycopy(this.values, 0, values, 0, size);
+            size = 0;
+        }
     }
 
     public static class Coord {
@@ -409,6 +1287,34 @@ public class Vectorizer {
             return builder;
         }
 
+        /**
+         * Appends the row as a LibSVM line, <tt>label col:value col:value ...</tt>, columns being one based and in
+         * ascending order.
+         */
+        public StringBuilder toLibSvm(StringBuilder line, String label) throws IOException {
+            reset();
+            line.append(label);
+            while (hasNext()) {
+                Coord coord = next();
+                line.append(' ').append(coord.x + 1).append(':').append(coord.y);
+            }
+            return line.append('\n');
+        }
+
+        /**
+         * Renders the row as a LibSVM matrix, which is empty if the row has no label.
+         */
+        public XContentBuilder toXContentLibSvm(XContentBuilder builder, @Nullable String label) throws IOException {
+            if (label == null) {
+                builder.field(FieldStrings.SHAPE, new Integer[]{0, shape});
+                builder.field(FieldStrings.MATRIX, "");
+                return builder;
+            }
+            builder.field(FieldStrings.SHAPE, new Integer[]{1, shape});
+            builder.field(FieldStrings.MATRIX, toLibSvm(new StringBuilder(), label).toString());
+            return builder;
+        }
+
         public XContentBuilder toXContentCOO(XContentBuilder builder) throws IOException {
             reset();
 
@@ -0,0 +1,277 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The terms of a vectorizer, one per column, along with their lookup. A vocabulary is immutable, and shared by all
+ * the copies of a vectorizer.
+ *
+ * On the wire, terms are grouped by field, so that the field is only written once, and the terms of a field are
+ * written in sorted order, each one as the length of the prefix it shares with the previous term and the remaining
+ * bytes. The columns of the terms follow, which is a single number if they are in sorted order already:
+ *
+ * <pre>
+ * fingerprint | vint length | vint terms | vint fields | (field | vint count | sequential | columns | (vint prefix | vint suffix | bytes)*)*
+ * </pre>
+ *
+ * The fingerprint and length come first so that a node which already holds the same vocabulary, in its
+ * {@link VocabularyCache}, does not decode the bytes again, once it has checked that they match the fingerprint.
+ */
+final class Vocabulary {
+
+    // the term, its bytes ref and backing array, and the slot in the list
+    private static final int TERM_OVERHEAD = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+            + 5 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 2 * RamUsageEstimator.NUM_BYTES_INT;
+    // the entry of the term in the column lookup, with its boxed column
+    private static final int COLUMN_OVERHEAD = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 4 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+            + 2 * RamUsageEstimator.NUM_BYTES_INT;
+
+    private static final int READ_CHUNK_SIZE = 16 * 1024;
+
+    // the vocabularies received lately, set by the node, there is none on a client or in unit tests
+    private static volatile VocabularyCache cache;
+
+    final List<Term> terms;
+    final Map<Term, Integer> columns;
+    // the largest n-gram of the fields which have n-grams
+    final Map<String, Integer> maxGramSizes;
+
+    private BytesReference bytes;
+    private String fingerprint;
+
+    Vocabulary(List<Term> terms) {
+        this.terms = Collections.unmodifiableList(terms);
+        this.columns = new HashMap<>(terms.size());
+        this.maxGramSizes = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            Term term = terms.get(i);
+            columns.put(term, i);
+            int gramSize = Vectorizer.gramSize(term.text());
+            if (gramSize > 1) {
+                Integer maxGramSize = maxGramSizes.get(term.field());
+                if (maxGramSize == null || gramSize > maxGramSize) {
+                    maxGramSizes.put(term.field(), gramSize);
+                }
+            }
+        }
+    }
+
+    static void setCache(VocabularyCache cache) {
+        Vocabulary.cache = cache;
+    }
+
+    /**
+     * A rough estimate of the heap used by the terms, their lookup and their encoded bytes if they were encoded.
+     */
+    long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Term term : terms) {
+            ramBytesUsed += TERM_OVERHEAD + COLUMN_OVERHEAD + term.bytes().length;
+        }
+        BytesReference bytes = this.bytes;
+        if (bytes != null) {
+            ramBytesUsed += RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + bytes.length();
+        }
+        return ramBytesUsed;
+    }
+
+    BytesReference bytes() throws IOException {
+        if (bytes == null) {
+            bytes = encode(terms);
+        }
+        return bytes;
+    }
+
+    String fingerprint() throws IOException {
+        if (fingerprint == null) {
+            fingerprint = fingerprint(bytes().toBytesRef());
+        }
+        return fingerprint;
+    }
+
+    /**
+     * A fixed width digest of the given bytes, so that two different hashes never give the same string.
+     */
+    static String fingerprint(BytesRef ref) {
+        MurmurHash3.Hash128 hash = MurmurHash3.hash128(ref.bytes, ref.offset, ref.length, 0, new MurmurHash3.Hash128());
+        return String.format(Locale.ROOT, "%016x%016x", hash.h1, hash.h2);
+    }
+
+    void writeTo(StreamOutput out) throws IOException {
+        out.writeString(fingerprint());
+        out.writeBytesReference(bytes());
+    }
+
+    static Vocabulary readFrom(StreamInput in) throws IOException {
+        String fingerprint = in.readString();
+        int length = in.readVInt();
+        Vectorizer.checkVocabularyBytes(length);
+        BytesReference bytes = readBytes(in, length);
+        // the fingerprint is checked against the bytes, so that a cached vocabulary is only ever returned for its own bytes
+        if (!fingerprint.equals(fingerprint(bytes.toBytesRef()))) {
+            throw new IllegalArgumentException("vocabulary does not match its fingerprint [" + fingerprint + "]");
+        }
+        VocabularyCache cache = Vocabulary.cache;
+        Vocabulary vocabulary = cache != null ? cache.get(fingerprint) : null;
+        if (vocabulary != null) {
+            return vocabulary;
+        }
+        vocabulary = decode(bytes);
+        vocabulary.bytes = bytes;
+        vocabulary.fingerprint = fingerprint;
+        if (cache != null) {
+            cache.put(fingerprint, vocabulary);
+        }
+        return vocabulary;
+    }
+
+    // the length comes from the wire, so the bytes are read as they come rather than allocated all at once
+    private static BytesReference readBytes(StreamInput in, int length) throws IOException {
+        byte[] chunk = new byte[Math.min(length, READ_CHUNK_SIZE)];
+        BytesStreamOutput out = new BytesStreamOutput(chunk.length);
+        int remaining = length;
+        while (remaining > 0) {
+            int read = Math.min(remaining, chunk.length);
+            in.readBytes(chunk, 0, read);
+            out.writeBytes(chunk, 0, read);
+            remaining -= read;
+        }
+        return out.bytes();
+    }
+
+    private static BytesReference encode(final List<Term> terms) throws IOException {
+        Map<String, List<Integer>> columnsByField = new LinkedHashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            List<Integer> columns = columnsByField.get(terms.get(i).field());
+            if (columns == null) {
+                columns = new ArrayList<>();
+                columnsByField.put(terms.get(i).field(), columns);
+            }
+            columns.add(i);
+        }
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(terms.size());
+        out.writeVInt(columnsByField.size());
+        for (Map.Entry<String, List<Integer>> entry : columnsByField.entrySet()) {
+            Integer[] columns = entry.getValue().toArray(new Integer[entry.getValue().size()]);
+            Arrays.sort(columns, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return terms.get(a).bytes().compareTo(terms.get(b).bytes());
+                }
+            });
+            out.writeString(entry.getKey());
+            out.writeVInt(columns.length);
+            boolean sequential = true;
+            for (int i = 1; i < columns.length && sequential; i++) {
+                sequential = columns[i] == columns[0] + i;
+            }
+            out.writeBoolean(sequential);
+            if (sequential) {
+                out.writeVInt(columns[0]);
+            } else {
+                for (Integer column : columns) {
+                    out.writeVInt(column);
+                }
+            }
+            BytesRef previous = new BytesRef();
+            for (Integer column : columns) {
+                BytesRef current = terms.get(column).bytes();
+                int prefix = sharedPrefix(previous, current);
+                out.writeVInt(prefix);
+                out.writeVInt(current.length - prefix);
+                out.writeBytes(current.bytes, current.offset + prefix, current.length - prefix);
+                previous = current;
+            }
+        }
+        out.close();
+        return out.bytes();
+    }
+
+    private static Vocabulary decode(BytesReference bytes) throws IOException {
+        StreamInput in = StreamInput.wrap(bytes);
+        int size = in.readVInt();
+        Vectorizer.checkVocabularySize(size);
+        Term[] terms = new Term[size];
+        int numFields = in.readVInt();
+        for (int i = 0; i < numFields; i++) {
+            String field = in.readString();
+            int[] columns = new int[in.readVInt()];
+            if (in.readBoolean()) {
+                int first = columns.length > 0 ? in.readVInt() : 0;
+                for (int j = 0; j < columns.length; j++) {
+                    columns[j] = first + j;
+                }
+            } else {
+                for (int j = 0; j < columns.length; j++) {
+                    columns[j] = in.readVInt();
+                }
+            }
+            byte[] previous = new byte[0];
+            for (int column : columns) {
+                int prefix = in.readVInt();
+                int suffix = in.readVInt();
+                byte[] current = new byte[prefix + suffix];
+                System.arraycopy(previous, 0, current, 0, prefix);
+                in.readBytes(current, prefix, suffix);
+                terms[column] = new Term(field, new BytesRef(current));
+                previous = current;
+            }
+        }
+        for (Term term : terms) {
+            if (term == null) {
+                throw new ElasticsearchException("corrupted vocabulary, some columns have no term");
+            }
+        }
+        return new Vocabulary(Arrays.asList(terms));
+    }
+
+    private static int sharedPrefix(BytesRef a, BytesRef b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            if (a.bytes[a.offset + i] != b.bytes[b.offset + i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of the vocabularies received lately, keyed by fingerprint, so that the vocabulary of a request
+ * is only decoded once per node rather than once per shard request. Most requests of a node use the same few
+ * vectorizers.
+ *
+ * The cache is bounded by the heap used by its vocabularies, 32mb by default (<tt>vectorize.vocabulary_cache.size</tt>),
+ * which is charged to the <tt>fielddata</tt> circuit breaker for as long as they are cached, like any other long lived
+ * data of the node. A vocabulary which would trip the breaker is simply not cached.
+ *
+ * Vocabularies are read by stream deserialization which has no access to the node, so the cache registers itself
+ * when it is built, much like the maximum vocabulary size.
+ */
+public class VocabularyCache extends AbstractComponent implements RemovalListener<String, Vocabulary> {
+
+    public static final String CACHE_SIZE = "vectorize.vocabulary_cache.size";
+    public static final String CACHE_EXPIRE = "vectorize.vocabulary_cache.expire";
+
+    // rough per entry overhead of the fingerprint and the cache itself
+    static final int ENTRY_OVERHEAD = 128;
+
+    private final CircuitBreakerService circuitBreakerService;
+    private final Cache<String, Vocabulary> cache;
+
+    private final CounterMetric memorySize = new CounterMetric();
+    private final CounterMetric hitCount = new CounterMetric();
+    private final CounterMetric missCount = new CounterMetric();
+
+    @Inject
+    public VocabularyCache(Settings settings, CircuitBreakerService circuitBreakerService) {
+        super(settings);
+        this.circuitBreakerService = circuitBreakerService;
+        ByteSizeValue size = settings.getAsBytesSize(CACHE_SIZE, new ByteSizeValue(32, ByteSizeUnit.MB));
+        TimeValue expire = settings.getAsTime(CACHE_EXPIRE, TimeValue.timeValueMinutes(10));
+        if (size.bytes() <= 0) {
+            this.cache = null;
+        } else {
+            logger.debug("using vocabulary cache with size [{}], expire [{}]", size, expire);
+            CacheBuilder<String, Vocabulary> cacheBuilder = CacheBuilder.newBuilder()
+                    .maximumWeight(size.bytes())
+                    .weigher(new VocabularyWeigher())
+                    .removalListener(this);
+            if (expire.millis() > 0) {
+                cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+            }
+            this.cache = cacheBuilder.build();
+        }
+        Vocabulary.setCache(this.cache != null ? this : null);
+    }
+
+    /**
+     * Returns the vocabulary with the given fingerprint, or <tt>null</tt> if it is not cached.
+     */
+    Vocabulary get(String fingerprint) {
+        if (cache == null) {
+            return null;
+        }
+        Vocabulary vocabulary = cache.getIfPresent(fingerprint);
+        if (vocabulary == null) {
+            missCount.inc();
+        } else {
+            hitCount.inc();
+        }
+        return vocabulary;
+    }
+
+    void put(String fingerprint, Vocabulary vocabulary) {
+        if (cache == null) {
+            return;
+        }
+        int weight = weight(vocabulary);
+        try {
+            breaker().addEstimateBytesAndMaybeBreak(weight, "vectorize_vocabulary");
+        } catch (CircuitBreakingException e) {
+            logger.debug("not caching vocabulary [{}] of [{}] bytes", e, fingerprint, weight);
+            return;
+        }
+        memorySize.inc(weight);
+        cache.put(fingerprint, vocabulary);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<String, Vocabulary> notification) {
+        if (notification.getValue() != null) {
+            int weight = weight(notification.getValue());
+            memorySize.dec(weight);
+            breaker().addWithoutBreaking(-weight);
+        }
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * The number of vocabularies cached.
+     */
+    public long size() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * The heap used by the cached vocabularies, as charged to the breaker.
+     */
+    public long memorySizeInBytes() {
+        return memorySize.count();
+    }
+
+    public long hitCount() {
+        return hitCount.count();
+    }
+
+    public long missCount() {
+        return missCount.count();
+    }
+
+    private CircuitBreaker breaker() {
+        return circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA);
+    }
+
+    // the vocabulary is immutable and its bytes are set before it is cached, so its weight never changes
+    private static int weight(Vocabulary vocabulary) {
+        return (int) Math.min(Integer.MAX_VALUE, vocabulary.ramBytesUsed() + ENTRY_OVERHEAD);
+    }
+
+    private static class VocabularyWeigher implements Weigher<String, Vocabulary> {
+        @Override
+        public int weigh(String fingerprint, Vocabulary vocabulary) {
+            return weight(vocabulary);
+        }
+    }
+}
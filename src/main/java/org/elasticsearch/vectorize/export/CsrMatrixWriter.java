@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes rows as a binary compressed sparse row matrix, all numbers little endian:
+ *
+ * <pre>
+ * "VCSR" | int version | long rows | int cols | long nnz | long[rows + 1] indptr | int[nnz] indices | int[nnz] data
+ * </pre>
+ *
+ * so that <tt>scipy.sparse.csr_matrix((data, indices, indptr), shape=(rows, cols))</tt> can be built straight from
+ * the file. Since the number of rows is only known at the end, indices and data are first written to temporary
+ * files, and the row pointers are kept on heap.
+ *
+ * If the vectorizer has target fields, their values are written next to the matrix in a <tt>.targets</tt> file, as a
+ * dense row major <tt>double[rows * targets]</tt>, with <tt>NaN</tt> for missing or non numeric values.
+ */
+public class CsrMatrixWriter extends MatrixWriter {
+
+    static final byte[] MAGIC = "VCSR".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    private final Path path;
+    private final ChannelOutput indices;
+    private final ChannelOutput data;
+    private final Path dir;
+    private final String name;
+    private ChannelOutput targets;
+    private long[] indptr = new long[1024];
+    private long nnz = 0;
+    private long bytesWritten = 0;
+
+    CsrMatrixWriter(Path dir, String name, int numCols) throws IOException {
+        super(dir, name, numCols);
+        this.path = dir.resolve(name + ".csr");
+        this.indices = new ChannelOutput(dir.resolve(name + ".csr.indices.tmp"));
+        this.data = new ChannelOutput(dir.resolve(name + ".csr.data.tmp"));
+        this.dir = dir;
+        this.name = name;
+    }
+
+    @Override
+    protected boolean doAddRow(Vectorizer.SparseVector vector, List<Object> targets) throws IOException {
+        while (vector.hasNext()) {
+            Vectorizer.Coord coord = vector.next();
+            indices.writeInt(coord.x);
+            data.writeInt(coord.y);
+            nnz++;
+        }
+        if (rows + 2 > indptr.length) {
+            indptr = ArrayUtil.grow(indptr, (int) rows + 2);
+        }
+        indptr[(int) rows + 1] = nnz;
+        if (targets != null) {
+            addTargets(targets);
+        }
+        return true;
+    }
+
+    private void addTargets(List<Object> values) throws IOException {
+        if (this.targets == null) {
+            this.targets = new ChannelOutput(dir.resolve(name + ".targets"));
+        }
+        for (Object value : values) {
+            if (value instanceof Number) {
+                this.targets.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                this.targets.writeDouble((Boolean) value ? 1 : 0);
+            } else {
+                this.targets.writeDouble(Double.NaN);
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        indices.close();
+        data.close();
+        ids.flush();
+        if (targets != null) {
+            targets.flush();
+        }
+        try (ChannelOutput output = new ChannelOutput(path)) {
+            output.writeBytes(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(rows);
+            output.writeInt(numCols);
+            output.writeLong(nnz);
+            for (int i = 0; i <= rows; i++) {
+                output.writeLong(indptr[i]);
+            }
+            output.transferFrom(indices.path());
+            output.transferFrom(data.path());
+            output.flush();
+            bytesWritten = output.bytesWritten();
+        }
+        Files.deleteIfExists(indices.path());
+        Files.deleteIfExists(data.path());
+    }
+
+    @Override
+    public long bytesWritten() {
+        return bytesWritten > 0 ? bytesWritten : indices.bytesWritten() + data.bytesWritten();
+    }
+
+    @Override
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(indices, data, ids, targets);
+        IOUtils.deleteFilesIgnoringExceptions(indices.path(), data.path());
+    }
+}
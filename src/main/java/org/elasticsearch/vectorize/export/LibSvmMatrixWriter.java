@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.vectorize.VectorizeTargets;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes rows as LibSVM / SVMlight text lines, <tt>label col:value col:value ...</tt>, with one based columns. The
+ * label is read from the target fields of the vectorizer, and rows missing a target are left out.
+ */
+public class LibSvmMatrixWriter extends MatrixWriter {
+
+    private final ChannelOutput output;
+
+    LibSvmMatrixWriter(Path dir, String name, int numCols) throws IOException {
+        super(dir, name, numCols);
+        this.output = new ChannelOutput(dir.resolve(name + ".libsvm"));
+    }
+
+    @Override
+    protected boolean doAddRow(Vectorizer.SparseVector vector, List<Object> targets) throws IOException {
+        String label = VectorizeTargets.libSvmLabel(targets);
+        if (label == null) {
+            return false;
+        }
+        output.writeString(vector.toLibSvm(new StringBuilder(), label).toString());
+        return true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        output.flush();
+        ids.flush();
+    }
+
+    @Override
+    public long bytesWritten() {
+        return output.bytesWritten();
+    }
+
+    @Override
+    public Path path() {
+        return output.path();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            output.close();
+        } finally {
+            ids.close();
+        }
+    }
+}
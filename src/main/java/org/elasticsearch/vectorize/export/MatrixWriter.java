@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the rows of a shard to local files, one matrix per shard. The ids of the rows are written, one per line,
+ * next to the matrix in a <tt>.ids</tt> file.
+ */
+public abstract class MatrixWriter implements Closeable {
+
+    protected final ChannelOutput ids;
+    protected final int numCols;
+    protected long rows = 0;
+
+    protected MatrixWriter(Path dir, String name, int numCols) throws IOException {
+        this.ids = new ChannelOutput(dir.resolve(name + ".ids"));
+        this.numCols = numCols;
+    }
+
+    public static MatrixWriter create(VectorizeExportRequest.Format format, Path dir, String name, int numCols) throws IOException {
+        switch (format) {
+            case CSR:
+                return new CsrMatrixWriter(dir, name, numCols);
+            case LIBSVM:
+                return new LibSvmMatrixWriter(dir, name, numCols);
+            default:
+                throw new IllegalArgumentException("[" + format + "] is not a valid export format");
+        }
+    }
+
+    /**
+     * Adds the encoded row of the given document, along with the values of its target fields. Returns whether the row
+     * was written, as a format may leave out rows it cannot represent.
+     */
+    public boolean addRow(String id, BytesReference row, List<Object> targets) throws IOException {
+        Vectorizer.SparseVector vector = Vectorizer.readVector(row);
+        if (!doAddRow(vector, targets)) {
+            return false;
+        }
+        ids.writeString(id);
+        ids.writeString("\n");
+        rows++;
+        return true;
+    }
+
+    protected abstract boolean doAddRow(Vectorizer.SparseVector vector, List<Object> targets) throws IOException;
+
+    /**
+     * Completes the files once all rows have been added, before closing.
+     */
+    public abstract void finish() throws IOException;
+
+    public long rows() {
+        return rows;
+    }
+
+    public abstract long bytesWritten();
+
+    /**
+     * The path of the matrix file.
+     */
+    public abstract Path path();
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lucene.Lucene;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The segments of a shard as of an export, written next to its matrix in a <tt>.segments</tt> file. Each segment
+ * is identified by the unique id Lucene gives it when it is written, and records the export and the range of rows
+ * its documents were written to, along with the documents which were live at the time.
+ *
+ * An incremental export reads the manifest of the previous export, only vectorizes the segments which are not in
+ * it, and carries the others over. The rows carried over are only those of the new export if it has the same
+ * vectorizer, types and format, so the manifest records them and an export which differs is refused.
+ */
+class SegmentManifest {
+
+    static final String SUFFIX = ".segments";
+
+    private static final int VERSION = 2;
+
+    private final String fingerprint;
+    private final String[] types;
+    private final VectorizeExportRequest.Format format;
+    private final Map<String, Segment> segments = new LinkedHashMap<>();
+
+    SegmentManifest(String fingerprint, Set<String> types, VectorizeExportRequest.Format format) {
+        this(fingerprint, sorted(types), format);
+    }
+
+    private SegmentManifest(String fingerprint, String[] types, VectorizeExportRequest.Format format) {
+        this.fingerprint = fingerprint;
+        this.types = types;
+        this.format = format;
+    }
+
+    private static String[] sorted(Set<String> types) {
+        String[] sorted = types.toArray(new String[types.size()]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Throws if an export with the given vectorizer fingerprint, types and format cannot carry over the rows of the
+     * export of this manifest.
+     */
+    void checkCompatible(String since, String fingerprint, Set<String> types, VectorizeExportRequest.Format format) {
+        if (!this.fingerprint.equals(fingerprint)) {
+            throw new IllegalArgumentException("export [" + since + "] was made with another vectorizer, it cannot be " +
+                    "exported incrementally");
+        }
+        if (!Arrays.equals(this.types, sorted(types))) {
+            throw new IllegalArgumentException("export [" + since + "] was made of the types " + Arrays.toString(this.types) +
+                    ", not of " + Arrays.toString(sorted(types)));
+        }
+        if (this.format != format) {
+            throw new IllegalArgumentException("export [" + since + "] was made in the format [" + this.format + "], not in ["
+                    + format + "]");
+        }
+    }
+
+    /**
+     * Reads the manifest of a shard of a previous export, or returns <tt>null</tt> if there is none.
+     */
+    @Nullable
+    static SegmentManifest read(Path dir, String name) throws IOException {
+        Path path = dir.resolve(name + SUFFIX);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (InputStream stream = Files.newInputStream(path)) {
+            StreamInput in = new InputStreamStreamInput(stream);
+            int version = in.readVInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("unknown segment manifest version [" + version + "] in [" + path + "]");
+            }
+            SegmentManifest manifest = new SegmentManifest(in.readString(), in.readStringArray(),
+                    VectorizeExportRequest.Format.values()[in.readByte()]);
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                Segment segment = Segment.readFrom(in);
+                manifest.segments.put(segment.id, segment);
+            }
+            return manifest;
+        }
+    }
+
+    void write(Path dir, String name) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(dir.resolve(name + SUFFIX))) {
+            StreamOutput out = new OutputStreamStreamOutput(stream);
+            out.writeVInt(VERSION);
+            out.writeString(fingerprint);
+            out.writeStringArray(types);
+            out.writeByte((byte) format.ordinal());
+            out.writeVInt(segments.size());
+            for (Segment segment : segments.values()) {
+                segment.writeTo(out);
+            }
+            out.flush();
+        }
+    }
+
+    void add(Segment segment) {
+        segments.put(segment.id, segment);
+    }
+
+    /**
+     * Removes and returns the segment with the given id, or <tt>null</tt> if there is none.
+     */
+    @Nullable
+    Segment remove(String id) {
+        return segments.remove(id);
+    }
+
+    Collection<Segment> segments() {
+        return segments.values();
+    }
+
+    int size() {
+        return segments.size();
+    }
+
+    /**
+     * The unique id of the segment of the given reader, which is not reused even if the shard is recovered.
+     */
+    static String segmentId(LeafReader reader) {
+        SegmentReader segmentReader = Lucene.segmentReader(reader);
+        return StringHelper.idToString(segmentReader.getSegmentInfo().info.getId());
+    }
+
+    static String segmentName(LeafReader reader) {
+        return Lucene.segmentReader(reader).getSegmentName();
+    }
+
+    static class Segment {
+        final String id;
+        final String name;
+        final String exportId;
+        final long firstRow;
+        final long rows;
+        final int maxDoc;
+        // the live documents, or null if none was deleted
+        final long[] liveDocs;
+
+        Segment(String id, String name, String exportId, long firstRow, long rows, int maxDoc, @Nullable Bits liveDocs) {
+            this(id, name, exportId, firstRow, rows, maxDoc, liveDocs != null ? toLongs(liveDocs, maxDoc) : null);
+        }
+
+        private Segment(String id, String name, String exportId, long firstRow, long rows, int maxDoc, @Nullable long[] liveDocs) {
+            this.id = id;
+            this.name = name;
+            this.exportId = exportId;
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.maxDoc = maxDoc;
+            this.liveDocs = liveDocs;
+        }
+
+        /**
+         * The same segment, with the documents which are live now.
+         */
+        Segment withLiveDocs(@Nullable Bits liveDocs) {
+            return new Segment(id, name, exportId, firstRow, rows, maxDoc, liveDocs);
+        }
+
+        /**
+         * Returns the documents which were live as of the manifest but are not anymore.
+         */
+        List<Integer> deletedSince(@Nullable Bits liveDocs) {
+            List<Integer> deleted = new ArrayList<>();
+            if (liveDocs == null) {
+                return deleted;
+            }
+            FixedBitSet before = this.liveDocs != null ? new FixedBitSet(this.liveDocs, maxDoc) : null;
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if ((before == null || before.get(docId)) && !liveDocs.get(docId)) {
+                    deleted.add(docId);
+                }
+            }
+            return deleted;
+        }
+
+        private static long[] toLongs(Bits liveDocs, int maxDoc) {
+            FixedBitSet bits = new FixedBitSet(maxDoc);
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if (liveDocs.get(docId)) {
+                    bits.set(docId);
+                }
+            }
+            return bits.getBits();
+        }
+
+        static Segment readFrom(StreamInput in) throws IOException {
+            String id = in.readString();
+            String name = in.readString();
+            String exportId = in.readString();
+            long firstRow = in.readVLong();
+            long rows = in.readVLong();
+            int maxDoc = in.readVInt();
+            long[] liveDocs = null;
+            if (in.readBoolean()) {
+                liveDocs = new long[in.readVInt()];
+                for (int i = 0; i < liveDocs.length; i++) {
+                    liveDocs[i] = in.readLong();
+                }
+            }
+            return new Segment(id, name, exportId, firstRow, rows, maxDoc, liveDocs);
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeString(id);
+            out.writeString(name);
+            out.writeString(exportId);
+            out.writeVLong(firstRow);
+            out.writeVLong(rows);
+            out.writeVInt(maxDoc);
+            out.writeBoolean(liveDocs != null);
+            if (liveDocs != null) {
+                out.writeVInt(liveDocs.length);
+                for (long word : liveDocs) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+}
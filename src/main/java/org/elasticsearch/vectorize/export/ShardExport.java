@@ -0,0 +1,241 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fieldvisitor.JustUidFieldsVisitor;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.vectorize.VectorizeProfile;
+import org.elasticsearch.vectorize.VectorizeQueries;
+import org.elasticsearch.vectorize.VectorizeService;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+import org.elasticsearch.vectorize.VectorizeTargets;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Vectorizes all the documents of a shard, in index order, from a single point in time searcher, and writes them
+ * with a {@link MatrixWriter}. Cancellation is checked before each document.
+ *
+ * The segments of the shard are written to a {@link SegmentManifest} once done. Given the manifest of a previous
+ * export, only the segments written since are vectorized. The rows of the segments which have been merged away since
+ * are listed, one <tt>export_id first_row rows segment</tt> line per segment, in a <tt>.removed</tt> file, and the
+ * ids of the documents deleted since from the other segments in a <tt>.deleted</tt> file.
+ */
+class ShardExport implements Runnable {
+
+    private final String exportId;
+    private final IndexShard indexShard;
+    private final Vectorizer vectorizer;
+    private final VectorizeExportRequest.Format format;
+    private final Set<String> types;
+    private final Path dir;
+    private final String since;
+    private final SegmentManifest previous;
+    private final VectorizeStatsService vectorizeStatsService;
+    private final ESLogger logger;
+
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime = 0;
+    private volatile ShardExportStatus.State state = ShardExportStatus.State.RUNNING;
+    private volatile boolean cancelled = false;
+    private volatile long docs = 0;
+    private volatile long totalDocs = 0;
+    private volatile int segments = 0;
+    private volatile int skippedSegments = 0;
+    private volatile int removedSegments = 0;
+    private volatile long deletedDocs = 0;
+    private volatile MatrixWriter writer;
+    private volatile String failure;
+
+    // the changes since the previous export, only created if there are any
+    private ChannelOutput deleted;
+    private ChannelOutput removed;
+
+    ShardExport(String exportId, IndexShard indexShard, Vectorizer vectorizer, VectorizeExportRequest.Format format,
+                Set<String> types, Path dir, @Nullable String since, @Nullable SegmentManifest previous,
+                VectorizeStatsService vectorizeStatsService, ESLogger logger) {
+        this.exportId = exportId;
+        this.indexShard = indexShard;
+        this.vectorizer = vectorizer;
+        this.format = format;
+        this.types = types;
+        this.dir = dir;
+        this.since = since;
+        this.previous = previous;
+        this.vectorizeStatsService = vectorizeStatsService;
+        this.logger = logger;
+    }
+
+    String name() {
+        return name(indexShard);
+    }
+
+    /**
+     * The name the files of the given shard start with.
+     */
+    static String name(IndexShard indexShard) {
+        return indexShard.shardId().index().name() + "_" + indexShard.shardId().id();
+    }
+
+    @Override
+    public void run() {
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("vectorize_export");
+             MatrixWriter writer = MatrixWriter.create(format, dir, name(), vectorizer.size())) {
+            this.writer = writer;
+            this.totalDocs = searcher.reader().numDocs();
+            this.segments = searcher.reader().leaves().size();
+            VectorizeService vectorizeService = new VectorizeService(indexShard, vectorizeStatsService);
+            VectorizeProfile profile = new VectorizeProfile();
+            VectorizeQueries.Weights queryWeights = vectorizeService.queryWeights(vectorizer, searcher);
+            SegmentManifest manifest = new SegmentManifest(vectorizer.fingerprint(), types, format);
+            for (LeafReaderContext context : searcher.reader().leaves()) {
+                LeafReader reader = context.reader();
+                Bits liveDocs = reader.getLiveDocs();
+                String segmentId = SegmentManifest.segmentId(reader);
+                SegmentManifest.Segment exported = previous != null ? previous.remove(segmentId) : null;
+                if (exported != null) {
+                    // segments are never modified but for their deletions, so the rows exported before still hold
+                    for (int docId : exported.deletedSince(liveDocs)) {
+                        Uid uid = uid(reader, docId);  // stored fields are still readable once deleted
+                        if (uid != null && (types.isEmpty() || types.contains(uid.type()))) {
+                            deleted(uid.id());
+                        }
+                    }
+                    manifest.add(exported.withLiveDocs(liveDocs));
+                    docs += reader.numDocs();
+                    skippedSegments++;
+                    continue;
+                }
+                long firstRow = writer.rows();
+                for (int docId = 0; docId < reader.maxDoc(); docId++) {
+                    if (cancelled) {
+                        state = ShardExportStatus.State.CANCELLED;
+                        return;
+                    }
+                    if (liveDocs != null && !liveDocs.get(docId)) {
+                        continue;
+                    }
+                    docs++;
+                    Uid uid = uid(reader, docId);
+                    if (uid == null || (!types.isEmpty() && !types.contains(uid.type()))) {
+                        continue;  // nested documents, or of a type we do not export
+                    }
+                    // read from the segment at hand, so that the rows are those of the segments listed in the manifest
+                    BytesReference row = vectorizeService.getVector(vectorizer, uid.type(), searcher, context, docId,
+                            queryWeights, profile);
+                    List<Object> targets = null;
+                    if (vectorizer.hasTargets()) {
+                        targets = VectorizeTargets.read(vectorizer, indexShard.mapperService(),
+                                indexShard.indexService().fieldData(), context, docId);
+                    }
+                    writer.addRow(uid.id(), row, targets);
+                }
+                manifest.add(new SegmentManifest.Segment(segmentId, SegmentManifest.segmentName(reader), exportId, firstRow,
+                        writer.rows() - firstRow, reader.maxDoc(), liveDocs));
+            }
+            if (previous != null) {
+                for (SegmentManifest.Segment segment : previous.segments()) {
+                    removed(segment);
+                }
+            }
+            writer.finish();
+            closeChanges();
+            manifest.write(dir, name());
+            state = ShardExportStatus.State.DONE;
+        } catch (Throwable t) {
+            logger.warn("{} failed to export [{}]", t, indexShard.shardId(), exportId);
+            failure = ExceptionsHelper.detailedMessage(t);
+            state = ShardExportStatus.State.FAILED;
+        } finally {
+            try {
+                closeChanges();
+            } catch (IOException e) {
+                logger.debug("{} failed to close the changes of export [{}]", e, indexShard.shardId(), exportId);
+            }
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    private static Uid uid(LeafReader reader, int docId) throws IOException {
+        JustUidFieldsVisitor visitor = new JustUidFieldsVisitor();
+        reader.document(docId, visitor);
+        return visitor.uid();
+    }
+
+    private void deleted(String id) throws IOException {
+        if (deleted == null) {
+            deleted = new ChannelOutput(dir.resolve(name() + ".deleted"));
+        }
+        deleted.writeString(id);
+        deleted.writeString("\n");
+        deletedDocs++;
+    }
+
+    private void removed(SegmentManifest.Segment segment) throws IOException {
+        if (removed == null) {
+            removed = new ChannelOutput(dir.resolve(name() + ".removed"));
+        }
+        removed.writeString(segment.exportId + " " + segment.firstRow + " " + segment.rows + " " + segment.name + "\n");
+        removedSegments++;
+    }
+
+    private void closeChanges() throws IOException {
+        try {
+            if (deleted != null) {
+                deleted.close();
+            }
+        } finally {
+            if (removed != null) {
+                removed.close();
+            }
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isRunning() {
+        return state == ShardExportStatus.State.RUNNING;
+    }
+
+    ShardExportStatus status() {
+        MatrixWriter writer = this.writer;
+        long took = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+        return new ShardExportStatus(exportId, indexShard.shardId().index().name(), indexShard.shardId().id(), state, docs, totalDocs,
+                writer != null ? writer.rows() : 0, writer != null ? writer.bytesWritten() : 0,
+                writer != null ? writer.path().toString() : dir.resolve(name()).toString(), startTime, took, failure,
+                since, segments, skippedSegments, removedSegments, deletedDocs);
+    }
+}
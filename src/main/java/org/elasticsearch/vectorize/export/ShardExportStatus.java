@@ -0,0 +1,267 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * The progress of the export of a single shard.
+ */
+public class ShardExportStatus implements Streamable, ToXContent {
+
+    static final class Fields {
+        static final XContentBuilderString EXPORT_ID = new XContentBuilderString("export_id");
+        static final XContentBuilderString INDEX = new XContentBuilderString("index");
+        static final XContentBuilderString SHARD = new XContentBuilderString("shard");
+        static final XContentBuilderString STATE = new XContentBuilderString("state");
+        static final XContentBuilderString DOCS = new XContentBuilderString("docs");
+        static final XContentBuilderString TOTAL_DOCS = new XContentBuilderString("total_docs");
+        static final XContentBuilderString ROWS = new XContentBuilderString("rows");
+        static final XContentBuilderString WRITTEN = new XContentBuilderString("written");
+        static final XContentBuilderString WRITTEN_IN_BYTES = new XContentBuilderString("written_in_bytes");
+        static final XContentBuilderString PATH = new XContentBuilderString("path");
+        static final XContentBuilderString START_TIME_IN_MILLIS = new XContentBuilderString("start_time_in_millis");
+        static final XContentBuilderString TOOK_IN_MILLIS = new XContentBuilderString("took_in_millis");
+        static final XContentBuilderString FAILURE = new XContentBuilderString("failure");
+        static final XContentBuilderString SINCE = new XContentBuilderString("since");
+        static final XContentBuilderString SEGMENTS = new XContentBuilderString("segments");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString SKIPPED = new XContentBuilderString("skipped");
+        static final XContentBuilderString REMOVED = new XContentBuilderString("removed");
+        static final XContentBuilderString DELETED_DOCS = new XContentBuilderString("deleted_docs");
+    }
+
+    public enum State {
+        RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private String exportId;
+    private String index;
+    private int shard;
+    private State state;
+    private long docs;
+    private long totalDocs;
+    private long rows;
+    private long bytesWritten;
+    private String path;
+    private long startTime;
+    private long tookInMillis;
+    private String failure;
+    private String since;
+    private int segments;
+    private int skippedSegments;
+    private int removedSegments;
+    private long deletedDocs;
+
+    ShardExportStatus() {
+    }
+
+    public ShardExportStatus(String exportId, String index, int shard, State state, long docs, long totalDocs, long rows,
+                             long bytesWritten, String path, long startTime, long tookInMillis, @Nullable String failure,
+                             @Nullable String since, int segments, int skippedSegments, int removedSegments, long deletedDocs) {
+        this.exportId = exportId;
+        this.index = index;
+        this.shard = shard;
+        this.state = state;
+        this.docs = docs;
+        this.totalDocs = totalDocs;
+        this.rows = rows;
+        this.bytesWritten = bytesWritten;
+        this.path = path;
+        this.startTime = startTime;
+        this.tookInMillis = tookInMillis;
+        this.failure = failure;
+        this.since = since;
+        this.segments = segments;
+        this.skippedSegments = skippedSegments;
+        this.removedSegments = removedSegments;
+        this.deletedDocs = deletedDocs;
+    }
+
+    public String getExportId() {
+        return exportId;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * The number of documents visited so far.
+     */
+    public long getDocs() {
+        return docs;
+    }
+
+    public long getTotalDocs() {
+        return totalDocs;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getTookInMillis() {
+        return tookInMillis;
+    }
+
+    @Nullable
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * The export this one is incremental to, if any.
+     */
+    @Nullable
+    public String getSince() {
+        return since;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * The number of segments which were already exported, and were not vectorized again.
+     */
+    public int getSkippedSegments() {
+        return skippedSegments;
+    }
+
+    /**
+     * The number of segments of the previous export which are gone, typically merged away.
+     */
+    public int getRemovedSegments() {
+        return removedSegments;
+    }
+
+    /**
+     * The number of documents of the skipped segments which have been deleted since the previous export.
+     */
+    public long getDeletedDocs() {
+        return deletedDocs;
+    }
+
+    public static ShardExportStatus readShardExportStatus(StreamInput in) throws IOException {
+        ShardExportStatus status = new ShardExportStatus();
+        status.readFrom(in);
+        return status;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        exportId = in.readString();
+        index = in.readString();
+        shard = in.readVInt();
+        state = State.values()[in.readByte()];
+        docs = in.readVLong();
+        totalDocs = in.readVLong();
+        rows = in.readVLong();
+        bytesWritten = in.readVLong();
+        path = in.readString();
+        startTime = in.readVLong();
+        tookInMillis = in.readVLong();
+        failure = in.readOptionalString();
+        since = in.readOptionalString();
+        segments = in.readVInt();
+        skippedSegments = in.readVInt();
+        removedSegments = in.readVInt();
+        deletedDocs = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(exportId);
+        out.writeString(index);
+        out.writeVInt(shard);
+        out.writeByte((byte) state.ordinal());
+        out.writeVLong(docs);
+        out.writeVLong(totalDocs);
+        out.writeVLong(rows);
+        out.writeVLong(bytesWritten);
+        out.writeString(path);
+        out.writeVLong(startTime);
+        out.writeVLong(tookInMillis);
+        out.writeOptionalString(failure);
+        out.writeOptionalString(since);
+        out.writeVInt(segments);
+        out.writeVInt(skippedSegments);
+        out.writeVInt(removedSegments);
+        out.writeVLong(deletedDocs);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.EXPORT_ID, exportId);
+        builder.field(Fields.INDEX, index);
+        builder.field(Fields.SHARD, shard);
+        builder.field(Fields.STATE, state.name().toLowerCase(Locale.ROOT));
+        builder.field(Fields.DOCS, docs);
+        builder.field(Fields.TOTAL_DOCS, totalDocs);
+        builder.field(Fields.ROWS, rows);
+        builder.byteSizeField(Fields.WRITTEN_IN_BYTES, Fields.WRITTEN, bytesWritten);
+        builder.field(Fields.PATH, path);
+        builder.field(Fields.START_TIME_IN_MILLIS, startTime);
+        builder.field(Fields.TOOK_IN_MILLIS, tookInMillis);
+        if (since != null) {
+            builder.field(Fields.SINCE, since);
+        }
+        builder.startObject(Fields.SEGMENTS);
+        builder.field(Fields.TOTAL, segments);
+        builder.field(Fields.SKIPPED, skippedSegments);
+        builder.field(Fields.REMOVED, removedSegments);
+        builder.endObject();
+        builder.field(Fields.DELETED_DOCS, deletedDocs);
+        if (failure != null) {
+            builder.field(Fields.FAILURE, failure);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.PathUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.vectorize.VectorizeStatsService;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the exports of the shards of this node in the background, on a <tt>vectorize_export</tt> thread pool of their
+ * own, so that long exports neither hold up nor get rejected by <tt>_vectorize</tt> requests. Each shard
+ * is written to its own files under <tt>vectorize.export.path</tt>/<tt>export_id</tt>, so exports do not depend on
+ * a client holding a scroll alive.
+ *
+ * The exports of this node are tracked in memory until they are deleted, which also cancels them if they are still
+ * running.
+ */
+public class VectorizeExportService extends AbstractComponent {
+
+    public static final String EXPORT_PATH = "vectorize.export.path";
+
+    public static final String THREAD_POOL_NAME = "vectorize_export";
+
+    private final ThreadPool threadPool;
+    private final VectorizeStatsService vectorizeStatsService;
+    private final Path exportPath;
+
+    private final ConcurrentMap<String, List<ShardExport>> exports = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public VectorizeExportService(Settings settings, ThreadPool threadPool, VectorizeStatsService vectorizeStatsService) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.vectorizeStatsService = vectorizeStatsService;
+        String path = settings.get(EXPORT_PATH);
+        this.exportPath = path != null ? PathUtils.get(path) : null;
+    }
+
+    /**
+     * Starts exporting the given shard, and returns right away. If the id of a previous export is given, only the
+     * segments written since are exported, provided this node has the manifest of the shard for that export.
+     */
+    public ShardExportStatus start(String exportId, IndexShard indexShard, Vectorizer vectorizer, VectorizeExportRequest.Format format,
+                                   String[] types, @Nullable String since) throws IOException {
+        if (exportPath == null) {
+            throw new IllegalStateException("[" + EXPORT_PATH + "] must be set on data nodes to export");
+        }
+        if (exportId.equals(since)) {
+            throw new IllegalArgumentException("export [" + exportId + "] cannot be incremental to itself");
+        }
+        Set<String> typeSet = new HashSet<>(Arrays.asList(types));
+        SegmentManifest previous = null;
+        if (since != null) {
+            previous = SegmentManifest.read(resolve(exportPath, since), ShardExport.name(indexShard));
+            if (previous == null) {
+                logger.debug("{} no manifest of export [{}], exporting all segments", indexShard.shardId(), since);
+            } else {
+                previous.checkCompatible(since, vectorizer.fingerprint(), typeSet, format);
+            }
+        }
+        Path dir = resolve(exportPath, exportId);
+        Files.createDirectories(dir);
+        ShardExport export = new ShardExport(exportId, indexShard, vectorizer.copy(), format, typeSet, dir, since, previous,
+                vectorizeStatsService, logger);
+
+        List<ShardExport> shardExports = exports.get(exportId);
+        if (shardExports == null) {
+            List<ShardExport> existing = exports.putIfAbsent(exportId, shardExports = new CopyOnWriteArrayList<>());
+            if (existing != null) {
+                shardExports = existing;
+            }
+        }
+        shardExports.add(export);
+        try {
+            threadPool.executor(THREAD_POOL_NAME).execute(export);
+        } catch (RuntimeException e) {
+            shardExports.remove(export);
+            throw e;
+        }
+        logger.debug("{} started export [{}] to [{}]", indexShard.shardId(), exportId, dir);
+        return export.status();
+    }
+
+    /**
+     * Whether the given export id can name a directory right under the export path.
+     */
+    public static boolean isValidExportId(String exportId) {
+        return Strings.hasLength(exportId) && !exportId.equals(".") && !exportId.equals("..") && exportId.indexOf('/') < 0 &&
+                exportId.indexOf('\\') < 0 && exportId.indexOf(File.separatorChar) < 0;
+    }
+
+    /**
+     * Returns the directory of the given export, which must be right under the export path.
+     */
+    static Path resolve(Path exportPath, String exportId) {
+        if (!isValidExportId(exportId)) {
+            throw new IllegalArgumentException("invalid export id [" + exportId + "]");
+        }
+        Path root = exportPath.toAbsolutePath().normalize();
+        Path dir = root.resolve(exportId).normalize();
+        if (!root.equals(dir.getParent())) {
+            throw new IllegalArgumentException("invalid export id [" + exportId + "]");
+        }
+        return dir;
+    }
+
+    /**
+     * Returns the status of the shards of the given export on this node, or of all exports if no id is given.
+     */
+    public List<ShardExportStatus> status(@Nullable String exportId) {
+        List<ShardExportStatus> statuses = new ArrayList<>();
+        for (Map.Entry<String, List<ShardExport>> entry : exports.entrySet()) {
+            if (exportId == null || exportId.equals(entry.getKey())) {
+                for (ShardExport export : entry.getValue()) {
+                    statuses.add(export.status());
+                }
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Cancels the shards of the given export which are still running, and forgets about the export. The files
+     * written so far are left as they are.
+     */
+    public List<ShardExportStatus> delete(String exportId) {
+        List<ShardExport> shardExports = exports.remove(exportId);
+        List<ShardExportStatus> statuses = new ArrayList<>();
+        if (shardExports != null) {
+            for (ShardExport export : shardExports) {
+                if (export.isRunning()) {
+                    export.cancel();
+                }
+                statuses.add(export.status());
+            }
+        }
+        return statuses;
+    }
+}
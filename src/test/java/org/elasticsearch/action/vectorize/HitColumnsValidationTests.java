@@ -0,0 +1,64 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.action.vectorize.gram.VectorizeGramRequest;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase.vectorizer;
+import static org.hamcrest.Matchers.containsString;
+
+public class HitColumnsValidationTests extends ESTestCase {
+
+    private static final String WITHOUT_HITS = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"]}]";
+    private static final String WITH_HITS = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"]}, {\"hit\": \"_score\"}]";
+
+    private static void assertRejected(ActionRequestValidationException e) {
+        assertNotNull(e);
+        assertThat(e.getMessage(), containsString("hit columns are only known during a search"));
+    }
+
+    public void testVectorize() throws Exception {
+        assertNull(new VectorizeRequest("test", "doc", "1").vectorizer(vectorizer(WITHOUT_HITS)).validate());
+        assertRejected(new VectorizeRequest("test", "doc", "1").vectorizer(vectorizer(WITH_HITS)).validate());
+    }
+
+    public void testMultiVectorize() throws Exception {
+        MultiVectorizeRequest request = new MultiVectorizeRequest();
+        request.add(new VectorizeRequest("test", "doc", "1").vectorizer(vectorizer(WITHOUT_HITS)));
+        assertNull(request.validate());
+        request.add(new VectorizeRequest("test", "doc", "2").vectorizer(vectorizer(WITH_HITS)));
+        ActionRequestValidationException e = request.validate();
+        assertRejected(e);
+        assertThat(e.getMessage(), containsString("at multi vectorize index [1]"));
+    }
+
+    public void testExport() throws Exception {
+        assertNull(new VectorizeExportRequest("test").vectorizer(vectorizer(WITHOUT_HITS)).validate());
+        assertRejected(new VectorizeExportRequest("test").vectorizer(vectorizer(WITH_HITS)).validate());
+    }
+
+    public void testGram() throws Exception {
+        assertNull(new VectorizeGramRequest("test").vectorizer(vectorizer(WITHOUT_HITS)).validate());
+        assertRejected(new VectorizeGramRequest("test").vectorizer(vectorizer(WITH_HITS)).validate());
+    }
+}
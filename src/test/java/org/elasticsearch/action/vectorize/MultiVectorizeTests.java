@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+
+import java.util.Map;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class MultiVectorizeTests extends VectorizeIntegTestCase {
+
+    private static final String VECTORIZER = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"], \"value\": \"term_freq\"}]";
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        // fewer items in flight than in a batch, so that the next ones are sent as the first ones complete
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(TransportMultiVectorizeAction.MAX_CONCURRENT_ITEMS, 2)
+                .build();
+    }
+
+    private MultiVectorizeRequestBuilder prepareMultiVectorize() {
+        return new MultiVectorizeRequestBuilder(client(), MultiVectorizeAction.INSTANCE);
+    }
+
+    private VectorizeRequest artificial(String text) throws Exception {
+        return new VectorizeRequest("test", "doc", null).vectorizer(vectorizer(VECTORIZER))
+                .doc(jsonBuilder().startObject().field("text", text).endObject());
+    }
+
+    public void testResponsesAreInTheOrderOfTheBatch() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", between(1, 5))));
+        client().prepareIndex("test", "doc", "1").setSource("text", "bar bar bar").setRefresh(true).get();
+        ensureGreen("test");
+
+        int numDocs = between(5, 20);
+        MultiVectorizeRequestBuilder request = prepareMultiVectorize();
+        for (int i = 0; i < numDocs; i++) {
+            request.add(artificial(i % 2 == 0 ? "foo" : "bar bar"));
+        }
+        request.add(new VectorizeRequest("test", "doc", "1").vectorizer(vectorizer(VECTORIZER)));
+        request.add(new VectorizeRequest("test", "doc", "2").vectorizer(vectorizer(VECTORIZER)));
+        MultiVectorizeResponse response = request.get();
+
+        MultiVectorizeItemResponse[] items = response.getResponses();
+        assertThat(items.length, equalTo(numDocs + 2));
+        for (int i = 0; i < numDocs; i++) {
+            assertFalse(items[i].isFailed());
+            Map<Integer, Integer> row = row(items[i].getResponse());
+            assertThat(row.size(), equalTo(1));
+            if (i % 2 == 0) {
+                assertThat(row.get(0), equalTo(1));
+            } else {
+                assertThat(row.get(1), equalTo(2));
+            }
+        }
+        assertThat(row(items[numDocs].getResponse()).get(1), equalTo(3));
+        assertFalse(items[numDocs + 1].getResponse().isExists());
+    }
+
+    public void testFailedItemsDoNotFailTheBatch() throws Exception {
+        assertAcked(prepareCreate("test"));
+        ensureGreen("test");
+
+        // items failing right away, before any shard is reached, still let the next ones through
+        MultiVectorizeRequestBuilder request = prepareMultiVectorize();
+        int numMissing = between(5, 100);
+        for (int i = 0; i < numMissing; i++) {
+            request.add(new VectorizeRequest("missing", "doc", Integer.toString(i)).vectorizer(vectorizer(VECTORIZER)));
+        }
+        request.add(artificial("foo"));
+        MultiVectorizeItemResponse[] items = request.get().getResponses();
+        assertThat(items.length, equalTo(numMissing + 1));
+        for (int i = 0; i < numMissing; i++) {
+            assertTrue(items[i].isFailed());
+            assertThat(items[i].getFailure().getMessage(), containsString("no such index"));
+        }
+        assertThat(row(items[numMissing].getResponse()).get(0), equalTo(1));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SearchVectorizeResponseTests extends ESTestCase {
+
+    public void testColumnNamesOnlyHoldTheColumnsOfThePage() {
+        SearchVectorizeResponse.ColumnNames columnNames = new SearchVectorizeResponse.ColumnNames();
+        assertThat(columnNames.size(), equalTo(0));
+        assertThat(columnNames.name("target"), equalTo("target"));
+        assertThat(columnNames.size(), equalTo(0));
+
+        String name = columnNames.name(999999);
+        assertThat(name, equalTo("999999"));
+        assertThat(columnNames.name(999999), sameInstance(name));
+        assertThat(columnNames.name(3), equalTo("3"));
+        assertThat(columnNames.size(), equalTo(2));
+    }
+
+    public void testNonZerosAreThoseOfTheLastRender() throws IOException {
+        InternalSearchHit[] hits = new InternalSearchHit[2];
+        for (int i = 0; i < hits.length; i++) {
+            Map<Integer, Integer> row = new HashMap<>();
+            for (int j = 0; j <= i; j++) {
+                row.put(j, 1);
+            }
+            Map<String, SearchHitField> fields = new HashMap<>();
+            fields.put("matrix", new InternalSearchHitField("matrix", Collections.<Object>singletonList(row)));
+            fields.put("shape", new InternalSearchHitField("shape", Collections.<Object>singletonList(2)));
+            hits[i] = new InternalSearchHit(i, String.valueOf(i), new StringText("type"), fields);
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(new InternalSearchHits(hits, hits.length, 1.0f),
+                null, null, false, null);
+        SearchVectorizeResponse response = new SearchVectorizeResponse(
+                new SearchResponse(internalResponse, null, 1, 1, 1, new ShardSearchFailure[0]));
+
+        for (VectorizeRequest.Format format : new VectorizeRequest.Format[]{VectorizeRequest.Format.COO, VectorizeRequest.Format.DICT}) {
+            response.setFormat(format);
+            for (int render = 0; render < 2; render++) {
+                XContentBuilder builder = XContentFactory.jsonBuilder();
+                response.toXContent(builder, ToXContent.EMPTY_PARAMS);
+                assertThat(response.getNonZeros(), equalTo(3l));
+            }
+        }
+    }
+}
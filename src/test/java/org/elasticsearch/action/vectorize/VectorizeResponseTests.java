@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.vectorize;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class VectorizeResponseTests extends ESTestCase {
+
+    private static BytesReference row(int shape, int col, int value) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(shape);
+        out.writeVInt(1);
+        out.writeVInt(col);
+        out.writeVInt(value);
+        return out.bytes();
+    }
+
+    private static VectorizeResponse response(List<Object> targets, VectorizeRequest.Format format) throws IOException {
+        VectorizeResponse response = new VectorizeResponse("test", "doc", "1");
+        response.setDocVersion(1);
+        response.setExists(true);
+        response.setFormat(format);
+        response.setVector(row(3, 1, 2));
+        response.setTargets(targets);
+        return response;
+    }
+
+    private static VectorizeResponse serialize(VectorizeResponse response) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        response.writeTo(out);
+        VectorizeResponse read = new VectorizeResponse();
+        read.readFrom(StreamInput.wrap(out.bytes()));
+        return read;
+    }
+
+    private static Map<String, Object> render(VectorizeResponse response) throws IOException {
+        XContentBuilder builder = jsonBuilder().startObject();
+        response.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        return XContentHelper.convertToMap(builder.bytes(), true).v2();
+    }
+
+    public void testTargetsAreSerialized() throws Exception {
+        VectorizeResponse read = serialize(response(Arrays.<Object>asList(1L, "spam", null), VectorizeRequest.Format.DICT));
+        assertThat(read.getTargets(), equalTo(Arrays.<Object>asList(1L, "spam", null)));
+
+        read = serialize(response(null, VectorizeRequest.Format.DICT));
+        assertThat(read.getTargets(), nullValue());
+    }
+
+    public void testTargetsAreRenderedNextToTheRow() throws Exception {
+        Map<String, Object> rendered = render(response(Arrays.<Object>asList(1L), VectorizeRequest.Format.COO));
+        assertThat(rendered.get("target"), equalTo((Object) Arrays.asList(1)));
+
+        rendered = render(response(null, VectorizeRequest.Format.COO));
+        assertFalse(rendered.containsKey("target"));
+    }
+
+    public void testTargetsLabelLibSvmRows() throws Exception {
+        Map<String, Object> rendered = render(response(Arrays.<Object>asList(1L), VectorizeRequest.Format.LIBSVM));
+        assertFalse(rendered.containsKey("target"));
+        assertThat(rendered.get("matrix"), equalTo((Object) "1 2:2\n"));
+
+        rendered = render(response(Arrays.<Object>asList((Object) null), VectorizeRequest.Format.LIBSVM));
+        assertThat(rendered.get("shape"), equalTo((Object) Arrays.asList(0, 3)));
+        assertThat(rendered.get("matrix"), equalTo((Object) ""));
+    }
+}
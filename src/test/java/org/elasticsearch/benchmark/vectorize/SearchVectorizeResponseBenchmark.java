@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.vectorize;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.action.vectorize.SearchVectorizeResponse;
+import org.elasticsearch.action.vectorize.VectorizeRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the coordinating node assembling a page of hits into a matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchVectorizeResponseBenchmark {
+
+    @Param({"1000", "100000"})
+    public int vocabularySize;
+
+    @Param({"100", "1000"})
+    public int docLength;
+
+    // the fraction of the terms of a document which are part of the vocabulary
+    @Param({"0.1", "0.5"})
+    public double density;
+
+    @Param({"1000"})
+    public int pageSize;
+
+    private SearchResponse searchResponse;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        InternalSearchHit[] hits = new InternalSearchHit[pageSize];
+        for (int i = 0; i < pageSize; i++) {
+            Map<Integer, Integer> row = new HashMap<>();
+            int nonZeros = (int) (docLength * density);
+            for (int j = 0; j < nonZeros; j++) {
+                row.put(random.nextInt(vocabularySize), 1 + random.nextInt(5));
+            }
+            Map<String, SearchHitField> fields = new HashMap<>();
+            fields.put("matrix", new InternalSearchHitField("matrix", Collections.<Object>singletonList(row)));
+            fields.put("shape", new InternalSearchHitField("shape", Collections.<Object>singletonList(vocabularySize)));
+            hits[i] = new InternalSearchHit(i, String.valueOf(i), new StringText("type"), fields);
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(new InternalSearchHits(hits, pageSize, 1.0f),
+                null, null, false, null);
+        searchResponse = new SearchResponse(internalResponse, null, 1, 1, 1, new ShardSearchFailure[0]);
+    }
+
+    private BytesReference build(VectorizeRequest.Format format) throws IOException {
+        SearchVectorizeResponse response = new SearchVectorizeResponse(searchResponse);
+        response.setFormat(format);
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        response.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return builder.bytes();
+    }
+
+    @Benchmark
+    public BytesReference buildCOO() throws IOException {
+        return build(VectorizeRequest.Format.COO);
+    }
+
+    @Benchmark
+    public BytesReference buildDict() throws IOException {
+        return build(VectorizeRequest.Format.DICT);
+    }
+}
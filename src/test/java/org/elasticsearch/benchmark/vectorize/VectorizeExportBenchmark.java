@@ -0,0 +1,262 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.vectorize;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.vectorize.SearchVectorizeResponse;
+import org.elasticsearch.action.vectorize.VectorizeAction;
+import org.elasticsearch.action.vectorize.VectorizeRequest;
+import org.elasticsearch.action.vectorize.VectorizeResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.plugin.fetch.FetchVectorizePlugin;
+import org.elasticsearch.plugin.vectorize.VectorizePlugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * End to end export benchmark. Starts a local node with the plugin, indexes a synthetic corpus and measures the
+ * throughput of <tt>_vectorize</tt>, <tt>_search_vectorize</tt>, scroll and the bare fetch sub-phase in each output
+ * format. The results are written as JSON so that builds can be compared.
+ *
+ * Parameters are given as system properties, eg. <tt>-Dbench.docs=100000 -Dbench.vocabulary=10000</tt>.
+ */
+public class VectorizeExportBenchmark {
+
+    static final String INDEX = "bench";
+    static final String TYPE = "doc";
+
+    static final int DOCS = Integer.getInteger("bench.docs", 50000);
+    static final int VOCABULARY = Integer.getInteger("bench.vocabulary", 10000);
+    static final int DOC_LENGTH = Integer.getInteger("bench.doc_length", 200);
+    static final int PAGE_SIZE = Integer.getInteger("bench.page_size", 1000);
+    static final int GETS = Integer.getInteger("bench.gets", 2000);
+    static final String REPORT = System.getProperty("bench.report", "target/vectorize-export-benchmark.json");
+
+    private static final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        Path home = Files.createTempDirectory("vectorize-benchmark");
+        Settings settings = Settings.settingsBuilder()
+                .put("cluster.name", VectorizeExportBenchmark.class.getSimpleName())
+                .put("path.home", home.toString())
+                .put("http.enabled", false)
+                .put("plugin.types", VectorizePlugin.class.getName() + "," + FetchVectorizePlugin.class.getName())
+                .build();
+        Node node = nodeBuilder().settings(settings).local(true).node();
+        try {
+            Client client = node.client();
+            indexCorpus(client);
+
+            BytesReference vectorizer = VectorizerBenchmark.vectorizerSource(VOCABULARY);
+            XContentBuilder report = XContentFactory.jsonBuilder().prettyPrint();
+            report.startObject();
+            report.field("version", Version.CURRENT.toString());
+            report.startObject("parameters")
+                    .field("docs", DOCS)
+                    .field("vocabulary", VOCABULARY)
+                    .field("doc_length", DOC_LENGTH)
+                    .field("page_size", PAGE_SIZE)
+                    .endObject();
+            report.startArray("results");
+            for (VectorizeRequest.Format format : VectorizeRequest.Format.values()) {
+                benchmarkVectorize(client, vectorizer, format, report);
+                benchmarkSearchVectorize(client, vectorizer, format, false, report);
+                benchmarkSearchVectorize(client, vectorizer, format, true, report);
+            }
+            benchmarkFetchSubPhase(client, vectorizer, report);
+            report.endArray();
+            report.endObject();
+
+            Path reportPath = Paths.get(REPORT);
+            if (reportPath.getParent() != null) {
+                Files.createDirectories(reportPath.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(reportPath)) {
+                report.bytes().writeTo(out);
+            }
+        } finally {
+            node.close();
+        }
+    }
+
+    static void indexCorpus(Client client) {
+        client.admin().indices().prepareCreate(INDEX)
+                .setSettings(Settings.settingsBuilder().put("number_of_shards", 1).put("number_of_replicas", 0))
+                .addMapping(TYPE, "text", "type=string,analyzer=whitespace", "num", "type=long")
+                .get();
+        Random random = new Random(0);
+        BulkRequestBuilder bulk = client.prepareBulk();
+        for (int i = 0; i < DOCS; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < DOC_LENGTH; j++) {
+                // skew the term distribution a little, as natural text would
+                int word = (int) (VOCABULARY * Math.pow(random.nextDouble(), 2));
+                text.append(VectorizerBenchmark.word(word)).append(' ');
+            }
+            bulk.add(client.prepareIndex(INDEX, TYPE, String.valueOf(i)).setSource("text", text.toString(), "num", random.nextInt(100)));
+            if (bulk.numberOfActions() == 1000) {
+                bulk.get();
+                bulk = client.prepareBulk();
+            }
+        }
+        if (bulk.numberOfActions() > 0) {
+            bulk.get();
+        }
+        client.admin().indices().prepareRefresh(INDEX).get();
+        client.admin().indices().prepareOptimize(INDEX).setMaxNumSegments(1).get();
+    }
+
+    static void benchmarkVectorize(Client client, BytesReference vectorizer, VectorizeRequest.Format format, XContentBuilder report) throws IOException {
+        Random random = new Random(0);
+        Measure measure = new Measure("_vectorize", format.name().toLowerCase());
+        for (int i = 0; i < GETS; i++) {
+            VectorizeRequest request = new VectorizeRequest(INDEX, TYPE, String.valueOf(random.nextInt(DOCS)))
+                    .vectorizer(VectorizerBenchmark.parse(vectorizer))
+                    .format(format);
+            VectorizeResponse response = client.execute(VectorizeAction.INSTANCE, request).actionGet();
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            builder.startObject();
+            response.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            builder.endObject();
+            measure.page(1, builder.bytes().length());
+        }
+        measure.report(report);
+    }
+
+    static void benchmarkSearchVectorize(Client client, BytesReference vectorizer, VectorizeRequest.Format format, boolean scroll,
+                                         XContentBuilder report) throws IOException {
+        Measure measure = new Measure(scroll ? "_search_vectorize/scroll" : "_search_vectorize", format.name().toLowerCase());
+        if (scroll) {
+            SearchResponse response = client.prepareSearch(INDEX).setTypes(TYPE)
+                    .setExtraSource(searchSource(vectorizer))
+                    .setSize(PAGE_SIZE)
+                    .setScroll(TimeValue.timeValueMinutes(1))
+                    .get();
+            while (response.getHits().getHits().length > 0) {
+                measure.page(response.getHits().getHits().length, render(response, format));
+                response = client.prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+            }
+            client.prepareClearScroll().addScrollId(response.getScrollId()).get();
+        } else {
+            for (int from = 0; from + PAGE_SIZE <= Math.min(DOCS, 10000); from += PAGE_SIZE) {
+                SearchResponse response = client.prepareSearch(INDEX).setTypes(TYPE)
+                        .setExtraSource(searchSource(vectorizer))
+                        .setFrom(from)
+                        .setSize(PAGE_SIZE)
+                        .get();
+                measure.page(response.getHits().getHits().length, render(response, format));
+            }
+        }
+        measure.report(report);
+    }
+
+    static void benchmarkFetchSubPhase(Client client, BytesReference vectorizer, XContentBuilder report) throws IOException {
+        Measure measure = new Measure("vectorize-fetch", "hits");
+        SearchResponse response = client.prepareSearch(INDEX).setTypes(TYPE)
+                .setExtraSource(searchSource(vectorizer))
+                .setSize(PAGE_SIZE)
+                .setScroll(TimeValue.timeValueMinutes(1))
+                .get();
+        while (response.getHits().getHits().length > 0) {
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            builder.startObject();
+            response.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            builder.endObject();
+            measure.page(response.getHits().getHits().length, builder.bytes().length());
+            response = client.prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+        }
+        client.prepareClearScroll().addScrollId(response.getScrollId()).get();
+        measure.report(report);
+    }
+
+    static BytesReference searchSource(BytesReference vectorizer) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        builder.field("_source", false);
+        builder.rawField("vectorizer", vectorizer);
+        builder.endObject();
+        return builder.bytes();
+    }
+
+    // the same rendering as the rest layer
+    static long render(SearchResponse response, VectorizeRequest.Format format) throws IOException {
+        SearchVectorizeResponse searchVectorizeResponse = new SearchVectorizeResponse(response);
+        searchVectorizeResponse.setFormat(format);
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        searchVectorizeResponse.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return builder.bytes().length();
+    }
+
+    static class Measure {
+        final String api;
+        final String format;
+        final long startTime;
+        final long startHeap;
+        long rows;
+        long bytes;
+        long peakHeap;
+
+        Measure(String api, String format) {
+            this.api = api;
+            this.format = format;
+            System.gc();
+            this.startHeap = memoryBean.getHeapMemoryUsage().getUsed();
+            this.startTime = System.nanoTime();
+        }
+
+        void page(int pageRows, long pageBytes) {
+            rows += pageRows;
+            bytes += pageBytes;
+            peakHeap = Math.max(peakHeap, memoryBean.getHeapMemoryUsage().getUsed() - startHeap);
+        }
+
+        void report(XContentBuilder report) throws IOException {
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            report.startObject();
+            report.field("api", api);
+            report.field("format", format);
+            report.field("rows", rows);
+            report.field("took_seconds", seconds);
+            report.field("rows_per_second", rows / seconds);
+            report.field("bytes", bytes);
+            report.field("bytes_per_row", rows > 0 ? (double) bytes / rows : 0);
+            report.field("peak_heap_bytes", peakHeap);
+            report.endObject();
+        }
+    }
+}
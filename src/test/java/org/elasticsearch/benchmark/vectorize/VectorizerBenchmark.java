@@ -0,0 +1,183 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.vectorize;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.vectorize.Vectorizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the vectorizer hot path, that is parsing the vectorizer, looking up columns, accumulating a
+ * document and encoding / decoding its row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorizerBenchmark {
+
+    static final String FIELD = "text";
+
+    @Param({"1000", "10000", "100000"})
+    public int vocabularySize;
+
+    @Param({"100", "1000"})
+    public int docLength;
+
+    // the fraction of the terms of a document which are part of the vocabulary
+    @Param({"0.1", "0.5"})
+    public double density;
+
+    private BytesReference vectorizerSource;
+    private Vectorizer vectorizer;
+    private Term[] docTerms;
+    private int[] docFreqs;
+    private BytesReference row;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        vectorizerSource = vectorizerSource(vocabularySize);
+        vectorizer = parse(vectorizerSource);
+        docTerms = new Term[docLength];
+        docFreqs = new int[docLength];
+        for (int i = 0; i < docLength; i++) {
+            if (random.nextDouble() < density) {
+                docTerms[i] = new Term(FIELD, word(random.nextInt(vocabularySize)));
+            } else {
+                docTerms[i] = new Term(FIELD, "oov" + i);
+            }
+            docFreqs[i] = 1 + random.nextInt(5);
+        }
+        row = vectorize(vectorizer.copy());
+    }
+
+    static BytesReference vectorizerSource(int vocabularySize) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startArray();
+        builder.startObject();
+        builder.field("field", FIELD);
+        builder.startArray("span");
+        for (int i = 0; i < vocabularySize; i++) {
+            builder.value(word(i));
+        }
+        builder.endArray();
+        builder.field("value", "term_freq");
+        builder.endObject();
+        builder.endArray();
+        return builder.bytes();
+    }
+
+    static Vectorizer parse(BytesReference source) throws IOException {
+        try (XContentParser parser = XContentHelper.createParser(source)) {
+            parser.nextToken();
+            return Vectorizer.parse(parser);
+        }
+    }
+
+    static String word(int i) {
+        return "w" + i;
+    }
+
+    private BytesReference vectorize(Vectorizer docVectorizer) throws IOException {
+        for (int i = 0; i < docTerms.length; i++) {
+            docVectorizer.add(docTerms[i], null, docFreqs[i]);
+        }
+        return docVectorizer.writeVector();
+    }
+
+    @Benchmark
+    public Vectorizer parse() throws IOException {
+        return parse(vectorizerSource);
+    }
+
+    @Benchmark
+    public void getColumn(Blackhole blackhole) {
+        for (Term term : docTerms) {
+            blackhole.consume(vectorizer.getColumn(term));
+        }
+    }
+
+    @Benchmark
+    public BytesReference add() throws IOException {
+        return vectorize(vectorizer.copy());
+    }
+
+    /**
+     * A document already accumulated, so that only its encoding is measured.
+     */
+    @State(Scope.Thread)
+    public static class Accumulated {
+        Vectorizer docVectorizer;
+
+        @Setup(Level.Invocation)
+        public void setUp(VectorizerBenchmark benchmark) {
+            docVectorizer = benchmark.vectorizer.copy();
+            for (int i = 0; i < benchmark.docTerms.length; i++) {
+                docVectorizer.add(benchmark.docTerms[i], null, benchmark.docFreqs[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public BytesReference writeVector(Accumulated accumulated) throws IOException {
+        return accumulated.docVectorizer.writeVector();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) throws IOException {
+        Vectorizer.SparseVector vector = Vectorizer.readVector(row);
+        while (vector.hasNext()) {
+            blackhole.consume(vector.next());
+        }
+    }
+
+    @Benchmark
+    public BytesReference toXContentCOO() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        Vectorizer.readVector(row).toXContentCOO(builder);
+        builder.endObject();
+        return builder.bytes();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper.vectorize;
+
+import org.elasticsearch.action.vectorize.VectorizeResponse;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class VectorFieldMapperTests extends VectorizeIntegTestCase {
+
+    private static final String VECTORIZER = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"], \"value\": \"term_freq\"}]";
+
+    private static XContentBuilder mapping(String vectorizer) throws IOException {
+        return jsonBuilder().startObject().startObject("doc")
+                .startObject(VectorFieldMapper.NAME).rawField("vectorizer", vectorizer.getBytes("UTF-8")).endObject()
+                .startObject("properties").startObject("text").field("type", "string").endObject().endObject()
+                .endObject().endObject();
+    }
+
+    public void testStoredRowIsReturned() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("doc", mapping(VECTORIZER)));
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo bar foo").setRefresh(true).get();
+
+        VectorizeResponse response = prepareVectorize("test", "doc", "1").setVectorizer(vectorizer(VECTORIZER)).setProfile(true).get();
+        assertTrue(response.isExists());
+        Map<Integer, Integer> row = row(response);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(0), equalTo(2));
+        assertThat(row.get(1), equalTo(1));
+        // a stored row is not vectorized again from the terms of the document
+        assertThat(response.getProfile().getTermsScanned(), equalTo(0L));
+
+        // any other vectorizer goes the usual way
+        Vectorizer binary = vectorizer("[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"], \"value\": \"binary\"}]");
+        response = prepareVectorize("test", "doc", "1").setVectorizer(binary).setProfile(true).get();
+        assertThat(row(response).get(0), equalTo(1));
+        assertTrue(response.getProfile().getTermsScanned() > 0);
+    }
+
+    public void testStoredRowMatchesComputedRow() throws Exception {
+        String vectorizer = "[{\"field\": \"text\", \"span\": [\"foo\"]}, {\"field\": \"flag\", \"span\": 1}, " +
+                "{\"field\": \"rating\", \"span\": 3}, {\"field\": \"day\", \"span\": 1}, {\"field\": \"hidden\", \"span\": 1}]";
+        XContentBuilder stored = jsonBuilder().startObject().startObject("doc")
+                .startObject(VectorFieldMapper.NAME).rawField("vectorizer", vectorizer.getBytes("UTF-8")).endObject();
+        XContentBuilder computed = jsonBuilder().startObject().startObject("doc");
+        for (XContentBuilder mapping : new XContentBuilder[]{stored, computed}) {
+            mapping.startObject("properties")
+                    .startObject("text").field("type", "string").endObject()
+                    .startObject("flag").field("type", "boolean").endObject()
+                    .startObject("rating").field("type", "integer").endObject()
+                    .startObject("day").field("type", "date").endObject()
+                    .startObject("hidden").field("type", "integer").field("index", "no").endObject()
+                    .endObject().endObject().endObject();
+        }
+        assertAcked(prepareCreate("stored").addMapping("doc", stored));
+        assertAcked(prepareCreate("computed").addMapping("doc", computed));
+        for (String index : new String[]{"stored", "computed"}) {
+            client().prepareIndex(index, "doc", "1").setSource(jsonBuilder().startObject()
+                    .field("text", "foo foo").field("flag", true).field("rating", Arrays.asList(5, 2, 5))
+                    .field("day", "2015-01-01").field("hidden", 7).endObject()).setRefresh(true).get();
+        }
+
+        VectorizeResponse response = prepareVectorize("stored", "doc", "1").setVectorizer(vectorizer(vectorizer)).setProfile(true).get();
+        // the row was not vectorized again
+        assertThat(response.getProfile().getTermsScanned(), equalTo(0L));
+        Map<Integer, Integer> row = row(response);
+        assertThat(row, equalTo(row(prepareVectorize("computed", "doc", "1").setVectorizer(vectorizer(vectorizer)).get())));
+        assertThat(row.get(0), equalTo(2));
+        assertThat(row.get(1), equalTo(1));
+        assertThat(row.get(2), equalTo(5));
+        assertThat(row.get(3), equalTo(2));
+        assertThat(row.get(4), equalTo(5));
+        // a date is not a number of the source, and a field which is not indexed is still in the source
+        assertThat(row.get(5), nullValue());
+        assertThat(row.get(6), equalTo(7));
+    }
+
+    public void testRealtimeGetDoesNotReturnAStaleStoredRow() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("doc", mapping(VECTORIZER))
+                .setSettings("index.refresh_interval", -1));
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo bar foo").setRefresh(true).get();
+        client().prepareIndex("test", "doc", "1").setSource("text", "bar").get();
+
+        Map<Integer, Integer> row = row(prepareVectorize("test", "doc", "1").setVectorizer(vectorizer(VECTORIZER))
+                .setRealtime(true).get());
+        assertThat(row.size(), equalTo(1));
+        assertThat(row.get(1), equalTo(1));
+
+        row = row(prepareVectorize("test", "doc", "1").setVectorizer(vectorizer(VECTORIZER)).setRealtime(false).get());
+        assertThat(row.get(0), equalTo(2));
+        assertThat(row.get(1), equalTo(1));
+    }
+
+    public void testTermStatisticsAreRejected() throws Exception {
+        try {
+            prepareCreate("test").addMapping("doc", mapping("[{\"field\": \"text\", \"span\": [\"foo\"], \"value\": \"doc_freq\"}]")).get();
+            fail("term statistics are not known at index time");
+        } catch (Exception e) {
+            assertThat(e.getMessage(), containsString("does not support doc_freq or ttf"));
+        }
+    }
+
+    public void testVectorizerCannotBeUpdated() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("doc", mapping(VECTORIZER)));
+        // the same vectorizer merges cleanly
+        assertAcked(client().admin().indices().preparePutMapping("test").setType("doc").setSource(mapping(VECTORIZER)));
+        try {
+            client().admin().indices().preparePutMapping("test").setType("doc")
+                    .setSource(mapping("[{\"field\": \"text\", \"span\": [\"bar\"]}]")).get();
+            fail("existing rows would be inconsistent");
+        } catch (Exception e) {
+            assertThat(e.getMessage(), containsString("Cannot update the vectorizer"));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.plugin.vectorize;
+
+import org.elasticsearch.action.vectorize.VectorizeAction;
+import org.elasticsearch.action.vectorize.VectorizeRequestBuilder;
+import org.elasticsearch.action.vectorize.VectorizeResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base class of the integration tests, which start nodes with the plugin loaded.
+ */
+public abstract class VectorizeIntegTestCase extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("plugin.types", VectorizePlugin.class.getName())
+                .build();
+    }
+
+    /**
+     * Parses a vectorizer given as a json array.
+     */
+    public static Vectorizer vectorizer(String json) throws IOException {
+        try (XContentParser parser = XContentHelper.createParser(new BytesArray(json))) {
+            parser.nextToken();  // start of the array
+            return Vectorizer.parse(parser);
+        }
+    }
+
+    public VectorizeRequestBuilder prepareVectorize(String index, String type, String id) {
+        return new VectorizeRequestBuilder(client(), VectorizeAction.INSTANCE, index, type, id);
+    }
+
+    /**
+     * The cells of the returned row, by column.
+     */
+    public static Map<Integer, Integer> row(VectorizeResponse response) throws IOException {
+        return row(response.getVector());
+    }
+
+    public static Map<Integer, Integer> row(Vectorizer.SparseVector vector) {
+        Map<Integer, Integer> row = new LinkedHashMap<>();
+        while (vector.hasNext()) {
+            Vectorizer.Coord coord = vector.next();
+            row.put(coord.x, coord.y);
+        }
+        return row;
+    }
+}
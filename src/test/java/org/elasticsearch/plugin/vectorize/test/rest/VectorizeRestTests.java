@@ -28,6 +28,7 @@ import org.elasticsearch.test.rest.ESRestTestCase;
 import org.elasticsearch.test.rest.ESRestTestCase.Rest;
 import org.elasticsearch.test.rest.RestTestCandidate;
 import org.elasticsearch.test.rest.parser.RestTestParseException;
+import org.elasticsearch.vectorize.export.VectorizeExportService;
 
 import java.io.IOException;
 
@@ -51,7 +52,8 @@ public class VectorizeRestTests extends ESRestTestCase {
     protected Settings nodeSettings(int nodeOrdinal) {
         Settings.Builder settings = Settings.builder()
                 .put(super.nodeSettings(nodeOrdinal))
-                .put("plugin.types", VectorizePlugin.class.getName());
+                .put("plugin.types", VectorizePlugin.class.getName())
+                .put(VectorizeExportService.EXPORT_PATH, createTempDir().toString());
         return settings.build();
     }
 }
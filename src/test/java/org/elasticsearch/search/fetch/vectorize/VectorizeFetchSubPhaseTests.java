@@ -0,0 +1,166 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch.vectorize;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class VectorizeFetchSubPhaseTests extends VectorizeIntegTestCase {
+
+    private static final String SOURCE = "{\"vectorizer\": [{\"field\": \"text\", \"span\": [\"foo\", \"bar\"]}]}";
+
+    /**
+     * The cells of the row of a hit, by column.
+     */
+    static Map<Integer, Integer> row(SearchHit hit) {
+        Map<Integer, Integer> row = new HashMap<>();
+        for (Map.Entry<?, ?> cell : ((Map<?, ?>) hit.field("matrix").getValue()).entrySet()) {
+            row.put(Integer.valueOf(cell.getKey().toString()), ((Number) cell.getValue()).intValue());
+        }
+        return row;
+    }
+
+    public void testRowIsThatOfTheMatchedDocument() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)
+                .put("index.refresh_interval", -1)));
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo").get();
+        refresh();
+        // a newer version which is not searchable yet
+        client().prepareIndex("test", "doc", "1").setSource("text", "bar").get();
+
+        SearchResponse response = client().prepareSearch("test").setExtraSource(SOURCE).get();
+        assertHitCount(response, 1);
+        Map<Integer, Integer> row = row(response.getHits().getAt(0));
+        assertThat(row.size(), equalTo(1));
+        assertThat(row.get(0), equalTo(1));
+    }
+
+    public void testProfileIsOnlyAttachedWhenAskedByHeader() throws Exception {
+        createIndex("test");
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo bar").get();
+        client().prepareIndex("test", "doc", "2").setSource("text", "bar").get();
+        refresh();
+
+        SearchResponse response = client().prepareSearch("test").setExtraSource(SOURCE).get();
+        assertHitCount(response, 2);
+        for (SearchHit hit : response.getHits()) {
+            assertThat(hit.field("matrix"), notNullValue());
+            assertThat(hit.field("vectorize_profile"), nullValue());
+        }
+
+        response = client().prepareSearch("test").setExtraSource(SOURCE)
+                .putHeader(VectorizeFetchSubPhase.PROFILE_HEADER, true).get();
+        int profiles = 0;
+        for (SearchHit hit : response.getHits()) {
+            if (hit.field("vectorize_profile") != null) {
+                profiles++;
+            }
+        }
+        assertTrue(profiles > 0);
+    }
+
+    private static final String HIT_COLUMNS = "{\"vectorizer\": [{\"field\": \"text\", \"span\": [\"foo\"]}, " +
+            "{\"hit\": \"_score\", \"scale\": 1000}, {\"hit\": \"_sort\", \"sort_index\": 0}]}";
+
+    private void indexRanked(int docs) throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)));
+        for (int i = 1; i <= docs; i++) {
+            client().prepareIndex("test", "doc", String.valueOf(i)).setSource("text", "foo", "rank", i * 10).get();
+        }
+        refresh();
+    }
+
+    public void testScoreOfTheHitReachesTheRow() throws Exception {
+        indexRanked(3);
+        SearchResponse response = client().prepareSearch("test").setQuery(QueryBuilders.matchQuery("text", "foo"))
+                .setExtraSource(HIT_COLUMNS).get();
+        assertHitCount(response, 3);
+        for (SearchHit hit : response.getHits()) {
+            Map<Integer, Integer> row = row(hit);
+            assertThat(row.get(0), equalTo(1));
+            assertThat(row.get(1), equalTo(Math.round(hit.getScore() * 1000)));
+            // not sorted on a field, so there is no sort value
+            assertThat(row.get(2), nullValue());
+        }
+    }
+
+    public void testSortValuesReachTheRowOfEveryPage() throws Exception {
+        indexRanked(5);
+        // sorted on a field without tracking the scores, so the score of the hit is not a number and left out
+        SearchResponse response = client().prepareSearch("test").addSort("rank", SortOrder.ASC).setFrom(1).setSize(3)
+                .setExtraSource(HIT_COLUMNS).get();
+        assertThat(response.getHits().getHits().length, equalTo(3));
+        for (int i = 0; i < 3; i++) {
+            SearchHit hit = response.getHits().getAt(i);
+            assertTrue(Float.isNaN(hit.getScore()));
+            Map<Integer, Integer> row = row(hit);
+            assertThat(row.get(1), nullValue());
+            assertThat(row.get(2), equalTo((i + 2) * 10));
+        }
+
+        response = client().prepareSearch("test").addSort("rank", SortOrder.ASC).setSize(2)
+                .setScroll(TimeValue.timeValueMinutes(1)).setExtraSource(HIT_COLUMNS).get();
+        int rank = 0;
+        while (response.getHits().getHits().length > 0) {
+            for (SearchHit hit : response.getHits()) {
+                rank += 10;
+                assertThat(row(hit).get(2), equalTo(rank));
+            }
+            response = client().prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+        }
+        assertThat(rank, equalTo(50));
+        client().prepareClearScroll().addScrollId(response.getScrollId()).get();
+    }
+
+    public void testHitColumnsComeAfterTheQueryColumns() throws Exception {
+        indexRanked(3);
+        // the hit column is given first, yet gets a column after the query column
+        String source = "{\"vectorizer\": [{\"field\": \"text\", \"span\": [\"foo\"]}, {\"hit\": \"_score\"}, " +
+                "{\"query\": {\"match\": {\"text\": \"foo\"}}}]}";
+        SearchResponse response = client().prepareSearch("test").setQuery(QueryBuilders.matchQuery("text", "foo"))
+                .setExtraSource(source).get();
+        assertHitCount(response, 3);
+        for (SearchHit hit : response.getHits()) {
+            int last = -1;
+            for (Object column : ((Map<?, ?>) hit.field("matrix").getValue()).keySet()) {
+                int current = Integer.valueOf(column.toString());
+                assertThat(current, greaterThan(last));
+                last = current;
+            }
+            assertThat(last, equalTo(2));
+            assertThat(row(hit).get(1), equalTo(1));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class GramMatrixTests extends ESTestCase {
+
+    @After
+    public void resetMaxVocabularySize() {
+        Vectorizer.setMaxVocabularySize(Integer.MAX_VALUE);
+    }
+
+    private static VectorizeBreaker breaker(long maxGramCells, CircuitBreakerService circuitBreakerService) {
+        return new VectorizeBreaker(Settings.builder().put(VectorizeBreaker.MAX_GRAM_CELLS, maxGramCells).build(),
+                circuitBreakerService);
+    }
+
+    // the columns and values of the non zeros, in ascending column order
+    private static Vectorizer.SparseVector row(int size, int... cells) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(size);
+        out.writeVInt(cells.length / 2);
+        for (int cell : cells) {
+            out.writeVInt(cell);
+        }
+        return Vectorizer.readVector(out.bytes());
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | col;
+    }
+
+    private static void assertCells(GramMatrix matrix, long... rowColValues) {
+        assertThat(matrix.getNonZeros(), equalTo(rowColValues.length / 3));
+        for (int i = 0; i < matrix.getNonZeros(); i++) {
+            assertThat(matrix.getRow(i), equalTo((int) rowColValues[3 * i]));
+            assertThat(matrix.getCol(i), equalTo((int) rowColValues[3 * i + 1]));
+            assertThat(matrix.getValue(i), equalTo(rowColValues[3 * i + 2]));
+        }
+    }
+
+    public void testAccumulate() throws Exception {
+        VectorizeBreaker vectorizeBreaker = breaker(100, new NoneCircuitBreakerService());
+        try (GramAccumulator accumulator = new GramAccumulator(3, false, vectorizeBreaker, BigArrays.NON_RECYCLING_INSTANCE)) {
+            accumulator.addRow(row(3, 0, 2, 2, 1));
+            accumulator.addRow(row(3, 2, 3));
+            accumulator.addRow(row(3));
+            GramMatrix matrix = accumulator.toMatrix();
+            assertThat(matrix.getRows(), equalTo(3L));
+            assertThat(matrix.getSums(), equalTo(new long[]{2, 0, 4}));
+            assertCells(matrix, 0, 0, 4, 0, 2, 2, 2, 2, 10);
+        }
+        try (GramAccumulator accumulator = new GramAccumulator(3, true, vectorizeBreaker, BigArrays.NON_RECYCLING_INSTANCE)) {
+            accumulator.addRow(row(3, 0, 2, 2, 1));
+            accumulator.addRow(row(3, 2, 3));
+            GramMatrix matrix = accumulator.toMatrix();
+            assertThat(matrix.getSums(), equalTo(new long[]{1, 0, 2}));
+            assertCells(matrix, 0, 0, 1, 0, 2, 1, 2, 2, 2);
+        }
+    }
+
+    public void testAccumulatorIsCapped() throws Exception {
+        try (GramAccumulator accumulator = new GramAccumulator(3, false, breaker(2, new NoneCircuitBreakerService()),
+                BigArrays.NON_RECYCLING_INSTANCE)) {
+            accumulator.addRow(row(3, 0, 1));
+            accumulator.addRow(row(3, 1, 1));
+            try {
+                accumulator.addRow(row(3, 0, 1, 1, 1));
+                fail("the row adds a third cell");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("gram matrix of more than [2] non zeros"));
+            }
+        }
+    }
+
+    public void testMatrixIsChargedUntilTheAccumulatorIsClosed() throws Exception {
+        Settings settings = Settings.builder().put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING, "1kb").build();
+        CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(settings, new NodeSettingsService(settings));
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        VectorizeBreaker vectorizeBreaker = breaker(1000, breakerService);
+        try (GramAccumulator accumulator = new GramAccumulator(3, false, vectorizeBreaker, BigArrays.NON_RECYCLING_INSTANCE)) {
+            accumulator.addRow(row(3, 0, 1, 1, 1, 2, 1));
+            accumulator.toMatrix();
+            assertThat(breaker.getUsed(), equalTo(6 * VectorizeBreaker.BYTES_PER_GRAM_CELL));
+            // a second copy replaces the charge of the first
+            accumulator.toMatrix();
+            assertThat(breaker.getUsed(), equalTo(6 * VectorizeBreaker.BYTES_PER_GRAM_CELL));
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+
+        try (GramAccumulator accumulator = new GramAccumulator(100, false, vectorizeBreaker, BigArrays.NON_RECYCLING_INSTANCE)) {
+            int[] cells = new int[2 * 20];
+            for (int i = 0; i < 20; i++) {
+                cells[2 * i] = i;
+                cells[2 * i + 1] = 1;
+            }
+            accumulator.addRow(row(100, cells));
+            try {
+                accumulator.toMatrix();
+                fail("210 cells take more than 1kb");
+            } catch (CircuitBreakingException e) {
+                // expected
+            }
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testMerge() throws Exception {
+        GramMatrix first = new GramMatrix(3, 2, new long[]{1, 2, 0},
+                new long[]{key(0, 0), key(0, 1), key(1, 1)}, new long[]{1, 2, 3});
+        GramMatrix second = new GramMatrix(3, 1, new long[]{0, 1, 7},
+                new long[]{key(0, 1), key(2, 2)}, new long[]{5, 7});
+        GramMatrix empty = new GramMatrix(3, 0, new long[3], new long[0], new long[0]);
+        List<GramMatrix> matrices = Arrays.asList(second, empty, first);
+        long nonZeros = GramMatrix.mergedNonZeros(matrices);
+        assertThat(nonZeros, equalTo(4L));
+        GramMatrix merged = GramMatrix.merge(3, matrices, (int) nonZeros);
+        assertThat(merged.getRows(), equalTo(3L));
+        assertThat(merged.getSums(), equalTo(new long[]{1, 3, 7}));
+        assertCells(merged, 0, 0, 1, 0, 1, 7, 1, 1, 3, 2, 2, 7);
+
+        GramMatrix none = GramMatrix.merge(3, Collections.<GramMatrix>emptyList(), 0);
+        assertThat(none.getRows(), equalTo(0L));
+        assertThat(none.getNonZeros(), equalTo(0));
+    }
+
+    public void testMergeRandomMatrices() throws Exception {
+        int size = between(1, 20);
+        Map<Long, Long> expected = new TreeMap<>();
+        List<GramMatrix> matrices = new ArrayList<>();
+        int numMatrices = between(1, 10);
+        for (int m = 0; m < numMatrices; m++) {
+            Map<Long, Long> cells = new TreeMap<>();
+            int numCells = between(0, 30);
+            for (int i = 0; i < numCells; i++) {
+                int row = between(0, size - 1);
+                long key = key(row, between(row, size - 1));
+                long value = between(1, 100);
+                cells.put(key, value);
+            }
+            long[] keys = new long[cells.size()];
+            long[] values = new long[cells.size()];
+            int i = 0;
+            for (Map.Entry<Long, Long> cell : cells.entrySet()) {
+                keys[i] = cell.getKey();
+                values[i] = cell.getValue();
+                i++;
+                Long sum = expected.get(cell.getKey());
+                expected.put(cell.getKey(), (sum != null ? sum : 0) + cell.getValue());
+            }
+            matrices.add(new GramMatrix(size, 1, new long[size], keys, values));
+        }
+        long nonZeros = GramMatrix.mergedNonZeros(matrices);
+        assertThat(nonZeros, equalTo((long) expected.size()));
+        GramMatrix merged = GramMatrix.merge(size, matrices, (int) nonZeros);
+        assertThat(merged.getRows(), equalTo((long) numMatrices));
+        int i = 0;
+        for (Map.Entry<Long, Long> cell : expected.entrySet()) {
+            assertThat(key(merged.getRow(i), merged.getCol(i)), equalTo(cell.getKey()));
+            assertThat(merged.getValue(i), equalTo(cell.getValue()));
+            i++;
+        }
+    }
+
+    public void testMergeIsCapped() throws Exception {
+        VectorizeBreaker vectorizeBreaker = breaker(3, new NoneCircuitBreakerService());
+        vectorizeBreaker.addGramMatrix(3, "test").close();
+        try {
+            vectorizeBreaker.addGramMatrix(4, "test");
+            fail("the sum has more non zeros than the cap");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("gram matrix of [4] non zeros is larger than"));
+        }
+        try {
+            breaker(Long.MAX_VALUE, new NoneCircuitBreakerService());
+            fail("the cells of a matrix are laid out in arrays");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString(VectorizeBreaker.MAX_GRAM_CELLS));
+        }
+    }
+}
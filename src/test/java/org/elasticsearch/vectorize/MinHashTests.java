@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+
+import java.util.Arrays;
+
+import static org.elasticsearch.vectorize.VectorizerTests.parse;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MinHashTests extends ESTestCase {
+
+    @After
+    public void resetMaxVocabularySize() {
+        Vectorizer.setMaxVocabularySize(Integer.MAX_VALUE);
+    }
+
+    private static int[] sign(MinHash minHash, int from, int to) {
+        MinHash.Signature signature = minHash.newSignature();
+        for (int i = from; i < to; i++) {
+            signature.add("text", new BytesRef("t" + i));
+        }
+        return signature.finish();
+    }
+
+    private static int sameValues(int[] first, int[] second, int from, int to) {
+        int same = 0;
+        for (int i = from; i < to; i++) {
+            if (first[i] == second[i]) {
+                same++;
+            }
+        }
+        return same;
+    }
+
+    private static void assertValues(int[] values) {
+        for (int value : values) {
+            assertThat(value, allOf(greaterThan(0), lessThanOrEqualTo(1 << 30)));
+        }
+    }
+
+    public void testSignatureIsStable() throws Exception {
+        for (boolean onePermutation : new boolean[]{false, true}) {
+            MinHash minHash = new MinHash(64, 42, onePermutation, null, 16);
+            int[] expected = sign(minHash, 0, 100);
+            assertThat(expected.length, equalTo(minHash.width()));
+            assertValues(expected);
+
+            // another instance with the same seed, with the terms added in another order, twice
+            MinHash.Signature signature = new MinHash(64, 42, onePermutation, null, 16).newSignature();
+            for (int i = 99; i >= 0; i--) {
+                signature.add("text", new BytesRef("t" + i));
+                signature.add("text", new BytesRef("t" + i));
+            }
+            assertTrue(Arrays.equals(expected, signature.finish()));
+
+            BytesStreamOutput out = new BytesStreamOutput();
+            minHash.writeTo(out);
+            assertTrue(Arrays.equals(expected, sign(MinHash.readFrom(StreamInput.wrap(out.bytes())), 0, 100)));
+
+            assertFalse(Arrays.equals(expected, sign(new MinHash(64, 43, onePermutation, null, 16), 0, 100)));
+        }
+    }
+
+    public void testSignatureIsEmptiedOnceRead() throws Exception {
+        MinHash.Signature signature = new MinHash(16, 0, false, null, 0).newSignature();
+        assertThat(signature.finish(), nullValue());
+        signature.add("text", new BytesRef("a"));
+        int[] first = signature.finish();
+        assertThat(signature.finish(), nullValue());
+        signature.add("text", new BytesRef("a"));
+        assertTrue(Arrays.equals(first, signature.finish()));
+    }
+
+    public void testFieldIsHashed() throws Exception {
+        MinHash minHash = new MinHash(16, 0, false, null, 0);
+        MinHash.Signature signature = minHash.newSignature();
+        signature.add("title", new BytesRef("a"));
+        int[] title = signature.finish();
+        signature.add("body", new BytesRef("a"));
+        assertFalse(Arrays.equals(title, signature.finish()));
+    }
+
+    public void testJaccardIsEstimated() throws Exception {
+        for (boolean onePermutation : new boolean[]{false, true}) {
+            MinHash minHash = new MinHash(256, 7, onePermutation, null, 0);
+            // 200 terms in common out of 600, a similarity of 1/3
+            int same = sameValues(sign(minHash, 0, 400), sign(minHash, 200, 600), 0, 256);
+            assertThat(same, allOf(greaterThan(50), lessThan(120)));
+            assertThat(sameValues(sign(minHash, 0, 400), sign(minHash, 1000, 1400), 0, 256), lessThan(5));
+        }
+    }
+
+    public void testEmptyBinsAreDensified() throws Exception {
+        MinHash minHash = new MinHash(128, 3, true, null, 0);
+        // a single term fills a single bin, all the others take its value rotated by their distance to it
+        int[] values = sign(minHash, 0, 1);
+        assertThat(values.length, equalTo(128));
+        assertValues(values);
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            assertThat(sorted[i], greaterThan(sorted[i - 1]));
+        }
+
+        // a few terms leave most bins empty, which are filled the same way for the same terms
+        int[] few = sign(minHash, 0, 5);
+        assertValues(few);
+        assertTrue(Arrays.equals(few, sign(minHash, 0, 5)));
+        assertThat(sameValues(few, sign(minHash, 5, 10), 0, 128), lessThan(5));
+    }
+
+    public void testBandKeys() throws Exception {
+        MinHash minHash = new MinHash(128, 11, false, null, 32);
+        int[] values = sign(minHash, 0, 1000);
+        assertThat(values.length, equalTo(160));
+        assertValues(values);
+
+        // the band keys follow the values, which are those of a signature without bands
+        int[] withoutBands = sign(new MinHash(128, 11, false, null, 0), 0, 1000);
+        assertTrue(Arrays.equals(withoutBands, Arrays.copyOf(values, 128)));
+
+        // near duplicates share most bands, unrelated documents none
+        int[] nearDuplicate = sign(minHash, 1, 1001);
+        assertThat(sameValues(values, nearDuplicate, 128, 160), greaterThanOrEqualTo(16));
+        assertThat(sameValues(values, sign(minHash, 5000, 6000), 128, 160), equalTo(0));
+
+        // a band key only depends on the values of its band
+        for (int band = 0; band < 32; band++) {
+            if (sameValues(values, nearDuplicate, band * 4, (band + 1) * 4) == 4) {
+                assertThat(nearDuplicate[128 + band], equalTo(values[128 + band]));
+            } else {
+                assertFalse(nearDuplicate[128 + band] == values[128 + band]);
+            }
+        }
+    }
+
+    public void testParse() throws Exception {
+        Vectorizer vectorizer = parse("[{\"field\": \"text\"}, {\"minhash\": {\"num_hashes\": 32, \"bands\": 8, \"field\": \"text\"}}]");
+        assertThat(vectorizer.getMinHash().width(), equalTo(40));
+
+        try {
+            parse("[{\"field\": \"text\"}, {\"minhash\": {\"num_hashes\": 32, \"bands\": 5}}]");
+            fail("bands should have been rejected");
+        } catch (ElasticsearchParseException e) {
+            assertThat(e.getMessage(), containsString("must divide num_hashes"));
+        }
+
+        // truncation applies to the terms of the vocabulary, not to all the terms of a field
+        parse("[{\"field\": \"text\", \"span\": [\"a\", \"b\"]}, {\"top_k\": 1}, {\"minhash\": {\"num_hashes\": 32}}]");
+        try {
+            parse("[{\"field\": \"text\"}, {\"top_k\": 1}, {\"minhash\": {\"num_hashes\": 32, \"field\": \"text\"}}]");
+            fail("top_k should have been rejected");
+        } catch (ElasticsearchParseException e) {
+            assertThat(e.getMessage(), containsString("top_k and min_weight cannot be given with a minhash over a field"));
+        }
+    }
+
+    public void testNumHashesLargerThanMaxVocabularySize() throws Exception {
+        Vectorizer.setMaxVocabularySize(100);
+        parse("[{\"field\": \"text\", \"span\": [\"a\"]}, {\"minhash\": {\"num_hashes\": 80, \"bands\": 20}}]");
+        try {
+            parse("[{\"field\": \"text\", \"span\": [\"a\"]}, {\"minhash\": {\"num_hashes\": 100, \"bands\": 10}}]");
+            fail("minhash should have been rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("minhash of [110] columns is larger than [vectorize.max_vocabulary_size] of [100]"));
+        }
+    }
+}
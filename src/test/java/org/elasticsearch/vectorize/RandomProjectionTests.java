@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+
+import java.util.Arrays;
+
+import static org.elasticsearch.vectorize.VectorizerTests.parse;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class RandomProjectionTests extends ESTestCase {
+
+    private static final int[] COLUMNS = {3, 17, 42, 1000, 65536};
+    private static final int[] VALUES = {1, 5, 2, 7, 3};
+
+    @After
+    public void resetMaxVocabularySize() {
+        Vectorizer.setMaxVocabularySize(Integer.MAX_VALUE);
+    }
+
+    public void testSameSeedSameProjection() throws Exception {
+        int[] expected = new RandomProjection(64, 42, 0.1, 1000).project(COLUMNS, VALUES, COLUMNS.length);
+        int[] actual = new RandomProjection(64, 42, 0.1, 1000).project(COLUMNS, VALUES, COLUMNS.length);
+        assertTrue(Arrays.equals(expected, actual));
+    }
+
+    public void testDifferentSeedDifferentProjection() throws Exception {
+        int[] first = new RandomProjection(64, 42, 0.1, 1000).project(COLUMNS, VALUES, COLUMNS.length);
+        int[] second = new RandomProjection(64, 43, 0.1, 1000).project(COLUMNS, VALUES, COLUMNS.length);
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    public void testProjectionDoesNotDependOnTheOrderOfCells() throws Exception {
+        RandomProjection projection = new RandomProjection(64, 42, 0.1, 1000);
+        int[] expected = projection.project(COLUMNS, VALUES, COLUMNS.length);
+        int[] columns = new int[COLUMNS.length];
+        int[] values = new int[VALUES.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columns[i] = COLUMNS[COLUMNS.length - 1 - i];
+            values[i] = VALUES[VALUES.length - 1 - i];
+        }
+        assertTrue(Arrays.equals(expected, projection.project(columns, values, columns.length)));
+    }
+
+    public void testProjectionIsLinear() throws Exception {
+        // the row of each column is drawn on its own, so projecting cells one at a time adds up to the whole row
+        RandomProjection projection = new RandomProjection(32, 7, 1.0 / 3, 1);
+        int[] expected = projection.project(COLUMNS, VALUES, COLUMNS.length);
+        double[] sum = new double[32];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            int[] single = projection.project(new int[]{COLUMNS[i]}, new int[]{VALUES[i] * 1000}, 1);
+            for (int dim = 0; dim < 32; dim++) {
+                sum[dim] += single[dim] / 1000.0;
+            }
+        }
+        for (int dim = 0; dim < 32; dim++) {
+            assertEquals(expected[dim], sum[dim], 1.0);
+        }
+    }
+
+    public void testSameProjectionAfterSerialization() throws Exception {
+        RandomProjection projection = new RandomProjection(64, 42, 0.1, 100);
+        BytesStreamOutput out = new BytesStreamOutput();
+        projection.writeTo(out);
+        RandomProjection read = RandomProjection.readFrom(StreamInput.wrap(out.bytes()));
+        assertThat(read.dims(), equalTo(64));
+        assertThat(read.seed(), equalTo(42L));
+        assertTrue(Arrays.equals(projection.project(COLUMNS, VALUES, COLUMNS.length), read.project(COLUMNS, VALUES, COLUMNS.length)));
+    }
+
+    public void testDensityIsResolvedFromTheVocabulary() throws Exception {
+        Vectorizer vectorizer = parse("[{\"field\": \"text\", \"span\": [\"a\", \"b\", \"c\", \"d\"]}, {\"projection\": {\"dims\": 8, \"seed\": 1}}]");
+        assertEquals(0.5, vectorizer.getProjection().density(), 0.0);
+        assertThat(vectorizer.getProjection().scale(), equalTo(RandomProjection.DEFAULT_SCALE));
+    }
+
+    public void testDimsLargerThanMaxVocabularySize() throws Exception {
+        Vectorizer.setMaxVocabularySize(100);
+        parse("[{\"field\": \"text\", \"span\": [\"a\"]}, {\"projection\": {\"dims\": 100}}]");
+        try {
+            parse("[{\"field\": \"text\", \"span\": [\"a\"]}, {\"projection\": {\"dims\": 101}}]");
+            fail("projection should have been rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("projection of [101] columns is larger than [vectorize.max_vocabulary_size] of [100]"));
+        }
+
+        // a projection read from another node is checked as well
+        BytesStreamOutput out = new BytesStreamOutput();
+        new RandomProjection(101, 0, 0.1, 1000).writeTo(out);
+        try {
+            RandomProjection.readFrom(StreamInput.wrap(out.bytes()));
+            fail("projection should have been rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("projection of [101] columns"));
+        }
+    }
+
+    public void testScaleMustBePositive() throws Exception {
+        for (String scale : new String[]{"0", "-1000"}) {
+            try {
+                parse("[{\"field\": \"text\", \"span\": [\"a\"]}, {\"projection\": {\"dims\": 8, \"scale\": " + scale + "}}]");
+                fail("projection should have been rejected");
+            } catch (ElasticsearchParseException e) {
+                assertThat(e.getMessage(), containsString("scale of a projection must be positive"));
+            }
+        }
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        new RandomProjection(8, 0, 0.1, -1).writeTo(out);
+        try {
+            RandomProjection.readFrom(StreamInput.wrap(out.bytes()));
+            fail("projection should have been rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("scale of a projection must be positive, got [-1]"));
+        }
+    }
+
+    public void testProjectedValuesAreClampedToAnInteger() throws Exception {
+        RandomProjection projection = new RandomProjection(8, 42, 1.0, Integer.MAX_VALUE);
+        int[] projected = projection.project(new int[]{1}, new int[]{Integer.MAX_VALUE}, 1);
+        for (int value : projected) {
+            assertThat(value == Integer.MAX_VALUE || value == Integer.MIN_VALUE, equalTo(true));
+        }
+    }
+}
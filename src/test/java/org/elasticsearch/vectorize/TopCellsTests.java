@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Map;
+
+import static org.elasticsearch.vectorize.VectorizerTests.parse;
+import static org.elasticsearch.vectorize.VectorizerTests.row;
+import static org.hamcrest.Matchers.equalTo;
+
+public class TopCellsTests extends ESTestCase {
+
+    private static final String SPAN = "{\"field\": \"text\", \"span\": [\"a\", \"b\", \"c\", \"d\", \"e\"], \"value\": \"term_freq\"}";
+
+    private static final String[] TERMS = {"a", "b", "c", "d", "e"};
+
+    // adds the term of the given column of the span, with the given frequency as its value
+    private static void addTerm(Vectorizer vectorizer, int column, int freq) {
+        assertTrue(vectorizer.add(new Term("text", TERMS[column]), null, freq));
+    }
+
+    public void testHighestCellsAreKept() throws Exception {
+        Vectorizer vectorizer = parse("[" + SPAN + ", {\"top_k\": 2}]");
+        addTerm(vectorizer, 0, 1);
+        addTerm(vectorizer, 1, 7);
+        addTerm(vectorizer, 2, 3);
+        addTerm(vectorizer, 3, 9);
+        addTerm(vectorizer, 4, 2);
+        Map<Integer, Integer> row = row(vectorizer);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(1), equalTo(7));
+        assertThat(row.get(3), equalTo(9));
+
+        // the cells are emptied once the row is written
+        addTerm(vectorizer, 4, 2);
+        row = row(vectorizer);
+        assertThat(row.size(), equalTo(1));
+        assertThat(row.get(4), equalTo(2));
+    }
+
+    public void testTiesKeepTheFirstCells() throws Exception {
+        Vectorizer vectorizer = parse("[" + SPAN + ", {\"top_k\": 2}]");
+        addTerm(vectorizer, 3, 5);
+        addTerm(vectorizer, 0, 5);
+        addTerm(vectorizer, 4, 5);
+        addTerm(vectorizer, 1, 5);
+        Map<Integer, Integer> row = row(vectorizer);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(3), equalTo(5));
+        assertThat(row.get(0), equalTo(5));
+    }
+
+    public void testFewerCellsThanK() throws Exception {
+        Vectorizer vectorizer = parse("[" + SPAN + ", {\"top_k\": 10}]");
+        addTerm(vectorizer, 4, 1);
+        addTerm(vectorizer, 2, 3);
+        Map<Integer, Integer> row = row(vectorizer);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(2), equalTo(3));
+        assertThat(row.get(4), equalTo(1));
+
+        assertThat(row(vectorizer).size(), equalTo(0));
+    }
+
+    public void testNegativeWeights() throws Exception {
+        Vectorizer vectorizer = parse("[" + SPAN + ", {\"top_k\": 2}]");
+        addTerm(vectorizer, 0, -3);
+        addTerm(vectorizer, 1, -1);
+        addTerm(vectorizer, 2, -7);
+        addTerm(vectorizer, 3, 2);
+        Map<Integer, Integer> row = row(vectorizer);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(1), equalTo(-1));
+        assertThat(row.get(3), equalTo(2));
+
+        vectorizer = parse("[" + SPAN + ", {\"min_weight\": -2}]");
+        addTerm(vectorizer, 0, -3);
+        addTerm(vectorizer, 1, -2);
+        addTerm(vectorizer, 2, 4);
+        row = row(vectorizer);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(1), equalTo(-2));
+        assertThat(row.get(2), equalTo(4));
+    }
+
+    public void testQueryColumnsAreNotTruncated() throws Exception {
+        Vectorizer vectorizer = parse("[" + SPAN + ", {\"query\": {\"match_all\": {}}}, {\"query\": {\"match_all\": {}}}, " +
+                "{\"top_k\": 1, \"min_weight\": 5}]");
+        int first = vectorizer.getQueryColumn(0);
+        int second = vectorizer.getQueryColumn(1);
+        addTerm(vectorizer, 0, 8);
+        addTerm(vectorizer, 1, 6);
+        addTerm(vectorizer, 2, 1);
+        vectorizer.addColumn(first, 1);
+        vectorizer.addColumn(second, 1000);
+        Map<Integer, Integer> row = row(vectorizer);
+        assertThat(row.size(), equalTo(3));
+        assertThat(row.get(0), equalTo(8));
+        assertThat(row.get(first), equalTo(1));
+        assertThat(row.get(second), equalTo(1000));
+
+        // without truncation the query columns still follow the term columns
+        vectorizer = parse("[" + SPAN + ", {\"query\": {\"match_all\": {}}}]");
+        vectorizer.addColumn(vectorizer.getQueryColumn(0), 1);
+        addTerm(vectorizer, 4, 2);
+        Vectorizer.SparseVector vector = Vectorizer.readVector(vectorizer.writeVector());
+        assertThat(vector.next().x, equalTo(4));
+        assertThat(vector.next().x, equalTo(vectorizer.getQueryColumn(0)));
+        assertFalse(vector.hasNext());
+    }
+}
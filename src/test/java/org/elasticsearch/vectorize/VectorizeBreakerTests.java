@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class VectorizeBreakerTests extends ESTestCase {
+
+    @After
+    public void resetMaxVocabularySize() {
+        Vectorizer.setMaxVocabularySize(Integer.MAX_VALUE);
+    }
+
+    private static VectorizeBreaker breaker(int maxVocabularySize) {
+        return new VectorizeBreaker(Settings.builder().put(VectorizeBreaker.MAX_VOCABULARY_SIZE, maxVocabularySize).build(),
+                new NoneCircuitBreakerService());
+    }
+
+    public void testVocabularyIsCappedWhileParsing() throws Exception {
+        breaker(3);
+        VectorizeIntegTestCase.vectorizer("[{\"field\": \"a\", \"span\": [\"x\", \"y\"]}, {\"field\": \"b\", \"span\": [\"z\"]}]");
+        try {
+            VectorizeIntegTestCase.vectorizer("[{\"field\": \"a\", \"span\": [\"x\", \"y\"]}, {\"field\": \"b\", \"span\": [\"z\", \"w\"]}]");
+            fail("the vocabulary has four terms");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("vocabulary of size [4]"));
+        }
+        try {
+            // a numerical span is rejected before any of its terms is made up
+            VectorizeIntegTestCase.vectorizer("[{\"field\": \"n\", \"span\": 2000000000}]");
+            fail("the vocabulary has two billion terms");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("vocabulary of size [2000000000]"));
+        }
+    }
+
+    public void testVocabularyIsCappedWhileReading() throws Exception {
+        List<Term> terms = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            terms.add(new Term("capped_while_reading", "term" + i));
+        }
+        Map<String, Vectorizer.ValueOption> valueOptions = new HashMap<>();
+        valueOptions.put("capped_while_reading", Vectorizer.ValueOption.BINARY);
+        BytesStreamOutput out = new BytesStreamOutput();
+        new Vectorizer(terms, valueOptions).writeTo(out);
+
+        breaker(4);
+        try {
+            new Vectorizer().readFrom(StreamInput.wrap(out.bytes()));
+            fail("the vocabulary has five terms");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("vocabulary of size [5]"));
+        }
+    }
+
+    public void testBoxedRowsAreCharged() {
+        // a non zero of a row held as a map on the coordinating node costs far more than its three ints
+        assertThat(VectorizeBreaker.BYTES_PER_NON_ZERO, greaterThan(3L * RamUsageEstimator.NUM_BYTES_INT + 2 * VectorizeBreaker.BYTES_PER_BOXED_INT));
+    }
+}
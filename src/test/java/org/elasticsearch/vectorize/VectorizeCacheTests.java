@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class VectorizeCacheTests extends ESTestCase {
+
+    static Vectorizer vectorizer(Vectorizer.ValueOption valueOption) {
+        Map<String, Vectorizer.ValueOption> valueOptions = new HashMap<>();
+        valueOptions.put("text", valueOption);
+        return new Vectorizer(Arrays.asList(new Term("text", "foo"), new Term("text", "bar")), valueOptions);
+    }
+
+    public void testRowsAreDroppedWithTheirSegment() throws Exception {
+        VectorizeCache cache = new VectorizeCache(Settings.builder().put(VectorizeCache.CACHE_SIZE, "1mb").build());
+        Vectorizer vectorizer = vectorizer(Vectorizer.ValueOption.TERM_FREQ);
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+                writer.addDocument(new Document());
+                writer.addDocument(new Document());
+            }
+            DirectoryReader reader = DirectoryReader.open(dir);
+            LeafReader leaf = reader.leaves().get(0).reader();
+            assertNull(cache.get(vectorizer, leaf, 0));
+
+            BytesReference row = new BytesArray(new byte[]{2, 1, 0, 3});
+            cache.put(vectorizer, leaf, 0, row);
+            cache.put(vectorizer, leaf, 1, row);
+            assertEquals(row, cache.get(vectorizer, leaf, 0));
+            assertEquals(row, cache.get(vectorizer.copy(), leaf, 1));
+            assertNull(cache.get(vectorizer(Vectorizer.ValueOption.BINARY), leaf, 0));
+            assertEquals(2, cache.stats().getEntries());
+
+            reader.close();
+            assertEquals(0, cache.stats().getEntries());
+            assertEquals(0, cache.stats().getEvictions());
+        }
+    }
+
+    public void testStatisticsAreNotCached() throws Exception {
+        VectorizeCache cache = new VectorizeCache(Settings.builder().put(VectorizeCache.CACHE_SIZE, "1mb").build());
+        Vectorizer vectorizer = vectorizer(Vectorizer.ValueOption.DOC_FREQ);
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+                writer.addDocument(new Document());
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                LeafReader leaf = reader.leaves().get(0).reader();
+                cache.put(vectorizer, leaf, 0, new BytesArray(new byte[]{2, 1, 0, 3}));
+                assertNull(cache.get(vectorizer, leaf, 0));
+            }
+        }
+    }
+
+    public void testSetValueOptionChangesTheFingerprintOfThisCopyOnly() {
+        Vectorizer vectorizer = vectorizer(Vectorizer.ValueOption.TERM_FREQ);
+        Vectorizer copy = vectorizer.copy();
+        String fingerprint = vectorizer.fingerprint();
+        assertEquals(fingerprint, copy.fingerprint());
+
+        copy.setValueOption("text", Vectorizer.ValueOption.BINARY);
+        assertFalse(fingerprint.equals(copy.fingerprint()));
+        assertEquals(fingerprint, vectorizer.fingerprint());
+        assertFalse(vectorizer.allValueOptionsBoolean());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizeFetchLimiterTests extends ESTestCase {
+
+    public void testDisabledByDefault() {
+        VectorizeFetchLimiter limiter = new VectorizeFetchLimiter(Settings.EMPTY);
+        assertFalse(limiter.enabled());
+        limiter.acquire().close();
+        assertThat(limiter.getActive(), equalTo(0));
+    }
+
+    public void testRejectsWithoutWaiting() {
+        VectorizeFetchLimiter limiter = new VectorizeFetchLimiter(Settings.builder()
+                .put(VectorizeFetchLimiter.MAX_CONCURRENT, 1).build());
+        Releasable permit = limiter.acquire();
+        assertThat(limiter.getActive(), equalTo(1));
+        try {
+            limiter.acquire();
+            fail("no permit is left");
+        } catch (EsRejectedExecutionException e) {
+            assertThat(limiter.getRejected(), equalTo(1L));
+        }
+        permit.close();
+        // closing twice does not give back a permit which was never taken
+        permit.close();
+        assertThat(limiter.getActive(), equalTo(0));
+        limiter.acquire().close();
+        assertThat(limiter.getActive(), equalTo(0));
+    }
+}
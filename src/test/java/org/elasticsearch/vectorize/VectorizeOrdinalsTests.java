@@ -0,0 +1,83 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizeOrdinalsTests extends ESTestCase {
+
+    private static DirectoryReader open(Directory dir) throws Exception {
+        try (IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            writer.addDocument(new Document());
+        }
+        return DirectoryReader.open(dir);
+    }
+
+    public void testTablesAreDroppedWithTheirSegmentOnly() throws Exception {
+        VectorizeOrdinals ordinals = new VectorizeOrdinals(Settings.EMPTY);
+        Vectorizer vectorizer = VectorizeCacheTests.vectorizer(Vectorizer.ValueOption.BINARY);
+        try (Directory first = newDirectory(); Directory second = newDirectory()) {
+            DirectoryReader firstReader = open(first);
+            DirectoryReader secondReader = open(second);
+            LeafReader firstLeaf = firstReader.leaves().get(0).reader();
+            LeafReader secondLeaf = secondReader.leaves().get(0).reader();
+            ordinals.columns("test", vectorizer, "text", firstLeaf, DocValues.emptySortedSet());
+            ordinals.columns("test", vectorizer, "title", firstLeaf, DocValues.emptySortedSet());
+            VectorizeOrdinals.Columns columns = ordinals.columns("test", vectorizer, "text", secondLeaf, DocValues.emptySortedSet());
+            assertThat(ordinals.size(), equalTo(3L));
+            assertSame(columns, ordinals.columns("test", vectorizer.copy(), "text", secondLeaf, DocValues.emptySortedSet()));
+
+            firstReader.close();
+            assertThat(ordinals.size(), equalTo(1L));
+            assertSame(columns, ordinals.columns("test", vectorizer, "text", secondLeaf, DocValues.emptySortedSet()));
+            secondReader.close();
+            assertThat(ordinals.size(), equalTo(0L));
+        }
+    }
+
+    public void testRecentVectorizersAreScopedToTheirIndex() throws Exception {
+        VectorizeOrdinals ordinals = new VectorizeOrdinals(Settings.EMPTY);
+        Vectorizer binary = VectorizeCacheTests.vectorizer(Vectorizer.ValueOption.BINARY);
+        Vectorizer termFreq = VectorizeCacheTests.vectorizer(Vectorizer.ValueOption.TERM_FREQ);
+        try (Directory dir = newDirectory(); DirectoryReader reader = open(dir)) {
+            LeafReader leaf = reader.leaves().get(0).reader();
+            ordinals.columns("first", binary, "text", leaf, DocValues.emptySortedSet());
+            ordinals.columns("first", binary.copy(), "text", leaf, DocValues.emptySortedSet());
+            ordinals.columns("second", termFreq, "text", leaf, DocValues.emptySortedSet());
+            ordinals.columns("second", binary, "text", leaf, DocValues.emptySortedSet());
+        }
+        List<Vectorizer> first = ordinals.recentVectorizers("first");
+        assertThat(first.size(), equalTo(1));
+        assertThat(first.get(0).fingerprint(), equalTo(binary.fingerprint()));
+        assertThat(ordinals.recentVectorizers("second").size(), equalTo(2));
+        assertTrue(ordinals.recentVectorizers("third").isEmpty());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Map;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizeProfileTests extends ESTestCase {
+
+    public void testAddAndSerialize() throws Exception {
+        VectorizeProfile profile = new VectorizeProfile();
+        profile.addRow(3);
+        profile.addTerms(10, 4);
+        VectorizeProfile other = new VectorizeProfile();
+        other.addRow(2);
+        other.addTerms(5, 1);
+        profile.add(other);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        profile.writeTo(out);
+        VectorizeProfile read = VectorizeProfile.readProfile(StreamInput.wrap(out.bytes()));
+        assertThat(read.getRows(), equalTo(2L));
+        assertThat(read.getNonZeros(), equalTo(5L));
+        assertThat(read.getTermsScanned(), equalTo(15L));
+        assertThat(read.getTermsMatched(), equalTo(5L));
+    }
+
+    public void testXContentMatchesMap() throws Exception {
+        VectorizeProfile profile = new VectorizeProfile();
+        profile.addRow(3);
+        XContentBuilder builder = jsonBuilder().startObject();
+        profile.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        Map<String, Object> rendered = XContentHelper.convertToMap(builder.bytes(), true).v2();
+        Map<String, Object> map = profile.asMap();
+        assertThat(rendered.keySet(), equalTo(map.keySet()));
+        assertThat(((Number) rendered.get("non_zeros")).longValue(), equalTo(3L));
+    }
+}
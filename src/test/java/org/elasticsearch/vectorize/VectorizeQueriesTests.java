@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+@ClusterScope(scope = Scope.TEST, numDataNodes = 1)
+public class VectorizeQueriesTests extends VectorizeIntegTestCase {
+
+    // a binary query column, then a score column
+    private static final String VECTORIZER = "[{\"field\": \"text\", \"span\": [\"foo\"]}, " +
+            "{\"query\": {\"match\": {\"text\": \"bar\"}}}, " +
+            "{\"query\": {\"match\": {\"text\": \"bar\"}}, \"value\": \"score\", \"scale\": 1000}]";
+
+    private void indexDocs() {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)));
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo bar").get();
+        client().prepareIndex("test", "doc", "2").setSource("text", "bar bar bar").get();
+        client().prepareIndex("test", "doc", "3").setSource("text", "foo").get();
+        refresh();
+    }
+
+    public void testBinaryAndScoreColumns() throws Exception {
+        indexDocs();
+        Map<Integer, Integer> first = row(prepareVectorize("test", "doc", "1").setVectorizer(vectorizer(VECTORIZER)).get());
+        assertThat(first.get(0), equalTo(1));
+        assertThat(first.get(1), equalTo(1));
+        assertThat(first.get(2), greaterThan(0));
+
+        Map<Integer, Integer> second = row(prepareVectorize("test", "doc", "2").setVectorizer(vectorizer(VECTORIZER)).get());
+        assertFalse(second.containsKey(0));
+        assertThat(second.get(1), equalTo(1));
+        // the score grows with the frequency of the term, while the binary column does not
+        assertThat(second.get(2), greaterThan(first.get(2)));
+
+        Map<Integer, Integer> third = row(prepareVectorize("test", "doc", "3").setVectorizer(vectorizer(VECTORIZER)).get());
+        assertThat(third, equalTo(Collections.singletonMap(0, 1)));
+    }
+
+    public void testWeightsAreSharedByTheDocumentsOfAShard() throws Exception {
+        indexDocs();
+        IndexShard indexShard = internalCluster().getInstance(IndicesService.class).indexServiceSafe("test").shardSafe(0);
+        VectorizeService vectorizeService = new VectorizeService(indexShard,
+                internalCluster().getInstance(VectorizeStatsService.class));
+        Vectorizer vectorizer = vectorizer(VECTORIZER);
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("test")) {
+            VectorizeQueries.Weights weights = vectorizeService.queryWeights(vectorizer, searcher);
+            List<Map<Integer, Integer>> scanned = new ArrayList<>();
+            for (LeafReaderContext context : searcher.reader().leaves()) {
+                for (int docId = 0; docId < context.reader().maxDoc(); docId++) {
+                    scanned.add(row(Vectorizer.readVector(vectorizeService.getVector(vectorizer, "doc", searcher, context, docId,
+                            weights, new VectorizeProfile()))));
+                }
+            }
+            // the same weights, going back in doc id order, as well as weights of their own, give the same rows
+            int row = scanned.size() - 1;
+            List<LeafReaderContext> leaves = searcher.reader().leaves();
+            for (int leaf = leaves.size() - 1; leaf >= 0; leaf--) {
+                LeafReaderContext context = leaves.get(leaf);
+                for (int docId = context.reader().maxDoc() - 1; docId >= 0; docId--, row--) {
+                    assertThat(row(Vectorizer.readVector(vectorizeService.getVector(vectorizer, "doc", searcher, context, docId,
+                            weights, new VectorizeProfile()))), equalTo(scanned.get(row)));
+                    assertThat(row(Vectorizer.readVector(vectorizeService.getVector(vectorizer, "doc", searcher, context, docId,
+                            vectorizeService.queryWeights(vectorizer, searcher), new VectorizeProfile()))), equalTo(scanned.get(row)));
+                }
+            }
+            assertThat(scanned.size(), equalTo(3));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.vectorize.VectorizeResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class VectorizeServiceTests extends VectorizeIntegTestCase {
+
+    private static final String VECTORIZER = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"], \"value\": \"term_freq\"}, " +
+            "{\"field\": \"rating\", \"span\": 1}, {\"field\": \"label\", \"target\": true}]";
+
+    private void createIndex(boolean termVectors) throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)
+                .put("index.refresh_interval", -1))
+                .addMapping("doc", "text", "type=string" + (termVectors ? ",term_vector=with_positions" : ""),
+                        "rating", "type=integer", "label", "type=integer"));
+    }
+
+    private VectorizeResponse vectorize(String id, boolean realtime) throws Exception {
+        return prepareVectorize("test", "doc", id).setVectorizer(vectorizer(VECTORIZER)).setRealtime(realtime).setProfile(true).get();
+    }
+
+    private static long label(VectorizeResponse response) {
+        assertThat(response.getTargets().size(), equalTo(1));
+        return ((Number) response.getTargets().get(0)).longValue();
+    }
+
+    private void assertTranslogRowMatchesSegmentRow(boolean termVectors) throws Exception {
+        createIndex(termVectors);
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo bar foo", "rating", 3, "label", 1).get();
+
+        // not refreshed yet, so only a realtime request finds it, from the translog
+        assertFalse(vectorize("1", false).isExists());
+        VectorizeResponse translog = vectorize("1", true);
+        assertTrue(translog.isExists());
+        assertThat(translog.getVersion(), equalTo(1L));
+
+        refresh();
+        VectorizeResponse segment = vectorize("1", true);
+        assertTrue(segment.isExists());
+        Map<Integer, Integer> row = row(segment);
+        assertThat(row(translog), equalTo(row));
+        assertThat(row.get(0), equalTo(2));
+        assertThat(row.get(1), equalTo(1));
+        assertThat(row.get(2), equalTo(3));
+        // targets are read from the source of the translog, and through doc values once refreshed
+        assertThat(label(translog), equalTo(1L));
+        assertThat(label(segment), equalTo(1L));
+        // both are read once, without a term vectors or get request of their own
+        assertThat(translog.getProfile().getRows(), equalTo(1L));
+        assertThat(segment.getProfile().getRows(), equalTo(1L));
+    }
+
+    public void testTranslogRowMatchesSegmentRow() throws Exception {
+        assertTranslogRowMatchesSegmentRow(false);
+    }
+
+    public void testTranslogRowMatchesStoredTermVectors() throws Exception {
+        assertTranslogRowMatchesSegmentRow(true);
+    }
+
+    public void testNumericalValuesKeepTheirOrderOnceRefreshed() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)
+                .put("index.refresh_interval", -1))
+                .addMapping("doc", "rating", "type=integer", "stored", "type=integer,store=true", "flag", "type=boolean"));
+        client().prepareIndex("test", "doc", "1").setSource("rating", Arrays.asList(5, 2, 5), "stored", Arrays.asList(4, 1),
+                "flag", true).get();
+
+        // multi valued fields are neither sorted nor de-duplicated, whether read from the translog or from the segment
+        Vectorizer vectorizer = vectorizer("[{\"field\": \"rating\", \"span\": 3}, {\"field\": \"stored\", \"span\": 2}, " +
+                "{\"field\": \"flag\", \"span\": 1}]");
+        Map<Integer, Integer> translog = row(prepareVectorize("test", "doc", "1").setVectorizer(vectorizer).setRealtime(true).get());
+        refresh();
+        Map<Integer, Integer> segment = row(prepareVectorize("test", "doc", "1").setVectorizer(vectorizer).get());
+        assertThat(segment, equalTo(translog));
+        assertThat(segment.size(), equalTo(6));
+        assertThat(segment.get(0), equalTo(5));
+        assertThat(segment.get(1), equalTo(2));
+        assertThat(segment.get(2), equalTo(5));
+        assertThat(segment.get(3), equalTo(4));
+        assertThat(segment.get(4), equalTo(1));
+        assertThat(segment.get(5), equalTo(1));
+    }
+
+    public void testRealtimeSeesTheLatestVersion() throws Exception {
+        createIndex(false);
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo", "label", 1).setRefresh(true).get();
+        client().prepareIndex("test", "doc", "1").setSource("text", "bar bar", "label", 0).get();
+
+        VectorizeResponse response = vectorize("1", true);
+        assertThat(response.getVersion(), equalTo(2L));
+        assertThat(row(response), equalTo(Collections.singletonMap(1, 2)));
+        assertThat(label(response), equalTo(0L));
+
+        response = vectorize("1", false);
+        assertThat(response.getVersion(), equalTo(1L));
+        assertThat(row(response), equalTo(Collections.singletonMap(0, 1)));
+        assertThat(label(response), equalTo(1L));
+    }
+
+    public void testVersionIsChecked() throws Exception {
+        createIndex(false);
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo").get();
+        client().prepareIndex("test", "doc", "1").setSource("text", "bar").get();
+
+        VectorizeResponse response = prepareVectorize("test", "doc", "1").setVectorizer(vectorizer(VECTORIZER))
+                .setRealtime(true).setVersion(2).get();
+        assertThat(row(response), equalTo(Collections.singletonMap(1, 1)));
+        try {
+            prepareVectorize("test", "doc", "1").setVectorizer(vectorizer(VECTORIZER)).setRealtime(true).setVersion(1).get();
+            fail("the document is at version 2");
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(VersionConflictEngineException.class));
+        }
+    }
+
+    public void testNGramsAreRebuiltFromGeneratedAndStoredTermVectors() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("doc", "text", "type=string", "stored", "type=string,term_vector=with_positions",
+                "city", "type=string,index=not_analyzed"));
+        client().prepareIndex("test", "doc", "1").setSource("text", "not very good", "stored", "not very good", "city", "New York")
+                .setRefresh(true).get();
+
+        // a word with a space is a term of a not analyzed field, which can have term statistics
+        Vectorizer generated = vectorizer("[{\"field\": \"text\", \"span\": [[\"very\", \"good\"], [\"not\", \"good\"]]}, " +
+                "{\"field\": \"city\", \"span\": [\"New York\"], \"value\": \"doc_freq\"}]");
+        Map<Integer, Integer> row = row(prepareVectorize("test", "doc", "1").setVectorizer(generated).get());
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(0), equalTo(1));
+        assertThat(row.get(2), equalTo(1));
+
+        Vectorizer stored = vectorizer("[{\"field\": \"stored\", \"span\": [[\"very\", \"good\"], [\"not\", \"good\"]]}]");
+        row = row(prepareVectorize("test", "doc", "1").setVectorizer(stored).get());
+        assertThat(row, equalTo(Collections.singletonMap(0, 1)));
+    }
+}
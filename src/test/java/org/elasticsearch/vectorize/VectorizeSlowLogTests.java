@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizeSlowLogTests extends VectorizeIntegTestCase {
+
+    public void testThresholdsAreParsedOnce() {
+        VectorizeSlowLog.Thresholds thresholds = new VectorizeSlowLog.Thresholds(Settings.builder()
+                .put(VectorizeSlowLog.INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_WARN, "10s")
+                .put(VectorizeSlowLog.INDEX_VECTORIZE_SLOWLOG_THRESHOLD_SHARD_DEBUG, "1s")
+                .build());
+        assertThat(thresholds.shard[0], equalTo(TimeUnit.SECONDS.toNanos(10)));
+        assertThat(thresholds.shard[1], equalTo(-1L));
+        assertThat(thresholds.shardMin, equalTo(TimeUnit.SECONDS.toNanos(1)));
+        assertThat(thresholds.fetchMin, equalTo(Long.MAX_VALUE));
+    }
+
+    public void testThresholdsFollowSettingsUpdates() {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)));
+        ensureGreen();
+        for (VectorizeSlowLog slowLog : internalCluster().getInstances(VectorizeSlowLog.class)) {
+            VectorizeSlowLog.Thresholds thresholds = slowLog.thresholds("test");
+            if (thresholds != null) {
+                assertThat(thresholds.fetchMin, equalTo(Long.MAX_VALUE));
+            }
+        }
+
+        assertAcked(client().admin().indices().prepareUpdateSettings("test").setSettings(Settings.builder()
+                .put(VectorizeSlowLog.INDEX_VECTORIZE_SLOWLOG_THRESHOLD_FETCH_INFO, "100ms")));
+        int updated = 0;
+        for (VectorizeSlowLog slowLog : internalCluster().getInstances(VectorizeSlowLog.class)) {
+            VectorizeSlowLog.Thresholds thresholds = slowLog.thresholds("test");
+            if (thresholds != null) {
+                assertThat(thresholds.fetchMin, equalTo(TimeUnit.MILLISECONDS.toNanos(100)));
+                updated++;
+            }
+        }
+        assertTrue(updated > 0);
+
+        assertAcked(client().admin().indices().prepareClose("test"));
+        for (VectorizeSlowLog slowLog : internalCluster().getInstances(VectorizeSlowLog.class)) {
+            assertNull(slowLog.thresholds("test"));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.action.vectorize.VectorizeRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizeStatsServiceTests extends ESTestCase {
+
+    public void testRequestsAndBytesAreCountedApart() throws Exception {
+        ThreadPool threadPool = new ThreadPool("test");
+        try {
+            VectorizeStatsService service = new VectorizeStatsService(Settings.EMPTY, new VectorizeCache(Settings.EMPTY),
+                    new VectorizeFetchLimiter(Settings.EMPTY), threadPool);
+            BytesArray row = new BytesArray(new byte[]{3, 1, 0, 2});  // shape 3, one cell of value 2 at column 0
+            service.onRow(VectorizeStatsService.Path.STORED, row);
+            service.onResponse(VectorizeRequest.Format.COO, 5, 7);
+            service.onResponse(VectorizeRequest.Format.COO, 1, 1);
+
+            VectorizeStats stats = service.stats();
+            assertThat(stats.getRows(VectorizeStatsService.Path.STORED), equalTo(1L));
+            assertThat(stats.getNonZeros(VectorizeStatsService.Path.STORED), equalTo(1L));
+            assertThat(stats.getEncoded(VectorizeStatsService.Path.STORED).bytes(), equalTo(4L));
+            assertThat(stats.getRequests(VectorizeRequest.Format.COO), equalTo(2L));
+            assertThat(stats.getRows(VectorizeRequest.Format.COO), equalTo(6L));
+            assertThat(stats.getNonZeros(VectorizeRequest.Format.COO), equalTo(8L));
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class VectorizeTargetsTests extends ESTestCase {
+
+    public void testLibSvmLabel() {
+        assertThat(VectorizeTargets.libSvmLabel(Arrays.<Object>asList(1L)), equalTo("1"));
+        assertThat(VectorizeTargets.libSvmLabel(Arrays.<Object>asList(2.0d)), equalTo("2"));
+        assertThat(VectorizeTargets.libSvmLabel(Arrays.<Object>asList(0.5d)), equalTo("0.5"));
+        assertThat(VectorizeTargets.libSvmLabel(Arrays.<Object>asList(true)), equalTo("1"));
+        assertThat(VectorizeTargets.libSvmLabel(Arrays.<Object>asList(1L, "spam")), equalTo("1,spam"));
+    }
+
+    public void testRowsMissingATargetHaveNoLabel() {
+        assertThat(VectorizeTargets.libSvmLabel(null), nullValue());
+        assertThat(VectorizeTargets.libSvmLabel(Collections.emptyList()), nullValue());
+        assertThat(VectorizeTargets.libSvmLabel(Arrays.<Object>asList(1L, null)), nullValue());
+    }
+
+    public void testLabelsCannotSplitTheLine() {
+        for (String target : new String[]{"New York", "a\tb", "a,b", "a:b", ""}) {
+            try {
+                VectorizeTargets.libSvmLabel(Arrays.<Object>asList(target));
+                fail("[" + target + "] is not a single label");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage().contains("LibSVM label"), equalTo(true));
+            }
+        }
+    }
+
+    public void testLibSvmColumnsAreOneBased() throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(5);  // shape
+        out.writeVInt(2);  // non zeros
+        out.writeVInt(0);
+        out.writeVInt(3);
+        out.writeVInt(4);
+        out.writeVInt(1);
+        Vectorizer.SparseVector vector = Vectorizer.readVector(out.bytes());
+        assertThat(vector.toLibSvm(new StringBuilder(), "1").toString(), equalTo("1 1:3 5:1\n"));
+    }
+}
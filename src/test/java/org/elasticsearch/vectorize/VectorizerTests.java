@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizerTests extends ESTestCase {
+
+    static Vectorizer parse(String json) throws IOException {
+        try (XContentParser parser = XContentHelper.createParser(new BytesArray(json))) {
+            parser.nextToken();
+            return Vectorizer.parse(parser);
+        }
+    }
+
+    static Map<Integer, Integer> row(Vectorizer vectorizer) throws IOException {
+        Vectorizer.SparseVector vector = Vectorizer.readVector(vectorizer.writeVector());
+        Map<Integer, Integer> row = new HashMap<>();
+        while (vector.hasNext()) {
+            Vectorizer.Coord coord = vector.next();
+            row.put(coord.x, coord.y);
+        }
+        return row;
+    }
+
+    public void testWordsWithSpacesAreNotNGrams() throws Exception {
+        Vectorizer vectorizer = parse("[{\"field\": \"city\", \"span\": [\"New York\", \"Paris\"], \"value\": \"doc_freq\"}]");
+        assertFalse(vectorizer.hasNGrams());
+        assertThat(vectorizer.getColumn(new Term("city", "New York")), equalTo(0));
+    }
+
+    public void testNGramsAreGivenAsArrays() throws Exception {
+        Vectorizer vectorizer = parse("[{\"field\": \"text\", \"span\": [\"good\", [\"not\", \"good\"], [\"not\", \"very\", \"good\"]]}]");
+        assertTrue(vectorizer.hasNGrams("text"));
+        assertFalse(vectorizer.hasNGrams("title"));
+        assertThat(vectorizer.size(), equalTo(3));
+    }
+
+    public void testNGramsAreRebuiltFromPositions() throws Exception {
+        Vectorizer vectorizer = parse("[{\"field\": \"text\", \"span\": [\"good\", [\"not\", \"good\"], [\"not\", \"very\", \"good\"], " +
+                "[\"very\", \"not\"]], \"value\": \"term_freq\"}]");
+        // "not good. not very good, not good", with a removed stop word between the first two sentences
+        String[] wordsByPosition = {"not", "good", null, "not", "very", "good", "not", "good", null, null};
+        assertThat(vectorizer.addNGrams("text", wordsByPosition), equalTo(2));
+        Map<Integer, Integer> row = row(vectorizer);
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get(1), equalTo(2));
+        assertThat(row.get(2), equalTo(1));
+    }
+
+    public void testNGramsDoNotSpanGaps() throws Exception {
+        Vectorizer vectorizer = parse("[{\"field\": \"text\", \"span\": [[\"not\", \"good\"]]}]");
+        assertThat(vectorizer.addNGrams("text", new String[]{"not", null, "good"}), equalTo(0));
+        assertThat(vectorizer.addNGrams("title", new String[]{"not", "good"}), equalTo(0));
+        assertTrue(row(vectorizer).isEmpty());
+    }
+
+    public void testNGramsAreChecked() throws Exception {
+        String[] invalid = {
+                "[{\"field\": \"text\", \"span\": [[\"not\", \"good\"]], \"value\": \"doc_freq\"}]",
+                "[{\"field\": \"text\", \"span\": [[\"good\"]]}]",
+                "[{\"field\": \"text\", \"span\": [[\"not\", [\"good\"]]]}]"
+        };
+        for (String json : invalid) {
+            try {
+                parse(json);
+                fail(json + " is not a valid span");
+            } catch (ElasticsearchParseException e) {
+                assertThat(e.getMessage(), containsString("gram"));
+            }
+        }
+    }
+}
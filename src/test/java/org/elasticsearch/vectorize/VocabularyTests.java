@@ -0,0 +1,202 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+
+import java.io.EOFException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class VocabularyTests extends ESTestCase {
+
+    // the fields are interleaved and the terms of each field are out of order
+    static final List<Term> TERMS = Arrays.asList(new Term("a", "zebra"), new Term("b", "x"), new Term("a", "apple"),
+            new Term("b", "bb"), new Term("a", "app"), new Term("a", "mango"), new Term("c", "only"));
+
+    @After
+    public void resetCache() {
+        Vocabulary.setCache(null);
+        Vectorizer.setMaxVocabularySize(Integer.MAX_VALUE);
+    }
+
+    private static void assertSameTerms(Vocabulary expected, Vocabulary actual) {
+        assertEquals(expected.terms, actual.terms);
+        assertEquals(expected.columns, actual.columns);
+        assertEquals(expected.maxGramSizes, actual.maxGramSizes);
+    }
+
+    public void testRoundTripWithoutCache() throws Exception {
+        Vocabulary vocabulary = new Vocabulary(TERMS);
+        BytesStreamOutput out = new BytesStreamOutput();
+        vocabulary.writeTo(out);
+        vocabulary.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        Vocabulary first = Vocabulary.readFrom(in);
+        Vocabulary second = Vocabulary.readFrom(in);
+        assertSameTerms(vocabulary, first);
+        assertSameTerms(vocabulary, second);
+        assertNotSame(first, second);
+        assertEquals(vocabulary.fingerprint(), first.fingerprint());
+        assertEquals(0, in.available());
+    }
+
+    public void testReceivedVocabularyIsNotDecodedAgain() throws Exception {
+        VocabularyCache cache = new VocabularyCache(Settings.EMPTY, new NoneCircuitBreakerService());
+        Vocabulary vocabulary = new Vocabulary(TERMS);
+        Vocabulary other = new Vocabulary(Arrays.asList(new Term("a", "apple"), new Term("a", "zebra")));
+        BytesStreamOutput out = new BytesStreamOutput();
+        vocabulary.writeTo(out);
+        out.writeString("after the first");
+        vocabulary.writeTo(out);
+        out.writeString("after the second");
+        other.writeTo(out);
+        out.writeString("after the other");
+
+        StreamInput in = StreamInput.wrap(out.bytes());
+        Vocabulary first = Vocabulary.readFrom(in);
+        assertSameTerms(vocabulary, first);
+        assertEquals("after the first", in.readString());
+        assertEquals(1, cache.missCount());
+
+        // the second copy has the same fingerprint, its bytes are read but not decoded
+        assertThat(Vocabulary.readFrom(in), sameInstance(first));
+        assertEquals("after the second", in.readString());
+        assertEquals(1, cache.hitCount());
+
+        Vocabulary third = Vocabulary.readFrom(in);
+        assertSameTerms(other, third);
+        assertEquals("after the other", in.readString());
+        assertEquals(2, cache.size());
+        assertEquals(first.ramBytesUsed() + third.ramBytesUsed(), cache.memorySizeInBytes() - 2 * VocabularyCache.ENTRY_OVERHEAD);
+    }
+
+    public void testFingerprintIsFixedWidth() throws Exception {
+        assertThat(new Vocabulary(TERMS).fingerprint().length(), equalTo(32));
+        assertThat(Vocabulary.fingerprint(new BytesRef()).length(), equalTo(32));
+    }
+
+    public void testFingerprintIsChecked() throws Exception {
+        VocabularyCache cache = new VocabularyCache(Settings.EMPTY, new NoneCircuitBreakerService());
+        Vocabulary vocabulary = new Vocabulary(TERMS);
+        Vocabulary other = new Vocabulary(Arrays.asList(new Term("a", "apple"), new Term("a", "zebra")));
+        BytesStreamOutput out = new BytesStreamOutput();
+        vocabulary.writeTo(out);
+        Vocabulary.readFrom(StreamInput.wrap(out.bytes()));
+        assertEquals(1, cache.size());
+
+        // the bytes of another vocabulary sent with the fingerprint of a cached one
+        out = new BytesStreamOutput();
+        out.writeString(vocabulary.fingerprint());
+        out.writeBytesReference(other.bytes());
+        try {
+            Vocabulary.readFrom(StreamInput.wrap(out.bytes()));
+            fail("the bytes do not match the fingerprint");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("does not match its fingerprint"));
+        }
+    }
+
+    public void testLengthIsCheckedBeforeReading() throws Exception {
+        Vectorizer.setMaxVocabularySize(10);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString(new Vocabulary(TERMS).fingerprint());
+        out.writeVInt(Integer.MAX_VALUE);
+        try {
+            Vocabulary.readFrom(StreamInput.wrap(out.bytes()));
+            fail("the length is larger than any vocabulary of 10 terms");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("vocabulary of [" + Integer.MAX_VALUE + "] bytes is larger than"));
+        }
+
+        // a length which passes the check but is not followed by as many bytes
+        Vectorizer.setMaxVocabularySize(Integer.MAX_VALUE);
+        try {
+            Vocabulary.readFrom(StreamInput.wrap(out.bytes()));
+            fail("the stream ends before the vocabulary");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    public void testCacheIsBoundedByWeight() throws Exception {
+        Vocabulary vocabulary = new Vocabulary(TERMS);
+        BytesStreamOutput out = new BytesStreamOutput();
+        vocabulary.writeTo(out);
+        long weight = vocabulary.ramBytesUsed();
+        assertThat(weight, greaterThan(0L));
+
+        // a cache smaller than the vocabulary does not keep it
+        VocabularyCache cache = new VocabularyCache(Settings.builder().put(VocabularyCache.CACHE_SIZE, weight / 2 + "b").build(),
+                new NoneCircuitBreakerService());
+        Vocabulary.readFrom(StreamInput.wrap(out.bytes()));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.memorySizeInBytes());
+    }
+
+    public void testCachedVocabulariesAreChargedToTheBreaker() throws Exception {
+        CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY, new NodeSettingsService(Settings.EMPTY));
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        VocabularyCache cache = new VocabularyCache(Settings.EMPTY, breakerService);
+        Vocabulary vocabulary = new Vocabulary(TERMS);
+        BytesStreamOutput out = new BytesStreamOutput();
+        vocabulary.writeTo(out);
+
+        Vocabulary.readFrom(StreamInput.wrap(out.bytes()));
+        assertEquals(1, cache.size());
+        assertEquals(cache.memorySizeInBytes(), breaker.getUsed());
+        cache.clear();
+        assertEquals(0, breaker.getUsed());
+
+        // a vocabulary which would trip the breaker is still read, but it is not cached
+        Settings tight = Settings.builder().put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING, "10b").build();
+        breakerService = new HierarchyCircuitBreakerService(tight, new NodeSettingsService(tight));
+        cache = new VocabularyCache(Settings.EMPTY, breakerService);
+        assertSameTerms(vocabulary, Vocabulary.readFrom(StreamInput.wrap(out.bytes())));
+        assertEquals(0, cache.size());
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed());
+    }
+
+    public void testDisabledCache() throws Exception {
+        new VocabularyCache(Settings.builder().put(VocabularyCache.CACHE_SIZE, "0b").build(), new NoneCircuitBreakerService());
+        Vocabulary vocabulary = new Vocabulary(TERMS);
+        BytesStreamOutput out = new BytesStreamOutput();
+        vocabulary.writeTo(out);
+        vocabulary.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        assertNotSame(Vocabulary.readFrom(in), Vocabulary.readFrom(in));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class CsrMatrixWriterTests extends ESTestCase {
+
+    private static BytesReference row(int shape, int... cells) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(shape);
+        out.writeVInt(cells.length / 2);
+        for (int cell : cells) {
+            out.writeVInt(cell);
+        }
+        return out.bytes();
+    }
+
+    private static ByteBuffer read(Path path) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public void testMatrix() throws Exception {
+        Path dir = createTempDir();
+        try (MatrixWriter writer = MatrixWriter.create(VectorizeExportRequest.Format.CSR,
+                dir, "test_0", 4)) {
+            writer.addRow("1", row(4, 0, 2, 3, 1), null);
+            writer.addRow("2", row(4), null);
+            writer.addRow("3", row(4, 1, 5), null);
+            writer.finish();
+            assertThat(writer.rows(), equalTo(3L));
+        }
+        ByteBuffer csr = read(dir.resolve("test_0.csr"));
+        byte[] magic = new byte[4];
+        csr.get(magic);
+        assertTrue(Arrays.equals(magic, CsrMatrixWriter.MAGIC));
+        assertThat(csr.getInt(), equalTo(CsrMatrixWriter.VERSION));
+        assertThat(csr.getLong(), equalTo(3L));
+        assertThat(csr.getInt(), equalTo(4));
+        assertThat(csr.getLong(), equalTo(3L));
+        long[] indptr = new long[4];
+        for (int i = 0; i < indptr.length; i++) {
+            indptr[i] = csr.getLong();
+        }
+        assertTrue(Arrays.equals(indptr, new long[]{0, 2, 2, 3}));
+        int[] indices = new int[3];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = csr.getInt();
+        }
+        assertTrue(Arrays.equals(indices, new int[]{0, 3, 1}));
+        int[] data = new int[3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = csr.getInt();
+        }
+        assertTrue(Arrays.equals(data, new int[]{2, 1, 5}));
+        assertFalse(csr.hasRemaining());
+        assertThat(Files.readAllLines(dir.resolve("test_0.ids"), StandardCharsets.UTF_8),
+                equalTo(Arrays.asList("1", "2", "3")));
+        assertFalse(Files.exists(dir.resolve("test_0.targets")));
+    }
+
+    public void testTargetsAreDenseDoubles() throws Exception {
+        Path dir = createTempDir();
+        try (MatrixWriter writer = MatrixWriter.create(VectorizeExportRequest.Format.CSR,
+                dir, "test_0", 2)) {
+            writer.addRow("1", row(2, 0, 1), Arrays.<Object>asList(1L, 0.5d));
+            writer.addRow("2", row(2, 1, 1), Arrays.<Object>asList(null, true));
+            writer.addRow("3", row(2), Arrays.<Object>asList("spam", false));
+            writer.finish();
+        }
+        ByteBuffer targets = read(dir.resolve("test_0.targets"));
+        assertThat(targets.remaining(), equalTo(3 * 2 * 8));
+        List<Double> values = Arrays.asList(targets.getDouble(), targets.getDouble(), targets.getDouble(), targets.getDouble(),
+                targets.getDouble(), targets.getDouble());
+        assertThat(values.get(0), equalTo(1d));
+        assertThat(values.get(1), equalTo(0.5d));
+        assertTrue(Double.isNaN(values.get(2)));
+        assertThat(values.get(3), equalTo(1d));
+        assertTrue(Double.isNaN(values.get(4)));
+        assertThat(values.get(5), equalTo(0d));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class VectorizeExportServiceTests extends ESTestCase {
+
+    public void testExportIdsStayUnderTheExportPath() {
+        Path exportPath = createTempDir();
+        Path dir = VectorizeExportService.resolve(exportPath, "export-1_a");
+        assertThat(dir.getParent(), equalTo(exportPath.toAbsolutePath().normalize()));
+
+        for (String exportId : new String[]{"", ".", "..", "../other", "a/b", "a\\b", "/tmp"}) {
+            assertFalse(exportId, VectorizeExportService.isValidExportId(exportId));
+            try {
+                VectorizeExportService.resolve(exportPath, exportId);
+                fail("export id [" + exportId + "] escapes the export path");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("invalid export id"));
+            }
+        }
+    }
+
+    public void testRequestRejectsInvalidIds() throws Exception {
+        VectorizeExportRequest request = new VectorizeExportRequest("test")
+                .vectorizer(VectorizeIntegTestCase.vectorizer("[{\"field\": \"text\", \"span\": [\"foo\"]}]"));
+        assertNull(request.validate());
+
+        request.exportId("../../etc").since("..");
+        ActionRequestValidationException e = request.validate();
+        assertNotNull(e);
+        assertThat(e.validationErrors().size(), equalTo(2));
+    }
+}
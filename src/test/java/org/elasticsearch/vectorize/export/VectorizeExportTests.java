@@ -0,0 +1,252 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.vectorize.export;
+
+import org.elasticsearch.action.vectorize.export.VectorizeExportAction;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequest;
+import org.elasticsearch.action.vectorize.export.VectorizeExportRequestBuilder;
+import org.elasticsearch.action.vectorize.export.VectorizeExportResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.vectorize.VectorizeIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+import org.elasticsearch.vectorize.Vectorizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@ClusterScope(scope = Scope.TEST, numDataNodes = 1)
+public class VectorizeExportTests extends VectorizeIntegTestCase {
+
+    public static final String VECTORIZER = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"]}]";
+
+    public static final String LABELLED = "[{\"field\": \"text\", \"span\": [\"foo\", \"bar\"]}, " +
+            "{\"field\": \"label\", \"target\": true}]";
+
+    private Path exportPath;
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        if (exportPath == null) {
+            exportPath = createTempDir();
+        }
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(VectorizeExportService.EXPORT_PATH, exportPath.toString())
+                .build();
+    }
+
+    protected Path exportPath() {
+        return exportPath;
+    }
+
+    protected VectorizeExportRequestBuilder prepareExport(String index, Vectorizer vectorizer) {
+        return new VectorizeExportRequestBuilder(client(), VectorizeExportAction.INSTANCE).setIndices(index).setVectorizer(vectorizer);
+    }
+
+    /**
+     * Runs the export and waits for all its shards to be done.
+     */
+    protected List<ShardExportStatus> export(VectorizeExportRequestBuilder request) throws Exception {
+        final String exportId = request.get().getExportId();
+        final List<ShardExportStatus> statuses = new ArrayList<>();
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                statuses.clear();
+                for (VectorizeExportService service : internalCluster().getInstances(VectorizeExportService.class)) {
+                    for (ShardExportStatus status : service.status(exportId)) {
+                        assertThat(status.getFailure(), status.getState(), equalTo(ShardExportStatus.State.DONE));
+                        statuses.add(status);
+                    }
+                }
+                assertFalse(statuses.isEmpty());
+            }
+        });
+        return statuses;
+    }
+
+    protected List<String> lines(String exportId, String file) throws IOException {
+        Path path = exportPath.resolve(exportId).resolve(file);
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+        return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+
+    protected void indexDocs() {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0).put("index.refresh_interval", -1)));
+        client().prepareIndex("test", "doc", "1").setSource("text", "foo bar foo", "label", 1).get();
+        client().prepareIndex("test", "doc", "2").setSource("text", "bar", "label", 0).get();
+        client().prepareIndex("test", "doc", "3").setSource("text", "baz").get();
+        refresh();
+    }
+
+    public void testExportReadsThePointInTimeSearcher() throws Exception {
+        indexDocs();
+        // an update not refreshed yet is not part of the export, as the segments listed in the manifest do not have it
+        client().prepareIndex("test", "doc", "2").setSource("text", "foo", "label", 0).get();
+
+        List<ShardExportStatus> statuses = export(prepareExport("test", vectorizer(LABELLED))
+                .setExportId("first").setFormat(VectorizeExportRequest.Format.LIBSVM));
+        assertThat(statuses.size(), equalTo(1));
+        List<String> ids = lines("first", "test_0.ids");
+        List<String> rows = lines("first", "test_0.libsvm");
+        assertThat(rows.size(), equalTo(ids.size()));
+        assertThat(rows.get(ids.indexOf("2")), equalTo("0 2:1"));  // bar, not foo
+    }
+
+    public void testLibSvmColumnsAreOneBasedAndUnlabelledRowsAreLeftOut() throws Exception {
+        indexDocs();
+        List<ShardExportStatus> statuses = export(prepareExport("test", vectorizer(LABELLED))
+                .setExportId("first").setFormat(VectorizeExportRequest.Format.LIBSVM));
+        assertThat(statuses.get(0).getRows(), equalTo(2L));
+        List<String> ids = lines("first", "test_0.ids");
+        assertThat(ids.size(), equalTo(2));
+        assertFalse(ids.contains("3"));
+        List<String> rows = lines("first", "test_0.libsvm");
+        assertThat(rows.get(ids.indexOf("1")), equalTo("1 1:2 2:1"));
+        assertThat(rows.get(ids.indexOf("2")), equalTo("0 2:1"));
+    }
+
+    public void testCsrTargetsAreParallelToTheIds() throws Exception {
+        indexDocs();
+        export(prepareExport("test", vectorizer(LABELLED)).setExportId("first").setFormat(VectorizeExportRequest.Format.CSR));
+        List<String> ids = lines("first", "test_0.ids");
+        assertThat(ids.size(), equalTo(3));
+        ByteBuffer targets = ByteBuffer.wrap(Files.readAllBytes(exportPath.resolve("first").resolve("test_0.targets")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(targets.remaining(), equalTo(3 * 8));
+        assertThat(targets.getDouble(ids.indexOf("1") * 8), equalTo(1d));
+        assertThat(targets.getDouble(ids.indexOf("2") * 8), equalTo(0d));
+        assertTrue(Double.isNaN(targets.getDouble(ids.indexOf("3") * 8)));
+    }
+
+    public void testLibSvmNeedsATarget() throws Exception {
+        indexDocs();
+        try {
+            prepareExport("test", vectorizer(VECTORIZER)).setFormat(VectorizeExportRequest.Format.LIBSVM).get();
+            fail("there is nothing to label the rows with");
+        } catch (Exception e) {
+            assertThat(e.getMessage().contains("needs a vectorizer with a target field"), equalTo(true));
+        }
+    }
+
+    public void testExportIdCannotEscapeTheExportPath() throws Exception {
+        indexDocs();
+        try {
+            prepareExport("test", vectorizer(VECTORIZER)).setExportId("../escaped").get();
+            fail("the export id is a path");
+        } catch (Exception e) {
+            assertThat(e.getMessage().contains("invalid export_id"), equalTo(true));
+        }
+        assertFalse(Files.exists(exportPath.resolveSibling("escaped")));
+    }
+
+    public void testIncrementalExportSkipsTheSegmentsAlreadyExported() throws Exception {
+        indexDocs();
+        export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("first"));
+        client().prepareIndex("test", "doc", "4").setSource("text", "foo").get();
+        refresh();
+
+        ShardExportStatus status = export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("second").setSince("first")).get(0);
+        assertThat(status.getSegments(), equalTo(2));
+        assertThat(status.getSkippedSegments(), equalTo(1));
+        assertThat(status.getRemovedSegments(), equalTo(0));
+        assertThat(status.getDeletedDocs(), equalTo(0L));
+        assertThat(status.getRows(), equalTo(1L));
+        assertThat(lines("second", "test_0.ids"), equalTo(Collections.singletonList("4")));
+        assertTrue(lines("second", "test_0.removed").isEmpty());
+        assertTrue(lines("second", "test_0.deleted").isEmpty());
+    }
+
+    public void testIncrementalExportListsTheDeletedDocuments() throws Exception {
+        indexDocs();
+        export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("first"));
+        client().prepareDelete("test", "doc", "2").get();
+        refresh();
+
+        ShardExportStatus status = export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("second").setSince("first")).get(0);
+        assertThat(status.getSkippedSegments(), equalTo(1));
+        assertThat(status.getDeletedDocs(), equalTo(1L));
+        assertThat(status.getRows(), equalTo(0L));
+        assertThat(lines("second", "test_0.deleted"), equalTo(Collections.singletonList("2")));
+
+        // the deletions are carried over, so the next export only lists those made since
+        client().prepareDelete("test", "doc", "3").get();
+        refresh();
+        status = export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("third").setSince("second")).get(0);
+        assertThat(status.getDeletedDocs(), equalTo(1L));
+        assertThat(lines("third", "test_0.deleted"), equalTo(Collections.singletonList("3")));
+    }
+
+    public void testIncrementalExportListsTheRemovedSegments() throws Exception {
+        indexDocs();
+        export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("first"));
+        client().prepareIndex("test", "doc", "4").setSource("text", "foo").get();
+        refresh();
+        client().admin().indices().prepareOptimize("test").setMaxNumSegments(1).setFlush(true).get();
+        refresh();
+
+        ShardExportStatus status = export(prepareExport("test", vectorizer(VECTORIZER)).setExportId("second").setSince("first")).get(0);
+        assertThat(status.getSegments(), equalTo(1));
+        assertThat(status.getSkippedSegments(), equalTo(0));
+        assertThat(status.getRemovedSegments(), equalTo(1));
+        // the documents of the merged segment are all exported again
+        assertThat(status.getRows(), equalTo(4L));
+        List<String> removed = lines("second", "test_0.removed");
+        assertThat(removed.size(), equalTo(1));
+        assertThat(removed.get(0), startsWith("first 0 3 "));
+    }
+
+    public void testIncrementalExportNeedsTheSameVectorizerTypesAndFormat() throws Exception {
+        indexDocs();
+        export(prepareExport("test", vectorizer(LABELLED)).setExportId("first"));
+
+        VectorizeExportResponse response = prepareExport("test", vectorizer(VECTORIZER)).setExportId("second").setSince("first").get();
+        assertThat(response.getFailedShards(), equalTo(1));
+        assertThat(response.getShardFailures()[0].reason(), containsString("another vectorizer"));
+
+        response = prepareExport("test", vectorizer(LABELLED)).setExportId("second").setSince("first").setTypes("doc").get();
+        assertThat(response.getFailedShards(), equalTo(1));
+        assertThat(response.getShardFailures()[0].reason(), containsString("types"));
+
+        response = prepareExport("test", vectorizer(LABELLED)).setExportId("second").setSince("first")
+                .setFormat(VectorizeExportRequest.Format.LIBSVM).get();
+        assertThat(response.getFailedShards(), equalTo(1));
+        assertThat(response.getShardFailures()[0].reason(), containsString("format"));
+        assertFalse(Files.exists(exportPath.resolve("second")));
+
+        export(prepareExport("test", vectorizer(LABELLED)).setExportId("second").setSince("first"));
+    }
+}